@@ -916,10 +916,10 @@ private void updateGet(
     private char[] loadPrivately(int layer) {
         layer -= getMinSectionPosition();
         if (super.sections[layer] != null) {
-            synchronized (super.sectionLocks[layer]) {
-                if (super.sections[layer].isFull() && super.blocks[layer] != null) {
-                    return super.blocks[layer];
-                }
+            // Also unpacks the section if it was packed
+            char[] loaded = getLoaded(layer);
+            if (loaded != null) {
+                return loaded;
             }
         }
         return PaperweightGetBlocks.this.update(layer, null, true);
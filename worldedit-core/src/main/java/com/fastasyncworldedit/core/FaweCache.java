@@ -38,6 +38,7 @@
 import org.apache.logging.log4j.Logger;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -312,8 +313,14 @@ private Palette toPalette(int layerOffset, int[] blocksInts, char[] blocksChars)
         int[] blocksCopy = SECTION_BLOCKS.get();
 
         try {
-            int num_palette = 0;
             int blockIndexStart = layerOffset << 12;
+            if (blocksChars != null) {
+                Palette palette = toSmallPalette(blocksChars, blockIndexStart, blockToPalette, paletteToBlock, blockStates);
+                if (palette != null) {
+                    return palette;
+                }
+            }
+            int num_palette = 0;
             int blockIndexEnd = blockIndexStart + 4096;
             if (blocksChars != null) {
                 for (int i = blockIndexStart, j = 0; i < blockIndexEnd; i++, j++) {
@@ -380,6 +387,68 @@ private Palette toPalette(int layerOffset, int[] blocksInts, char[] blocksChars)
         }
     }
 
+    /**
+     * Palette of a section of at most 16 states, built and packed in a single pass. Sections of 16 states or less use 4
+     * bits per entry, for which the stretched and unstretched layouts are the same.
+     *
+     * @return the palette, or null if the section has more than 16 states
+     */
+    @Nullable
+    private Palette toSmallPalette(
+            char[] blocks, int blockIndexStart, int[] blockToPalette, int[] paletteToBlock, long[] blockStates
+    ) {
+        int first = blocks[blockIndexStart];
+        int blockIndexEnd = blockIndexStart + 4096;
+        int i = blockIndexStart + 1;
+        while (i < blockIndexEnd && blocks[i] == first) {
+            i++;
+        }
+        Palette palette = PALETTE_CACHE.get();
+        palette.paletteToBlock = paletteToBlock;
+        palette.blockStates = blockStates;
+        if (i == blockIndexEnd) {
+            // Uniform section, e.g. filled by //set
+            paletteToBlock[0] = first;
+            blockStates[0] = 0;
+            palette.bitsPerEntry = Settings.settings().PROTOCOL_SUPPORT_FIX ? 4 : 1;
+            palette.paletteToBlockLength = 1;
+            palette.blockStatesLength = 1;
+            return palette;
+        }
+        int num_palette = 0;
+        int index = blockIndexStart;
+        for (int longIndex = 0; longIndex < 256; longIndex++) {
+            long l = 0;
+            for (int shift = 0; shift < 64; shift += 4, index++) {
+                int ordinal = blocks[index];
+                int paletteIndex = blockToPalette[ordinal];
+                if (paletteIndex == Integer.MAX_VALUE) {
+                    if (num_palette == 16) {
+                        num_palette = -1;
+                        break;
+                    }
+                    blockToPalette[ordinal] = paletteIndex = num_palette;
+                    paletteToBlock[num_palette++] = ordinal;
+                }
+                l |= (long) paletteIndex << shift;
+            }
+            if (num_palette == -1) {
+                break;
+            }
+            blockStates[longIndex] = l;
+        }
+        for (int j = 0, length = num_palette == -1 ? 16 : num_palette; j < length; j++) {
+            blockToPalette[paletteToBlock[j]] = Integer.MAX_VALUE;
+        }
+        if (num_palette == -1) {
+            return null;
+        }
+        palette.bitsPerEntry = 4;
+        palette.paletteToBlockLength = num_palette;
+        palette.blockStatesLength = 256;
+        return palette;
+    }
+
     /**
      * Convert raw int array to unstretched palette (1.16)
      *
@@ -389,6 +458,15 @@ public Palette toPaletteUnstretched(int layerOffset, char[] blocks) {
         return toPaletteUnstretched(layerOffset, null, blocks);
     }
 
+    /**
+     * Convert raw int array to unstretched palette (1.16)
+     *
+     * @return palette
+     */
+    public Palette toPaletteUnstretched(int layerOffset, int[] blocks) {
+        return toPaletteUnstretched(layerOffset, blocks, null);
+    }
+
     private Palette toPaletteUnstretched(int layerOffset, int[] blocksInts, char[] blocksChars) {
         int[] blockToPalette = BLOCK_TO_PALETTE.get();
         int[] paletteToBlock = PALETTE_TO_BLOCK.get();
@@ -396,8 +474,14 @@ private Palette toPaletteUnstretched(int layerOffset, int[] blocksInts, char[] b
         int[] blocksCopy = SECTION_BLOCKS.get();
 
         try {
-            int num_palette = 0;
             int blockIndexStart = layerOffset << 12;
+            if (blocksChars != null) {
+                Palette palette = toSmallPalette(blocksChars, blockIndexStart, blockToPalette, paletteToBlock, blockStates);
+                if (palette != null) {
+                    return palette;
+                }
+            }
+            int num_palette = 0;
             int blockIndexEnd = blockIndexStart + 4096;
             if (blocksChars != null) {
                 for (int i = blockIndexStart, j = 0; i < blockIndexEnd; i++, j++) {
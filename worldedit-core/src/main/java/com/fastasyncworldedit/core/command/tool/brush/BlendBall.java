@@ -2,21 +2,20 @@
 
 import com.fastasyncworldedit.core.function.mask.CachedMask;
 import com.fastasyncworldedit.core.math.MutableBlockVector3;
+import com.fastasyncworldedit.core.math.stencil.OrdinalGrid;
+import com.fastasyncworldedit.core.math.stencil.OrdinalMaterials;
+import com.fastasyncworldedit.core.math.stencil.VoxelStencil;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.command.tool.brush.Brush;
 import com.sk89q.worldedit.function.pattern.Pattern;
 import com.sk89q.worldedit.math.BlockVector3;
-import com.sk89q.worldedit.world.block.BlockState;
-import com.sk89q.worldedit.world.block.BlockTypes;
+import com.sk89q.worldedit.world.block.BlockTypesCache;
 
 import javax.annotation.Nullable;
-import java.util.Arrays;
 
 public class BlendBall implements Brush {
 
-    private static final BlockState AIR = BlockTypes.AIR.getDefaultState();
-
     private final int minFreqDiff;
     private final boolean onlyAir;
     @Nullable private final CachedMask mask;
@@ -50,89 +49,129 @@ public void build(EditSession editSession, BlockVector3 position, Pattern patter
         final int outsetSize = (int) (size + 1);
         double brushSizeSquared = size * size;
 
-        int tx = position.x();
-        int ty = position.y();
-        int tz = position.z();
-
-        int[] frequency = new int[BlockTypes.size()];
-
         int maxY = editSession.getMaxY();
         int minY = editSession.getMinY();
 
-        MutableBlockVector3 mutable = new MutableBlockVector3();
-        for (int x = -outsetSize; x <= outsetSize; x++) {
-            int x0 = x + tx;
-            int xx = x * x;
-            for (int y = -outsetSize; y <= outsetSize; y++) {
-                int y0 = y + ty;
-                if (y0 + 1 < minY || y0 - 1 > maxY) {
-                    continue;
-                }
-                int yy = y * y;
-                int xxyy = xx + yy;
-                if (xxyy >= brushSizeSquared) {
+        // One block beyond the brush so every cell of the ball has all of its neighbours in the grid
+        int center = outsetSize + 1;
+        BlockVector3 min = position.subtract(center, center, center);
+        BlockVector3 max = position.add(center, center, center);
+        OrdinalGrid original = OrdinalGrid.load(editSession, min, max);
+        OrdinalGrid result = new OrdinalGrid(min, max);
+        int minGridY = min.y();
+
+        // Masks may read the edit session, so are tested here rather than from the stencil's threads
+        boolean[] masked = null;
+        if (mask != null) {
+            masked = new boolean[original.getOrdinals().length];
+            MutableBlockVector3 mutable = new MutableBlockVector3();
+            for (int y = 0; y < original.getHeight(); y++) {
+                int y0 = minGridY + y;
+                if (y0 < minY || y0 > maxY) {
                     continue;
                 }
-                for (int z = -outsetSize; z <= outsetSize; z++) {
-                    int z0 = z + tz;
-                    if (xxyy + z * z >= brushSizeSquared || maskFails(editSession, mutable.setComponents(x0, y0, z0))) {
-                        continue;
-                    }
-                    int highest = 1, currentBlockFrequency = 1;
-                    BlockState currentState = editSession.getBlock(x0, y0, z0);
-                    BlockState highestState = currentState;
-                    int currentStateID = currentState.getInternalBlockTypeId();
-                    Arrays.fill(frequency, 0);
-                    int air = 0;
-                    int total = 26;
-                    boolean tie = false;
-                    for (int ox = -1; ox <= 1; ox++) {
-                        for (int oz = -1; oz <= 1; oz++) {
-                            for (int oy = -1; oy <= 1; oy++) {
-                                if (ox == 0 && oy == 0 && oz == 0) {
-                                    continue;
-                                } else if (oy + y0 < minY || oy + y0 > maxY) {
-                                    total--;
-                                    continue;
-                                }
-                                boolean masked = maskFails(editSession, mutable.setComponents(x0 + ox, y0 + oy, z0 + oz));
-                                BlockState state = masked ? AIR : editSession.getBlock(x0 + ox, y0 + oy, z0 + oz);
-                                if (state.getBlockType().getMaterial().isAir()) {
-                                    air++;
-                                }
-                                int internalID = state.getInternalBlockTypeId();
-                                int count = frequency[internalID];
-                                if (internalID == currentStateID) {
-                                    currentBlockFrequency++;
-                                }
-                                count++;
-                                if (count - highest >= minFreqDiff) {
-                                    highest = count;
-                                    highestState = state;
-                                    tie = false;
-                                } else if (count == highest) {
-                                    tie = true;
-                                }
-                                frequency[internalID] = count;
-                            }
-                        }
+                for (int z = 0; z < original.getLength(); z++) {
+                    int index = original.getIndex(0, y, z);
+                    for (int x = 0; x < original.getWidth(); x++, index++) {
+                        masked[index] = maskFails(editSession, mutable.setComponents(min.x() + x, y0, min.z() + z));
                     }
-                    if (onlyAir) {
-                        if (air * 2 - total >= minFreqDiff) {
-                            if (!currentState.isAir()) {
-                                editSession.setBlock(x0, y0, z0, AIR);
-                            }
-                        } else if (currentState.isAir() && total - 2 * air >= minFreqDiff) {
-                            editSession.setBlock(x0, y0, z0, highestState);
-                        }
+                }
+            }
+        }
+        blend(original, result, center, brushSizeSquared, minY, maxY, masked, OrdinalMaterials.STATES);
+        // Every cell is computed from the original blocks, as the edit session doesn't read back blocks set during the edit
+        result.setChanged(editSession, original);
+    }
+
+    /**
+     * Blend the ball at the center of a grid into another grid of the same bounds.
+     *
+     * @param failed whether the mask fails at each index of the grid, or {@code null} without a mask
+     */
+    void blend(
+            OrdinalGrid original,
+            OrdinalGrid result,
+            int center,
+            double brushSizeSquared,
+            int minY,
+            int maxY,
+            @Nullable boolean[] failed,
+            OrdinalMaterials materials
+    ) {
+        int minGridY = original.getMinimumPoint().y();
+
+        int[] neighborY = new int[26];
+        BlockVector3[] neighbors = new BlockVector3[26];
+        int n = 0;
+        for (int ox = -1; ox <= 1; ox++) {
+            for (int oz = -1; oz <= 1; oz++) {
+                for (int oy = -1; oy <= 1; oy++) {
+                    if (ox == 0 && oy == 0 && oz == 0) {
                         continue;
                     }
-                    if (highest - currentBlockFrequency >= minFreqDiff && !tie && currentState != highestState) {
-                        editSession.setBlock(x0, y0, z0, highestState);
-                    }
+                    neighborY[n] = oy;
+                    neighbors[n++] = BlockVector3.at(ox, oy, oz);
                 }
             }
         }
+        int[] offsets = original.getOffsets(neighbors);
+        char airOrdinal = (char) BlockTypesCache.ReservedIDs.AIR;
+
+        VoxelStencil.apply(original, result, (ordinals, index, x, y, z, frequency) -> {
+            char ordinal = ordinals[index];
+            int dx = x - center;
+            int dy = y - center;
+            int dz = z - center;
+            int y0 = minGridY + y;
+            if (y0 < minY || y0 > maxY || dx * dx + dy * dy + dz * dz >= brushSizeSquared
+                    || failed != null && failed[index]) {
+                return ordinal;
+            }
+            int highest = 1, currentBlockFrequency = 1;
+            boolean currentAir = materials.isAir(ordinal);
+            char highestState = ordinal;
+            int currentStateID = materials.getTypeId(ordinal);
+            frequency.clear();
+            int air = 0;
+            int total = 26;
+            boolean tie = false;
+            for (int i = 0; i < 26; i++) {
+                int oy = neighborY[i];
+                if (oy + y0 < minY || oy + y0 > maxY) {
+                    total--;
+                    continue;
+                }
+                int neighbor = index + offsets[i];
+                char stateOrdinal = failed != null && failed[neighbor] ? airOrdinal : ordinals[neighbor];
+                if (materials.isAir(stateOrdinal)) {
+                    air++;
+                }
+                int internalID = materials.getTypeId(stateOrdinal);
+                if (internalID == currentStateID) {
+                    currentBlockFrequency++;
+                }
+                int count = frequency.increment(internalID);
+                if (count - highest >= minFreqDiff) {
+                    highest = count;
+                    highestState = stateOrdinal;
+                    tie = false;
+                } else if (count == highest) {
+                    tie = true;
+                }
+            }
+            if (onlyAir) {
+                if (air * 2 - total >= minFreqDiff) {
+                    return currentAir ? ordinal : airOrdinal;
+                } else if (currentAir && total - 2 * air >= minFreqDiff) {
+                    return highestState;
+                }
+                return ordinal;
+            }
+            if (highest - currentBlockFrequency >= minFreqDiff && !tie && ordinal != highestState) {
+                return highestState;
+            }
+            return ordinal;
+        });
     }
 
     private boolean maskFails(EditSession editSession, MutableBlockVector3 mutable) {
@@ -1,21 +1,14 @@
 package com.fastasyncworldedit.core.command.tool.brush;
 
-import com.fastasyncworldedit.core.extent.clipboard.CPUOptimizedClipboard;
+import com.fastasyncworldedit.core.math.stencil.OrdinalGrid;
+import com.fastasyncworldedit.core.math.stencil.OrdinalMaterials;
+import com.fastasyncworldedit.core.math.stencil.VoxelStencil;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.command.tool.brush.Brush;
-import com.sk89q.worldedit.extent.clipboard.Clipboard;
 import com.sk89q.worldedit.function.pattern.Pattern;
 import com.sk89q.worldedit.math.BlockVector3;
-import com.sk89q.worldedit.regions.CuboidRegion;
-import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.Direction;
-import com.sk89q.worldedit.util.Location;
-import com.sk89q.worldedit.world.block.BaseBlock;
-import com.sk89q.worldedit.world.block.BlockState;
-import com.sk89q.worldedit.world.block.BlockTypes;
-
-import java.util.Arrays;
 
 public class ErodeBrush implements Brush {
 
@@ -57,159 +50,132 @@ public void erosion(
     ) {
         int brushSize = (int) size;
         int brushSizeSquared = (int) (size * size);
-        Location min = new Location(es.getWorld(), target.toVector3().subtract(size, size, size));
-        Location max = new Location(es.getWorld(), target.toVector3().add(size, size, size));
-        Region region = new CuboidRegion(es.getWorld(), min.toBlockPoint(), max.toBlockPoint());
-        Clipboard buffer1 = new CPUOptimizedClipboard(region);
-        Clipboard buffer2 = new CPUOptimizedClipboard(region);
-
-        final int bx = target.x();
-        final int by = target.y();
-        final int bz = target.z();
-
-        for (int x = -brushSize, relx = 0; x <= brushSize && relx < buffer1.getWidth(); x++, relx++) {
-            int x0 = x + bx;
-            for (int y = -brushSize, rely = 0; y <= brushSize && rely < buffer1.getHeight(); y++, rely++) {
-                int y0 = y + by;
-                for (int z = -brushSize, relz = 0; z <= brushSize && relz < buffer1.getLength(); z++, relz++) {
-                    int z0 = z + bz;
-                    BlockState state = es.getBlock(x0, y0, z0);
-                    buffer1.setBlock(relx, rely, relz, state);
-                    buffer2.setBlock(relx, rely, relz, state);
-                }
-            }
-        }
-
-        int swap = 0;
-        for (int i = 0; i < erodeRecursion; ++i) {
-            erosionIteration(
-                    brushSize,
-                    brushSizeSquared,
-                    erodeFaces,
-                    swap % 2 == 0 ? buffer1 : buffer2,
-                    swap % 2 == 1 ? buffer1 : buffer2
-            );
-            swap++;
-        }
+        // One block of margin, so every block of the sphere has its neighbours in the grid
+        int center = brushSize + 1;
+        BlockVector3 min = target.subtract(center, center, center);
+        BlockVector3 max = target.add(center, center, center);
+        OrdinalGrid original = OrdinalGrid.load(es, min, max);
+        OrdinalGrid result = erode(
+                original,
+                center,
+                brushSizeSquared,
+                erodeFaces,
+                erodeRecursion,
+                fillFaces,
+                fillRecursion,
+                OrdinalMaterials.STATES
+        );
+        result.setChanged(es, original);
+    }
 
-        for (int i = 0; i < fillRecursion; ++i) {
-            fillIteration(
-                    brushSize,
-                    brushSizeSquared,
-                    fillFaces,
-                    swap % 2 == 0 ? buffer1 : buffer2,
-                    swap % 2 == 1 ? buffer1 : buffer2
-            );
-            swap++;
-        }
-        Clipboard finalBuffer = swap % 2 == 0 ? buffer1 : buffer2;
+    /**
+     * Erode and then fill the sphere at the center of a grid, leaving the grid unchanged.
+     *
+     * @return the grid holding the result
+     */
+    static OrdinalGrid erode(
+            OrdinalGrid original,
+            int center,
+            int brushSizeSquared,
+            int erodeFaces,
+            int erodeRecursion,
+            int fillFaces,
+            int fillRecursion,
+            OrdinalMaterials materials
+    ) {
+        OrdinalGrid buffer1 = original.copy();
+        OrdinalGrid buffer2 = original.copy();
+        int[] offsets = original.getOffsets(FACES_TO_CHECK);
+
+        OrdinalGrid result = VoxelStencil.iterate(
+                buffer1,
+                buffer2,
+                erodeRecursion,
+                erosionIteration(center, brushSizeSquared, erodeFaces, offsets, materials)
+        );
+        return VoxelStencil.iterate(
+                result,
+                result == buffer1 ? buffer2 : buffer1,
+                fillRecursion,
+                fillIteration(center, brushSizeSquared, fillFaces, offsets, materials)
+        );
+    }
 
-        for (BlockVector3 pos : finalBuffer) {
-            BlockState block = pos.getBlock(finalBuffer);
-            es.setBlock(pos.x() + bx - brushSize, pos.y() + by - brushSize, pos.z() + bz - brushSize, block);
-        }
+    private static boolean inSphere(int center, int brushSizeSquared, int x, int y, int z) {
+        x -= center;
+        y -= center;
+        z -= center;
+        return x * x + y * y + z * z < brushSizeSquared;
     }
 
-    private void fillIteration(
-            int brushSize, int brushSizeSquared, int fillFaces,
-            Clipboard current, Clipboard target
+    private static VoxelStencil.Function fillIteration(
+            int center,
+            int brushSizeSquared,
+            int fillFaces,
+            int[] offsets,
+            OrdinalMaterials materials
     ) {
-        int[] frequency = null;
-        for (int x = -brushSize, relx = 0; x <= brushSize && relx < target.getWidth(); x++, relx++) {
-            int x2 = x * x;
-            for (int z = -brushSize, relz = 0; z <= brushSize && relz < target.getLength(); z++, relz++) {
-                int x2y2 = x2 + z * z;
-                for (int y = -brushSize, rely = 0; y <= brushSize && rely < target.getHeight(); y++, rely++) {
-                    int cube = x2y2 + y * y;
-                    target.setBlock(relx, rely, relz, current.getBlock(relx, rely, relz));
-                    if (cube >= brushSizeSquared) {
-                        continue;
-                    }
-                    BaseBlock state = current.getFullBlock(relx, rely, relz);
-                    if (state.getBlockType().getMaterial().isMovementBlocker()) {
-                        continue;
-                    }
-                    BaseBlock highestState = state;
-                    if (frequency == null) {
-                        frequency = new int[BlockTypes.size()];
-                    } else {
-                        Arrays.fill(frequency, 0);
-                    }
-                    int total = 0;
-                    int highest = 1;
-                    for (BlockVector3 offs : FACES_TO_CHECK) {
-                        BaseBlock next = current.getFullBlock(
-                                relx + offs.x(),
-                                rely + offs.y(),
-                                relz + offs.z()
-                        );
-                        if (!next.getBlockType().getMaterial().isMovementBlocker()) {
-                            continue;
-                        }
-                        total++;
-                        int count = ++frequency[next.getInternalBlockTypeId()];
-                        if (count >= highest) {
-                            highest = count;
-                            highestState = next;
-                        }
-                    }
-                    if (total >= fillFaces) {
-                        target.setBlock(relx, rely, relz, highestState);
-                    }
+        return (ordinals, index, x, y, z, frequency) -> {
+            char ordinal = ordinals[index];
+            if (!inSphere(center, brushSizeSquared, x, y, z)) {
+                return ordinal;
+            }
+            if (materials.isTypeMovementBlocker(ordinal)) {
+                return ordinal;
+            }
+            char highestState = ordinal;
+            frequency.clear();
+            int total = 0;
+            int highest = 1;
+            for (int offset : offsets) {
+                char next = ordinals[index + offset];
+                if (!materials.isTypeMovementBlocker(next)) {
+                    continue;
+                }
+                total++;
+                int count = frequency.increment(materials.getTypeId(next));
+                if (count >= highest) {
+                    highest = count;
+                    highestState = next;
                 }
             }
-        }
+            return total >= fillFaces ? highestState : ordinal;
+        };
     }
 
-    private void erosionIteration(
-            int brushSize, int brushSizeSquared, int erodeFaces,
-            Clipboard current, Clipboard target
+    private static VoxelStencil.Function erosionIteration(
+            int center,
+            int brushSizeSquared,
+            int erodeFaces,
+            int[] offsets,
+            OrdinalMaterials materials
     ) {
-        int[] frequency = null;
-        for (int x = -brushSize, relx = 0; x <= brushSize && relx < target.getWidth(); x++, relx++) {
-            int x2 = x * x;
-            for (int z = -brushSize, relz = 0; z <= brushSize && relz < target.getLength(); z++, relz++) {
-                int x2y2 = x2 + z * z;
-                for (int y = -brushSize, rely = 0; y <= brushSize && rely < target.getHeight(); y++, rely++) {
-                    int cube = x2y2 + y * y;
-                    target.setBlock(relx, rely, relz, current.getBlock(relx, rely, relz));
-                    if (cube >= brushSizeSquared) {
-                        continue;
-                    }
-                    BaseBlock state = current.getFullBlock(relx, rely, relz);
-                    if (!state.getMaterial().isMovementBlocker()) {
-                        continue;
-                    }
-                    BaseBlock highestState = state;
-                    if (frequency == null) {
-                        frequency = new int[BlockTypes.size()];
-                    } else {
-                        Arrays.fill(frequency, 0);
-                    }
-                    int highest = 1;
-                    int total = 0;
-                    for (BlockVector3 offs : FACES_TO_CHECK) {
-                        BaseBlock next = current.getFullBlock(
-                                relx + offs.x(),
-                                rely + offs.y(),
-                                relz + offs.z()
-                        );
-                        if (next.getMaterial().isMovementBlocker()) {
-                            continue;
-                        }
-                        total++;
-                        int count = ++frequency[next.getInternalBlockTypeId()];
-                        if (count > highest) {
-                            highest = count;
-                            highestState = next;
-                        }
-                    }
-                    if (total >= erodeFaces) {
-                        target.setBlock(relx, rely, relz, highestState);
-                    }
+        return (ordinals, index, x, y, z, frequency) -> {
+            char ordinal = ordinals[index];
+            if (!inSphere(center, brushSizeSquared, x, y, z)) {
+                return ordinal;
+            }
+            if (!materials.isMovementBlocker(ordinal)) {
+                return ordinal;
+            }
+            char highestState = ordinal;
+            frequency.clear();
+            int highest = 1;
+            int total = 0;
+            for (int offset : offsets) {
+                char next = ordinals[index + offset];
+                if (materials.isMovementBlocker(next)) {
+                    continue;
+                }
+                total++;
+                int count = frequency.increment(materials.getTypeId(next));
+                if (count > highest) {
+                    highest = count;
+                    highestState = next;
                 }
             }
-        }
+            return total >= erodeFaces ? highestState : ordinal;
+        };
     }
 
 }
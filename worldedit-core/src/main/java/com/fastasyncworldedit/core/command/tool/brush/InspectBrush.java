@@ -16,6 +16,8 @@
 import com.sk89q.worldedit.extension.platform.Platform;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.util.formatting.text.TextComponent;
 import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
@@ -87,7 +89,7 @@ public boolean perform(final Player player, LocalSession session, boolean rightC
             for (Supplier<RollbackOptimizedHistory> supplier : db.getEdits(target, false)) {
                 count++;
                 RollbackOptimizedHistory edit = supplier.get();
-                Iterator<MutableFullBlockChange> iter = edit.getFullBlockIterator(null, 0, false);
+                Iterator<MutableFullBlockChange> iter = edit.getFullBlockIterator(new Region[]{new CuboidRegion(target, target)});
                 while (iter.hasNext()) {
                     MutableFullBlockChange change = iter.next();
                     if (change.x != x || change.y != y || change.z != z) {
@@ -597,6 +597,13 @@ public static class QUEUE {
         })
         public boolean POOL = true;
 
+        @Comment({
+                "Store the blocks of loaded chunk sections with few different blocks in a compact palette format",
+                "while the chunk waits to be placed, instead of 8 KiB per section",
+                " - Reduces memory usage of large edits, at the cost of some CPU time to pack and unpack sections",
+        })
+        public boolean PACK_GET_SECTIONS = false;
+
         public static class PROGRESS {
 
             @Comment({"Display constant titles about the progress of a user's edit",
@@ -668,6 +675,15 @@ public static class EXPERIMENTAL {
         })
         public boolean ALLOW_TICK_FLUIDS = false;
 
+        @Comment({
+                "Visit each layer of recursive operations in parallel, split by chunk (default: false)",
+                " - Applies to //fill, //fillr, //drain and //fixwater",
+                " - Blocks are tested and set on the queue's worker threads, so masks and patterns must be thread safe",
+                " - Edits with a limit, history extent or region restriction still run on one thread, as those extents",
+                "   count blocks without synchronization"
+        })
+        public boolean PARALLEL_RECURSION = false;
+
     }
 
     @Comment({"Web/HTTP connection related settings"})
@@ -752,6 +768,12 @@ public static class CLIPBOARD {
                 " - levels over 6 require ZSTD 1.4.8+ to be installed to the system"
         })
         public int COMPRESSION_LEVEL = 1;
+        @Comment({
+                "Number of decompressed blocks a compressed in-memory clipboard keeps cached (only relevant if clipboard.use-disk is disabled)",
+                " - Each block holds 1048576 blocks, using 2MiB of memory",
+                " - Higher values speed up rotated pastes and patterns reading a clipboard"
+        })
+        public int MEMORY_CACHE_BLOCKS = 4;
         @Comment("Number of days to keep history on disk before deleting it")
         public int DELETE_AFTER_DAYS = 1;
         @Comment({
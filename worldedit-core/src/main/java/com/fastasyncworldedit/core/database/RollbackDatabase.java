@@ -21,6 +21,7 @@
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
@@ -32,12 +33,19 @@
 public class RollbackDatabase extends AsyncNotifyQueue {
 
     private static final Logger LOGGER = LogManagerCompat.getLogger();
+    /**
+     * Stored as the database's user_version. Version 1 added the edits_index R*Tree.
+     */
+    private static final int SCHEMA_VERSION = 1;
+    private static final String VALID_BOUNDS = "new.`x1` <= new.`x2` AND new.`y1` <= new.`y2` AND new.`z1` <= new.`z2`";
 
     private final String prefix;
     private final File dbLocation;
     private final World world;
     private final ConcurrentLinkedQueue<RollbackOptimizedHistory> historyChanges = new ConcurrentLinkedQueue<>();
     private Connection connection;
+    // Whether the R*Tree index over the edit bounds is available
+    private boolean spatialIndex;
 
     RollbackDatabase(World world) throws SQLException, ClassNotFoundException {
         super((t, e) -> e.printStackTrace());
@@ -77,10 +85,64 @@ public Future<Boolean> init() {
                 stmt.executeUpdate();
             } catch (SQLException ignored) {
             } // Already updated
+            spatialIndex = initSpatialIndex();
             return true;
         });
     }
 
+    /**
+     * Create the R*Tree index over the bounds of each edit, kept in sync with the edits table by triggers, and populate it from
+     * existing edits if the database predates it.
+     *
+     * @return false if SQLite was built without the R*Tree module, in which case bounding box queries scan the edits table
+     */
+    private boolean initSpatialIndex() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("CREATE VIRTUAL TABLE IF NOT EXISTS`" + this.prefix + "edits_index` USING rtree_i32(`id`, `x1`, " +
+                    "`x2`, `y1`, `y2`, `z1`, `z2`)");
+        } catch (SQLException e) {
+            LOGGER.warn("SQLite R*Tree module unavailable, rollback lookups will not be spatially indexed: {}", e.getMessage());
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate("CREATE INDEX IF NOT EXISTS`" + this.prefix + "edits_bounds` ON`" + this.prefix + "edits` " +
+                        "(`x1`, `z1`)");
+            }
+            return false;
+        }
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            // The rtree rejects empty or inverted boxes, which would abort the whole batch
+            stmt.executeUpdate("CREATE TRIGGER IF NOT EXISTS`" + this.prefix + "edits_index_insert` AFTER INSERT ON`" +
+                    this.prefix + "edits` WHEN " + VALID_BOUNDS + " BEGIN INSERT OR REPLACE INTO`" + this.prefix +
+                    "edits_index` VALUES (new.rowid, new.`x1`, new.`x2`, new.`y1`, new.`y2`, new.`z1`, new.`z2`); END");
+            stmt.executeUpdate("CREATE TRIGGER IF NOT EXISTS`" + this.prefix + "edits_index_update` AFTER UPDATE ON`" +
+                    this.prefix + "edits` WHEN " + VALID_BOUNDS + " BEGIN INSERT OR REPLACE INTO`" + this.prefix +
+                    "edits_index` VALUES (new.rowid, new.`x1`, new.`x2`, new.`y1`, new.`y2`, new.`z1`, new.`z2`); END");
+            stmt.executeUpdate("CREATE TRIGGER IF NOT EXISTS`" + this.prefix + "edits_index_update_empty` AFTER UPDATE ON`" +
+                    this.prefix + "edits` WHEN NOT (" + VALID_BOUNDS + ") BEGIN DELETE FROM`" + this.prefix +
+                    "edits_index` WHERE `id` = old.rowid; END");
+            stmt.executeUpdate("CREATE TRIGGER IF NOT EXISTS`" + this.prefix + "edits_index_delete` AFTER DELETE ON`" +
+                    this.prefix + "edits` BEGIN DELETE FROM`" + this.prefix + "edits_index` WHERE `id` = old.rowid; END");
+            // Migrate edits logged before the index existed
+            int version;
+            try (ResultSet result = stmt.executeQuery("PRAGMA user_version")) {
+                version = result.next() ? result.getInt(1) : 0;
+            }
+            if (version < SCHEMA_VERSION) {
+                stmt.executeUpdate("INSERT OR REPLACE INTO`" + this.prefix + "edits_index` SELECT rowid, `x1`, `x2`, `y1`, " +
+                        "`y2`, `z1`, `z2` FROM`" + this.prefix + "edits` WHERE `x1` <= `x2` AND `y1` <= `y2` AND `z1` <= `z2`");
+                stmt.executeUpdate("PRAGMA user_version = " + SCHEMA_VERSION);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            LOGGER.warn("Unable to set up the rollback database's spatial index, falling back to table scans", e);
+            return false;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        return true;
+    }
+
     public Future<Integer> delete(UUID uuid, int id) {
         return call(() -> {
             try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM`" + this.prefix + "edits` WHERE `player`=? AND `id`=?")) {
@@ -159,23 +221,46 @@ public Iterable<Supplier<RollbackOptimizedHistory>> getEdits(
         Future<Integer> future = call(() -> {
             try {
                 int count = 0;
-                String stmtStr = """
-                                SELECT * FROM `%sedits`
-                                  WHERE `time` > ?
-                                    AND `x2` >= ?
-                                    AND `x1` <= ?
-                                    AND `z2` >= ?
-                                    AND `z1` <= ?
-                                    AND `y2` >= ?
-                                    AND `y1` <= ?
-                                """;
-                if (uuid != null) {
-                    stmtStr += "\n    AND `player`= ?";
-                }
-                if (ascending) {
-                    stmtStr += "\n  ORDER BY `time` ASC, `id` ASC";
+                String stmtStr;
+                if (spatialIndex) {
+                    stmtStr = """
+                                    SELECT `edits`.* FROM `%1$sedits_index` AS `bounds`
+                                      JOIN `%1$sedits` AS `edits` ON `edits`.rowid = `bounds`.`id`
+                                      WHERE `edits`.`time` > ?
+                                        AND `bounds`.`x2` >= ?
+                                        AND `bounds`.`x1` <= ?
+                                        AND `bounds`.`z2` >= ?
+                                        AND `bounds`.`z1` <= ?
+                                        AND `bounds`.`y2` >= ?
+                                        AND `bounds`.`y1` <= ?
+                                    """;
+                    if (uuid != null) {
+                        stmtStr += "\n    AND `edits`.`player`= ?";
+                    }
+                    if (ascending) {
+                        stmtStr += "\n  ORDER BY `edits`.`time` ASC, `edits`.`id` ASC";
+                    } else {
+                        stmtStr += "\n  ORDER BY `edits`.`time` DESC, `edits`.`id` DESC";
+                    }
                 } else {
-                    stmtStr += "\n  ORDER BY `time` DESC, `id` DESC";
+                    stmtStr = """
+                                    SELECT * FROM `%1$sedits`
+                                      WHERE `time` > ?
+                                        AND `x2` >= ?
+                                        AND `x1` <= ?
+                                        AND `z2` >= ?
+                                        AND `z1` <= ?
+                                        AND `y2` >= ?
+                                        AND `y1` <= ?
+                                    """;
+                    if (uuid != null) {
+                        stmtStr += "\n    AND `player`= ?";
+                    }
+                    if (ascending) {
+                        stmtStr += "\n  ORDER BY `time` ASC, `id` ASC";
+                    } else {
+                        stmtStr += "\n  ORDER BY `time` DESC, `id` DESC";
+                    }
                 }
                 try (PreparedStatement stmt = connection.prepareStatement(stmtStr.formatted(this.prefix))) {
                     stmt.setInt(1, (int) (minTime / 1000));
@@ -249,8 +334,12 @@ private boolean sendBatch() throws SQLException {
         RollbackOptimizedHistory[] copy = IntStream.range(0, size)
                 .mapToObj(i -> historyChanges.poll()).toArray(RollbackOptimizedHistory[]::new);
 
-        try (PreparedStatement stmt = connection.prepareStatement("INSERT OR REPLACE INTO`" + this.prefix + "edits`" +
-                " (`player`,`id`,`time`,`x1`,`x2`,`z1`,`z2`,`y1`,`y2`,`command`,`size`) VALUES(?,?,?,?,?,?,?,?,?,?,?)")) {
+        // Upsert rather than replace so the rowid, and with it the edits_index entry, stays the same
+        try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO`" + this.prefix + "edits`" +
+                " (`player`,`id`,`time`,`x1`,`x2`,`z1`,`z2`,`y1`,`y2`,`command`,`size`) VALUES(?,?,?,?,?,?,?,?,?,?,?)" +
+                " ON CONFLICT(`player`,`id`) DO UPDATE SET `time`=excluded.`time`,`x1`=excluded.`x1`,`x2`=excluded.`x2`," +
+                "`z1`=excluded.`z1`,`z2`=excluded.`z2`,`y1`=excluded.`y1`,`y2`=excluded.`y2`,`command`=excluded.`command`," +
+                "`size`=excluded.`size`")) {
             // `player`,`id`,`time`,`x1`,`x2`,`z1`,`z2`,`y1`,`y2`,`command`,`size`) VALUES(?,?,?,?,?,?,?,?,?,?,?)"
             for (RollbackOptimizedHistory change : copy) {
                 UUID uuid = change.getUUID();
@@ -271,9 +360,9 @@ private boolean sendBatch() throws SQLException {
                 stmt.setInt(9, pos2.y() - 128);
                 stmt.setString(10, change.getCommand());
                 stmt.setInt(11, change.size());
-                stmt.executeUpdate();
-                stmt.clearParameters();
+                stmt.addBatch();
             }
+            stmt.executeBatch();
         } finally {
             commit();
         }
@@ -151,7 +151,8 @@ public boolean regenerateChunk(int x, int z, @Nullable BiomeType type, @Nullable
     public int getHighestTerrainBlock(int x, int z, int minY, int maxY) {
         limit.THROW_MAX_CHECKS(maxY - minY + 1);
         try {
-            return super.getHighestTerrainBlock(x, z, minY, maxY);
+            // The column was paid for, don't count each block read again
+            return getExtent().getHighestTerrainBlock(x, z, minY, maxY);
         } catch (FaweException e) {
             handleException(e);
             return minY;
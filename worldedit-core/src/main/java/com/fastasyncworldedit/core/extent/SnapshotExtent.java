@@ -0,0 +1,110 @@
+package com.fastasyncworldedit.core.extent;
+
+import com.fastasyncworldedit.core.configuration.Settings;
+import com.fastasyncworldedit.core.math.stencil.OrdinalGrid;
+import com.fastasyncworldedit.core.queue.implementation.ParallelQueueExtent;
+import com.fastasyncworldedit.core.util.MemUtil;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.world.block.BlockState;
+
+/**
+ * Extent reading the blocks of a region as they were when the snapshot was taken, and everything else from the extent it
+ * wraps. Used by operations that read blocks of the region they are writing to, so the result doesn't depend on the order
+ * blocks are written in, which allows them to run in parallel.
+ * <p>
+ * Stores the block state ordinal of each block in the bounding box of the region, so a snapshot uses 2 bytes per block.
+ * The blocks are copied straight from the chunk sections of the queue, so nothing is submitted to the queue and no limit
+ * is charged for reading them. After being taken, reading is thread safe.
+ */
+public class SnapshotExtent extends AbstractDelegateExtent {
+
+    // Largest array the JVM allocates
+    private static final long MAX_VOLUME = Integer.MAX_VALUE - 8;
+
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    // Ordinals of snapshot blocks, 0 for blocks the queue has no section for
+    private final char[] ordinals;
+
+    private SnapshotExtent(Extent extent, OrdinalGrid grid) {
+        super(extent);
+        BlockVector3 min = grid.getMinimumPoint();
+        this.minX = min.x();
+        this.minY = min.y();
+        this.minZ = min.z();
+        this.sizeX = grid.getWidth();
+        this.sizeY = grid.getHeight();
+        this.sizeZ = grid.getLength();
+        this.ordinals = grid.getOrdinals();
+    }
+
+    /**
+     * Check if a snapshot of a region may be taken. The extent must read straight from a queue, see
+     * {@link ParallelQueueExtent#getDirectQueue(Extent)}, and the snapshot must fit in memory without the heap going over
+     * {@link Settings#MAX_MEMORY_PERCENT}.
+     *
+     * @param extent the extent the snapshot would be read from
+     * @param region the region
+     * @return if a snapshot may be taken
+     */
+    public static boolean canSnapshot(Extent extent, Region region) {
+        if (ParallelQueueExtent.getDirectQueue(extent) == null || MemUtil.isMemoryLimited()) {
+            return false;
+        }
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        long volume = (long) (max.x() - min.x() + 1) * (max.y() - min.y() + 1) * (max.z() - min.z() + 1);
+        if (volume > MAX_VOLUME) {
+            return false;
+        }
+        long allowed = Runtime.getRuntime().maxMemory() / 100 * Settings.settings().MAX_MEMORY_PERCENT;
+        return MemUtil.getUsedBytes() + volume * Character.BYTES <= allowed;
+    }
+
+    /**
+     * Take a snapshot of a region. The chunks are read in parallel if the extent supports it.
+     *
+     * @param extent the extent to read from, and to read blocks outside the region from afterwards
+     * @param region the region to snapshot
+     * @return the snapshot
+     * @see #canSnapshot(Extent, Region)
+     */
+    public static SnapshotExtent create(Extent extent, Region region) {
+        return new SnapshotExtent(extent, OrdinalGrid.load(extent, region.getMinimumPoint(), region.getMaximumPoint()));
+    }
+
+    private int index(int x, int y, int z) {
+        x -= minX;
+        y -= minY;
+        z -= minZ;
+        if (x < 0 || y < 0 || z < 0 || x >= sizeX || y >= sizeY || z >= sizeZ) {
+            return -1;
+        }
+        return (y * sizeZ + z) * sizeX + x;
+    }
+
+    @Override
+    public BlockState getBlock(BlockVector3 position) {
+        return getBlock(position.x(), position.y(), position.z());
+    }
+
+    @Override
+    public BlockState getBlock(int x, int y, int z) {
+        int index = index(x, y, z);
+        if (index != -1) {
+            char ordinal = ordinals[index];
+            if (ordinal != 0) {
+                return BlockState.getFromOrdinal(ordinal);
+            }
+        }
+        return super.getBlock(x, y, z);
+    }
+
+}
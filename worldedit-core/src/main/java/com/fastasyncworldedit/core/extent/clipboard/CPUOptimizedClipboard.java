@@ -39,6 +39,12 @@ public boolean hasBiomes() {
         return biomes != null;
     }
 
+    @Override
+    public boolean supportsConcurrentReads() {
+        // Blocks are read straight from the state array
+        return true;
+    }
+
     @Override
     public boolean setBiome(BlockVector3 position, BiomeType biome) {
         return setBiome(position.x(), position.y(), position.z(), biome);
@@ -54,6 +54,8 @@
  * A clipboard with disk backed storage. (lower memory + loads on crash)
  * - Uses an auto closable RandomAccessFile for getting / setting id / data
  * - I don't know how to reduce nbt / entities to O(2) complexity, so it is stored in memory.
+ * - The file is mapped in segments, so its size isn't limited by the 2 GiB limit of a single mapping.
+ * - Blocks and biomes may be read from multiple threads at once, e.g. by a paste.
  */
 public class DiskOptimizedClipboard extends LinearClipboard {
 
@@ -63,18 +65,22 @@ public class DiskOptimizedClipboard extends LinearClipboard {
     private static final int VERSION_1_HEADER_SIZE = 22; // Header size of "version 1"
     private static final int VERSION_2_HEADER_SIZE = 27; // Header size of "version 2" i.e. when NBT/entities could be saved
     private static final Map<String, LockHolder> LOCK_HOLDER_CACHE = new ConcurrentHashMap<>();
+    // A single mapping is limited to 2 GiB, so the file is mapped in segments of 1 GiB. Each segment maps one extra byte,
+    // overlapping the next, so a char at an odd offset (the header size is odd) never spans two segments.
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
 
     private final HashMap<IntTriple, CompoundTag> nbtMap;
     private final File file;
     private final int headerSize;
 
     private RandomAccessFile braf;
-    private MappedByteBuffer byteBuffer = null;
+    private volatile MappedByteBuffer[] segments = null;
+    private long mappedLength;
 
     private FileChannel fileChannel = null;
-    private boolean hasBiomes = false;
-    private boolean canHaveBiomes = true;
-    private int nbtBytesRemaining;
+    private volatile boolean hasBiomes = false;
 
     /**
      * Creates a new DiskOptimizedClipboard for the given region. Creates or overwrites a file using the given UUID as a name.
@@ -116,13 +122,6 @@ public DiskOptimizedClipboard(BlockVector3 dimensions) {
     public DiskOptimizedClipboard(BlockVector3 dimensions, File file) {
         super(dimensions, BlockVector3.ZERO);
         headerSize = HEADER_SIZE;
-        if (headerSize + ((long) getVolume() << 1) >= Integer.MAX_VALUE) {
-            throw new IllegalArgumentException(
-                    "Dimensions too large for this clipboard format. Use //lazycopy for large selections.");
-        } else if (headerSize + ((long) getVolume() << 1) + (long) ((getHeight() >> 2) + 1) * ((getLength() >> 2) + 1) * ((getWidth() >> 2) + 1) >= Integer.MAX_VALUE) {
-            LOGGER.error("Dimensions are too large for biomes to be stored in a DiskOptimizedClipboard");
-            canHaveBiomes = false;
-        }
         nbtMap = new HashMap<>();
         try {
             this.file = file;
@@ -138,16 +137,18 @@ public DiskOptimizedClipboard(BlockVector3 dimensions, File file) {
                 e.printStackTrace();
             }
             this.braf = new RandomAccessFile(file, "rw");
-            long fileLength = (long) (getVolume() << 1) + (long) headerSize;
+            // Reserve space for biomes up front so setting them doesn't have to remap the file. The file is truncated to
+            // the data actually stored on close.
+            long fileLength = getBiomeOffset() + getBiomeLength();
             braf.setLength(0);
             braf.setLength(fileLength);
-            this.nbtBytesRemaining = Integer.MAX_VALUE - (int) fileLength;
             init();
             // write getLength() etc
-            byteBuffer.putChar(2, (char) (VERSION));
-            byteBuffer.putChar(4, (char) getWidth());
-            byteBuffer.putChar(6, (char) getHeight());
-            byteBuffer.putChar(8, (char) getLength());
+            MappedByteBuffer header = segments[0];
+            header.putChar(2, (char) (VERSION));
+            header.putChar(4, (char) getWidth());
+            header.putChar(6, (char) getHeight());
+            header.putChar(8, (char) getLength());
         } catch (IOException e) {
             close();
             throw new RuntimeException(e);
@@ -183,21 +184,16 @@ public DiskOptimizedClipboard(File file, int versionOverride) {
         try {
             this.file = file;
             this.braf = new RandomAccessFile(file, "rw");
-            braf.setLength(file.length());
-            this.nbtBytesRemaining = Integer.MAX_VALUE - (int) file.length();
             init();
 
-            int biomeLength = ((getHeight() >> 2) + 1) * ((getLength() >> 2) + 1) * ((getWidth() >> 2) + 1);
-            canHaveBiomes = (long) headerSize + biomeLength < Integer.MAX_VALUE;
-
             if (headerSize >= VERSION_2_HEADER_SIZE) {
                 readBiomeStatusFromHeader();
                 int nbtCount = readNBTSavedCountFromHeader();
                 int entitiesCount = readEntitiesSavedCountFromHeader();
                 if (Settings.settings().CLIPBOARD.SAVE_CLIPBOARD_NBT_TO_DISK && (nbtCount + entitiesCount > 0)) {
-                    loadNBTFromFileFooter(nbtCount, entitiesCount, biomeLength);
+                    loadNBTFromFileFooter(nbtCount, entitiesCount);
                 }
-            } else if (canHaveBiomes && braf.length() - headerSize == ((long) getVolume() << 1) + biomeLength) {
+            } else if (braf.length() == getBiomeOffset() + getBiomeLength()) {
                 hasBiomes = true;
             }
             getAndSetOffsetAndOrigin();
@@ -242,9 +238,9 @@ private static BlockVector3 readSize(File file, int expectedVersion) {
         }
     }
 
-    private void loadNBTFromFileFooter(int nbtCount, int entitiesCount, long biomeLength) throws IOException {
-        int biomeBlocksLength = headerSize + (getVolume() << 1) + (hasBiomes ? (int) biomeLength : 0);
-        MappedByteBuffer tmp = fileChannel.map(FileChannel.MapMode.READ_ONLY, biomeBlocksLength, braf.length());
+    private void loadNBTFromFileFooter(int nbtCount, int entitiesCount) throws IOException {
+        long dataLength = getDataLength();
+        MappedByteBuffer tmp = fileChannel.map(FileChannel.MapMode.READ_ONLY, dataLength, braf.length() - dataLength);
         try (NBTInputStream nbtIS = new NBTInputStream(MainUtil.getCompressedIS(new ByteBufferInputStream(tmp)))) {
             Iterator<CompoundTag> iter = nbtIS.toIterator();
             while (nbtCount > 0 && iter.hasNext()) { // TileEntities are stored "before" entities
@@ -282,6 +278,8 @@ private void loadNBTFromFileFooter(int nbtCount, int entitiesCount, long biomeLe
             }
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            closeDirectBuffer(tmp);
         }
     }
 
@@ -324,26 +322,77 @@ private void init() throws IOException {
                     throw e;
                 }
             }
-            this.byteBuffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, braf.length());
+            map(braf.length());
         }
     }
 
-    private boolean initBiome() {
-        if (!canHaveBiomes) {
-            return false;
+    /**
+     * Map the first {@code length} bytes of the file. Segments that are unchanged are reused, and replaced segments are left
+     * for the garbage collector to unmap rather than being unmapped here, as other threads may still be reading them.
+     */
+    private void map(long length) throws IOException {
+        int count = (int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        MappedByteBuffer[] existing = this.segments;
+        MappedByteBuffer[] mapped = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            long size = Math.min(SEGMENT_SIZE + 1, length - start);
+            if (existing != null && i < existing.length && existing[i].capacity() == size) {
+                mapped[i] = existing[i];
+            } else {
+                mapped[i] = fileChannel.map(FileChannel.MapMode.READ_WRITE, start, size);
+            }
         }
+        this.mappedLength = length;
+        this.segments = mapped;
+    }
+
+    private byte getByte(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+    }
+
+    private void putByte(long position, byte value) {
+        segments[(int) (position >>> SEGMENT_SHIFT)].put((int) (position & SEGMENT_MASK), value);
+    }
+
+    private char getChar(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getChar((int) (position & SEGMENT_MASK));
+    }
+
+    private void putChar(long position, char value) {
+        segments[(int) (position >>> SEGMENT_SHIFT)].putChar((int) (position & SEGMENT_MASK), value);
+    }
+
+    private long getBiomeOffset() {
+        return headerSize + ((long) getVolume() << 1);
+    }
+
+    private long getBiomeLength() {
+        // Since biomes represent a 4x4x4 cube, we store fewer biome bytes that volume at 1 byte per biome
+        // +1 to each to allow for cubes that lie across the region boundary
+        return (long) ((getHeight() >> 2) + 1) * ((getLength() >> 2) + 1) * ((getWidth() >> 2) + 1);
+    }
+
+    /**
+     * Get the length of the block and biome data, i.e. the offset NBT is stored at.
+     */
+    private long getDataLength() {
+        return getBiomeOffset() + (hasBiomes ? getBiomeLength() : 0);
+    }
+
+    private synchronized boolean initBiome() {
         if (!hasBiomes) {
             try {
+                long length = getBiomeOffset() + getBiomeLength();
+                if (mappedLength < length) {
+                    this.braf.setLength(length);
+                    map(length);
+                } else if (headerSize >= VERSION_2_HEADER_SIZE && !Settings.settings().CLIPBOARD.SAVE_CLIPBOARD_NBT_TO_DISK) {
+                    // Biomes are written over NBT stored after the blocks, which isn't loaded to be written again on close
+                    writeNBTSavedCountToHeader(0);
+                    writeEntitiesSavedCountToHeader(0);
+                }
                 hasBiomes = true;
-                close();
-                this.braf = new RandomAccessFile(file, "rw");
-                // Since biomes represent a 4x4x4 cube, we store fewer biome bytes that volume at 1 byte per biome
-                // +1 to each to allow for cubes that lie across the region boundary
-                long length =
-                        headerSize + ((long) getVolume() << 1) + (long) ((getHeight() >> 2) + 1) * ((getLength() >> 2) + 1) * ((getWidth() >> 2) + 1);
-                this.braf.setLength(length);
-                this.nbtBytesRemaining = Integer.MAX_VALUE - (int) length;
-                init();
             } catch (IOException e) {
                 e.printStackTrace();
                 return false;
@@ -357,6 +406,12 @@ public boolean hasBiomes() {
         return hasBiomes;
     }
 
+    @Override
+    public boolean supportsConcurrentReads() {
+        // Blocks are read at absolute positions of the mapped segments, which doesn't move their buffer positions
+        return true;
+    }
+
     @Override
     public boolean setBiome(BlockVector3 position, BiomeType biome) {
         return setBiome(position.x(), position.y(), position.z(), biome);
@@ -372,7 +427,7 @@ public boolean setBiome(int x, int y, int z, BiomeType biome) {
     public void setBiome(int index, BiomeType biome) {
         if (initBiome()) {
             try {
-                byteBuffer.put(headerSize + (getVolume() << 1) + index, (byte) biome.getInternalId());
+                putByte(getBiomeOffset() + index, (byte) biome.getInternalId());
             } catch (IndexOutOfBoundsException e) {
                 LOGGER.info((long) (getHeight() >> 2) * (getLength() >> 2) * (getWidth() >> 2));
                 LOGGER.info(index);
@@ -386,7 +441,7 @@ public BiomeType getBiome(int index) {
         if (!hasBiomes()) {
             return null;
         }
-        int biomeId = byteBuffer.get(headerSize + (getVolume() << 1) + index) & 0xFF;
+        int biomeId = getByte(getBiomeOffset() + index) & 0xFF;
         return BiomeTypes.get(biomeId);
     }
 
@@ -395,12 +450,12 @@ public void streamBiomes(IntValueReader task) {
         if (!hasBiomes()) {
             return;
         }
-        int mbbIndex = headerSize + (getVolume() << 1);
+        long biomeOffset = getBiomeOffset();
         try {
             for (int y = 0; y < getHeight(); y++) {
                 for (int z = 0; z < getLength(); z++) {
                     for (int x = 0; x < getWidth(); x++) {
-                        int biome = byteBuffer.get(mbbIndex + getBiomeIndex(x, y, z)) & 0xFF;
+                        int biome = getByte(biomeOffset + getBiomeIndex(x, y, z)) & 0xFF;
                         task.applyInt(getIndex(x, y, z), biome);
                     }
                 }
@@ -438,9 +493,9 @@ public void setOrigin(BlockVector3 origin) {
         super.setOrigin(origin);
         origin = origin.subtract(offset);
         try {
-            byteBuffer.putShort(10, (short) origin.x());
-            byteBuffer.putShort(12, (short) origin.y());
-            byteBuffer.putShort(14, (short) origin.z());
+            segments[0].putShort(10, (short) origin.x());
+            segments[0].putShort(12, (short) origin.y());
+            segments[0].putShort(14, (short) origin.z());
         } catch (Throwable e) {
             e.printStackTrace();
         }
@@ -450,28 +505,30 @@ public void setOrigin(BlockVector3 origin) {
     protected void setOffset(BlockVector3 offset) {
         super.setOffset(offset);
         try {
-            byteBuffer.putShort(16, (short) offset.x());
-            byteBuffer.putShort(18, (short) offset.y());
-            byteBuffer.putShort(20, (short) offset.z());
+            segments[0].putShort(16, (short) offset.x());
+            segments[0].putShort(18, (short) offset.y());
+            segments[0].putShort(20, (short) offset.z());
         } catch (Throwable e) {
             e.printStackTrace();
         }
     }
 
     private void getAndSetOffsetAndOrigin() {
-        int x = byteBuffer.getShort(16);
-        int y = byteBuffer.getShort(18);
-        int z = byteBuffer.getShort(20);
+        int x = segments[0].getShort(16);
+        int y = segments[0].getShort(18);
+        int z = segments[0].getShort(20);
         super.setOffset(BlockVector3.at(x, y, z));
-        int ox = byteBuffer.getShort(10);
-        int oy = byteBuffer.getShort(12);
-        int oz = byteBuffer.getShort(14);
+        int ox = segments[0].getShort(10);
+        int oy = segments[0].getShort(12);
+        int oz = segments[0].getShort(14);
         super.setOrigin(BlockVector3.at(ox, oy, oz));
     }
 
     @Override
     public void flush() {
-        byteBuffer.force();
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
     }
 
     private void closeDirectBuffer(ByteBuffer cb) {
@@ -482,51 +539,70 @@ private void closeDirectBuffer(ByteBuffer cb) {
     }
 
     private void writeBiomeStatusToHeader() {
-        byteBuffer.put(22, (byte) (hasBiomes ? 1 : 0));
+        segments[0].put(22, (byte) (hasBiomes ? 1 : 0));
     }
 
     private void writeNBTSavedCountToHeader(int count) {
-        byteBuffer.putChar(23, (char) count);
+        segments[0].putChar(23, (char) count);
     }
 
     private void writeEntitiesSavedCountToHeader(int count) {
-        byteBuffer.putChar(25, (char) count);
+        segments[0].putChar(25, (char) count);
     }
 
     private boolean readBiomeStatusFromHeader() {
-        return this.hasBiomes = byteBuffer.get(22) == 1;
+        return this.hasBiomes = segments[0].get(22) == 1;
     }
 
     private int readNBTSavedCountFromHeader() {
-        return byteBuffer.getChar(23);
+        return segments[0].getChar(23);
     }
 
     private int readEntitiesSavedCountFromHeader() {
-        return byteBuffer.getChar(25);
+        return segments[0].getChar(25);
     }
 
     @Override
     @SuppressWarnings("ResultOfMethodCallIgnored")
     public void close() {
         try {
-            if (byteBuffer != null) {
+            MappedByteBuffer[] tmpSegments = segments;
+            if (tmpSegments != null) {
+                byte[] footer = null;
+                boolean truncate = false;
                 if (headerSize >= VERSION_2_HEADER_SIZE) {
                     if (Settings.settings().CLIPBOARD.SAVE_CLIPBOARD_NBT_TO_DISK) {
                         try {
-                            writeNBTToDisk();
+                            footer = writeNBTToBytes();
+                            truncate = true;
                         } catch (Exception e) {
                             LOGGER.error("Unable to save NBT data to disk.", e);
                         }
+                    } else {
+                        // Keep NBT saved to disk previously, as it wasn't loaded
+                        truncate = readNBTSavedCountFromHeader() + readEntitiesSavedCountFromHeader() == 0;
                     }
                     writeBiomeStatusToHeader();
                 }
-                byteBuffer.force();
+                for (MappedByteBuffer segment : tmpSegments) {
+                    segment.force();
+                }
+                segments = null;
+                for (MappedByteBuffer segment : tmpSegments) {
+                    closeDirectBuffer(segment);
+                }
+                // The file can only be truncated once it is no longer mapped
+                if (truncate) {
+                    long dataLength = getDataLength();
+                    braf.setLength(dataLength + (footer == null ? 0 : footer.length));
+                    if (footer != null) {
+                        braf.seek(dataLength);
+                        braf.write(footer);
+                    }
+                }
                 fileChannel.close();
                 braf.close();
                 file.setWritable(true);
-                MappedByteBuffer tmpBuffer = byteBuffer;
-                byteBuffer = null;
-                closeDirectBuffer(tmpBuffer);
                 fileChannel = null;
                 braf = null;
             } else if (fileChannel != null) {
@@ -547,93 +623,51 @@ public void close() {
         }
     }
 
-    private void writeNBTToDisk() throws IOException {
-        if (!nbtMap.isEmpty() || !entities.isEmpty()) {
-            byte[] output = null;
-            boolean entitiesFit = false;
-            // Closing a BAOS does nothing
-            ByteArrayOutputStream baOS = new ByteArrayOutputStream();
-            try (NBTOutputStream nbtOS = new NBTOutputStream(MainUtil.getCompressedOS(
-                    baOS,
-                    Settings.settings().CLIPBOARD.COMPRESSION_LEVEL
-            ))) {
-                if (!nbtMap.isEmpty()) {
-                    try {
-                        for (CompoundTag tag : nbtMap.values()) {
-                            nbtOS.writeTag(tag);
-                        }
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                    nbtOS.flush();
-                    if (baOS.size() > nbtBytesRemaining) {
-                        LOGGER.warn(
-                                "Clipboard file {} does not have enough remaining space to store NBT data on disk.",
-                                file.getName()
-                        );
-                        writeNBTSavedCountToHeader(0);
-                        writeEntitiesSavedCountToHeader(0);
-                        return;
-                    } else {
-                        writeNBTSavedCountToHeader(nbtMap.size());
-                        nbtBytesRemaining -= baOS.size();
-                    }
-                    output = baOS.toByteArray(); //Keep this in case entities are unable to fit.
-                }
-
-                if (!entities.isEmpty()) {
-                    try {
-                        for (BlockArrayClipboard.ClipboardEntity entity : entities) {
-                            if (entity.getState() != null && entity.getState().getNbtData() != null) {
-                                CompoundTag data = entity.getState().getNbtData();
-                                HashMap<String, Tag<?, ?>> value = new HashMap<>(data.getValue());
-                                List<DoubleTag> pos = new ArrayList<>(3);
-                                pos.add(new DoubleTag(entity.getLocation().x()));
-                                pos.add(new DoubleTag(entity.getLocation().x()));
-                                pos.add(new DoubleTag(entity.getLocation().x()));
-                                value.put("Pos", new ListTag(DoubleTag.class, pos));
-                                nbtOS.writeTag(new CompoundTag(value));
-                            }
-                        }
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                    nbtOS.flush();
-                    if (baOS.size() > nbtBytesRemaining) {
-                        LOGGER.warn(
-                                "Clipboard file {} does not have enough remaining space to store entity data on disk.",
-                                file.getName()
-                        );
-                        writeEntitiesSavedCountToHeader(0);
-                    } else {
-                        entitiesFit = true;
-                        writeEntitiesSavedCountToHeader(entities.size());
-                    }
-                }
-            }
-
-            if (entitiesFit) {
-                output = baOS.toByteArray();
-            }
-
-            if (output == null) {
-                return;
-            }
-
-            long currentLength = this.braf.length();
-            this.braf.setLength(currentLength + baOS.size());
-            MappedByteBuffer tempBuffer = fileChannel.map(
-                    FileChannel.MapMode.READ_WRITE,
-                    currentLength,
-                    baOS.size()
-            );
-            tempBuffer.put(output);
-            tempBuffer.force();
-            closeDirectBuffer(tempBuffer);
-        } else {
+    /**
+     * Serialize tile entities and entities to be stored after the block and biome data, and write their counts to the
+     * header.
+     *
+     * @return the serialized NBT, or null if there is none
+     */
+    private byte[] writeNBTToBytes() throws IOException {
+        if (nbtMap.isEmpty() && entities.isEmpty()) {
+            writeNBTSavedCountToHeader(0);
+            writeEntitiesSavedCountToHeader(0);
+            return null;
+        }
+        if (nbtMap.size() > Character.MAX_VALUE || entities.size() > Character.MAX_VALUE) {
+            LOGGER.warn("Clipboard file {} has too many tile entities or entities to store NBT data on disk.", file.getName());
             writeNBTSavedCountToHeader(0);
             writeEntitiesSavedCountToHeader(0);
+            return null;
+        }
+        int entityCount = 0;
+        // Closing a BAOS does nothing
+        ByteArrayOutputStream baOS = new ByteArrayOutputStream();
+        try (NBTOutputStream nbtOS = new NBTOutputStream(MainUtil.getCompressedOS(
+                baOS,
+                Settings.settings().CLIPBOARD.COMPRESSION_LEVEL
+        ))) {
+            for (CompoundTag tag : nbtMap.values()) {
+                nbtOS.writeTag(tag);
+            }
+            for (BlockArrayClipboard.ClipboardEntity entity : entities) {
+                if (entity.getState() != null && entity.getState().getNbtData() != null) {
+                    CompoundTag data = entity.getState().getNbtData();
+                    HashMap<String, Tag<?, ?>> value = new HashMap<>(data.getValue());
+                    List<DoubleTag> pos = new ArrayList<>(3);
+                    pos.add(new DoubleTag(entity.getLocation().x()));
+                    pos.add(new DoubleTag(entity.getLocation().y()));
+                    pos.add(new DoubleTag(entity.getLocation().z()));
+                    value.put("Pos", new ListTag(DoubleTag.class, pos));
+                    nbtOS.writeTag(new CompoundTag(value));
+                    entityCount++;
+                }
+            }
         }
+        writeNBTSavedCountToHeader(nbtMap.size());
+        writeEntitiesSavedCountToHeader(entityCount);
+        return baOS.toByteArray();
     }
 
     @Override
@@ -695,8 +729,7 @@ public BaseBlock getFullBlock(int i) {
     @Override
     public BlockState getBlock(int index) {
         try {
-            int diskIndex = headerSize + (index << 1);
-            char ordinal = byteBuffer.getChar(diskIndex);
+            char ordinal = getChar(headerSize + ((long) index << 1));
             return BlockState.getFromOrdinal(ordinal);
         } catch (IndexOutOfBoundsException ignored) {
         }
@@ -721,12 +754,12 @@ public boolean setTile(int x, int y, int z, CompoundTag tag) {
     @Override
     public <B extends BlockStateHolder<B>> boolean setBlock(int x, int y, int z, B block) {
         try {
-            int index = headerSize + (getIndex(x, y, z) << 1);
+            long index = headerSize + ((long) getIndex(x, y, z) << 1);
             char ordinal = block.getOrdinalChar();
             if (ordinal == BlockTypesCache.ReservedIDs.__RESERVED__) {
                 ordinal = BlockTypesCache.ReservedIDs.AIR;
             }
-            byteBuffer.putChar(index, ordinal);
+            putChar(index, ordinal);
             boolean hasNbt = block instanceof BaseBlock && block.hasNbtData();
             if (hasNbt) {
                 setTile(x, y, z, block.getNbtData());
@@ -742,8 +775,8 @@ public <B extends BlockStateHolder<B>> boolean setBlock(int x, int y, int z, B b
     public <B extends BlockStateHolder<B>> boolean setBlock(int i, B block) {
         try {
             char ordinal = block.getOrdinalChar();
-            int index = headerSize + (i << 1);
-            byteBuffer.putChar(index, ordinal);
+            long index = headerSize + ((long) i << 1);
+            putChar(index, ordinal);
             boolean hasNbt = block instanceof BaseBlock && block.hasNbtData();
             if (hasNbt) {
                 int y = i / getArea();
@@ -22,7 +22,15 @@
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
-
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A clipboard storing blocks as compressed blocks of {@code 2^20} ordinals.
+ * <p>
+ * Recently used blocks are kept decompressed in a small least recently used cache, written back when evicted, so access
+ * that isn't linear (e.g. a rotated paste) doesn't decompress a block for every block read. Blocks may be read from multiple
+ * threads at once.
+ */
 public class MemoryOptimizedClipboard extends LinearClipboard {
 
     private static final int BLOCK_SIZE = 1048576 * 2;
@@ -36,12 +44,10 @@ public class MemoryOptimizedClipboard extends LinearClipboard {
 
     private final HashMap<IntTriple, CompoundTag> nbtMap;
 
-
-    private int lastOrdinalsI = -1;
-
-    private byte[] lastOrdinals;
-
-    private boolean saveOrdinals = false;
+    private final CachedBlock[] cache;
+    // Held for reading to access cached blocks, and for writing to load or evict them
+    private final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock();
+    private long cacheClock;
 
     private final int compressionLevel;
 
@@ -54,6 +60,10 @@ public MemoryOptimizedClipboard(Region region, int compressionLevel) {
         states = new byte[1 + (getVolume() >> BLOCK_SHIFT)][];
         nbtMap = new HashMap<>();
         this.compressionLevel = compressionLevel;
+        cache = new CachedBlock[Math.max(1, Math.min(states.length, Settings.settings().CLIPBOARD.MEMORY_CACHE_BLOCKS))];
+        for (int i = 0; i < cache.length; i++) {
+            cache[i] = new CachedBlock();
+        }
     }
 
 
@@ -62,6 +72,12 @@ public boolean hasBiomes() {
         return biomes != null;
     }
 
+    @Override
+    public boolean supportsConcurrentReads() {
+        // Decompressed blocks are cached under the cache lock
+        return true;
+    }
+
     @Override
     public boolean setBiome(BlockVector3 position, BiomeType biome) {
         return setBiome(position.x(), position.y(), position.z(), biome);
@@ -121,64 +137,135 @@ public BiomeType getBiome(BlockVector3 position) {
     private int getOrdinal(int index) {
         int i = index >> BLOCK_SHIFT;
         int li = (index & BLOCK_MASK) << 1;
-        if (i != lastOrdinalsI) {
-            saveOrdinals();
-            byte[] compressed = states[lastOrdinalsI = i];
-            if (compressed != null) {
-                lastOrdinals = MainUtil.decompress(compressed, lastOrdinals, BLOCK_SIZE, compressionLevel);
-            } else {
-                lastOrdinals = null;
-                return 0;
+        byte[] ordinals;
+        ReentrantReadWriteLock.ReadLock readLock = cacheLock.readLock();
+        readLock.lock();
+        try {
+            CachedBlock cached = getCached(i);
+            if (cached != null) {
+                ordinals = cached.ordinals;
+                if (ordinals == null) {
+                    return 0;
+                }
+                return (((ordinals[li] & 0xFF) << 8) + (ordinals[li + 1] & 0xFF));
             }
+        } finally {
+            readLock.unlock();
         }
-        if (lastOrdinals == null) {
-            return 0;
+        ReentrantReadWriteLock.WriteLock writeLock = cacheLock.writeLock();
+        writeLock.lock();
+        try {
+            ordinals = load(i).ordinals;
+            if (ordinals == null) {
+                return 0;
+            }
+            return (((ordinals[li] & 0xFF) << 8) + (ordinals[li + 1] & 0xFF));
+        } finally {
+            writeLock.unlock();
         }
-        return (((lastOrdinals[li] & 0xFF) << 8) + (lastOrdinals[li + 1] & 0xFF));
     }
 
-    private void saveOrdinals() {
-        if (saveOrdinals && lastOrdinals != null) {
-            states[lastOrdinalsI] = MainUtil.compress(lastOrdinals, buffer, compressionLevel);
+    private void setOrdinal(int index, int v) {
+        int i = index >> BLOCK_SHIFT;
+        int li = (index & BLOCK_MASK) << 1;
+        ReentrantReadWriteLock.ReadLock readLock = cacheLock.readLock();
+        readLock.lock();
+        try {
+            CachedBlock cached = getCached(i);
+            if (cached != null && cached.ordinals != null) {
+                // Other threads may set other ordinals of the same block, which is fine as bytes are written individually
+                cached.ordinals[li] = (byte) ((v >>> 8) & 0xFF);
+                cached.ordinals[li + 1] = (byte) (v & 0xFF);
+                cached.dirty = true;
+                return;
+            }
+        } finally {
+            readLock.unlock();
+        }
+        ReentrantReadWriteLock.WriteLock writeLock = cacheLock.writeLock();
+        writeLock.lock();
+        try {
+            CachedBlock cached = load(i);
+            if (cached.ordinals == null) {
+                BlockType bt = BlockTypes.getFromStateOrdinal(v);
+                if (bt.getMaterial().isAir()) {
+                    return;
+                }
+                cached.ordinals = new byte[BLOCK_SIZE];
+            }
+            cached.ordinals[li] = (byte) ((v >>> 8) & 0xFF);
+            cached.ordinals[li + 1] = (byte) (v & 0xFF);
+            cached.dirty = true;
+        } finally {
+            writeLock.unlock();
         }
-        saveOrdinals = false;
     }
 
-    private int lastI;
-    private int lastIMin;
-    private int lastIMax;
-
-    private int getLocalIndex(int index) {
-        if (index < lastIMin || index > lastIMax) {
-            lastI = index >> BLOCK_SHIFT;
-            lastIMin = lastI << BLOCK_SHIFT;
-            lastIMax = lastIMin + BLOCK_MASK;
+    /**
+     * Get a block from the cache. The cache lock must be held.
+     *
+     * @return the cached block, or null if the block isn't cached
+     */
+    private CachedBlock getCached(int i) {
+        for (CachedBlock cached : cache) {
+            if (cached.index == i) {
+                // Racy when only reading, but a missed update only affects which block is evicted next
+                cached.lastUsed = ++cacheClock;
+                return cached;
+            }
         }
-        return lastI;
+        return null;
     }
 
-    private void setOrdinal(int index, int v) {
-        int i = getLocalIndex(index);
-        if (i != lastOrdinalsI) {
-            saveOrdinals();
-            byte[] compressed = states[lastOrdinalsI = i];
-            if (compressed != null) {
-                lastOrdinals = MainUtil.decompress(compressed, lastOrdinals, BLOCK_SIZE, compressionLevel);
-            } else {
-                lastOrdinals = null;
+    /**
+     * Get a block from the cache, decompressing it in place of the least recently used block if it isn't cached. The cache
+     * write lock must be held.
+     */
+    private CachedBlock load(int i) {
+        CachedBlock cached = getCached(i);
+        if (cached != null) {
+            return cached;
+        }
+        CachedBlock eldest = cache[0];
+        for (CachedBlock candidate : cache) {
+            if (candidate.lastUsed < eldest.lastUsed) {
+                eldest = candidate;
             }
         }
-        if (lastOrdinals == null) {
-            BlockType bt = BlockTypes.getFromStateOrdinal(v);
-            if (bt.getMaterial().isAir()) {
-                return;
+        save(eldest);
+        byte[] compressed = states[i];
+        if (compressed != null) {
+            // The previous block's array is reused, unless it is the stored block itself when not compressed
+            byte[] reuse = compressionLevel == 0 ? null : eldest.ordinals;
+            eldest.ordinals = MainUtil.decompress(compressed, reuse, BLOCK_SIZE, compressionLevel);
+        } else {
+            eldest.ordinals = null;
+        }
+        eldest.index = i;
+        eldest.lastUsed = ++cacheClock;
+        return eldest;
+    }
+
+    /**
+     * Compress a cached block back into the stored states if it was modified. The cache write lock must be held.
+     */
+    private void save(CachedBlock cached) {
+        if (cached.dirty && cached.ordinals != null) {
+            states[cached.index] = MainUtil.compress(cached.ordinals, buffer, compressionLevel);
+        }
+        cached.dirty = false;
+    }
+
+    private void saveOrdinals() {
+        ReentrantReadWriteLock.WriteLock writeLock = cacheLock.writeLock();
+        writeLock.lock();
+        try {
+            for (CachedBlock cached : cache) {
+                save(cached);
             }
-            lastOrdinals = new byte[BLOCK_SIZE];
+        } finally {
+            writeLock.unlock();
         }
-        int li = (index & BLOCK_MASK) << 1;
-        lastOrdinals[li] = (byte) ((v >>> 8) & 0xFF);
-        lastOrdinals[li + 1] = (byte) (v & 0xFF);
-        saveOrdinals = true;
     }
 
     @Override
@@ -285,4 +372,13 @@ public <B extends BlockStateHolder<B>> boolean setBlock(int index, B block) {
         return true;
     }
 
+    private static final class CachedBlock {
+
+        private int index = -1;
+        private byte[] ordinals;
+        private boolean dirty;
+        private long lastUsed;
+
+    }
+
 }
@@ -0,0 +1,158 @@
+package com.fastasyncworldedit.core.extent.filter;
+
+import com.fastasyncworldedit.core.extent.filter.block.FilterBlock;
+import com.fastasyncworldedit.core.math.MutableBlockVector3;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.internal.expression.EvaluationException;
+import com.sk89q.worldedit.internal.expression.Expression;
+import com.sk89q.worldedit.internal.expression.LocalSlot.Variable;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.world.block.BlockTypes;
+
+/**
+ * Filter setting each block to the block at the position an expression transforms its position to, as done by
+ * {@link com.sk89q.worldedit.EditSession#deformRegion}. Each thread evaluates its own copy of the expression.
+ * <p>
+ * Blocks are read from a separate source extent, which should be a
+ * {@link com.fastasyncworldedit.core.extent.SnapshotExtent} of the region being filtered so the result doesn't depend on
+ * which blocks were already set.
+ */
+public class DeformFilter extends ForkedFilter<DeformFilter> {
+
+    private final Extent source;
+    private final Expression expression;
+    private final Variable x;
+    private final Variable y;
+    private final Variable z;
+    private final Vector3 zero;
+    private final Vector3 unit;
+    private final Vector3 zero2;
+    private final int timeout;
+    private final int minY;
+    private final int maxY;
+    private final double[] values = new double[3];
+    private final MutableBlockVector3 position = new MutableBlockVector3();
+    private int changes;
+    private EvaluationException error;
+
+    /**
+     * Create a new filter.
+     *
+     * @param source     extent to read blocks from
+     * @param expression the expression, with the x, y and z variables and its environment set
+     * @param zero       the origin of the coordinate system
+     * @param unit       the scale of the coordinate system
+     * @param timeout    maximum time for the expression to evaluate for each block. -1 for unlimited.
+     * @param minY       minimum y to read blocks from, air is used below
+     * @param maxY       maximum y to read blocks from, air is used above
+     */
+    public DeformFilter(
+            Extent source, Expression expression, Vector3 zero, Vector3 unit, int timeout, int minY,
+            int maxY
+    ) {
+        super(null);
+        this.source = source;
+        this.expression = expression;
+        this.zero = zero;
+        this.unit = unit;
+        this.zero2 = zero.add(0.5, 0.5, 0.5);
+        this.timeout = timeout;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.x = getVariable(expression, "x");
+        this.y = getVariable(expression, "y");
+        this.z = getVariable(expression, "z");
+    }
+
+    private DeformFilter(DeformFilter root) {
+        super(root);
+        this.source = root.source;
+        this.expression = root.expression.clone();
+        this.zero = root.zero;
+        this.unit = root.unit;
+        this.zero2 = root.zero2;
+        this.timeout = root.timeout;
+        this.minY = root.minY;
+        this.maxY = root.maxY;
+        this.x = getVariable(expression, "x");
+        this.y = getVariable(expression, "y");
+        this.z = getVariable(expression, "z");
+    }
+
+    private static Variable getVariable(Expression expression, String name) {
+        return expression.getSlots().getVariable(name).orElseThrow(IllegalStateException::new);
+    }
+
+    @Override
+    public DeformFilter init() {
+        return new DeformFilter(this);
+    }
+
+    @Override
+    public void join(DeformFilter filter) {
+        this.changes += filter.changes;
+        if (this.error == null) {
+            this.error = filter.error;
+        }
+    }
+
+    @Override
+    public void applyBlock(FilterBlock block) {
+        if (error != null) {
+            return;
+        }
+        BlockVector3 from;
+        try {
+            from = getSource(block.x(), block.y(), block.z());
+        } catch (EvaluationException e) {
+            error = e;
+            return;
+        }
+
+        // read block from the source
+        if (from.y() >= minY && from.y() <= maxY) {
+            block.setBlock(source.getBlock(from));
+        } else {
+            block.setBlock(BlockTypes.AIR.getDefaultState());
+        }
+        changes++;
+    }
+
+    /**
+     * Get the position the expression transforms a position to, computed the same way as the sequential path of
+     * {@link com.sk89q.worldedit.EditSession#deformRegion}.
+     *
+     * @return the transformed position, reused by the next call
+     */
+    BlockVector3 getSource(int x, int y, int z) throws EvaluationException {
+        // offset, scale
+        values[0] = (x - zero.x()) / unit.x();
+        values[1] = (y - zero.y()) / unit.y();
+        values[2] = (z - zero.z()) / unit.z();
+        // transform
+        expression.evaluate(values, timeout);
+        return position.setComponents(
+                (int) Math.floor(this.x.value() * unit.x() + zero2.x()),
+                (int) Math.floor(this.y.value() * unit.y() + zero2.y()),
+                (int) Math.floor(this.z.value() * unit.z() + zero2.z())
+        );
+    }
+
+    /**
+     * Get the number of blocks set.
+     */
+    public int getChanges() {
+        return changes;
+    }
+
+    /**
+     * Get the first error evaluating the expression, after which a thread stops setting blocks.
+     *
+     * @return the error, or null if every evaluation succeeded
+     */
+    public EvaluationException getError() {
+        return error;
+    }
+
+}
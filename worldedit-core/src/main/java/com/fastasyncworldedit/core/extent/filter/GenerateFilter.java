@@ -0,0 +1,169 @@
+package com.fastasyncworldedit.core.extent.filter;
+
+import com.fastasyncworldedit.core.extent.filter.block.FilterBlock;
+import com.sk89q.worldedit.function.pattern.Pattern;
+import com.sk89q.worldedit.internal.expression.EvaluationException;
+import com.sk89q.worldedit.internal.expression.Expression;
+import com.sk89q.worldedit.internal.expression.ExpressionTimeoutException;
+import com.sk89q.worldedit.internal.expression.LocalSlot.Variable;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.regions.shape.WorldEditExpressionEnvironment;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.registry.LegacyMapper;
+
+/**
+ * Filter setting the blocks inside the solid shape an expression defines, as done by
+ * {@link com.sk89q.worldedit.EditSession#makeShape} for shapes that aren't hollow. Each thread evaluates its own copy of
+ * the expression and pattern.
+ */
+public class GenerateFilter extends ForkedFilter<GenerateFilter> {
+
+    private final Expression expression;
+    private final WorldEditExpressionEnvironment environment;
+    private final Variable typeVariable;
+    private final Variable dataVariable;
+    private final Pattern pattern;
+    private final Vector3 zero;
+    private final Vector3 unit;
+    private final int timeout;
+    private final double[] values = new double[5];
+    private int changes;
+    private int timedOut;
+    private EvaluationException error;
+
+    /**
+     * Create a new filter.
+     *
+     * @param expression the expression, with the x, y, z, type and data variables and a
+     *                   {@link WorldEditExpressionEnvironment} set
+     * @param pattern    the default material to make the shape from
+     * @param zero       the coordinate origin for x/y/z variables
+     * @param unit       the scale of the x/y/z/ variables
+     * @param timeout    the time, in milliseconds, to wait for each expression evaluation before halting it. -1 to disable
+     */
+    public GenerateFilter(Expression expression, Pattern pattern, Vector3 zero, Vector3 unit, int timeout) {
+        super(null);
+        this.expression = expression;
+        this.pattern = pattern;
+        this.zero = zero;
+        this.unit = unit;
+        this.timeout = timeout;
+        this.environment = (WorldEditExpressionEnvironment) expression.getEnvironment();
+        this.typeVariable = getVariable(expression, "type");
+        this.dataVariable = getVariable(expression, "data");
+    }
+
+    private GenerateFilter(GenerateFilter root) {
+        super(root);
+        this.expression = root.expression.clone();
+        this.pattern = root.pattern.fork();
+        this.zero = root.zero;
+        this.unit = root.unit;
+        this.timeout = root.timeout;
+        this.environment = (WorldEditExpressionEnvironment) expression.getEnvironment();
+        this.typeVariable = getVariable(expression, "type");
+        this.dataVariable = getVariable(expression, "data");
+    }
+
+    private static Variable getVariable(Expression expression, String name) {
+        return expression.getSlots().getVariable(name).orElseThrow(IllegalStateException::new);
+    }
+
+    @Override
+    public GenerateFilter init() {
+        return new GenerateFilter(this);
+    }
+
+    @Override
+    public void join(GenerateFilter filter) {
+        this.changes += filter.changes;
+        this.timedOut += filter.timedOut;
+        if (this.error == null) {
+            this.error = filter.error;
+        }
+    }
+
+    @Override
+    public void applyBlock(FilterBlock block) {
+        if (error != null) {
+            return;
+        }
+        int x = block.x();
+        int y = block.y();
+        int z = block.z();
+        BaseBlock defaultMaterial = pattern.applyBlock((BlockVector3) block);
+        int[] legacy = LegacyMapper.getInstance().getLegacyFromBlock(defaultMaterial.toImmutableState());
+        int typeVar = 0;
+        int dataVar = 0;
+        if (legacy != null) {
+            typeVar = legacy[0];
+            if (legacy.length > 1) {
+                dataVar = legacy[1];
+            }
+        }
+        try {
+            if (!isInside(x, y, z, typeVar, dataVar)) {
+                return;
+            }
+        } catch (ExpressionTimeoutException e) {
+            timedOut++;
+            return;
+        } catch (EvaluationException e) {
+            error = e;
+            return;
+        }
+        BaseBlock material = defaultMaterial;
+        int newType = (int) typeVariable.value();
+        int newData = (int) dataVariable.value();
+        if (newType != typeVar || newData != dataVar) {
+            BlockState state = LegacyMapper.getInstance().getBlockFromLegacy(newType, newData);
+            if (state != null) {
+                material = state.toBaseBlock();
+            }
+        }
+        block.setFullBlock(material);
+        changes++;
+    }
+
+    /**
+     * Evaluate the expression for a position, computed the same way as the sequential path of
+     * {@link com.sk89q.worldedit.EditSession#makeShape}. Sets the type and data variables.
+     *
+     * @return if the position is inside the shape
+     */
+    boolean isInside(int x, int y, int z, int typeVar, int dataVar) throws EvaluationException {
+        environment.setCurrentBlock(x, y, z);
+        values[0] = (x - zero.x()) / unit.x();
+        values[1] = (y - zero.y()) / unit.y();
+        values[2] = (z - zero.z()) / unit.z();
+        values[3] = typeVar;
+        values[4] = dataVar;
+        return expression.evaluate(values, timeout) > 0;
+    }
+
+    /**
+     * Get the number of blocks set.
+     */
+    public int getChanges() {
+        return changes;
+    }
+
+    /**
+     * Get the number of blocks the expression took too long to evaluate for.
+     */
+    public int getTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Get the first error evaluating the expression, other than timeouts, after which a thread stops setting blocks.
+     *
+     * @return the error, or null if every evaluation succeeded or timed out
+     */
+    public EvaluationException getError() {
+        return error;
+    }
+
+}
@@ -1,8 +1,10 @@
 package com.fastasyncworldedit.core.extent.filter;
 
+import com.fastasyncworldedit.core.FaweCache;
 import com.fastasyncworldedit.core.extent.filter.block.DelegateFilter;
 import com.fastasyncworldedit.core.extent.filter.block.FilterBlock;
 import com.fastasyncworldedit.core.queue.Filter;
+import com.fastasyncworldedit.core.queue.IChunk;
 import com.sk89q.worldedit.function.mask.AbstractExtentMask;
 import com.sk89q.worldedit.function.mask.Mask;
 
@@ -17,6 +19,12 @@
 
     private final Mask mask;
     private final AtomicInteger changes;
+    // Result of testing the whole section currently being filtered, if the mask supports it
+    private long[] section;
+    private boolean sectionValid;
+    private int sectionX;
+    private int sectionY;
+    private int sectionZ;
 
     public MaskFilter(T other, Mask root) {
         this(other, root, new AtomicInteger());
@@ -28,8 +36,50 @@ public MaskFilter(T other, Mask root, AtomicInteger changes) {
         this.changes = changes;
     }
 
+    @Override
+    public boolean appliesLayer(IChunk chunk, int layer) {
+        sectionValid = false;
+        if (!mask.supportsSectionTest()) {
+            return getParent().appliesLayer(chunk, layer);
+        }
+        char[] ordinals = chunk.hasSection(layer) ? chunk.load(layer) : FaweCache.INSTANCE.EMPTY_CHAR_4096;
+        // Skip sections without a single matching block
+        if (!mask.mayMatchSection(ordinals)) {
+            return false;
+        }
+        if (section == null) {
+            section = new long[64];
+        }
+        if (mask.testSection(ordinals, section)) {
+            sectionValid = true;
+            sectionX = chunk.getX();
+            sectionY = layer;
+            sectionZ = chunk.getZ();
+        }
+        return getParent().appliesLayer(chunk, layer);
+    }
+
+    @Override
+    public void finishChunk(IChunk chunk) {
+        sectionValid = false;
+        getParent().finishChunk(chunk);
+    }
+
     @Override
     public void applyBlock(FilterBlock block) {
+        if (sectionValid) {
+            int x = block.x();
+            int y = block.y();
+            int z = block.z();
+            if (x >> 4 == sectionX && y >> 4 == sectionY && z >> 4 == sectionZ) {
+                int index = (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+                if ((section[index >> 6] & (1L << index)) != 0) {
+                    getParent().applyBlock(block);
+                    this.changes.incrementAndGet();
+                }
+                return;
+            }
+        }
         if (mask instanceof AbstractExtentMask) {
             if (((AbstractExtentMask) mask).test(block.getExtent(), block)) {
                 getParent().applyBlock(block);
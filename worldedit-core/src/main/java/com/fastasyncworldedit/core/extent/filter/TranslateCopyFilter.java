@@ -0,0 +1,83 @@
+package com.fastasyncworldedit.core.extent.filter;
+
+import com.fastasyncworldedit.core.extent.filter.block.FilterBlock;
+import com.fastasyncworldedit.core.math.MutableBlockVector3;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.math.BlockVector3;
+
+import javax.annotation.Nullable;
+
+/**
+ * Filter setting each block to the block of a source extent at a fixed offset, as done by
+ * {@link com.sk89q.worldedit.function.operation.ForwardExtentCopy} for copies that are only translated. Applied to the
+ * destination region, so each chunk of the destination is written by a single thread.
+ * <p>
+ * The source must be safe to read from multiple threads and must not overlap the destination region, see
+ * {@link com.sk89q.worldedit.extent.clipboard.Clipboard#supportsConcurrentReads()}.
+ */
+public class TranslateCopyFilter extends ForkedFilter<TranslateCopyFilter> {
+
+    private final Extent source;
+    private final Mask sourceMask;
+    private final int offsetX;
+    private final int offsetY;
+    private final int offsetZ;
+    private final MutableBlockVector3 mutable = new MutableBlockVector3();
+    private int affected;
+
+    /**
+     * Create a new filter.
+     *
+     * @param source      the extent to copy from
+     * @param sourceMask  mask of source blocks to copy, tested against the source, or null to copy all
+     * @param translation the offset from source to destination positions
+     */
+    public TranslateCopyFilter(Extent source, @Nullable Mask sourceMask, BlockVector3 translation) {
+        super(null);
+        this.source = source;
+        this.sourceMask = sourceMask;
+        this.offsetX = translation.x();
+        this.offsetY = translation.y();
+        this.offsetZ = translation.z();
+    }
+
+    private TranslateCopyFilter(TranslateCopyFilter root) {
+        super(root);
+        this.source = root.source;
+        this.sourceMask = root.sourceMask == null ? null : root.sourceMask.copy();
+        this.offsetX = root.offsetX;
+        this.offsetY = root.offsetY;
+        this.offsetZ = root.offsetZ;
+    }
+
+    @Override
+    public TranslateCopyFilter init() {
+        return new TranslateCopyFilter(this);
+    }
+
+    @Override
+    public void join(TranslateCopyFilter filter) {
+        this.affected += filter.affected;
+    }
+
+    @Override
+    public void applyBlock(FilterBlock block) {
+        int x = block.x() - offsetX;
+        int y = block.y() - offsetY;
+        int z = block.z() - offsetZ;
+        if (sourceMask != null && !sourceMask.test(mutable.setComponents(x, y, z))) {
+            return;
+        }
+        block.setFullBlock(source.getFullBlock(x, y, z));
+        affected++;
+    }
+
+    /**
+     * Get the number of blocks copied.
+     */
+    public int getAffected() {
+        return affected;
+    }
+
+}
@@ -8,6 +8,7 @@
 import com.fastasyncworldedit.core.queue.IChunkSet;
 import com.fastasyncworldedit.core.queue.implementation.Flood;
 import com.fastasyncworldedit.core.queue.implementation.blocks.CharGetBlocks;
+import com.fastasyncworldedit.core.regions.SectionRows;
 import com.sk89q.jnbt.CompoundTag;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extent.Extent;
@@ -39,6 +40,7 @@ public class CharFilterBlock extends ChunkFilterBlock {
     @Nullable
     private char[] setArr;
     private SetDelegate delegate;
+    private char[] rows;
     // local
     private int layer;
     private int index;
@@ -154,15 +156,27 @@ public synchronized void filter(Filter filter, int minX, int minY, int minZ, int
 
     @Override
     public synchronized final void filter(Filter filter, Region region) {
-        for (y = 0, index = 0; y < 16; y++) {
-            int absY = yy + y;
+        if (rows == null) {
+            rows = new char[SectionRows.ROWS];
+        }
+        switch (region.getSectionRows(chunkX, layer, chunkZ, rows)) {
+            case SectionRows.EMPTY -> {
+                return;
+            }
+            case SectionRows.FULL -> {
+                filter(filter);
+                return;
+            }
+        }
+        for (y = 0; y < 16; y++) {
             for (z = 0; z < 16; z++) {
-                int absZ = zz + z;
-                for (x = 0; x < 16; x++, index++) {
-                    int absX = xx + x;
-                    if (region.contains(absX, absY, absZ)) {
-                        filter.applyBlock(this);
-                    }
+                int row = rows[y << 4 | z];
+                int rowIndex = y << 8 | z << 4;
+                while (row != 0) {
+                    x = Integer.numberOfTrailingZeros(row);
+                    index = rowIndex | x;
+                    filter.applyBlock(this);
+                    row &= row - 1;
                 }
             }
         }
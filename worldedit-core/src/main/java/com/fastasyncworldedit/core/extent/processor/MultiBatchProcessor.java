@@ -1,7 +1,6 @@
 package com.fastasyncworldedit.core.extent.processor;
 
 import com.fastasyncworldedit.core.Fawe;
-import com.fastasyncworldedit.core.FaweCache;
 import com.fastasyncworldedit.core.configuration.Settings;
 import com.fastasyncworldedit.core.internal.exception.FaweException;
 import com.fastasyncworldedit.core.queue.Filter;
@@ -11,36 +10,39 @@
 import com.fastasyncworldedit.core.queue.IChunkSet;
 import com.fastasyncworldedit.core.util.MultiFuture;
 import com.fastasyncworldedit.core.util.StringMan;
-import com.google.common.cache.LoadingCache;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.internal.util.LogManagerCompat;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.apache.logging.log4j.Logger;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
-import java.util.function.Supplier;
+import java.util.concurrent.atomic.LongAdder;
 
 public class MultiBatchProcessor implements IBatchProcessor {
 
     private static final Logger LOGGER = LogManagerCompat.getLogger();
 
-    private final LoadingCache<Class<?>, Map<Long, Filter>> classToThreadIdToFilter =
-            FaweCache.INSTANCE.createCache((Supplier<Map<Long, Filter>>) ConcurrentHashMap::new);
+    // Forks of the filter processors by thread id, owned by this processor so they are released with the edit
+    private final Map<Long, Forks> forks = new ConcurrentHashMap<>();
     // Array for lazy avoidance of concurrent modification exceptions and needless overcomplication of code (synchronisation is
     // not very important)
     private boolean[] faweExceptionReasonsUsed = new boolean[FaweException.Type.values().length];
     private IBatchProcessor[] processors;
+    private volatile Pipeline pipeline;
+    private boolean timed;
     private int lastException = Integer.MIN_VALUE;
     private int exceptionCount = 0;
 
     public MultiBatchProcessor(IBatchProcessor... processors) {
         this.processors = processors;
+        this.pipeline = new Pipeline(processors, false);
     }
 
     public static IBatchProcessor of(IBatchProcessor... processors) {
@@ -63,6 +65,7 @@ public void addBatchProcessor(IBatchProcessor processor) {
         List<IBatchProcessor> processors = new ArrayList<>(Arrays.asList(this.processors));
         processors.add(processor);
         this.processors = processors.toArray(new IBatchProcessor[0]);
+        this.pipeline = new Pipeline(this.processors, timed);
     }
 
     public List<IBatchProcessor> getBatchProcessors() {
@@ -73,46 +76,78 @@ public void removeBatchProcessor(IBatchProcessor processor) {
         List<IBatchProcessor> processors = new ArrayList<>(Arrays.asList(this.processors));
         processors.remove(processor);
         this.processors = processors.toArray(new IBatchProcessor[0]);
+        this.pipeline = new Pipeline(this.processors, timed);
+    }
+
+    /**
+     * Set whether the time spent in {@link #processSet(IChunk, IChunkGet, IChunkSet)} by each processor should be counted.
+     * Resets the counted times.
+     *
+     * @param timed if times should be counted
+     * @see #getProcessingTimes()
+     */
+    public void setTimed(boolean timed) {
+        this.timed = timed;
+        this.pipeline = new Pipeline(this.processors, timed);
+    }
+
+    /**
+     * Get the total time spent processing sets by each processor, in the order they are applied, since timing was enabled.
+     *
+     * @return nanoseconds spent by each processor, empty if not timed
+     */
+    public Map<IBatchProcessor, Long> getProcessingTimes() {
+        Pipeline pipeline = this.pipeline;
+        Map<IBatchProcessor, Long> times = new LinkedHashMap<>();
+        if (pipeline.times != null) {
+            for (int i = 0; i < pipeline.processors.length; i++) {
+                times.merge(pipeline.processors[i], pipeline.times[i].sum(), Long::sum);
+            }
+        }
+        return times;
     }
 
     @Override
     public IChunkSet processSet(IChunk chunk, IChunkGet get, IChunkSet set) {
-        Map<Integer, List<IBatchProcessor>> ordered = new HashMap<>();
+        Pipeline pipeline = getPipeline();
+        IBatchProcessor[] processors = getForks(pipeline);
+        LongAdder[] times = pipeline.times;
         IChunkSet chunkSet = set;
-        for (IBatchProcessor processor : processors) {
-            if (processor.getScope() != ProcessorScope.ADDING_BLOCKS) {
-                ordered.computeIfAbsent(processor.getScope().intValue(), k -> new ArrayList<>())
-                        .add(processor);
-                continue;
+        for (int i = 0; i < processors.length; i++) {
+            if (times == null) {
+                chunkSet = processors[i].processSet(chunk, get, chunkSet);
+            } else {
+                long start = System.nanoTime();
+                chunkSet = processors[i].processSet(chunk, get, chunkSet);
+                times[i].add(System.nanoTime() - start);
             }
-            chunkSet = processSet(processor, chunk, get, chunkSet);
-        }
-        if (!ordered.isEmpty()) {
-            for (List<IBatchProcessor> processors : ordered.values()) {
-                for (IBatchProcessor processor : processors) {
-                    chunkSet = processSet(processor, chunk, get, chunkSet);
-                    if (chunkSet == null) {
-                        return null;
-                    }
-                }
+            if (chunkSet == null) {
+                return null;
             }
         }
         return chunkSet;
     }
 
-    @Nullable
-    private IChunkSet processSet(IBatchProcessor processor, IChunk chunk, IChunkGet get, IChunkSet chunkSet) {
-        if (processor instanceof Filter) {
-            chunkSet = ((IBatchProcessor) classToThreadIdToFilter.getUnchecked(processor.getClass())
-                    .computeIfAbsent(Thread.currentThread().getId(), k -> ((Filter) processor).fork())).processSet(
-                    chunk,
-                    get,
-                    chunkSet
-            );
-        } else {
-            chunkSet = processor.processSet(chunk, get, chunkSet);
+    private Pipeline getPipeline() {
+        Pipeline pipeline = this.pipeline;
+        if (pipeline.isOutdated()) {
+            // A held processor was swapped for one with a different scope
+            pipeline = this.pipeline = new Pipeline(this.processors, timed);
         }
-        return chunkSet;
+        return pipeline;
+    }
+
+    private IBatchProcessor[] getForks(Pipeline pipeline) {
+        if (!pipeline.hasFilters) {
+            return pipeline.processors;
+        }
+        long thread = Thread.currentThread().getId();
+        Forks current = forks.get(thread);
+        if (current == null || current.pipeline != pipeline) {
+            current = new Forks(pipeline, current);
+            forks.put(thread, current);
+        }
+        return current.processors;
     }
 
     @Override
@@ -231,6 +266,7 @@ public void flush() {
         for (IBatchProcessor processor : this.processors) {
             processor.flush();
         }
+        forks.clear();
     }
 
     @Override
@@ -259,4 +295,101 @@ public void setFaweExceptionArray(final boolean[] faweExceptionReasonsUsed) {
         this.faweExceptionReasonsUsed = faweExceptionReasonsUsed;
     }
 
+    /**
+     * The processors in the order sets are processed in: processors adding blocks in the order they were added, then the
+     * others by scope.
+     */
+    private static final class Pipeline {
+
+        private final IBatchProcessor[] processors;
+        private final ProcessorScope[] scopes;
+        // Processors whose scope depends on the processor they hold
+        private final int[] holders;
+        private final boolean hasFilters;
+        private final LongAdder[] times;
+
+        private Pipeline(IBatchProcessor[] processors, boolean timed) {
+            List<IBatchProcessor> ordered = new ArrayList<>(processors.length);
+            for (IBatchProcessor processor : processors) {
+                if (processor.getScope() == ProcessorScope.ADDING_BLOCKS) {
+                    ordered.add(processor);
+                }
+            }
+            for (int scope = ProcessorScope.CHANGING_BLOCKS.intValue(); scope <= ProcessorScope.READING_SET_BLOCKS.intValue();
+                 scope++) {
+                for (IBatchProcessor processor : processors) {
+                    if (processor.getScope().intValue() == scope) {
+                        ordered.add(processor);
+                    }
+                }
+            }
+            this.processors = ordered.toArray(new IBatchProcessor[0]);
+            this.scopes = new ProcessorScope[this.processors.length];
+            IntArrayList holders = new IntArrayList();
+            boolean hasFilters = false;
+            for (int i = 0; i < this.processors.length; i++) {
+                IBatchProcessor processor = this.processors[i];
+                scopes[i] = processor.getScope();
+                if (processor instanceof IBatchProcessorHolder || processor instanceof MultiBatchProcessor) {
+                    holders.add(i);
+                }
+                hasFilters |= processor instanceof Filter;
+            }
+            this.holders = holders.toIntArray();
+            this.hasFilters = hasFilters;
+            if (timed) {
+                this.times = new LongAdder[this.processors.length];
+                for (int i = 0; i < times.length; i++) {
+                    times[i] = new LongAdder();
+                }
+            } else {
+                this.times = null;
+            }
+        }
+
+        private boolean isOutdated() {
+            for (int index : holders) {
+                if (processors[index].getScope() != scopes[index]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * A thread's forks of the filter processors of a pipeline. Forks are kept when the pipeline changes.
+     */
+    private static final class Forks {
+
+        private final Pipeline pipeline;
+        private final IBatchProcessor[] processors;
+
+        private Forks(Pipeline pipeline, @Nullable Forks previous) {
+            this.pipeline = pipeline;
+            this.processors = new IBatchProcessor[pipeline.processors.length];
+            for (int i = 0; i < processors.length; i++) {
+                IBatchProcessor processor = pipeline.processors[i];
+                if (!(processor instanceof Filter filter)) {
+                    processors[i] = processor;
+                    continue;
+                }
+                IBatchProcessor fork = previous != null ? previous.get(processor) : null;
+                processors[i] = fork != null ? fork : (IBatchProcessor) filter.fork();
+            }
+        }
+
+        @Nullable
+        private IBatchProcessor get(IBatchProcessor processor) {
+            for (int i = 0; i < processors.length; i++) {
+                if (pipeline.processors[i] == processor) {
+                    return processors[i];
+                }
+            }
+            return null;
+        }
+
+    }
+
 }
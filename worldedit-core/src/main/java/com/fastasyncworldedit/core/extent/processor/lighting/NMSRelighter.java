@@ -16,18 +16,18 @@
 import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockTypes;
 import com.sk89q.worldedit.world.registry.BlockMaterial;
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -36,6 +36,8 @@
 public class NMSRelighter implements Relighter {
 
     private static final int DISPATCH_SIZE = 64;
+    private static final long BITS_26 = (1L << 26) - 1;
+    private static final long BITS_12 = (1L << 12) - 1;
     private static final DirectionalProperty stairDirection;
     private static final EnumProperty stairHalf;
     private static final EnumProperty stairShape;
@@ -51,7 +53,6 @@ public class NMSRelighter implements Relighter {
     public final MutableBlockVector3 mutableBlockPos = new MutableBlockVector3(0, 0, 0);
     private final IQueueExtent<?> queue;
     private final Map<Long, RelightSkyEntry> skyToRelight;
-    private final Object present = new Object();
     private final Map<Long, Integer> chunksToSend;
     private final ConcurrentLinkedQueue<RelightSkyEntry> extendSkyToRelight = new ConcurrentLinkedQueue<>();
     private final Map<Long, long[][][] /* z y x */> lightQueue;
@@ -205,10 +206,12 @@ public void updateBlockLight(Map<Long, long[][][]> map) {
         if (size == 0) {
             return;
         }
-        Queue<MutableBlockVector3> lightPropagationQueue = new ArrayDeque<>(32);
-        Queue<Object[]> lightRemovalQueue = new ArrayDeque<>(32);
-        Map<MutableBlockVector3, Object> visited = new HashMap<>(32);
-        Map<MutableBlockVector3, Object> removalVisited = new HashMap<>(32);
+        // Positions are packed into longs to avoid allocating an object for every block lit
+        LongArrayFIFOQueue lightPropagationQueue = new LongArrayFIFOQueue(32);
+        LongArrayFIFOQueue lightRemovalQueue = new LongArrayFIFOQueue(32);
+        IntArrayFIFOQueue lightRemovalLevels = new IntArrayFIFOQueue(32);
+        LongOpenHashSet visited = new LongOpenHashSet(32);
+        LongOpenHashSet removalVisited = new LongOpenHashSet(32);
 
         // Make sure BlockTypes is initialised so we can check block characteristics later if needed
         BlockTypes.STONE.getMaterial();
@@ -249,13 +252,14 @@ public void updateBlockLight(Map<Long, long[][][]> map) {
                                     int newLevel = iChunk.getBrightness(lx, y, lz);
                                     if (oldLevel != newLevel) {
                                         iChunk.setBlockLight(lx, y, lz, newLevel);
-                                        MutableBlockVector3 node = new MutableBlockVector3(x, y, z);
+                                        long node = pack(x, y, z);
                                         if (newLevel < oldLevel) {
-                                            removalVisited.put(node, present);
-                                            lightRemovalQueue.add(new Object[]{node, oldLevel});
+                                            removalVisited.add(node);
+                                            lightRemovalQueue.enqueue(node);
+                                            lightRemovalLevels.enqueue(oldLevel);
                                         } else {
-                                            visited.put(node, present);
-                                            lightPropagationQueue.add(node);
+                                            visited.add(node);
+                                            lightPropagationQueue.enqueue(node);
                                         }
                                     }
                                 }
@@ -268,119 +272,88 @@ public void updateBlockLight(Map<Long, long[][][]> map) {
         }
 
         while (!lightRemovalQueue.isEmpty()) {
-            Object[] val = lightRemovalQueue.poll();
-            MutableBlockVector3 node = (MutableBlockVector3) val[0];
-            int lightLevel = (int) val[1];
+            long node = lightRemovalQueue.dequeueLong();
+            int lightLevel = lightRemovalLevels.dequeueInt();
+            int x = unpackX(node);
+            int y = unpackY(node);
+            int z = unpackZ(node);
 
-            this.computeRemoveBlockLight(
-                    node.x() - 1,
-                    node.y(),
-                    node.z(),
-                    lightLevel,
-                    lightRemovalQueue,
-                    lightPropagationQueue,
-                    removalVisited,
-                    visited
+            this.computeRemoveBlockLight(x - 1, y, z, lightLevel, lightRemovalQueue, lightRemovalLevels,
+                    lightPropagationQueue, removalVisited, visited
             );
-            this.computeRemoveBlockLight(
-                    node.x() + 1,
-                    node.y(),
-                    node.z(),
-                    lightLevel,
-                    lightRemovalQueue,
-                    lightPropagationQueue,
-                    removalVisited,
-                    visited
+            this.computeRemoveBlockLight(x + 1, y, z, lightLevel, lightRemovalQueue, lightRemovalLevels,
+                    lightPropagationQueue, removalVisited, visited
             );
-            if (node.y() > minY) {
-                this.computeRemoveBlockLight(
-                        node.x(),
-                        node.y() - 1,
-                        node.z(),
-                        lightLevel,
-                        lightRemovalQueue,
-                        lightPropagationQueue,
-                        removalVisited,
-                        visited
+            if (y > minY) {
+                this.computeRemoveBlockLight(x, y - 1, z, lightLevel, lightRemovalQueue, lightRemovalLevels,
+                        lightPropagationQueue, removalVisited, visited
                 );
             }
-            if (node.y() < maxY) {
-                this.computeRemoveBlockLight(
-                        node.x(),
-                        node.y() + 1,
-                        node.z(),
-                        lightLevel,
-                        lightRemovalQueue,
-                        lightPropagationQueue,
-                        removalVisited,
-                        visited
+            if (y < maxY) {
+                this.computeRemoveBlockLight(x, y + 1, z, lightLevel, lightRemovalQueue, lightRemovalLevels,
+                        lightPropagationQueue, removalVisited, visited
                 );
             }
-            this.computeRemoveBlockLight(
-                    node.x(),
-                    node.y(),
-                    node.z() - 1,
-                    lightLevel,
-                    lightRemovalQueue,
-                    lightPropagationQueue,
-                    removalVisited,
-                    visited
+            this.computeRemoveBlockLight(x, y, z - 1, lightLevel, lightRemovalQueue, lightRemovalLevels,
+                    lightPropagationQueue, removalVisited, visited
             );
-            this.computeRemoveBlockLight(
-                    node.x(),
-                    node.y(),
-                    node.z() + 1,
-                    lightLevel,
-                    lightRemovalQueue,
-                    lightPropagationQueue,
-                    removalVisited,
-                    visited
+            this.computeRemoveBlockLight(x, y, z + 1, lightLevel, lightRemovalQueue, lightRemovalLevels,
+                    lightPropagationQueue, removalVisited, visited
             );
         }
 
         while (!lightPropagationQueue.isEmpty()) {
-            MutableBlockVector3 node = lightPropagationQueue.poll();
-            ChunkHolder<?> iChunk = (ChunkHolder<?>) queue.getOrCreateChunk(node.x() >> 4, node.z() >> 4);
+            long node = lightPropagationQueue.dequeueLong();
+            int x = unpackX(node);
+            int y = unpackY(node);
+            int z = unpackZ(node);
+            ChunkHolder<?> iChunk = (ChunkHolder<?>) queue.getOrCreateChunk(x >> 4, z >> 4);
             if (!iChunk.isInit()) {
-                iChunk.init(queue, node.x() >> 4, node.z() >> 4);
+                iChunk.init(queue, x >> 4, z >> 4);
             }
-            int lightLevel = iChunk.getEmittedLight(node.x() & 15, node.y(), node.z() & 15);
-            BlockState state = this.queue.getBlock(node.x(), node.y(), node.z());
-            String id = state.getBlockType().id().toLowerCase(Locale.ROOT);
+            int lightLevel = iChunk.getEmittedLight(x & 15, y, z & 15);
             if (lightLevel <= 1) {
                 continue;
             }
+            BlockState state = this.queue.getBlock(x, y, z);
+            String id = state.getBlockType().id().toLowerCase(Locale.ROOT);
             if (id.contains("slab")) {
                 boolean top = state.getState(slabHalf).equalsIgnoreCase("top");
-                computeSlab(node.x(), node.y(), node.z(), lightLevel, lightPropagationQueue, visited, top);
+                computeSlab(x, y, z, lightLevel, lightPropagationQueue, visited, top);
             } else if (id.contains("stair")) {
                 boolean top = state.getState(stairHalf).equalsIgnoreCase("top");
                 Direction direction = getStairDir(state);
                 String shape = getStairShape(state);
-                computeStair(
-                        node.x(),
-                        node.y(),
-                        node.z(),
-                        lightLevel,
-                        lightPropagationQueue,
-                        visited,
-                        top,
-                        direction,
-                        shape
-                );
+                computeStair(x, y, z, lightLevel, lightPropagationQueue, visited, top, direction, shape);
             } else {
-                computeNormal(node.x(), node.y(), node.z(), lightLevel, lightPropagationQueue, visited);
+                computeNormal(x, y, z, lightLevel, lightPropagationQueue, visited);
             }
         }
     }
 
+    private static long pack(int x, int y, int z) {
+        return (x & BITS_26) | (z & BITS_26) << 26 | (y & BITS_12) << 52;
+    }
+
+    private static int unpackX(long packed) {
+        return (int) (packed << 38 >> 38);
+    }
+
+    private static int unpackY(long packed) {
+        return (int) (packed >> 52);
+    }
+
+    private static int unpackZ(long packed) {
+        return (int) (packed << 12 >> 38);
+    }
+
     private void computeStair(
             int x,
             int y,
             int z,
             int currentLight,
-            Queue<MutableBlockVector3> queue,
-            Map<MutableBlockVector3, Object> visited,
+            LongArrayFIFOQueue queue,
+            LongOpenHashSet visited,
             boolean top,
             Direction direction,
             String shape
@@ -606,8 +579,8 @@ private void computeSlab(
             int y,
             int z,
             int currentLight,
-            Queue<MutableBlockVector3> queue,
-            Map<MutableBlockVector3, Object> visited,
+            LongArrayFIFOQueue queue,
+            LongOpenHashSet visited,
             boolean top
     ) {
         {
@@ -646,8 +619,8 @@ private void computeUpDown(
             int y,
             int z,
             int currentLight,
-            Queue<MutableBlockVector3> queue,
-            Map<MutableBlockVector3, Object> visited,
+            LongArrayFIFOQueue queue,
+            LongOpenHashSet visited,
             boolean top
     ) {
         BlockState state = this.queue.getBlock(x, y - 1, z);
@@ -665,8 +638,8 @@ private void computeNormal(
             int y,
             int z,
             int currentLight,
-            Queue<MutableBlockVector3> queue,
-            Map<MutableBlockVector3, Object> visited
+            LongArrayFIFOQueue queue,
+            LongOpenHashSet visited
     ) {
         {
             // Block East
@@ -799,10 +772,11 @@ private void computeRemoveBlockLight(
             int y,
             int z,
             int currentLight,
-            Queue<Object[]> queue,
-            Queue<MutableBlockVector3> spreadQueue,
-            Map<MutableBlockVector3, Object> visited,
-            Map<MutableBlockVector3, Object> spreadVisited
+            LongArrayFIFOQueue queue,
+            IntArrayFIFOQueue levels,
+            LongArrayFIFOQueue spreadQueue,
+            LongOpenHashSet visited,
+            LongOpenHashSet spreadVisited
     ) {
         ChunkHolder<?> iChunk = (ChunkHolder<?>) this.queue.getOrCreateChunk(x >> 4, z >> 4);
         if (!iChunk.isInit()) {
@@ -812,19 +786,16 @@ private void computeRemoveBlockLight(
         if (current != 0 && current < currentLight) {
             iChunk.setBlockLight(x, y, z, 0);
             if (current > 1) {
-                mutableBlockPos.setComponents(x, y, z);
-                if (!visited.containsKey(mutableBlockPos)) {
-                    MutableBlockVector3 index = new MutableBlockVector3(x, y, z);
-                    visited.put(index, present);
-                    queue.add(new Object[]{index, current});
+                long index = pack(x, y, z);
+                if (visited.add(index)) {
+                    queue.enqueue(index);
+                    levels.enqueue(current);
                 }
             }
         } else if (current >= currentLight) {
-            mutableBlockPos.setComponents(x, y, z);
-            if (!spreadVisited.containsKey(mutableBlockPos)) {
-                MutableBlockVector3 index = new MutableBlockVector3(x, y, z);
-                spreadVisited.put(index, present);
-                spreadQueue.add(index);
+            long index = pack(x, y, z);
+            if (spreadVisited.add(index)) {
+                spreadQueue.enqueue(index);
             }
         }
     }
@@ -834,8 +805,8 @@ private void computeSpreadBlockLight(
             int y,
             int z,
             int currentLight,
-            Queue<MutableBlockVector3> queue,
-            Map<MutableBlockVector3, Object> visited
+            LongArrayFIFOQueue queue,
+            LongOpenHashSet visited
     ) {
         BlockMaterial material = this.queue.getBlock(x, y, z).getMaterial();
         boolean solidNeedsLight = (!material.isSolid() || !material.isFullCube()) && material.getLightOpacity() > 0 && material.getLightValue() == 0;
@@ -848,12 +819,8 @@ private void computeSpreadBlockLight(
             int current = iChunk.getEmittedLight(x & 15, y, z & 15);
             if (currentLight > current) {
                 iChunk.setBlockLight(x & 15, y, z & 15, currentLight);
-                mutableBlockPos.setComponents(x, y, z);
-                if (!visited.containsKey(mutableBlockPos)) {
-                    visited.put(new MutableBlockVector3(x, y, z), present);
-                    if (currentLight > 1) {
-                        queue.add(new MutableBlockVector3(x, y, z));
-                    }
+                if (visited.add(pack(x, y, z)) && currentLight > 1) {
+                    queue.enqueue(pack(x, y, z));
                 }
             }
         }
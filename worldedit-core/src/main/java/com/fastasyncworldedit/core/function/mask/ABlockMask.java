@@ -31,6 +31,65 @@ public boolean test(BlockVector3 vector) {
 
     public abstract boolean test(BlockState state);
 
+    @Override
+    public boolean supportsSectionTest() {
+        return true;
+    }
+
+    @Override
+    public boolean testSection(char[] ordinals, long[] result) {
+        // Sections are mostly made of long runs of the same ordinal, so only test when it changes
+        int last = -1;
+        boolean lastResult = false;
+        for (int word = 0, index = 0; word < 64; word++) {
+            long bits = 0;
+            for (int bit = 0; bit < 64; bit++, index++) {
+                char ordinal = ordinals[index];
+                if (ordinal != last) {
+                    last = ordinal;
+                    lastResult = testSectionOrdinal(ordinal);
+                }
+                if (lastResult) {
+                    bits |= 1L << bit;
+                }
+            }
+            result[word] = bits;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean mayMatchSection(char[] ordinals) {
+        int last = -1;
+        for (char ordinal : ordinals) {
+            if (ordinal != last) {
+                if (testSectionOrdinal(ordinal)) {
+                    return true;
+                }
+                last = ordinal;
+            }
+        }
+        return false;
+    }
+
+    private boolean testSectionOrdinal(char ordinal) {
+        // Sections missing from a chunk are read as reserved ordinals, which are air when tested per block
+        if (ordinal == BlockTypesCache.ReservedIDs.__RESERVED__) {
+            ordinal = BlockTypesCache.ReservedIDs.AIR;
+        }
+        return testOrdinal(ordinal);
+    }
+
+    /**
+     * Test a block state by its ordinal.
+     *
+     * @param ordinal ordinal of the block state
+     * @return if the block state matches
+     */
+    protected boolean testOrdinal(char ordinal) {
+        return test(BlockTypesCache.states[ordinal]);
+    }
+
     @Override
     public String toString() {
         List<String> strings = new ArrayList<>();
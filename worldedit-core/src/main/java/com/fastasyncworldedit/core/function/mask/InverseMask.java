@@ -21,6 +21,22 @@ public boolean test(BlockVector3 pos) {
         return !mask.test(pos);
     }
 
+    @Override
+    public boolean supportsSectionTest() {
+        return mask.supportsSectionTest();
+    }
+
+    @Override
+    public boolean testSection(char[] ordinals, long[] result) {
+        if (!mask.testSection(ordinals, result)) {
+            return false;
+        }
+        for (int word = 0; word < result.length; word++) {
+            result[word] = ~result[word];
+        }
+        return true;
+    }
+
     @Nullable
     @Override
     public Mask2D toMask2D() {
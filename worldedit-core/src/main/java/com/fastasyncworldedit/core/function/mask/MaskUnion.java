@@ -80,6 +80,37 @@ public boolean test(BlockVector3 vector) {
         return false;
     }
 
+    @Override
+    public boolean testSection(char[] ordinals, long[] result) {
+        Mask[] masks = getMasksArray();
+        if (!masks[0].testSection(ordinals, result)) {
+            return false;
+        }
+        long[] other = null;
+        for (int i = 1; i < masks.length; i++) {
+            if (other == null) {
+                other = new long[result.length];
+            }
+            if (!masks[i].testSection(ordinals, other)) {
+                return false;
+            }
+            for (int word = 0; word < result.length; word++) {
+                result[word] |= other[word];
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean mayMatchSection(char[] ordinals) {
+        for (Mask mask : getMasksArray()) {
+            if (mask.mayMatchSection(ordinals)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Nullable
     @Override
     public Mask2D toMask2D() {
@@ -4,6 +4,7 @@
 import com.fastasyncworldedit.core.configuration.Settings;
 import com.fastasyncworldedit.core.database.DBHandler;
 import com.fastasyncworldedit.core.database.RollbackDatabase;
+import com.fastasyncworldedit.core.history.change.MutableFullBlockChange;
 import com.fastasyncworldedit.core.history.changeset.FaweStreamChangeSet;
 import com.fastasyncworldedit.core.history.changeset.SimpleChangeSetSummary;
 import com.fastasyncworldedit.core.internal.io.FaweInputStream;
@@ -24,6 +25,8 @@
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -42,6 +45,7 @@ public class DiskStorageHistory extends FaweStreamChangeSet {
 
     private UUID uuid;
     private File bdFile;
+    private File bdiFile;
     private File bioFile;
     private File nbtfFile;
     private File nbttFile;
@@ -71,6 +75,10 @@ public class DiskStorageHistory extends FaweStreamChangeSet {
 
     private int index;
 
+    // Index of the block changes being written, or read from disk
+    private HistoryIndex chunkIndex;
+    private int blockReadLimit = Integer.MAX_VALUE;
+
     public DiskStorageHistory(World world, UUID uuid) {
         super(world);
         init(uuid, world.getName());
@@ -107,6 +115,7 @@ private void initFiles(File folder) {
         enttFile = new File(folder, index + ".entt");
         //Switch file ending due to new (sort-of) format. (Added e for Extended height)
         bdFile = new File(folder, index + ".bd");
+        bdiFile = new File(folder, index + ".bdi");
         bioFile = new File(folder, index + ".bio");
     }
 
@@ -131,6 +140,7 @@ public void delete() {
 
     public void deleteFiles() {
         bdFile.delete();
+        bdiFile.delete();
         nbtfFile.delete();
         nbttFile.delete();
         entfFile.delete();
@@ -144,8 +154,15 @@ public void undo(Actor actor, Region[] regions) {
             e.printStackTrace();
             return;
         }
+        int limit = getBlockReadLimit(regions);
+        if (limit == 0 && !hasOtherChanges()) {
+            return;
+        }
+        blockReadLimit = limit;
         try (EditSession session = toEditSession(actor, regions)) {
             session.setBlocks(this, ChangeSetExecutor.Type.UNDO);
+        } finally {
+            blockReadLimit = Integer.MAX_VALUE;
         }
     }
 
@@ -160,14 +177,73 @@ public void redo(Actor actor, Region[] regions) {
             e.printStackTrace();
             return;
         }
-        EditSession session = toEditSession(actor, regions);
-        session.setBlocks(this, ChangeSetExecutor.Type.REDO);
+        int limit = getBlockReadLimit(regions);
+        if (limit == 0 && !hasOtherChanges()) {
+            return;
+        }
+        blockReadLimit = limit;
+        try {
+            EditSession session = toEditSession(actor, regions);
+            session.setBlocks(this, ChangeSetExecutor.Type.REDO);
+        } finally {
+            blockReadLimit = Integer.MAX_VALUE;
+        }
     }
 
     public void redo(Actor actor) {
         redo(actor, null);
     }
 
+    /**
+     * Get an iterator over the block changes, reading only as far as needed to include all changes inside the regions if
+     * this history has a chunk index.
+     *
+     * @param regions regions to read changes in
+     * @return block changes, which may include changes outside the regions
+     */
+    public Iterator<MutableFullBlockChange> getFullBlockIterator(Region[] regions) throws IOException {
+        int limit = getBlockReadLimit(regions);
+        if (limit == 0) {
+            return Collections.emptyIterator();
+        }
+        blockReadLimit = limit;
+        try {
+            return getFullBlockIterator(null, 0, false);
+        } finally {
+            blockReadLimit = Integer.MAX_VALUE;
+        }
+    }
+
+    @Override
+    protected int getBlockReadLimit() {
+        return blockReadLimit;
+    }
+
+    private int getBlockReadLimit(Region[] regions) {
+        HistoryIndex chunkIndex = regions == null ? null : getChunkIndex();
+        return chunkIndex == null ? Integer.MAX_VALUE : chunkIndex.getEntryLimit(regions);
+    }
+
+    private boolean hasOtherChanges() {
+        return bioFile.exists() || nbtfFile.exists() || nbttFile.exists() || entfFile.exists() || enttFile.exists();
+    }
+
+    /**
+     * Get the index of the chunks the block changes are in, used to skip reading changes outside a region.
+     *
+     * @return the index, or null if the history has no index, such as one written by an older version
+     */
+    public HistoryIndex getChunkIndex() {
+        if (chunkIndex == null && bdiFile.exists() && bdiFile.lastModified() >= bdFile.lastModified()) {
+            try {
+                chunkIndex = HistoryIndex.read(bdiFile);
+            } catch (IOException e) {
+                LOGGER.error("Could not load block history index file {}", bdiFile, e);
+            }
+        }
+        return chunkIndex;
+    }
+
     public UUID getUUID() {
         return uuid;
     }
@@ -237,6 +313,9 @@ public void close() throws IOException {
                 if (osBD != null) {
                     osBD.close();
                     osBD = null;
+                    if (chunkIndex != null) {
+                        chunkIndex.write(bdiFile);
+                    }
                 }
                 if (osBIO != null) {
                     osBIO.close();
@@ -308,10 +387,26 @@ public FaweOutputStream getBlockOS(int x, int y, int z) throws IOException {
             bdFile.createNewFile();
             osBD = getCompressedOS(new FileOutputStream(bdFile));
             writeHeader(osBD, x, y, z);
+            chunkIndex = new HistoryIndex();
             return osBD;
         }
     }
 
+    @Override
+    public void add(int x, int y, int z, int combinedFrom, int combinedTo) {
+        super.add(x, y, z, combinedFrom, combinedTo);
+        if (chunkIndex != null) {
+            chunkIndex.add(x >> 4, z >> 4, 1);
+        }
+    }
+
+    @Override
+    protected void onBlocksAppended(int count, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        if (chunkIndex != null) {
+            chunkIndex.add(minX >> 4, minZ >> 4, count);
+        }
+    }
+
     @Override
     public FaweOutputStream getBiomeOS() throws IOException {
         if (osBIO != null) {
@@ -0,0 +1,161 @@
+package com.fastasyncworldedit.core.history;
+
+import com.fastasyncworldedit.core.util.MathMan;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.Region;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Index of which chunks the block changes of a history touch.
+ * <p>
+ * The block stream of a history is delta encoded and compressed, so it can only be read from the start. For each chunk the
+ * index stores the number of changes and the position in the stream after the last change of the chunk, so readers looking
+ * for changes in a region can skip a history that doesn't touch it, or stop reading after the last change that might.
+ * <p>
+ * File format, all values big endian:
+ * <pre>
+ * byte version, int entries, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ, int chunks,
+ * { int chunkX, int chunkZ, int count, int end } per chunk
+ * </pre>
+ */
+public class HistoryIndex {
+
+    private static final int VERSION = 1;
+
+    private final Long2IntOpenHashMap counts = new Long2IntOpenHashMap();
+    private final Long2IntOpenHashMap ends = new Long2IntOpenHashMap();
+    private int entries;
+    private int minChunkX = Integer.MAX_VALUE;
+    private int minChunkZ = Integer.MAX_VALUE;
+    private int maxChunkX = Integer.MIN_VALUE;
+    private int maxChunkZ = Integer.MIN_VALUE;
+
+    /**
+     * Record that changes in a chunk were appended to the block stream.
+     *
+     * @param chunkX chunk x
+     * @param chunkZ chunk z
+     * @param count  number of changes appended
+     */
+    public void add(int chunkX, int chunkZ, int count) {
+        long pair = MathMan.pairInt(chunkX, chunkZ);
+        entries += count;
+        counts.addTo(pair, count);
+        ends.put(pair, entries);
+        minChunkX = Math.min(minChunkX, chunkX);
+        minChunkZ = Math.min(minChunkZ, chunkZ);
+        maxChunkX = Math.max(maxChunkX, chunkX);
+        maxChunkZ = Math.max(maxChunkZ, chunkZ);
+    }
+
+    /**
+     * Get the number of block changes in the stream.
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * Get the number of block changes in a chunk.
+     */
+    public int getCount(int chunkX, int chunkZ) {
+        return counts.get(MathMan.pairInt(chunkX, chunkZ));
+    }
+
+    /**
+     * Get the number of block changes that must be read from the start of the stream to include every change in a chunk
+     * that may intersect one of the regions.
+     *
+     * @param regions regions to check, compared by their bounding boxes
+     * @return number of changes to read, 0 if no chunk intersects
+     */
+    public int getEntryLimit(Region[] regions) {
+        int limit = 0;
+        for (Region region : regions) {
+            BlockVector3 min = region.getMinimumPoint();
+            BlockVector3 max = region.getMaximumPoint();
+            int regionMinX = Math.max(minChunkX, min.x() >> 4);
+            int regionMinZ = Math.max(minChunkZ, min.z() >> 4);
+            int regionMaxX = Math.min(maxChunkX, max.x() >> 4);
+            int regionMaxZ = Math.min(maxChunkZ, max.z() >> 4);
+            if (regionMinX > regionMaxX || regionMinZ > regionMaxZ) {
+                continue;
+            }
+            if ((long) (regionMaxX - regionMinX + 1) * (regionMaxZ - regionMinZ + 1) <= ends.size()) {
+                for (int chunkX = regionMinX; chunkX <= regionMaxX; chunkX++) {
+                    for (int chunkZ = regionMinZ; chunkZ <= regionMaxZ; chunkZ++) {
+                        limit = Math.max(limit, ends.get(MathMan.pairInt(chunkX, chunkZ)));
+                    }
+                }
+            } else {
+                for (Long2IntMap.Entry entry : ends.long2IntEntrySet()) {
+                    long pair = entry.getLongKey();
+                    int chunkX = MathMan.unpairIntX(pair);
+                    int chunkZ = MathMan.unpairIntY(pair);
+                    if (chunkX >= regionMinX && chunkX <= regionMaxX && chunkZ >= regionMinZ && chunkZ <= regionMaxZ) {
+                        limit = Math.max(limit, entry.getIntValue());
+                    }
+                }
+            }
+        }
+        return limit;
+    }
+
+    public void write(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeByte(VERSION);
+            out.writeInt(entries);
+            out.writeInt(minChunkX);
+            out.writeInt(minChunkZ);
+            out.writeInt(maxChunkX);
+            out.writeInt(maxChunkZ);
+            out.writeInt(counts.size());
+            for (Long2IntMap.Entry entry : counts.long2IntEntrySet()) {
+                long pair = entry.getLongKey();
+                out.writeInt(MathMan.unpairIntX(pair));
+                out.writeInt(MathMan.unpairIntY(pair));
+                out.writeInt(entry.getIntValue());
+                out.writeInt(ends.get(pair));
+            }
+        }
+    }
+
+    /**
+     * Read an index.
+     *
+     * @param file the index file
+     * @return the index, or null if the file's version is unknown
+     * @throws IOException if the file could not be read
+     */
+    public static HistoryIndex read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readByte() != VERSION) {
+                return null;
+            }
+            HistoryIndex index = new HistoryIndex();
+            index.entries = in.readInt();
+            index.minChunkX = in.readInt();
+            index.minChunkZ = in.readInt();
+            index.maxChunkX = in.readInt();
+            index.maxChunkZ = in.readInt();
+            int chunks = in.readInt();
+            for (int i = 0; i < chunks; i++) {
+                long pair = MathMan.pairInt(in.readInt(), in.readInt());
+                index.counts.put(pair, in.readInt());
+                index.ends.put(pair, in.readInt());
+            }
+            return index;
+        }
+    }
+
+}
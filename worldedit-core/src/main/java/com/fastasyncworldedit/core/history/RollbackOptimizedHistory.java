@@ -126,6 +126,17 @@ public void add(int x, int y, int z, int combinedFrom, int combinedTo) {
         }
     }
 
+    @Override
+    protected void onBlocksAppended(int count, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        super.onBlocksAppended(count, minX, minY, minZ, maxX, maxY, maxZ);
+        this.minX = Math.min(this.minX, minX);
+        this.minY = Math.min(this.minY, minY);
+        this.minZ = Math.min(this.minZ, minZ);
+        this.maxX = Math.max(this.maxX, maxX);
+        this.maxY = Math.max(this.maxY, maxY);
+        this.maxZ = Math.max(this.maxZ, maxZ);
+    }
+
     @Override
     public void addBiomeChange(int x, int y, int z, BiomeType from, BiomeType to) {
         super.addBiomeChange(x, y, z, from, to);
@@ -0,0 +1,215 @@
+package com.fastasyncworldedit.core.history.change;
+
+import com.fastasyncworldedit.core.configuration.Settings;
+import com.fastasyncworldedit.core.queue.IChunk;
+import com.fastasyncworldedit.core.queue.IQueueExtent;
+import com.fastasyncworldedit.core.queue.implementation.ParallelQueueExtent;
+import com.fastasyncworldedit.core.util.MathMan;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.history.UndoContext;
+import com.sk89q.worldedit.history.change.Change;
+import com.sk89q.worldedit.world.block.BlockState;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Performs all block changes of a history stream as a single change, a chunk section at a time.
+ * <p>
+ * If the extent being undone or redone to is a queue, the changed blocks are collected into section arrays, with unchanged
+ * blocks left as {@link com.sk89q.worldedit.world.block.BlockTypesCache.ReservedIDs#__RESERVED__}, and whole sections are
+ * given to the queue's chunks. This skips looking up the chunk and section for every block, and the queue's processors,
+ * such as region restrictions, still apply when the chunks are submitted. Otherwise, each block is set through the extent.
+ */
+public class ChunkBatchedBlockChange implements Change {
+
+    private final Iterator<MutableBlockChange> iterator;
+
+    /**
+     * Create a new change.
+     *
+     * @param iterator the block changes to perform, in the order they should be applied. Read once.
+     */
+    public ChunkBatchedBlockChange(Iterator<MutableBlockChange> iterator) {
+        this.iterator = iterator;
+    }
+
+    @Override
+    public void undo(UndoContext context) throws WorldEditException {
+        create(context);
+    }
+
+    @Override
+    public void redo(UndoContext context) throws WorldEditException {
+        create(context);
+    }
+
+    public void create(UndoContext context) {
+        Extent extent = context.getExtent();
+        IQueueExtent<?> queue = null;
+        if (extent instanceof ParallelQueueExtent parallel) {
+            queue = parallel.getExtent();
+        } else if (extent instanceof IQueueExtent<?> single) {
+            queue = single;
+        }
+        if (queue == null) {
+            while (iterator.hasNext()) {
+                iterator.next().create(context);
+            }
+            return;
+        }
+        int limit = Math.max(1, Settings.settings().QUEUE.TARGET_SIZE);
+        create(iterator, new QueueWriter(queue), extent.getMinY() >> 4, extent.getMaxY() >> 4, limit);
+    }
+
+    /**
+     * Collect block changes into sections and write them a chunk at a time.
+     *
+     * @param iterator the block changes, in the order they should be applied
+     * @param writer   where to write the sections
+     * @param minLayer minimum layer to write, inclusive
+     * @param maxLayer maximum layer to write, inclusive
+     * @param limit    number of chunks with collected sections above which they are written
+     */
+    static <C> void create(
+            Iterator<MutableBlockChange> iterator,
+            SectionWriter<C> writer,
+            int minLayer,
+            int maxLayer,
+            int limit
+    ) {
+        int layers = maxLayer - minLayer + 1;
+        Long2ObjectOpenHashMap<ChunkSections<C>> chunks = new Long2ObjectOpenHashMap<>();
+        List<ChunkSections<C>> pending = new ArrayList<>(limit + 1);
+        while (iterator.hasNext()) {
+            MutableBlockChange change = iterator.next();
+            int layer = (change.y >> 4) - minLayer;
+            if (layer < 0 || layer >= layers) {
+                continue;
+            }
+            int chunkX = change.x >> 4;
+            int chunkZ = change.z >> 4;
+            long pair = MathMan.pairInt(chunkX, chunkZ);
+            ChunkSections<C> sections = chunks.get(pair);
+            if (sections == null) {
+                sections = new ChunkSections<>(chunkX, chunkZ, layers);
+                chunks.put(pair, sections);
+            }
+            char[] blocks = sections.blocks[layer];
+            if (blocks == null) {
+                blocks = sections.blocks[layer] = new char[4096];
+                sections.changed[layer] = new long[64];
+                if (!sections.pending) {
+                    sections.pending = true;
+                    pending.add(sections);
+                }
+            }
+            int index = (change.y & 15) << 8 | (change.z & 15) << 4 | change.x & 15;
+            blocks[index] = (char) change.ordinal;
+            sections.changed[layer][index >> 6] |= 1L << index;
+            if (pending.size() > limit) {
+                flush(writer, pending, minLayer);
+            }
+        }
+        flush(writer, pending, minLayer);
+    }
+
+    private static <C> void flush(SectionWriter<C> writer, List<ChunkSections<C>> pending, int minLayer) {
+        for (ChunkSections<C> sections : pending) {
+            C chunk = writer.getChunk(sections.chunkX, sections.chunkZ);
+            if (chunk != sections.chunk) {
+                // Sections given to a previous chunk were submitted with it
+                sections.chunk = chunk;
+                sections.given = new boolean[sections.blocks.length];
+            }
+            for (int layer = 0; layer < sections.blocks.length; layer++) {
+                char[] blocks = sections.blocks[layer];
+                if (blocks == null) {
+                    continue;
+                }
+                long[] changed = sections.changed[layer];
+                sections.blocks[layer] = null;
+                sections.changed[layer] = null;
+                if (!sections.given[layer]) {
+                    sections.given[layer] = true;
+                    writer.setBlocks(chunk, layer + minLayer, blocks);
+                    continue;
+                }
+                // Setting the section again would replace the blocks given before, so merge block by block. Reserved
+                // ordinals are written too, like setting them one by one would
+                for (int word = 0; word < changed.length; word++) {
+                    long bits = changed[word];
+                    while (bits != 0) {
+                        int index = word << 6 | Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        writer.setBlock(chunk, layer + minLayer, index, blocks[index]);
+                    }
+                }
+            }
+            sections.pending = false;
+        }
+        pending.clear();
+    }
+
+    /**
+     * Receives the collected sections. Writing an ordinal has the same effect as setting the block of that ordinal.
+     *
+     * @param <C> type of the chunks written to
+     */
+    interface SectionWriter<C> {
+
+        /**
+         * Get the chunk to write to, which is a different chunk once the previous one was submitted.
+         */
+        C getChunk(int chunkX, int chunkZ);
+
+        void setBlocks(C chunk, int layer, char[] blocks);
+
+        void setBlock(C chunk, int layer, int index, char ordinal);
+
+    }
+
+    private record QueueWriter(IQueueExtent<?> queue) implements SectionWriter<IChunk> {
+
+        @Override
+        public IChunk getChunk(int chunkX, int chunkZ) {
+            return queue.getOrCreateChunk(chunkX, chunkZ);
+        }
+
+        @Override
+        public void setBlocks(IChunk chunk, int layer, char[] blocks) {
+            chunk.setBlocks(layer, blocks);
+        }
+
+        @Override
+        public void setBlock(IChunk chunk, int layer, int index, char ordinal) {
+            chunk.setBlock(index & 15, (layer << 4) + (index >> 8), (index >> 4) & 15, BlockState.getFromOrdinal(ordinal));
+        }
+
+    }
+
+    private static final class ChunkSections<C> {
+
+        private final int chunkX;
+        private final int chunkZ;
+        private final char[][] blocks;
+        // Which blocks of each section were changed, as reserved ordinals are changes too
+        private final long[][] changed;
+        // The chunk the sections were last given to, and which layers it has been given
+        private C chunk;
+        private boolean[] given;
+        private boolean pending;
+
+        private ChunkSections(int chunkX, int chunkZ, int layers) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.blocks = new char[layers][];
+            this.changed = new long[layers][];
+        }
+
+    }
+
+}
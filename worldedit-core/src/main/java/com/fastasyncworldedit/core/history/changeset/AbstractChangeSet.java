@@ -47,8 +47,10 @@
 
 /**
  * This batch processor writes changes to a concrete implementation.
- * {@link #processSet(IChunk, IChunkGet, IChunkSet)} is synchronized to guarantee consistency.
- * To avoid many blocking threads on this method, changes are enqueued in {@link #queue}.
+ * Changes of a chunk are first prepared by the thread processing the chunk, see
+ * {@link #prepareBlocks(int, int, IChunkGet, IChunkSet)}, and then written while synchronized on the change set to guarantee
+ * consistency.
+ * To avoid many blocking threads on writing, changes are enqueued in {@link #queue}.
  * This allows to keep other threads free for other work.
  */
 public abstract class AbstractChangeSet implements ChangeSet, IBatchProcessor {
@@ -118,117 +120,156 @@ public Extent construct(Extent child) {
     }
 
     @Override
-    public final synchronized IChunkSet processSet(IChunk chunk, IChunkGet get, IChunkSet set) {
+    public final IChunkSet processSet(IChunk chunk, IChunkGet get, IChunkSet set) {
+        Runnable write = prepareWrite(chunk, get, set);
+        synchronized (this) {
+            write.run();
+        }
+        return set;
+    }
+
+    /**
+     * Prepare the changes of a chunk on the calling thread.
+     *
+     * @return task writing the changes, to be run while synchronized on this change set
+     */
+    private Runnable prepareWrite(IChunk chunk, IChunkGet get, IChunkSet set) {
         int bx = chunk.getX() << 4;
         int bz = chunk.getZ() << 4;
-
-        Map<BlockVector3, CompoundTag> tilesFrom = get.getTiles();
-        Map<BlockVector3, CompoundTag> tilesTo = set.getTiles();
-        if (!tilesFrom.isEmpty()) {
-            for (Map.Entry<BlockVector3, CompoundTag> entry : tilesFrom.entrySet()) {
-                BlockVector3 pos = entry.getKey();
-                BlockState fromBlock = get.getBlock(pos.x() & 15, pos.y(), pos.z() & 15);
-                BlockState toBlock = set.getBlock(pos.x() & 15, pos.y(), pos.z() & 15);
-                if (fromBlock != toBlock || tilesTo.containsKey(pos)) {
-                    addTileRemove(MainUtil.setPosition(entry.getValue(), entry.getKey().x(), entry.getKey().y(),
-                            entry.getKey().z()));
+        Runnable blocks = prepareBlocks(chunk.getX(), chunk.getZ(), get, set);
+        return () -> {
+            Map<BlockVector3, CompoundTag> tilesFrom = get.getTiles();
+            Map<BlockVector3, CompoundTag> tilesTo = set.getTiles();
+            if (!tilesFrom.isEmpty()) {
+                for (Map.Entry<BlockVector3, CompoundTag> entry : tilesFrom.entrySet()) {
+                    BlockVector3 pos = entry.getKey();
+                    BlockState fromBlock = get.getBlock(pos.x() & 15, pos.y(), pos.z() & 15);
+                    BlockState toBlock = set.getBlock(pos.x() & 15, pos.y(), pos.z() & 15);
+                    if (fromBlock != toBlock || tilesTo.containsKey(pos)) {
+                        addTileRemove(MainUtil.setPosition(entry.getValue(), entry.getKey().x(), entry.getKey().y(),
+                                entry.getKey().z()));
+                    }
                 }
             }
-        }
-        if (!tilesTo.isEmpty()) {
-            for (Map.Entry<BlockVector3, CompoundTag> entry : tilesTo.entrySet()) {
-                BlockVector3 pos = entry.getKey();
-                addTileCreate(MainUtil.setPosition(entry.getValue(), pos.x() + bx, pos.y(), pos.z() + bz));
-            }
-        }
-        Set<UUID> entRemoves = set.getEntityRemoves();
-        if (!entRemoves.isEmpty()) {
-            for (UUID uuid : entRemoves) {
-                CompoundTag found = get.getEntity(uuid);
-                if (found != null) {
-                    addEntityRemove(found);
+            if (!tilesTo.isEmpty()) {
+                for (Map.Entry<BlockVector3, CompoundTag> entry : tilesTo.entrySet()) {
+                    BlockVector3 pos = entry.getKey();
+                    addTileCreate(MainUtil.setPosition(entry.getValue(), pos.x() + bx, pos.y(), pos.z() + bz));
                 }
             }
-        }
-        Set<CompoundTag> ents = set.getEntities();
-        if (!ents.isEmpty()) {
-            for (CompoundTag tag : ents) {
-                addEntityCreate(tag);
-            }
-        }
-        for (int layer = get.getMinSectionPosition(); layer <= get.getMaxSectionPosition(); layer++) {
-            if (!set.hasSection(layer)) {
-                continue;
+            Set<UUID> entRemoves = set.getEntityRemoves();
+            if (!entRemoves.isEmpty()) {
+                for (UUID uuid : entRemoves) {
+                    CompoundTag found = get.getEntity(uuid);
+                    if (found != null) {
+                        addEntityRemove(found);
+                    }
+                }
             }
-            // add each block and tile
-            char[] blocksGet;
-            char[] tmp = get.load(layer);
-            if (tmp == null) {
-                blocksGet = FaweCache.INSTANCE.EMPTY_CHAR_4096;
-            } else {
-                System.arraycopy(tmp, 0, (blocksGet = new char[4096]), 0, 4096);
+            Set<CompoundTag> ents = set.getEntities();
+            if (!ents.isEmpty()) {
+                for (CompoundTag tag : ents) {
+                    addEntityCreate(tag);
+                }
             }
-            char[] blocksSet;
-            // loadIfPresent shouldn't be null if set.hasSection(layer) is true
-            System.arraycopy(Objects.requireNonNull(set.loadIfPresent(layer)), 0, (blocksSet = new char[4096]), 0, 4096);
-
-            // Account for negative layers
-            int by = layer << 4;
-            for (int y = 0, index = 0; y < 16; y++) {
-                int yy = y + by;
-                for (int z = 0; z < 16; z++) {
-                    int zz = z + bz;
-                    for (int x = 0; x < 16; x++, index++) {
-                        final int combinedTo = blocksSet[index];
-                        if (combinedTo != BlockTypesCache.ReservedIDs.__RESERVED__) {
-                            int xx = bx + x;
-                            int from = blocksGet[index];
-                            if (from == BlockTypesCache.ReservedIDs.__RESERVED__) {
-                                from = BlockTypesCache.ReservedIDs.AIR;
+            blocks.run();
+
+            BiomeType[][] biomes = set.getBiomes();
+            if (biomes != null) {
+                for (int layer = get.getMinSectionPosition(); layer <= get.getMaxSectionPosition(); layer++) {
+                    if (!set.hasBiomes(layer)) {
+                        continue;
+                    }
+                    BiomeType[] biomeSection = biomes[layer - set.getMinSectionPosition()];
+                    int index = 0;
+                    int yy = layer << 4;
+                    for (int y = 0; y < 16; y+= 4) {
+                        for (int z = 0; z < 16; z+= 4) {
+                            for (int x = 0; x < 16; x+= 4, index++) {
+                                BiomeType newBiome = biomeSection[index];
+                                if (newBiome != null) {
+                                    BiomeType oldBiome = get.getBiomeType(x, yy + y, z);
+                                    if (oldBiome != newBiome) {
+                                        addBiomeChange(bx + x, yy + y, bz + z, oldBiome, newBiome);
+                                    }
+                                }
                             }
-                            final int combinedFrom = from;
-                            add(xx, yy, zz, combinedFrom, combinedTo);
                         }
                     }
                 }
             }
-        }
+        };
+    }
 
-        BiomeType[][] biomes = set.getBiomes();
-        if (biomes != null) {
+    /**
+     * Prepare writing the block changes of a chunk. Called by the thread processing the chunk, possibly by several threads at
+     * once for different chunks, so implementations can do as much of the work as possible here rather than in the returned
+     * task, which is run while synchronized on this change set. By default, blocks are passed to
+     * {@link #add(int, int, int, int, int)} when the task is run.
+     *
+     * @param chunkX chunk x coordinate
+     * @param chunkZ chunk z coordinate
+     * @param get    the chunk before the changes
+     * @param set    the changes
+     * @return task writing the block changes
+     */
+    protected Runnable prepareBlocks(int chunkX, int chunkZ, IChunkGet get, IChunkSet set) {
+        int bx = chunkX << 4;
+        int bz = chunkZ << 4;
+        return () -> {
             for (int layer = get.getMinSectionPosition(); layer <= get.getMaxSectionPosition(); layer++) {
-                if (!set.hasBiomes(layer)) {
+                if (!set.hasSection(layer)) {
                     continue;
                 }
-                BiomeType[] biomeSection = biomes[layer - set.getMinSectionPosition()];
-                int index = 0;
-                int yy = layer << 4;
-                for (int y = 0; y < 16; y+= 4) {
-                    for (int z = 0; z < 16; z+= 4) {
-                        for (int x = 0; x < 16; x+= 4, index++) {
-                            BiomeType newBiome = biomeSection[index];
-                            if (newBiome != null) {
-                                BiomeType oldBiome = get.getBiomeType(x, yy + y, z);
-                                if (oldBiome != newBiome) {
-                                    addBiomeChange(bx + x, yy + y, bz + z, oldBiome, newBiome);
+                // add each block and tile
+                char[] blocksGet;
+                char[] tmp = get.load(layer);
+                if (tmp == null) {
+                    blocksGet = FaweCache.INSTANCE.EMPTY_CHAR_4096;
+                } else {
+                    System.arraycopy(tmp, 0, (blocksGet = new char[4096]), 0, 4096);
+                }
+                char[] blocksSet;
+                // loadIfPresent shouldn't be null if set.hasSection(layer) is true
+                System.arraycopy(Objects.requireNonNull(set.loadIfPresent(layer)), 0, (blocksSet = new char[4096]), 0, 4096);
+
+                // Account for negative layers
+                int by = layer << 4;
+                for (int y = 0, index = 0; y < 16; y++) {
+                    int yy = y + by;
+                    for (int z = 0; z < 16; z++) {
+                        int zz = z + bz;
+                        for (int x = 0; x < 16; x++, index++) {
+                            final int combinedTo = blocksSet[index];
+                            if (combinedTo != BlockTypesCache.ReservedIDs.__RESERVED__) {
+                                int xx = bx + x;
+                                int from = blocksGet[index];
+                                if (from == BlockTypesCache.ReservedIDs.__RESERVED__) {
+                                    from = BlockTypesCache.ReservedIDs.AIR;
                                 }
+                                final int combinedFrom = from;
+                                add(xx, yy, zz, combinedFrom, combinedTo);
                             }
                         }
                     }
                 }
             }
-        }
-        return set;
+        };
     }
 
     @Override
     public void postProcess(final IChunk chunk, final IChunkGet get, final IChunkSet set) {
-        addWriteTask(() -> processSet(chunk, get, set));
+        postProcessSet(chunk, get, set);
     }
 
     @Override
     public Future<?> postProcessSet(final IChunk chunk, final IChunkGet get, final IChunkSet set) {
-        return addWriteTask(() -> processSet(chunk, get, set));
+        Runnable write = prepareWrite(chunk, get, set);
+        return addWriteTask(() -> {
+            synchronized (this) {
+                write.run();
+            }
+        });
     }
 
     @Override
@@ -1,14 +1,18 @@
 package com.fastasyncworldedit.core.history.changeset;
 
 import com.fastasyncworldedit.core.configuration.Settings;
+import com.fastasyncworldedit.core.history.change.ChunkBatchedBlockChange;
 import com.fastasyncworldedit.core.history.change.MutableBiomeChange;
 import com.fastasyncworldedit.core.history.change.MutableBlockChange;
 import com.fastasyncworldedit.core.history.change.MutableEntityChange;
 import com.fastasyncworldedit.core.history.change.MutableFullBlockChange;
 import com.fastasyncworldedit.core.history.change.MutableTileChange;
 import com.fastasyncworldedit.core.internal.exception.FaweSmallEditUnsupportedException;
+import com.fastasyncworldedit.core.internal.io.FastByteArrayOutputStream;
 import com.fastasyncworldedit.core.internal.io.FaweInputStream;
 import com.fastasyncworldedit.core.internal.io.FaweOutputStream;
+import com.fastasyncworldedit.core.queue.IChunkGet;
+import com.fastasyncworldedit.core.queue.IChunkSet;
 import com.fastasyncworldedit.core.util.MainUtil;
 import com.fastasyncworldedit.core.util.MathMan;
 import com.sk89q.jnbt.CompoundTag;
@@ -16,10 +20,13 @@
 import com.sk89q.jnbt.NBTOutputStream;
 import com.sk89q.worldedit.extent.inventory.BlockBag;
 import com.sk89q.worldedit.history.change.Change;
+import com.sk89q.worldedit.internal.util.LogManagerCompat;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.biome.BiomeType;
 import com.sk89q.worldedit.world.block.BlockTypes;
+import com.sk89q.worldedit.world.block.BlockTypesCache;
+import org.apache.logging.log4j.Logger;
 
 import java.io.EOFException;
 import java.io.IOException;
@@ -28,12 +35,15 @@
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 
 /**
  * FAWE stream ChangeSet offering support for extended-height worlds
  */
 public abstract class FaweStreamChangeSet extends AbstractChangeSet {
 
+    private static final Logger LOGGER = LogManagerCompat.getLogger();
+
     public static final int HEADER_SIZE = 9;
     private static final int version = 1;
     private int mode;
@@ -78,6 +88,11 @@ public interface FaweStreamPositionDelegate {
 
         int readZ(FaweInputStream in) throws IOException;
 
+        /**
+         * Set the position the next position written is relative to.
+         */
+        void setLast(int x, int y, int z);
+
     }
 
     public interface FaweStreamIdDelegate {
@@ -92,8 +107,13 @@ public interface FaweStreamIdDelegate {
 
     protected void setupStreamDelegates(int mode) {
         this.mode = mode;
+        idDel = createIdDelegate(mode);
+        posDel = createPositionDelegate(mode);
+    }
+
+    private static FaweStreamIdDelegate createIdDelegate(int mode) {
         if (mode == 3 || mode == 4) {
-            idDel = new FaweStreamIdDelegate() {
+            return new FaweStreamIdDelegate() {
                 @Override
                 public void writeChange(FaweOutputStream stream, int combinedFrom, int combinedTo) throws IOException {
                     stream.writeVarInt(combinedFrom);
@@ -118,7 +138,7 @@ public void readCombined(FaweInputStream is, MutableFullBlockChange change) thro
                 }
             };
         } else {
-            idDel = new FaweStreamIdDelegate() {
+            return new FaweStreamIdDelegate() {
                 @Override
                 public void writeChange(FaweOutputStream stream, int combinedFrom, int to) throws IOException {
                     stream.writeVarInt(combinedFrom);
@@ -136,8 +156,11 @@ public void readCombined(FaweInputStream is, MutableFullBlockChange change) thro
                 }
             };
         }
+    }
+
+    private static FaweStreamPositionDelegate createPositionDelegate(int mode) {
         if (mode == 1 || mode == 4) { // small
-            posDel = new FaweStreamPositionDelegate() {
+            return new FaweStreamPositionDelegate() {
                 int lx;
                 int ly;
                 int lz;
@@ -179,9 +202,16 @@ public int readY(FaweInputStream in) {
                 public int readZ(FaweInputStream in) throws IOException {
                     return lz = lz + ((((buffer[2] & 0xFF) | ((MathMan.unpair16y(buffer[3])) << 8)) << 20) >> 20);
                 }
+
+                @Override
+                public void setLast(int x, int y, int z) {
+                    lx = x;
+                    ly = y;
+                    lz = z;
+                }
             };
         } else {
-            posDel = new FaweStreamPositionDelegate() {
+            return new FaweStreamPositionDelegate() {
                 final byte[] buffer = new byte[6];
                 int lx;
                 int ly;
@@ -215,6 +245,13 @@ public int readY(FaweInputStream is) throws IOException {
                 public int readZ(FaweInputStream is) throws IOException {
                     return lz = lz + ((buffer[2] & 0xFF) | (buffer[3]) << 8);
                 }
+
+                @Override
+                public void setLast(int x, int y, int z) {
+                    lx = x;
+                    ly = y;
+                    lz = z;
+                }
             };
         }
     }
@@ -322,17 +359,130 @@ public int getOriginZ() {
         return originZ;
     }
 
+    // Number of block changes written to the block stream
+    private int blockChanges;
+    // Number of block changes that can be read back, less than blockChanges once writing a change failed
+    private volatile int readableBlockChanges = Integer.MAX_VALUE;
+
     @Override
     public void add(int x, int y, int z, int combinedFrom, int combinedTo) {
         blockSize++;
+        if (isBroken()) {
+            return;
+        }
         try {
             FaweOutputStream stream = getBlockOS(x, y, z);
             //x
             posDel.write(stream, x - originX, y, z - originZ);
             idDel.writeChange(stream, combinedFrom, combinedTo);
+            blockChanges++;
         } catch (IOException e) {
-            e.printStackTrace();
+            markBroken(e);
+        }
+    }
+
+    /**
+     * Stop writing block changes after writing one failed. Changes following a partially written change can't be read back,
+     * so iterators only read the changes written before it.
+     *
+     * @param cause the reason writing failed
+     */
+    protected void markBroken(IOException cause) {
+        if (!isBroken()) {
+            readableBlockChanges = blockChanges;
+            LOGGER.error("Failed to write block history, only the first {} block changes can be undone", blockChanges, cause);
+        }
+    }
+
+    /**
+     * Check if writing block changes failed, in which case only some of them can be undone.
+     */
+    public boolean isBroken() {
+        return readableBlockChanges != Integer.MAX_VALUE;
+    }
+
+    /**
+     * Encode the block changes of a chunk on the calling thread, so only appending the encoded changes to the block stream
+     * is done while synchronized. Blocks are encoded directly rather than being passed to
+     * {@link #add(int, int, int, int, int)}, instead {@link #onBlocksAppended(int, int, int, int, int, int, int)} is called with
+     * the bounds of the changes of each chunk.
+     */
+    @Override
+    protected Runnable prepareBlocks(int chunkX, int chunkZ, IChunkGet get, IChunkSet set) {
+        BlockSegment segment = new BlockSegment(mode);
+        int bx = chunkX << 4;
+        int bz = chunkZ << 4;
+        try {
+            for (int layer = get.getMinSectionPosition(); layer <= get.getMaxSectionPosition(); layer++) {
+                if (!set.hasSection(layer)) {
+                    continue;
+                }
+                char[] blocksGet = get.load(layer);
+                // loadIfPresent shouldn't be null if set.hasSection(layer) is true
+                char[] blocksSet = Objects.requireNonNull(set.loadIfPresent(layer));
+                // Account for negative layers
+                int by = layer << 4;
+                for (int y = 0, index = 0; y < 16; y++) {
+                    for (int z = 0; z < 16; z++) {
+                        for (int x = 0; x < 16; x++, index++) {
+                            int combinedTo = blocksSet[index];
+                            if (combinedTo != BlockTypesCache.ReservedIDs.__RESERVED__) {
+                                int from = blocksGet == null ? BlockTypesCache.ReservedIDs.AIR : blocksGet[index];
+                                if (from == BlockTypesCache.ReservedIDs.__RESERVED__) {
+                                    from = BlockTypesCache.ReservedIDs.AIR;
+                                }
+                                segment.add(bx + x, by + y, bz + z, from, combinedTo);
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Marked when run so the number of readable changes is known
+            return () -> markBroken(e);
+        } catch (RuntimeException e) {
+            // Thrown when the changes are written, as if they were added one by one
+            return () -> {
+                throw e;
+            };
+        }
+        if (segment.count == 0) {
+            return () -> {
+            };
+        }
+        return () -> appendSegment(segment);
+    }
+
+    private void appendSegment(BlockSegment segment) {
+        blockSize += segment.count;
+        if (isBroken()) {
+            return;
+        }
+        try {
+            FaweOutputStream stream = getBlockOS(segment.firstX, segment.firstY, segment.firstZ);
+            posDel.write(stream, segment.firstX - originX, segment.firstY, segment.firstZ - originZ);
+            idDel.writeChange(stream, segment.firstFrom, segment.firstTo);
+            segment.bytes.writeTo(stream);
+            posDel.setLast(segment.lastX - originX, segment.lastY, segment.lastZ - originZ);
+            blockChanges += segment.count;
+        } catch (IOException e) {
+            markBroken(e);
+            return;
         }
+        onBlocksAppended(segment.count, segment.minX, segment.minY, segment.minZ, segment.maxX, segment.maxY, segment.maxZ);
+    }
+
+    /**
+     * Called with the number and bounds of the block changes of a chunk after they were appended to the block stream.
+     */
+    protected void onBlocksAppended(int count, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+    }
+
+    /**
+     * Get the maximum number of block changes that iterators created now should read from the block stream.
+     */
+    protected int getBlockReadLimit() {
+        return Integer.MAX_VALUE;
     }
 
     @Override
@@ -423,11 +573,16 @@ public Iterator<MutableBlockChange> getBlockIterator(final boolean dir) throws I
             return Collections.emptyIterator();
         }
         final MutableBlockChange change = new MutableBlockChange(0, 0, 0, BlockTypes.AIR.getInternalId());
+        final int limit = Math.min(getBlockReadLimit(), readableBlockChanges);
         return new Iterator<MutableBlockChange>() {
+            private int remaining = limit;
             private MutableBlockChange last = read();
 
             public MutableBlockChange read() {
                 try {
+                    if (remaining-- <= 0) {
+                        throw new EOFException();
+                    }
                     change.x = posDel.readX(is) + originX;
                     change.y = posDel.readY(is);
                     change.z = posDel.readZ(is) + originZ;
@@ -533,18 +688,23 @@ public Iterator<Change> getIterator(BlockBag blockBag, int mode, boolean redo) {
                 e.printStackTrace();
             }
         }
-        return getIterator(redo);
+        return getIterator(redo, true);
     }
 
     public Iterator<MutableFullBlockChange> getFullBlockIterator(BlockBag blockBag, int inventory, final boolean dir) throws
             IOException {
         final FaweInputStream is = new FaweInputStream(getBlockIS());
         final MutableFullBlockChange change = new MutableFullBlockChange(blockBag, inventory, dir);
+        final int limit = Math.min(getBlockReadLimit(), readableBlockChanges);
         return new Iterator<MutableFullBlockChange>() {
+            private int remaining = limit;
             private MutableFullBlockChange last = read();
 
             public MutableFullBlockChange read() {
                 try {
+                    if (remaining-- <= 0) {
+                        throw new EOFException();
+                    }
                     change.x = posDel.readX(is) + originX;
                     change.y = posDel.readY(is);
                     change.z = posDel.readZ(is) + originZ;
@@ -685,6 +845,18 @@ public void remove() {
 
     @Override
     public Iterator<Change> getIterator(final boolean dir) {
+        return getIterator(dir, false);
+    }
+
+    /**
+     * Get an iterator over all changes.
+     *
+     * @param dir         if changes should be redone rather than undone
+     * @param batchBlocks if the block changes should be a single {@link ChunkBatchedBlockChange} applied a chunk section at
+     *                    a time, rather than a change for each block
+     * @return the changes
+     */
+    private Iterator<Change> getIterator(final boolean dir, final boolean batchBlocks) {
         try {
             close();
             final Iterator<MutableTileChange> tileCreate = getTileIterator(getTileCreateIS(), true);
@@ -693,7 +865,9 @@ public Iterator<Change> getIterator(final boolean dir) {
             final Iterator<MutableEntityChange> entityCreate = getEntityIterator(getEntityCreateIS(), true);
             final Iterator<MutableEntityChange> entityRemove = getEntityIterator(getEntityRemoveIS(), false);
 
-            final Iterator<MutableBlockChange> blockChange = getBlockIterator(dir);
+            final Iterator<? extends Change> blockChange = batchBlocks
+                    ? Collections.singletonList(new ChunkBatchedBlockChange(getBlockIterator(dir))).iterator()
+                    : getBlockIterator(dir);
 
             final Iterator<MutableBiomeChange> biomeChange = getBiomeIterator(dir);
 
@@ -779,4 +953,61 @@ public SimpleChangeSetSummary summarize(Region region, boolean shallow) {
         return summary;
     }
 
+    /**
+     * Block changes of one chunk, encoded the same as {@link #add(int, int, int, int, int)} except for the first change, which
+     * is written when appending as it is relative to the last position in the stream.
+     */
+    private static final class BlockSegment {
+
+        private final FastByteArrayOutputStream bytes = new FastByteArrayOutputStream();
+        private final FaweOutputStream stream = new FaweOutputStream(bytes);
+        private final FaweStreamPositionDelegate posDel;
+        private final FaweStreamIdDelegate idDel;
+        private int count;
+        private int firstX;
+        private int firstY;
+        private int firstZ;
+        private int firstFrom;
+        private int firstTo;
+        private int lastX;
+        private int lastY;
+        private int lastZ;
+        private int minX = Integer.MAX_VALUE;
+        private int minY = Integer.MAX_VALUE;
+        private int minZ = Integer.MAX_VALUE;
+        private int maxX = Integer.MIN_VALUE;
+        private int maxY = Integer.MIN_VALUE;
+        private int maxZ = Integer.MIN_VALUE;
+
+        private BlockSegment(int mode) {
+            this.posDel = createPositionDelegate(mode);
+            this.idDel = createIdDelegate(mode);
+        }
+
+        private void add(int x, int y, int z, int combinedFrom, int combinedTo) throws IOException {
+            if (count++ == 0) {
+                firstX = x;
+                firstY = y;
+                firstZ = z;
+                firstFrom = combinedFrom;
+                firstTo = combinedTo;
+                // Deltas don't depend on the origin, so absolute positions can be used
+                posDel.setLast(x, y, z);
+            } else {
+                posDel.write(stream, x, y, z);
+                idDel.writeChange(stream, combinedFrom, combinedTo);
+            }
+            lastX = x;
+            lastY = y;
+            lastZ = z;
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+        }
+
+    }
+
 }
@@ -0,0 +1,54 @@
+package com.fastasyncworldedit.core.math.stencil;
+
+import java.util.Arrays;
+
+/**
+ * Counts of block types among the neighbours of a cell. Clearing only resets the types counted since the last clear, so it
+ * costs as much as the neighbourhood instead of the number of block types. Counts grow to the highest type counted.
+ */
+public final class NeighborHistogram {
+
+    private int[] counts = new int[64];
+    private int[] counted = new int[32];
+    private int size;
+
+    /**
+     * Count another block of a type.
+     *
+     * @param typeId internal id of the block type
+     * @return the count of the type, including this block
+     */
+    public int increment(int typeId) {
+        if (typeId >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(counts.length << 1, typeId + 1));
+        }
+        int count = ++counts[typeId];
+        if (count == 1) {
+            if (size == counted.length) {
+                counted = Arrays.copyOf(counted, size << 1);
+            }
+            counted[size++] = typeId;
+        }
+        return count;
+    }
+
+    /**
+     * Get the count of a type.
+     *
+     * @param typeId internal id of the block type
+     */
+    public int get(int typeId) {
+        return typeId < counts.length ? counts[typeId] : 0;
+    }
+
+    /**
+     * Reset all counts to zero.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            counts[counted[i]] = 0;
+        }
+        size = 0;
+    }
+
+}
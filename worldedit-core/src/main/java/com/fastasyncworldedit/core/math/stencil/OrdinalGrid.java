@@ -0,0 +1,187 @@
+package com.fastasyncworldedit.core.math.stencil;
+
+import com.fastasyncworldedit.core.queue.implementation.ParallelQueueExtent;
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockTypesCache;
+
+/**
+ * Dense box of block ordinals, indexed by position relative to the minimum point with x varying fastest, then z, then y.
+ */
+public final class OrdinalGrid {
+
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int width;
+    private final int height;
+    private final int length;
+    private final char[] ordinals;
+
+    /**
+     * Create a grid of {@link BlockTypesCache.ReservedIDs#__RESERVED__} ordinals.
+     *
+     * @param min minimum point, inclusive
+     * @param max maximum point, inclusive
+     */
+    public OrdinalGrid(BlockVector3 min, BlockVector3 max) {
+        this.minX = min.x();
+        this.minY = min.y();
+        this.minZ = min.z();
+        this.width = max.x() - minX + 1;
+        this.height = max.y() - minY + 1;
+        this.length = max.z() - minZ + 1;
+        this.ordinals = new char[width * height * length];
+    }
+
+    private OrdinalGrid(OrdinalGrid other) {
+        this.minX = other.minX;
+        this.minY = other.minY;
+        this.minZ = other.minZ;
+        this.width = other.width;
+        this.height = other.height;
+        this.length = other.length;
+        this.ordinals = other.ordinals.clone();
+    }
+
+    /**
+     * Read the blocks of a box from an extent. If the extent reads straight from a queue, whole rows are copied from the
+     * chunk sections of the queue, in parallel across chunks for a {@link ParallelQueueExtent}.
+     *
+     * @param extent the extent to read
+     * @param min    minimum point, inclusive
+     * @param max    maximum point, inclusive
+     * @return the grid
+     */
+    public static OrdinalGrid load(Extent extent, BlockVector3 min, BlockVector3 max) {
+        OrdinalGrid grid = new OrdinalGrid(min, max);
+        Extent queue = ParallelQueueExtent.getDirectQueue(extent);
+        int minY = grid.minY;
+        int maxY = grid.minY + grid.height - 1;
+        if (queue != null) {
+            minY = Math.max(minY, extent.getMinY());
+            maxY = Math.min(maxY, extent.getMaxY());
+            if (minY <= maxY) {
+                grid.loadSections(queue, minY, maxY);
+            }
+        }
+        // Heights not covered by chunk sections, or everything without a queue
+        for (int y = grid.minY; y < grid.minY + grid.height; y++) {
+            if (queue != null && y >= minY && y <= maxY) {
+                continue;
+            }
+            for (int z = 0; z < grid.length; z++) {
+                int index = grid.getIndex(0, y - grid.minY, z);
+                for (int x = 0; x < grid.width; x++, index++) {
+                    grid.ordinals[index] = extent.getBlock(grid.minX + x, y, grid.minZ + z).getOrdinalChar();
+                }
+            }
+        }
+        return grid;
+    }
+
+    private void loadSections(Extent queue, int fromY, int toY) {
+        int maxX = minX + width - 1;
+        int maxZ = minZ + length - 1;
+        ParallelQueueExtent.readChunks(queue, minX, minZ, maxX, maxZ, () -> (chunk, cx, cz) -> {
+            int x0 = Math.max(minX, cx << 4);
+            int x1 = Math.min(maxX, (cx << 4) + 15);
+            int z0 = Math.max(minZ, cz << 4);
+            int z1 = Math.min(maxZ, (cz << 4) + 15);
+            for (int layer = fromY >> 4; layer <= toY >> 4; layer++) {
+                char[] section = chunk.load(layer);
+                int y0 = Math.max(fromY, layer << 4);
+                int y1 = Math.min(toY, (layer << 4) + 15);
+                for (int y = y0; y <= y1; y++) {
+                    for (int z = z0; z <= z1; z++) {
+                        System.arraycopy(
+                                section,
+                                (y & 15) << 8 | (z & 15) << 4 | (x0 & 15),
+                                ordinals,
+                                getIndex(x0 - minX, y - minY, z - minZ),
+                                x1 - x0 + 1
+                        );
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Set the blocks of an edit session to the blocks of this grid that differ from another grid of the same box.
+     *
+     * @param session  the edit session to set blocks in
+     * @param original the grid to compare to
+     * @return the number of blocks set
+     */
+    public int setChanged(EditSession session, OrdinalGrid original) {
+        int changed = 0;
+        int index = 0;
+        for (int y = 0; y < height; y++) {
+            for (int z = 0; z < length; z++) {
+                for (int x = 0; x < width; x++, index++) {
+                    char ordinal = ordinals[index];
+                    if (ordinal != original.ordinals[index]
+                            && session.setBlock(minX + x, minY + y, minZ + z, BlockTypesCache.states[ordinal])) {
+                        changed++;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Get the index differences from a cell to its neighbours in the given directions.
+     *
+     * @param directions offsets of the neighbours, in the order they should be visited
+     * @return the index offsets
+     */
+    public int[] getOffsets(BlockVector3... directions) {
+        int[] offsets = new int[directions.length];
+        for (int i = 0; i < directions.length; i++) {
+            BlockVector3 direction = directions[i];
+            offsets[i] = (direction.y() * length + direction.z()) * width + direction.x();
+        }
+        return offsets;
+    }
+
+    /**
+     * Get the index of a position relative to the minimum point.
+     */
+    public int getIndex(int x, int y, int z) {
+        return (y * length + z) * width + x;
+    }
+
+    /**
+     * Create a copy of this grid.
+     */
+    public OrdinalGrid copy() {
+        return new OrdinalGrid(this);
+    }
+
+    /**
+     * Get the backing array of ordinals.
+     */
+    public char[] getOrdinals() {
+        return ordinals;
+    }
+
+    public BlockVector3 getMinimumPoint() {
+        return BlockVector3.at(minX, minY, minZ);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+}
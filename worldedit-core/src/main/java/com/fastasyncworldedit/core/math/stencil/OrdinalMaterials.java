@@ -0,0 +1,56 @@
+package com.fastasyncworldedit.core.math.stencil;
+
+import com.sk89q.worldedit.world.block.BlockTypesCache;
+
+/**
+ * The properties of block states that stencils and scans over ordinals read, by ordinal. {@link #STATES} reads the registered
+ * block states, tests give their own as block states need a platform.
+ */
+public interface OrdinalMaterials {
+
+    /**
+     * Properties of the registered block states.
+     */
+    OrdinalMaterials STATES = new OrdinalMaterials() {
+        @Override
+        public boolean isMovementBlocker(char ordinal) {
+            return BlockTypesCache.states[ordinal].getMaterial().isMovementBlocker();
+        }
+
+        @Override
+        public boolean isTypeMovementBlocker(char ordinal) {
+            return BlockTypesCache.states[ordinal].getBlockType().getMaterial().isMovementBlocker();
+        }
+
+        @Override
+        public boolean isAir(char ordinal) {
+            return BlockTypesCache.states[ordinal].getBlockType().getMaterial().isAir();
+        }
+
+        @Override
+        public int getTypeId(char ordinal) {
+            return BlockTypesCache.states[ordinal].getInternalBlockTypeId();
+        }
+    };
+
+    /**
+     * Whether the material of a state blocks movement.
+     */
+    boolean isMovementBlocker(char ordinal);
+
+    /**
+     * Whether the material of the block type of a state blocks movement, which may differ from the state's own material.
+     */
+    boolean isTypeMovementBlocker(char ordinal);
+
+    /**
+     * Whether the block type of a state is air.
+     */
+    boolean isAir(char ordinal);
+
+    /**
+     * Get the internal id of the block type of a state.
+     */
+    int getTypeId(char ordinal);
+
+}
@@ -0,0 +1,93 @@
+package com.fastasyncworldedit.core.math.stencil;
+
+import com.fastasyncworldedit.core.configuration.Settings;
+import com.fastasyncworldedit.core.util.task.ParallelBands;
+
+/**
+ * Applies a {@link Function} to every cell of an {@link OrdinalGrid}, reading from one grid and writing to another so the
+ * result of a cell never depends on the order cells are visited in. Large grids are split into slabs along the y-axis that
+ * are processed in parallel.
+ */
+public final class VoxelStencil {
+
+    // Number of cells above which slabs are processed in parallel
+    private static final int PARALLEL_THRESHOLD = 1 << 15;
+
+    private VoxelStencil() {
+    }
+
+    /**
+     * Apply a function to each cell of a grid not on its faces, writing the results into another grid of the same box.
+     * Cells on the faces are copied, so functions can read the neighbours of any cell given without bounds checks.
+     *
+     * @param source   the grid to read
+     * @param target   the grid to write, of the same box as the source
+     * @param function the function giving the new ordinal of a cell
+     */
+    public static void apply(OrdinalGrid source, OrdinalGrid target, Function function) {
+        char[] in = source.getOrdinals();
+        char[] out = target.getOrdinals();
+        System.arraycopy(in, 0, out, 0, in.length);
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int length = source.getLength();
+        if (width < 3 || height < 3 || length < 3) {
+            return;
+        }
+        int workers = Settings.settings().QUEUE.PARALLEL_THREADS;
+        int slabs = in.length < PARALLEL_THRESHOLD || workers <= 1 ? 1 : workers * 2;
+        ParallelBands.forEach(height, slabs, (minY, maxY) -> {
+            NeighborHistogram histogram = new NeighborHistogram();
+            for (int y = Math.max(1, minY); y < Math.min(height - 1, maxY); y++) {
+                for (int z = 1; z < length - 1; z++) {
+                    int index = source.getIndex(1, y, z);
+                    for (int x = 1; x < width - 1; x++, index++) {
+                        out[index] = function.apply(in, index, x, y, z, histogram);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Apply a function to a grid several times, alternating between the grid and a spare grid of the same box.
+     *
+     * @param grid       the grid to start from
+     * @param spare      a grid of the same box to write to, its contents are ignored
+     * @param iterations the number of times to apply the function
+     * @param function   the function giving the new ordinal of a cell
+     * @return whichever of the two grids holds the result
+     */
+    public static OrdinalGrid iterate(OrdinalGrid grid, OrdinalGrid spare, int iterations, Function function) {
+        for (int i = 0; i < iterations; i++) {
+            apply(grid, spare, function);
+            OrdinalGrid tmp = grid;
+            grid = spare;
+            spare = tmp;
+        }
+        return grid;
+    }
+
+    /**
+     * Function giving the new ordinal of a cell from the cells of the source grid. Called from several threads at once for
+     * large grids, so must not modify shared state.
+     */
+    @FunctionalInterface
+    public interface Function {
+
+        /**
+         * Get the new ordinal of a cell.
+         *
+         * @param ordinals  the ordinals of the source grid
+         * @param index     index of the cell, its neighbours are at the offsets given by {@link OrdinalGrid#getOffsets}
+         * @param x         x of the cell relative to the minimum point of the grid
+         * @param y         y of the cell relative to the minimum point of the grid
+         * @param z         z of the cell relative to the minimum point of the grid
+         * @param histogram histogram for the calling thread, to be cleared before use
+         * @return the new ordinal
+         */
+        char apply(char[] ordinals, int index, int x, int y, int z, NeighborHistogram histogram);
+
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.fastasyncworldedit.core.queue;
 
+import com.fastasyncworldedit.core.queue.implementation.SurfaceScanner;
 import com.sk89q.jnbt.CompoundTag;
 import com.sk89q.jnbt.DoubleTag;
 import com.sk89q.jnbt.ListTag;
@@ -68,6 +69,34 @@ default BaseBlock getFullBlock(int x, int y, int z) {
         return chunk.getFullBlock(x & 15, y, z & 15);
     }
 
+    @Override
+    default int getHighestTerrainBlock(int x, int z, int minY, int maxY) {
+        final IChunk chunk = getOrCreateChunk(x >> 4, z >> 4);
+        if (minY < chunk.getMinY() || maxY > chunk.getMaxY()) {
+            return Extent.super.getHighestTerrainBlock(x, z, minY, maxY);
+        }
+        return SurfaceScanner.getHighestTerrainBlock(chunk, x & 15, z & 15, minY, maxY);
+    }
+
+    @Override
+    default int getNearestSurfaceTerrainBlock(
+            int x,
+            int z,
+            int y,
+            int minY,
+            int maxY,
+            int failedMin,
+            int failedMax,
+            boolean ignoreAir
+    ) {
+        final IChunk chunk = getOrCreateChunk(x >> 4, z >> 4);
+        if (minY < chunk.getMinY() || maxY > chunk.getMaxY()) {
+            return Extent.super.getNearestSurfaceTerrainBlock(x, z, y, minY, maxY, failedMin, failedMax, ignoreAir);
+        }
+        return SurfaceScanner.getNearestSurfaceTerrainBlock(
+                chunk, x & 15, z & 15, y, minY, maxY, failedMin, failedMax, ignoreAir);
+    }
+
     @Override
     default BiomeType getBiomeType(int x, int y, int z) {
         final IChunk chunk = getOrCreateChunk(x >> 4, z >> 4);
@@ -0,0 +1,214 @@
+package com.fastasyncworldedit.core.queue.implementation;
+
+import com.fastasyncworldedit.core.util.MathMan;
+import com.sk89q.worldedit.math.BlockVector2;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Distributes the chunks of an edit between a fixed number of workers.
+ * <p>
+ * Chunks are sorted along a Morton (Z-order) curve and grouped into square tiles of {@code 2^TILE_SHIFT} chunks. Each worker
+ * is given a contiguous run of tiles in its own deque, so neighbouring chunks are processed by the same thread and in
+ * spatial order. A worker that runs out of tiles steals whole tiles from the tail of another worker's deque.
+ * <p>
+ * Each worker index must only be polled by a single thread at a time. Statistics should be read once all workers are done.
+ */
+public final class ChunkScheduler {
+
+    /**
+     * Tiles are {@code 1 << TILE_SHIFT} chunks wide and long, i.e. 4x4 chunks.
+     */
+    private static final int TILE_SHIFT = 2;
+
+    private final ConcurrentLinkedDeque<long[]>[] deques;
+    private final int[] chunkCounts;
+    private final int[] stealCounts;
+    private final int chunks;
+    private final int tiles;
+
+    /**
+     * Create a new scheduler for the given chunks.
+     *
+     * @param chunks  chunk positions to distribute
+     * @param workers number of workers polling the scheduler
+     */
+    @SuppressWarnings("unchecked")
+    public ChunkScheduler(Collection<BlockVector2> chunks, int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Worker count must be positive: " + workers);
+        }
+        this.deques = new ConcurrentLinkedDeque[workers];
+        for (int i = 0; i < workers; i++) {
+            deques[i] = new ConcurrentLinkedDeque<>();
+        }
+        this.chunkCounts = new int[workers];
+        this.stealCounts = new int[workers];
+        this.chunks = chunks.size();
+        if (this.chunks == 0) {
+            this.tiles = 0;
+            return;
+        }
+
+        int minX = Integer.MAX_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        for (BlockVector2 chunk : chunks) {
+            minX = Math.min(minX, chunk.x());
+            minZ = Math.min(minZ, chunk.z());
+        }
+        // Align the origin with the tile grid so every tile is a contiguous range of the curve
+        minX = (minX >> TILE_SHIFT) << TILE_SHIFT;
+        minZ = (minZ >> TILE_SHIFT) << TILE_SHIFT;
+
+        long[] codes = new long[this.chunks];
+        int i = 0;
+        for (BlockVector2 chunk : chunks) {
+            codes[i++] = interleave(chunk.x() - minX, chunk.z() - minZ);
+        }
+        Arrays.sort(codes);
+
+        // Group the sorted curve into tiles
+        long[][] tileArr = new long[this.chunks][];
+        int tileCount = 0;
+        int start = 0;
+        for (int end = 1; end <= codes.length; end++) {
+            if (end == codes.length || (codes[end] >>> (TILE_SHIFT << 1)) != (codes[start] >>> (TILE_SHIFT << 1))) {
+                long[] tile = new long[end - start];
+                for (int j = start; j < end; j++) {
+                    long code = codes[j];
+                    tile[j - start] = MathMan.pairInt(deinterleave(code) + minX, deinterleave(code >>> 1) + minZ);
+                }
+                tileArr[tileCount++] = tile;
+                start = end;
+            }
+        }
+        this.tiles = tileCount;
+
+        // Give each worker a contiguous run of tiles along the curve
+        for (int w = 0; w < workers; w++) {
+            int from = (int) ((long) tileCount * w / workers);
+            int to = (int) ((long) tileCount * (w + 1) / workers);
+            for (int t = from; t < to; t++) {
+                deques[w].addLast(tileArr[t]);
+            }
+        }
+    }
+
+    /**
+     * Get the next tile of chunks for a worker, stealing from other workers if its own deque is empty.
+     *
+     * @param worker worker index
+     * @return chunk positions packed with {@link MathMan#pairInt(int, int)}, or null if all chunks have been handed out
+     */
+    public long[] poll(int worker) {
+        long[] tile = deques[worker].pollFirst();
+        if (tile == null) {
+            // Steal from the tail, furthest away from where the victim is currently working
+            for (int i = 1; i < deques.length; i++) {
+                tile = deques[(worker + i) % deques.length].pollLast();
+                if (tile != null) {
+                    stealCounts[worker]++;
+                    break;
+                }
+            }
+            if (tile == null) {
+                return null;
+            }
+        }
+        chunkCounts[worker] += tile.length;
+        return tile;
+    }
+
+    /**
+     * Get the number of workers.
+     */
+    public int getWorkers() {
+        return deques.length;
+    }
+
+    /**
+     * Get the total number of chunks scheduled.
+     */
+    public int getChunkCount() {
+        return chunks;
+    }
+
+    /**
+     * Get the total number of tiles scheduled.
+     */
+    public int getTileCount() {
+        return tiles;
+    }
+
+    /**
+     * Get the number of chunks handed out to each worker.
+     *
+     * @return a copy of the per-worker chunk counts
+     */
+    public int[] getChunkCounts() {
+        return chunkCounts.clone();
+    }
+
+    /**
+     * Get the number of tiles each worker stole from other workers.
+     *
+     * @return a copy of the per-worker steal counts
+     */
+    public int[] getStealCounts() {
+        return stealCounts.clone();
+    }
+
+    /**
+     * Get the total number of tiles stolen by all workers.
+     */
+    public int getTotalSteals() {
+        int total = 0;
+        for (int steals : stealCounts) {
+            total += steals;
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkScheduler{" +
+                "chunks=" + chunks +
+                ", tiles=" + tiles +
+                ", chunkCounts=" + Arrays.toString(chunkCounts) +
+                ", stealCounts=" + Arrays.toString(stealCounts) +
+                '}';
+    }
+
+    /**
+     * Interleave the bits of two non-negative ints, x in the even bits and z in the odd bits.
+     */
+    private static long interleave(int x, int z) {
+        return spread(x) | (spread(z) << 1);
+    }
+
+    private static long spread(int value) {
+        long v = value & 0xFFFFFFFFL;
+        v = (v | (v << 16)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v << 8)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v << 2)) & 0x3333333333333333L;
+        v = (v | (v << 1)) & 0x5555555555555555L;
+        return v;
+    }
+
+    /**
+     * Extract the even bits of a Morton code.
+     */
+    private static int deinterleave(long code) {
+        long v = code & 0x5555555555555555L;
+        v = (v | (v >>> 1)) & 0x3333333333333333L;
+        v = (v | (v >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v >>> 4)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v >>> 8)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v >>> 16)) & 0x00000000FFFFFFFFL;
+        return (int) v;
+    }
+
+}
@@ -15,8 +15,10 @@
 import com.fastasyncworldedit.core.function.mask.BlockMaskBuilder;
 import com.fastasyncworldedit.core.internal.exception.FaweException;
 import com.fastasyncworldedit.core.queue.Filter;
+import com.fastasyncworldedit.core.queue.IChunkGet;
 import com.fastasyncworldedit.core.queue.IQueueChunk;
 import com.fastasyncworldedit.core.queue.IQueueExtent;
+import com.fastasyncworldedit.core.util.MathMan;
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.extent.clipboard.Clipboard;
@@ -38,10 +40,15 @@
 import com.sk89q.worldedit.world.block.BlockType;
 import org.apache.logging.log4j.Logger;
 
-import java.util.Iterator;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 public class ParallelQueueExtent extends PassthroughExtent {
@@ -60,6 +67,7 @@ public class ParallelQueueExtent extends PassthroughExtent {
     private int changes;
     private int lastException = Integer.MIN_VALUE;
     private int exceptionCount = 0;
+    private volatile ChunkScheduler lastScheduler;
 
     public ParallelQueueExtent(QueueHandler handler, World world, boolean fastmode) {
         super(handler.getQueue(world, new BatchProcessorHolder(), new BatchProcessorHolder()));
@@ -76,6 +84,56 @@ public ParallelQueueExtent(QueueHandler handler, World world, boolean fastmode)
         this.fastmode = fastmode;
     }
 
+    /**
+     * Get the queue an extent reads blocks from, if every extent on the way only passes calls through, so blocks can be read
+     * from the chunks of the queue instead of through the extent.
+     *
+     * @param extent the extent to unwrap
+     * @return the {@link ParallelQueueExtent} or {@link IQueueExtent} reached, or null if an extent on the way may change
+     *         the blocks read
+     */
+    @Nullable
+    public static Extent getDirectQueue(Extent extent) {
+        while (!(extent instanceof ParallelQueueExtent) && extent instanceof PassthroughExtent passthrough) {
+            extent = passthrough.getExtent();
+        }
+        return extent instanceof ParallelQueueExtent || extent instanceof IQueueExtent ? extent : null;
+    }
+
+    /**
+     * Read the chunks of an area from a queue given by {@link #getDirectQueue(Extent)}, in parallel across chunks on the
+     * workers of the queue handler if it is a {@link ParallelQueueExtent}.
+     *
+     * @param queue   the queue to read
+     * @param minX    minimum x of the area, inclusive
+     * @param minZ    minimum z of the area, inclusive
+     * @param maxX    maximum x of the area, inclusive
+     * @param maxZ    maximum z of the area, inclusive
+     * @param readers creates the reader of each worker, on the worker's thread
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static void readChunks(Extent queue, int minX, int minZ, int maxX, int maxZ, Supplier<ChunkReader> readers) {
+        List<BlockVector2> chunks = new ArrayList<>();
+        for (int cz = minZ >> 4; cz <= maxZ >> 4; cz++) {
+            for (int cx = minX >> 4; cx <= maxX >> 4; cx++) {
+                chunks.add(BlockVector2.at(cx, cz));
+            }
+        }
+        Supplier<Consumer<BlockVector2>> workers = () -> {
+            // The parallel extent gives the queue of the worker's thread
+            IQueueExtent<IQueueChunk> extent = queue instanceof ParallelQueueExtent parallel
+                    ? parallel.getExtent()
+                    : (IQueueExtent<IQueueChunk>) queue;
+            ChunkReader reader = readers.get();
+            return pos -> reader.read(extent.getOrCreateChunk(pos.x(), pos.z()), pos.x(), pos.z());
+        };
+        if (queue instanceof ParallelQueueExtent parallel) {
+            parallel.forEach(chunks, workers);
+        } else {
+            chunks.forEach(workers.get());
+        }
+    }
+
     /**
      * Removes the extent currently associated with the calling thread.
      */
@@ -108,6 +166,16 @@ public IQueueExtent<IQueueChunk> getExtent() {
         return (IQueueExtent<IQueueChunk>) extent;
     }
 
+    /**
+     * Get the scheduler used to distribute chunks between workers by the most recent {@link #apply(Region, Filter, boolean)}
+     * call. Useful to inspect per-worker chunk and steal counts.
+     *
+     * @return the last scheduler, or null if nothing has been applied yet
+     */
+    public ChunkScheduler getLastScheduler() {
+        return lastScheduler;
+    }
+
     @Override
     public boolean cancel() {
         if (super.cancel()) {
@@ -128,16 +196,20 @@ private IQueueExtent<IQueueChunk> getNewQueue() {
     public <T extends Filter> T apply(Region region, T filter, boolean full) {
         // The chunks positions to iterate over
         final Set<BlockVector2> chunks = region.getChunks();
-        final Iterator<BlockVector2> chunksIter = chunks.iterator();
 
         // Get a pool, to operate on the chunks in parallel
-        final int size = Math.min(chunks.size(), Settings.settings().QUEUE.PARALLEL_THREADS);
+        final int size = Math.max(1, Math.min(chunks.size(), Settings.settings().QUEUE.PARALLEL_THREADS));
+        // Hand out chunks in spatially coherent tiles, so workers don't contend over a shared iterator
+        final ChunkScheduler scheduler = new ChunkScheduler(chunks, size);
+        this.lastScheduler = scheduler;
         if (size <= 1) {
             // if PQE is ever used with PARALLEL_THREADS = 1, or only one chunk is edited, just run sequentially
             ChunkFilterBlock block = null;
-            while (chunksIter.hasNext()) {
-                BlockVector2 pos = chunksIter.next();
-                block = getExtent().apply(block, filter, region, pos.x(), pos.z(), full);
+            long[] tile;
+            while ((tile = scheduler.poll(0)) != null) {
+                for (long pos : tile) {
+                    block = getExtent().apply(block, filter, region, MathMan.unpairIntX(pos), MathMan.unpairIntY(pos), full);
+                }
             }
         } else {
             final ForkJoinTask[] tasks = IntStream.range(0, size).mapToObj(i -> handler.submit(() -> {
@@ -153,19 +225,19 @@ public <T extends Filter> T apply(Region region, T filter, boolean full) {
                         try {
                             ChunkFilterBlock block = null;
 
-                            while (true) {
-                                // Get the next chunk posWeakChunk
-                                final int chunkX;
-                                final int chunkZ;
-                                synchronized (chunksIter) {
-                                    if (!chunksIter.hasNext()) {
-                                        break;
-                                    }
-                                    final BlockVector2 pos = chunksIter.next();
-                                    chunkX = pos.x();
-                                    chunkZ = pos.z();
+                            long[] tile;
+                            // Get the next tile of chunks, either our own or stolen from another worker
+                            while ((tile = scheduler.poll(i)) != null) {
+                                for (long pos : tile) {
+                                    block = queue.apply(
+                                            block,
+                                            newFilter,
+                                            newRegion,
+                                            MathMan.unpairIntX(pos),
+                                            MathMan.unpairIntY(pos),
+                                            full
+                                    );
                                 }
-                                block = queue.apply(block, newFilter, newRegion, chunkX, chunkZ, full);
                             }
                             queue.flush();
                         } catch (Throwable t) {
@@ -200,10 +272,70 @@ public <T extends Filter> T apply(Region region, T filter, boolean full) {
                 }
             }
             filter.join();
+            if (Settings.settings().ENABLED_COMPONENTS.DEBUG) {
+                LOGGER.info("Applied {} over {}", filter.getClass().getSimpleName(), scheduler);
+            }
         }
         return filter;
     }
 
+    /**
+     * Process tasks on the worker threads of the queue handler. Like {@link #apply(Region, Filter, boolean)}, each worker edits
+     * through its own queue, which is the extent of this for the worker's thread while it runs, and flushes it when done.
+     * Tasks editing the same chunk should not be processed by the same call.
+     *
+     * @param tasks   the tasks, taken in order by whichever worker is free
+     * @param workers creates the consumer of each worker
+     * @param <T>     task type
+     */
+    public <T> void forEach(List<T> tasks, Supplier<Consumer<T>> workers) {
+        final int size = Math.max(1, Math.min(tasks.size(), Settings.settings().QUEUE.PARALLEL_THREADS));
+        if (size <= 1) {
+            Consumer<T> worker = workers.get();
+            tasks.forEach(worker);
+            return;
+        }
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final ForkJoinTask<?>[] submitted = IntStream.range(0, size).mapToObj(i -> handler.submit(() -> {
+            final SingleThreadQueueExtent queue = (SingleThreadQueueExtent) getNewQueue();
+            queue.setFastMode(fastmode);
+            queue.setFaweExceptionArray(faweExceptionReasonsUsed);
+            enter(queue);
+            synchronized (queue) {
+                try {
+                    final Consumer<T> worker = workers.get();
+                    int index;
+                    while (error.get() == null && (index = next.getAndIncrement()) < tasks.size()) {
+                        worker.accept(tasks.get(index));
+                    }
+                    queue.flush();
+                } catch (Throwable t) {
+                    FaweException cause = t instanceof FaweException fe ? fe
+                            : t.getCause() instanceof FaweException fe ? fe : null;
+                    if (cause != null) {
+                        Fawe.handleFaweException(faweExceptionReasonsUsed, cause, LOGGER);
+                    } else {
+                        error.compareAndSet(null, t);
+                    }
+                } finally {
+                    exit();
+                }
+            }
+        })).toArray(ForkJoinTask[]::new);
+        for (ForkJoinTask<?> task : submitted) {
+            task.quietlyJoin();
+        }
+        Throwable t = error.get();
+        if (t instanceof RuntimeException e) {
+            throw e;
+        } else if (t instanceof Error e) {
+            throw e;
+        } else if (t != null) {
+            throw new RuntimeException(t);
+        }
+    }
+
     @Override
     public int countBlocks(Region region, Mask searchMask) {
         return
@@ -313,4 +445,21 @@ public int replaceBlocks(Region region, Set<BaseBlock> filter, Pattern pattern)
         return replaceBlocks(region, mask, pattern);
     }
 
+    /**
+     * Reads the chunks given to a worker by {@link #readChunks(Extent, int, int, int, int, Supplier)}.
+     */
+    @FunctionalInterface
+    public interface ChunkReader {
+
+        /**
+         * Read a chunk.
+         *
+         * @param chunk  the chunk, from the queue of the worker
+         * @param chunkX x coordinate of the chunk
+         * @param chunkZ z coordinate of the chunk
+         */
+        void read(IChunkGet chunk, int chunkX, int chunkZ);
+
+    }
+
 }
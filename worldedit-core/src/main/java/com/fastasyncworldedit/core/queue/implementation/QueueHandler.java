@@ -83,11 +83,13 @@ public abstract class QueueHandler implements Trimable, Runnable {
     private final Map<World, WeakReference<IChunkCache<IChunkGet>>> chunkGetCache = new HashMap<>();
     private final CleanableThreadLocal<IQueueExtent<IQueueChunk>> queuePool = new CleanableThreadLocal<>(QueueHandler.this::create);
     /**
-     * Used to calculate elapsed time in milliseconds and ensure block placement doesn't lag the
+     * Used to calculate the time tasks may run on the main thread each tick and ensure block placement doesn't lag the
      * server
      */
-    private long last;
-    private long allocate = 50;
+    private final SyncTickBudget syncBudget = new SyncTickBudget(
+            () -> System.nanoTime() / 1_000_000,
+            () -> Settings.settings().QUEUE.EXTRA_TIME_MS
+    );
 
     protected QueueHandler() {
         TaskManager.taskManager().repeat(this, 1);
@@ -98,21 +100,22 @@ public void run() {
         if (!Fawe.isMainThread()) {
             throw new IllegalStateException("Not main thread");
         }
+        // Measure every tick, so the budget reflects the tick lengths before tasks were submitted
+        syncBudget.startTick();
+        int tasks = 0;
         if (!syncTasks.isEmpty()) {
-            long currentAllocate = getAllocate();
-
             if (!MemUtil.isMemoryFree()) {
                 // TODO reduce mem usage
                 // FaweCache trim
                 // Preloader trim
             }
 
-            operate(syncTasks, last, currentAllocate);
-        } else if (!syncWhenFree.isEmpty()) {
-            operate(syncWhenFree, last, getAllocate());
-        } else {
-            // trim??
+            tasks += operate(syncTasks);
+        }
+        if (!syncWhenFree.isEmpty() && syncBudget.remaining() > 0) {
+            tasks += operate(syncWhenFree);
         }
+        syncBudget.endTick(tasks, !syncTasks.isEmpty() || !syncWhenFree.isEmpty());
     }
 
     /**
@@ -125,45 +128,51 @@ public boolean isUnderutilized() {
         return blockingExecutor.getActiveCount() < blockingExecutor.getMaximumPoolSize();
     }
 
-    private long getAllocate() {
-        long now = System.currentTimeMillis();
-        double targetTPS = 18 - Math.max(Settings.settings().QUEUE.EXTRA_TIME_MS * 0.05, 0);
-        long diff = 50 + this.last - (this.last = now);
-        long absDiff = Math.abs(diff);
-        if (diff == 0) {
-            allocate = Math.min(50, allocate + 1);
-        } else if (diff < 0) {
-            allocate = Math.max(5, allocate + diff);
-        } else if (!Fawe.instance().getTimer().isAbove(targetTPS)) {
-            allocate = Math.max(5, allocate - 1);
-        }
-        return allocate - absDiff;
+    /**
+     * Get the budget for tasks run on the main thread, which also holds metrics about them.
+     *
+     * @return the main thread task budget
+     */
+    public SyncTickBudget getSyncBudget() {
+        return syncBudget;
     }
 
-    private void operate(Queue<FutureTask> queue, long start, long currentAllocate) {
+    /**
+     * Get the number of tasks waiting to be run on the main thread.
+     *
+     * @param whenFree if the count of tasks submitted via {@code QueueHandler#syncWhenFree} should be returned instead
+     * @return the number of queued tasks
+     */
+    public int getQueuedSyncTasks(boolean whenFree) {
+        return whenFree ? syncWhenFree.size() : syncTasks.size();
+    }
+
+    private int operate(Queue<FutureTask> queue) {
+        int count = 0;
         boolean wait = false;
-        do {
+        long remaining;
+        while ((remaining = syncBudget.remaining()) > 0) {
             Runnable task = queue.poll();
             if (task == null) {
-                if (wait) {
-                    synchronized (syncTasks) {
-                        try {
-                            queue.wait(1);
-                        } catch (InterruptedException e) {
-                            e.printStackTrace();
-                        }
-                    }
-                    task = queue.poll();
-                    wait = false;
-                } else {
+                if (!wait) {
                     break;
                 }
+                // Workers often submit their next task right after the previous one completes, so briefly wait for it
+                synchronized (queue) {
+                    try {
+                        queue.wait(Math.min(1, remaining));
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                }
+                wait = false;
+                continue;
             }
-            if (task != null) {
-                task.run();
-                wait = true;
-            }
-        } while (System.currentTimeMillis() - start < currentAllocate);
+            task.run();
+            count++;
+            wait = true;
+        }
+        return count;
     }
 
     /**
@@ -0,0 +1,341 @@
+package com.fastasyncworldedit.core.queue.implementation;
+
+import com.fastasyncworldedit.core.extent.processor.heightmap.HeightMapType;
+import com.fastasyncworldedit.core.math.stencil.OrdinalMaterials;
+import com.fastasyncworldedit.core.queue.IChunkGet;
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.world.block.BlockTypesCache;
+
+import javax.annotation.Nullable;
+
+/**
+ * Finds terrain heights by reading the block arrays of chunk sections directly instead of calling
+ * {@link Extent#getBlock(int, int, int)} for every block of a column. Gives the same results as the default
+ * {@link Extent#getHighestTerrainBlock(int, int, int, int)} and
+ * {@link Extent#getNearestSurfaceTerrainBlock(int, int, int, int, int, int, int, boolean)}.
+ */
+public final class SurfaceScanner {
+
+    // Heightmaps are read with 9 bits per entry, so can't be trusted in taller worlds
+    private static final int MAX_NATIVE_HEIGHTMAP_HEIGHT = (1 << 9) - 1;
+
+    private SurfaceScanner() {
+    }
+
+    /**
+     * Get the highest movement blocking block of a column.
+     *
+     * @param chunk the chunk to read
+     * @param x     x coordinate within the chunk
+     * @param z     z coordinate within the chunk
+     * @param minY  minimum y to consider, inclusive, at least the minimum y of the chunk
+     * @param maxY  maximum y to consider, inclusive, at most the maximum y of the chunk
+     * @return y of the highest block found or minY
+     */
+    public static int getHighestTerrainBlock(IChunkGet chunk, int x, int z, int minY, int maxY) {
+        return getHighestTerrainBlock(chunk, x, z, minY, maxY, OrdinalMaterials.STATES);
+    }
+
+    static int getHighestTerrainBlock(IChunkGet chunk, int x, int z, int minY, int maxY, OrdinalMaterials materials) {
+        ColumnReader column = new ColumnReader(chunk, x, z);
+        for (int y = maxY; y >= minY; --y) {
+            if (materials.isTypeMovementBlocker(column.ordinal(y))) {
+                return y;
+            }
+        }
+        return minY;
+    }
+
+    /**
+     * Get the highest movement blocking block of the columns in an area of a chunk, starting each column at its native
+     * {@link HeightMapType#WORLD_SURFACE} height if the chunk has usable height maps, and reading each section at most once
+     * and not at all above the highest column or below the highest block of every column.
+     *
+     * @param chunk   the chunk to read
+     * @param minX    minimum x within the chunk, inclusive
+     * @param minZ    minimum z within the chunk, inclusive
+     * @param maxX    maximum x within the chunk, inclusive
+     * @param maxZ    maximum z within the chunk, inclusive
+     * @param minY    minimum y to consider, inclusive, at least the minimum y of the chunk
+     * @param maxY    maximum y to consider, inclusive, at most the maximum y of the chunk
+     * @param heights array to write the height of each column to, at index {@code z << 4 | x}. Heights outside the area
+     *                are unchanged
+     */
+    public static void getHighestTerrainBlocks(
+            IChunkGet chunk,
+            int minX,
+            int minZ,
+            int maxX,
+            int maxZ,
+            int minY,
+            int maxY,
+            int[] heights
+    ) {
+        getHighestTerrainBlocks(
+                chunk, minX, minZ, maxX, maxZ, minY, maxY, heights, getWorldSurfaceHeights(chunk), OrdinalMaterials.STATES
+        );
+    }
+
+    static void getHighestTerrainBlocks(
+            IChunkGet chunk,
+            int minX,
+            int minZ,
+            int maxX,
+            int maxZ,
+            int minY,
+            int maxY,
+            int[] heights,
+            @Nullable int[] surface,
+            OrdinalMaterials materials
+    ) {
+        // Highest y left to read of each column, below minY once the column is done
+        int[] top = new int[256];
+        int highest = Integer.MIN_VALUE;
+        int remaining = 0;
+        for (int z = minZ; z <= maxZ; z++) {
+            for (int x = minX; x <= maxX; x++) {
+                int index = z << 4 | x;
+                // Blocks blocking movement aren't air, so are at or below the world surface
+                int columnTop = surface == null ? maxY : Math.min(maxY, surface[index] - 1 + chunk.getMinY());
+                top[index] = columnTop;
+                heights[index] = minY;
+                if (columnTop >= minY) {
+                    highest = Math.max(highest, columnTop);
+                    remaining++;
+                }
+            }
+        }
+        // Sections above the highest column, such as the empty sections above the terrain, are never loaded
+        for (int layer = highest >> 4; remaining > 0 && layer >= minY >> 4; layer--) {
+            int layerMinY = Math.max(minY, layer << 4);
+            char[] section = null;
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int x = minX; x <= maxX; x++) {
+                    int index = z << 4 | x;
+                    int y = top[index];
+                    if (y < layerMinY) {
+                        continue;
+                    }
+                    if (section == null) {
+                        section = chunk.load(layer);
+                    }
+                    for (; y >= layerMinY; y--) {
+                        if (materials.isTypeMovementBlocker(section[(y & 15) << 8 | index])) {
+                            heights[index] = y;
+                            break;
+                        }
+                    }
+                    if (y >= layerMinY) {
+                        top[index] = Integer.MIN_VALUE;
+                        remaining--;
+                    } else {
+                        top[index] = y;
+                        if (y < minY) {
+                            remaining--;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the nearest block to a start height that is considered the surface of the terrain.
+     *
+     * @param chunk     the chunk to read
+     * @param x         x coordinate within the chunk
+     * @param z         z coordinate within the chunk
+     * @param y         start y
+     * @param minY      minimum y to consider, inclusive, at least the minimum y of the chunk
+     * @param maxY      maximum y to consider, inclusive, at most the maximum y of the chunk
+     * @param failedMin if nothing found, the minimum y value to return if returning min
+     * @param failedMax if nothing found, the maximum y value to return if returning max
+     * @param ignoreAir if air at the final value if no block found should be considered for return, else return -1
+     * @return the y value of the nearest terrain block
+     * @see Extent#getNearestSurfaceTerrainBlock(int, int, int, int, int, int, int, boolean)
+     */
+    public static int getNearestSurfaceTerrainBlock(
+            IChunkGet chunk,
+            int x,
+            int z,
+            int y,
+            int minY,
+            int maxY,
+            int failedMin,
+            int failedMax,
+            boolean ignoreAir
+    ) {
+        return getNearestSurfaceTerrainBlock(
+                chunk, x, z, y, minY, maxY, failedMin, failedMax, ignoreAir, OrdinalMaterials.STATES
+        );
+    }
+
+    static int getNearestSurfaceTerrainBlock(
+            IChunkGet chunk,
+            int x,
+            int z,
+            int y,
+            int minY,
+            int maxY,
+            int failedMin,
+            int failedMax,
+            boolean ignoreAir,
+            OrdinalMaterials materials
+    ) {
+        ColumnReader column = new ColumnReader(chunk, x, z);
+        y = Math.max(minY, Math.min(maxY, y));
+        int clearanceAbove = maxY - y;
+        int clearanceBelow = y - minY;
+        int clearance = Math.min(clearanceAbove, clearanceBelow);
+        boolean state = !materials.isTypeMovementBlocker(column.ordinal(y));
+        int offset = state ? 0 : 1;
+        for (int d = 0; d <= clearance; d++) {
+            int y1 = y + d;
+            if (isSurface(materials, column.ordinal(y1), state)) {
+                return y1 - offset;
+            }
+            int y2 = y - d;
+            if (isSurface(materials, column.ordinal(y2), state)) {
+                return y2 + offset;
+            }
+        }
+        if (clearanceAbove != clearanceBelow) {
+            if (clearanceAbove < clearanceBelow) {
+                for (int layer = y - clearance - 1; layer >= minY; layer--) {
+                    if (isSurface(materials, column.ordinal(layer), state)) {
+                        return layer + offset;
+                    }
+                }
+            } else {
+                for (int layer = y + clearance + 1; layer <= maxY; layer++) {
+                    if (isSurface(materials, column.ordinal(layer), state)) {
+                        return layer - offset;
+                    }
+                }
+            }
+        }
+        int result = state ? failedMin : failedMax;
+        if (result > minY && !ignoreAir) {
+            int layer = result >> 4;
+            // Blocks outside of the chunk's sections are read as air
+            if (layer < chunk.getMinSectionPosition() || layer > chunk.getMaxSectionPosition()) {
+                return -1;
+            }
+            return materials.isAir(column.ordinal(result)) ? -1 : result;
+        }
+        return result;
+    }
+
+    /**
+     * Get the highest movement blocking block of each column of an area, as given by
+     * {@link EditSession#getHighestTerrainBlock(int, int, int, int)}, reading whole chunks at a time and in parallel if the
+     * edit session reads straight from a {@link ParallelQueueExtent}.
+     *
+     * @param session the edit session to read
+     * @param minX    minimum x of the area
+     * @param minZ    minimum z of the area
+     * @param width   size of the area along the x-axis
+     * @param length  size of the area along the z-axis
+     * @param minY    minimum y to consider, inclusive
+     * @param maxY    maximum y to consider, inclusive
+     * @return the heights, at index {@code (z - minZ) * width + (x - minX)}, or null if the edit session doesn't read from a
+     *         queue without other extents changing blocks read on the way
+     */
+    @Nullable
+    public static int[] getHighestTerrainBlocks(
+            EditSession session,
+            int minX,
+            int minZ,
+            int width,
+            int length,
+            int minY,
+            int maxY
+    ) {
+        Extent extent = ParallelQueueExtent.getDirectQueue(session.getExtent());
+        if (extent == null) {
+            return null;
+        }
+        if (minY < session.getMinY() || maxY > session.getMaxY()) {
+            return null;
+        }
+        int[] result = new int[width * length];
+        if (width <= 0 || length <= 0) {
+            return result;
+        }
+        int maxX = minX + width - 1;
+        int maxZ = minZ + length - 1;
+        ParallelQueueExtent.readChunks(extent, minX, minZ, maxX, maxZ, () -> {
+            int[] heights = new int[256];
+            return (chunk, cx, cz) -> {
+                int bx = cx << 4;
+                int bz = cz << 4;
+                int x0 = Math.max(minX, bx) - bx;
+                int z0 = Math.max(minZ, bz) - bz;
+                int x1 = Math.min(maxX, bx + 15) - bx;
+                int z1 = Math.min(maxZ, bz + 15) - bz;
+                getHighestTerrainBlocks(chunk, x0, z0, x1, z1, minY, maxY, heights);
+                for (int z = z0; z <= z1; z++) {
+                    System.arraycopy(heights, z << 4 | x0, result, (bz + z - minZ) * width + bx + x0 - minX, x1 - x0 + 1);
+                }
+            };
+        });
+        return result;
+    }
+
+    /**
+     * Get the native {@link HeightMapType#WORLD_SURFACE} heights of a chunk, or null if they can't be used.
+     */
+    @Nullable
+    private static int[] getWorldSurfaceHeights(IChunkGet chunk) {
+        int height = chunk.getMaxY() - chunk.getMinY() + 1;
+        if (height > MAX_NATIVE_HEIGHTMAP_HEIGHT) {
+            return null;
+        }
+        int[] heights = chunk.getHeightMap(HeightMapType.WORLD_SURFACE);
+        if (heights == null || heights.length != 256) {
+            return null;
+        }
+        for (int h : heights) {
+            if (h < 0 || h > height) {
+                return null;
+            }
+        }
+        return heights;
+    }
+
+    /**
+     * Whether a state blocks movement as given and isn't reserved.
+     */
+    private static boolean isSurface(OrdinalMaterials materials, char ordinal, boolean movementBlocker) {
+        return materials.isMovementBlocker(ordinal) == movementBlocker
+                && materials.getTypeId(ordinal) != BlockTypesCache.ReservedIDs.__RESERVED__;
+    }
+
+    /**
+     * Reads ordinals of a column, loading each section once.
+     */
+    private static final class ColumnReader {
+
+        private final IChunkGet chunk;
+        private final int index;
+        private int layer = Integer.MIN_VALUE;
+        private char[] section;
+
+        private ColumnReader(IChunkGet chunk, int x, int z) {
+            this.chunk = chunk;
+            this.index = z << 4 | x;
+        }
+
+        private char ordinal(int y) {
+            int layer = y >> 4;
+            if (layer != this.layer) {
+                this.layer = layer;
+                this.section = chunk.load(layer);
+            }
+            return section[(y & 15) << 8 | index];
+        }
+
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.fastasyncworldedit.core.queue.implementation;
+
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Time budget for running tasks on the main thread each tick, adjusted from the measured length of each tick. The budget
+ * grows while ticks finish in time and there are tasks left over, and shrinks by the time a tick ran over when the server
+ * falls behind, so the server's own work in a tick plus the budget approaches the length of a tick.
+ * <p>
+ * {@link #startTick()} and {@link #endTick(int, boolean)} must be called from a single thread, once per tick. The metrics
+ * may be read from any thread.
+ */
+public final class SyncTickBudget {
+
+    /**
+     * Target length of a tick, in milliseconds.
+     */
+    public static final long TICK_MILLIS = 50;
+    /**
+     * Smallest budget, so tasks keep being run while the server is behind.
+     */
+    public static final long MIN_BUDGET = 5;
+    /**
+     * Largest budget.
+     */
+    public static final long MAX_BUDGET = 50;
+    /**
+     * Amount the budget grows by after a tick that finished in time with tasks left over.
+     */
+    static final long GROWTH = 2;
+
+    private final LongSupplier clock;
+    private final IntSupplier extraTime;
+    private long tickStart = Long.MIN_VALUE;
+    private long deadline;
+    private boolean saturated;
+    private volatile long budget = MAX_BUDGET / 2;
+    private volatile long lastTickMillis = TICK_MILLIS;
+    private volatile long lastSpentMillis;
+    private volatile long deferredTicks;
+    private volatile long tasksRun;
+
+    /**
+     * Create a new budget.
+     *
+     * @param clock     monotonic clock in milliseconds
+     * @param extraTime milliseconds to add to or remove from the budget, read each tick
+     */
+    public SyncTickBudget(LongSupplier clock, IntSupplier extraTime) {
+        this.clock = clock;
+        this.extraTime = extraTime;
+    }
+
+    /**
+     * Start running tasks for a tick, updating the budget from the time since the previous tick started.
+     */
+    public void startTick() {
+        long now = clock.getAsLong();
+        if (tickStart != Long.MIN_VALUE) {
+            long tickMillis = now - tickStart;
+            long overshoot = tickMillis - TICK_MILLIS;
+            long budget = this.budget;
+            if (overshoot > 0) {
+                budget = Math.max(MIN_BUDGET, budget - overshoot);
+            } else if (saturated) {
+                budget = Math.min(MAX_BUDGET, budget + GROWTH);
+            }
+            this.budget = budget;
+            this.lastTickMillis = tickMillis;
+        }
+        tickStart = now;
+        deadline = now + Math.max(1, budget + extraTime.getAsInt());
+    }
+
+    /**
+     * Get the time left in the budget of the current tick.
+     *
+     * @return milliseconds left, zero or less if the budget is spent
+     */
+    public long remaining() {
+        return deadline - clock.getAsLong();
+    }
+
+    /**
+     * Finish running tasks for the current tick.
+     *
+     * @param tasks    the number of tasks run
+     * @param deferred if there are tasks left to be run in a later tick
+     */
+    public void endTick(int tasks, boolean deferred) {
+        long spent = clock.getAsLong() - tickStart;
+        lastSpentMillis = spent;
+        tasksRun += tasks;
+        saturated = deferred;
+        if (deferred) {
+            deferredTicks++;
+        }
+    }
+
+    /**
+     * Get the budget for the next tick, excluding the configured extra time.
+     *
+     * @return the budget in milliseconds
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Get the measured length of the last tick.
+     *
+     * @return the tick length in milliseconds
+     */
+    public long getLastTickMillis() {
+        return lastTickMillis;
+    }
+
+    /**
+     * Get the time spent running tasks in the last tick.
+     *
+     * @return the time spent in milliseconds
+     */
+    public long getLastSpentMillis() {
+        return lastSpentMillis;
+    }
+
+    /**
+     * Get the number of ticks that ended with tasks left over.
+     */
+    public long getDeferredTicks() {
+        return deferredTicks;
+    }
+
+    /**
+     * Get the total number of tasks run.
+     */
+    public long getTasksRun() {
+        return tasksRun;
+    }
+
+}
@@ -233,7 +233,7 @@ public final char get(int layer, int index) {
         return sections[layer - minSectionPosition].get(this, layer, index);
     }
 
-    public final void set(int layer, int index, char value) throws ArrayIndexOutOfBoundsException {
+    public void set(int layer, int index, char value) throws ArrayIndexOutOfBoundsException {
         sections[layer - minSectionPosition].set(this, layer, index, value);
     }
 
@@ -245,7 +245,7 @@ public abstract static class Section {
 
         public abstract boolean isFull();
 
-        public final char get(CharBlocks blocks, int layer, int index) {
+        public char get(CharBlocks blocks, int layer, int index) {
             int normalized = layer - blocks.minSectionPosition;
             char[] section = get(blocks, normalized);
             if (section == null) {
@@ -257,7 +257,7 @@ public final char get(CharBlocks blocks, int layer, int index) {
             return section[index];
         }
 
-        public final synchronized void set(CharBlocks blocks, int layer, int index, char value) {
+        public synchronized void set(CharBlocks blocks, int layer, int index, char value) {
             layer -= blocks.minSectionPosition;
             get(blocks, layer)[index] = value;
         }
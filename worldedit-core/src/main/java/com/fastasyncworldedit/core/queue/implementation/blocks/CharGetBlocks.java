@@ -6,15 +6,56 @@
 import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockTypesCache;
 
+import javax.annotation.Nullable;
 import java.util.Arrays;
 
 public abstract class CharGetBlocks extends CharBlocks implements IChunkGet {
 
+    /**
+     * Loaded section stored in {@link #packed} until the section is loaded as an array again. Counts as full, as the
+     * section is loaded, but {@link #blocks} holds no array for it, see {@link #getLoaded(int)}.
+     */
+    private static final Section PACKED = new Section() {
+        @Override
+        char[] get(CharBlocks blocks, int layer) {
+            return ((CharGetBlocks) blocks).unpack(layer);
+        }
+
+        @Override
+        char[] get(CharBlocks blocks, int layer, boolean aggressive) {
+            return ((CharGetBlocks) blocks).unpack(layer);
+        }
+
+        @Override
+        public boolean isFull() {
+            return true;
+        }
+
+        @Override
+        public char get(CharBlocks blocks, int layer, int index) {
+            CharGetBlocks get = (CharGetBlocks) blocks;
+            int normalized = layer - get.minSectionPosition;
+            synchronized (get.sectionLocks[normalized]) {
+                PackedCharSection section = get.packed == null ? null : get.packed[normalized];
+                if (section == null) {
+                    // Unpacked or trimmed in the meantime
+                    return get.sections[normalized].get(get, layer, index);
+                }
+                return section.get(index);
+            }
+        }
+    };
+
+    private PackedCharSection[] packed;
+    // Sections unpacked again since they were packed, which are in use so aren't packed again until they are trimmed
+    private final boolean[] unpacked;
+
     /**
      * New instance given the min/max section indices
      */
     public CharGetBlocks(final int minSectionPosition, final int maxSectionPosition) {
         super(minSectionPosition, maxSectionPosition);
+        this.unpacked = new boolean[sectionCount];
     }
 
     @Override
@@ -28,10 +69,86 @@ public synchronized boolean trim(boolean aggressive) {
         for (int i = 0; i < sectionCount; i++) {
             sections[i] = EMPTY;
             blocks[i] = null;
+            unpacked[i] = false;
         }
+        packed = null;
         return true;
     }
 
+    /**
+     * Store the loaded sections with few enough block states as a palette and packed indices instead of an array, until
+     * they are loaded again. Blocks of packed sections are still read without unpacking them. Sections that were unpacked
+     * before are left as they are, so sections in use aren't packed and unpacked after every filter.
+     *
+     * @see com.fastasyncworldedit.core.configuration.Settings.QUEUE#PACK_GET_SECTIONS
+     */
+    public void pack() {
+        for (int i = 0; i < sectionCount; i++) {
+            synchronized (sectionLocks[i]) {
+                char[] arr = blocks[i];
+                if (sections[i] != FULL || arr == null) {
+                    continue;
+                }
+                if (unpacked[i]) {
+                    continue;
+                }
+                PackedCharSection section = PackedCharSection.pack(arr);
+                if (section == null) {
+                    continue;
+                }
+                if (packed == null) {
+                    packed = new PackedCharSection[sectionCount];
+                }
+                packed[i] = section;
+                blocks[i] = null;
+                sections[i] = PACKED;
+            }
+        }
+    }
+
+    private char[] unpack(int layer) {
+        synchronized (sectionLocks[layer]) {
+            if (sections[layer] != PACKED) {
+                return sections[layer].get(this, layer);
+            }
+            char[] arr = packed[layer].unpack(new char[4096]);
+            packed[layer] = null;
+            unpacked[layer] = true;
+            blocks[layer] = arr;
+            sections[layer] = FULL;
+            return arr;
+        }
+    }
+
+    /**
+     * Get the array of a loaded section, unpacking it if it is packed. Implementations reading the blocks array of a
+     * section directly should use this, as packed sections are full but have no array.
+     *
+     * @param layer the section index, relative to the minimum section
+     * @return the array, or null if the section isn't loaded
+     */
+    @Nullable
+    protected char[] getLoaded(int layer) {
+        synchronized (sectionLocks[layer]) {
+            if (sections[layer] == PACKED) {
+                return unpack(layer);
+            }
+            if (sections[layer].isFull()) {
+                return blocks[layer];
+            }
+            return null;
+        }
+    }
+
+    @Nullable
+    @Override
+    public char[] loadIfPresent(int layer) {
+        if (layer < minSectionPosition || layer > maxSectionPosition) {
+            return null;
+        }
+        return getLoaded(layer - minSectionPosition);
+    }
+
     @Override
     public char[] update(int layer, char[] data, boolean aggressive) {
         if (data == null) {
@@ -51,13 +168,31 @@ public synchronized boolean trim(boolean aggressive, int layer) {
         layer -= minSectionPosition;
         sections[layer] = EMPTY;
         blocks[layer] = null;
+        unpacked[layer] = false;
+        if (packed != null) {
+            packed[layer] = null;
+        }
         return true;
     }
 
     @Override
     public IChunkSet reset() {
         super.reset();
+        Arrays.fill(unpacked, false);
+        packed = null;
         return null;
     }
 
+    @Override
+    public void reset(int layer) {
+        int normalized = layer - minSectionPosition;
+        synchronized (sectionLocks[normalized]) {
+            if (packed != null) {
+                packed[normalized] = null;
+            }
+            unpacked[normalized] = false;
+            super.reset(layer);
+        }
+    }
+
 }
@@ -13,6 +13,7 @@
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 import com.sk89q.worldedit.world.block.BlockTypesCache;
 
+import javax.annotation.Nullable;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumMap;
@@ -29,6 +30,53 @@ public class CharSetBlocks extends CharBlocks implements IChunkSet {
             Settings.settings().QUEUE.POOL
     );
 
+    /**
+     * Section with only a few blocks set, stored in {@link #sparse} until the section is loaded as an array or too many
+     * blocks are set.
+     */
+    private static final Section SPARSE = new Section() {
+        @Override
+        char[] get(CharBlocks blocks, int layer) {
+            return ((CharSetBlocks) blocks).toDense(layer);
+        }
+
+        @Override
+        char[] get(CharBlocks blocks, int layer, boolean aggressive) {
+            return ((CharSetBlocks) blocks).toDense(layer);
+        }
+
+        @Override
+        public boolean isFull() {
+            return true;
+        }
+
+        @Override
+        public char get(CharBlocks blocks, int layer, int index) {
+            CharSetBlocks set = (CharSetBlocks) blocks;
+            int normalized = layer - set.minSectionPosition;
+            synchronized (set.sectionLocks[normalized]) {
+                SparseCharSection section = set.sparse[normalized];
+                if (section == null) {
+                    // Converted to a dense array or reset in the meantime
+                    return (set.blocks[normalized] != null ? FULL : EMPTY).get(set, layer, index);
+                }
+                return section.get(index, set.defaultOrdinal());
+            }
+        }
+
+        @Override
+        public void set(CharBlocks blocks, int layer, int index, char value) {
+            CharSetBlocks set = (CharSetBlocks) blocks;
+            int normalized = layer - set.minSectionPosition;
+            synchronized (set.sectionLocks[normalized]) {
+                SparseCharSection section = set.sparse[normalized];
+                if (section == null || !section.set(index, value)) {
+                    set.toDense(normalized)[index] = value;
+                }
+            }
+        }
+    };
+
     public static CharSetBlocks newInstance() {
         return POOL.poll();
     }
@@ -40,12 +88,15 @@ public static CharSetBlocks newInstance() {
     public HashSet<CompoundTag> entities;
     public HashSet<UUID> entityRemoves;
     public EnumMap<HeightMapType, int[]> heightMaps;
+    // One entry per section, resized with the section arrays so sections never race to create it
+    private SparseCharSection[] sparse;
     private boolean fastMode = false;
     private int bitMask = -1;
 
     private CharSetBlocks() {
         // Expand as we go
         super(0, 15);
+        sparse = new SparseCharSection[sectionCount];
     }
 
     @Override
@@ -121,8 +172,11 @@ public <T extends BlockStateHolder<T>> boolean setBlock(int x, int y, int z, T h
     public void setBlocks(int layer, char[] data) {
         updateSectionIndexRange(layer);
         layer -= minSectionPosition;
-        this.sections[layer] = data == null ? EMPTY : FULL;
-        this.blocks[layer] = data;
+        synchronized (sectionLocks[layer]) {
+            sparse[layer] = null;
+            this.sections[layer] = data == null ? EMPTY : FULL;
+            this.blocks[layer] = data;
+        }
     }
 
     @Override
@@ -322,10 +376,20 @@ public IChunkSet reset() {
         light = null;
         skyLight = null;
         heightMaps = null;
+        Arrays.fill(sparse, null);
         super.reset();
         return null;
     }
 
+    @Override
+    public void reset(int layer) {
+        int normalized = layer - minSectionPosition;
+        synchronized (sectionLocks[normalized]) {
+            sparse[normalized] = null;
+            super.reset(layer);
+        }
+    }
+
     @Override
     public boolean hasBiomes(int layer) {
         layer -= minSectionPosition;
@@ -339,9 +403,13 @@ public boolean hasBiomes(int layer) {
     public ThreadUnsafeCharBlocks createCopy() {
         char[][] blocksCopy = new char[sectionCount][];
         for (int i = 0; i < sectionCount; i++) {
-            if (blocks[i] != null) {
-                blocksCopy[i] = new char[FaweCache.INSTANCE.BLOCKS_PER_LAYER];
-                System.arraycopy(blocks[i], 0, blocksCopy[i], 0, FaweCache.INSTANCE.BLOCKS_PER_LAYER);
+            synchronized (sectionLocks[i]) {
+                if (sparse[i] != null) {
+                    blocksCopy[i] = sparse[i].toDense(defaultOrdinal());
+                } else if (blocks[i] != null) {
+                    blocksCopy[i] = new char[FaweCache.INSTANCE.BLOCKS_PER_LAYER];
+                    System.arraycopy(blocks[i], 0, blocksCopy[i], 0, FaweCache.INSTANCE.BLOCKS_PER_LAYER);
+                }
             }
         }
         BiomeType[][] biomesCopy;
@@ -397,6 +465,54 @@ public char[] load(final int layer) {
         return super.load(layer);
     }
 
+    @Nullable
+    @Override
+    public char[] loadIfPresent(final int layer) {
+        if (layer >= minSectionPosition && layer <= maxSectionPosition && sections[layer - minSectionPosition] == SPARSE) {
+            return toDense(layer - minSectionPosition);
+        }
+        return super.loadIfPresent(layer);
+    }
+
+    /**
+     * Sets to a section without an array start out sparse, and are converted to a dense array once too many blocks are
+     * set or the array is loaded.
+     */
+    @Override
+    public void set(int layer, int index, char value) {
+        int normalized = layer - minSectionPosition;
+        if (sections[normalized] == EMPTY && blocks[normalized] == null) {
+            synchronized (sectionLocks[normalized]) {
+                if (sections[normalized] == EMPTY && blocks[normalized] == null) {
+                    sparse[normalized] = new SparseCharSection();
+                    sections[normalized] = SPARSE;
+                }
+            }
+        }
+        super.set(layer, index, value);
+    }
+
+    /**
+     * Convert a sparse section to a dense array.
+     *
+     * @param layer normalized section index
+     * @return the section's array
+     */
+    private char[] toDense(int layer) {
+        synchronized (sectionLocks[layer]) {
+            SparseCharSection section = sparse[layer];
+            if (section == null) {
+                // Converted to a dense array or reset in the meantime
+                return blocks[layer] != null ? FULL.get(this, layer) : EMPTY.get(this, layer);
+            }
+            char[] arr = section.toDense(defaultOrdinal());
+            blocks[layer] = arr;
+            sections[layer] = FULL;
+            sparse[layer] = null;
+            return arr;
+        }
+    }
+
     @Override
     protected char defaultOrdinal() {
         return BlockTypesCache.ReservedIDs.__RESERVED__;
@@ -434,6 +550,9 @@ private void resizeSectionsArrays(int diff, boolean appendNew) {
             tmpSections[i] = EMPTY;
             tmpSectionLocks[i] = new Object();
         }
+        SparseCharSection[] tmpSparse = new SparseCharSection[sectionCount];
+        System.arraycopy(sparse, 0, tmpSparse, destPos, sparse.length);
+        sparse = tmpSparse;
         blocks = tmpBlocks;
         sections = tmpSections;
         sectionLocks = tmpSectionLocks;
@@ -0,0 +1,98 @@
+package com.fastasyncworldedit.core.queue.implementation.blocks;
+
+import com.fastasyncworldedit.core.FaweCache;
+import com.fastasyncworldedit.core.math.BitArrayUnstretched;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Read only section of ordinals stored as indices into a palette, packed into longs the same way as
+ * {@link BitArrayUnstretched}. Used by {@link CharGetBlocks} to keep sections loaded with less memory than a
+ * {@code char[4096]}: a section of a single state uses a few bytes, one of 16 states 2 KiB.
+ */
+final class PackedCharSection {
+
+    /**
+     * Maximum palette size of a section to pack. Above this the packed section isn't much smaller than the array.
+     */
+    static final int MAX_PALETTE_SIZE = 256;
+
+    private final char[] palette;
+    // null if the section has a single state
+    private final long[] data;
+    private final int bitsPerEntry;
+    private final int blocksPerLong;
+    private final long mask;
+
+    private PackedCharSection(char[] palette, long[] data, int bitsPerEntry) {
+        this.palette = palette;
+        this.data = data;
+        this.bitsPerEntry = bitsPerEntry;
+        this.blocksPerLong = 64 / bitsPerEntry;
+        this.mask = (1L << bitsPerEntry) - 1L;
+    }
+
+    /**
+     * Pack a section.
+     *
+     * @param blocks the section ordinals
+     * @return the packed section, or null if the section has too many states to be worth packing
+     */
+    @Nullable
+    static PackedCharSection pack(char[] blocks) {
+        FaweCache.Palette palette = FaweCache.INSTANCE.toPaletteUnstretched(0, blocks);
+        int size = palette.paletteToBlockLength;
+        if (size > MAX_PALETTE_SIZE) {
+            return null;
+        }
+        char[] paletteToBlock = new char[size];
+        for (int i = 0; i < size; i++) {
+            paletteToBlock[i] = (char) palette.paletteToBlock[i];
+        }
+        if (size == 1) {
+            return new PackedCharSection(paletteToBlock, null, 1);
+        }
+        long[] data = Arrays.copyOf(palette.blockStates, palette.blockStatesLength);
+        return new PackedCharSection(paletteToBlock, data, palette.bitsPerEntry);
+    }
+
+    /**
+     * Get the ordinal at an index.
+     *
+     * @param index block index within the section
+     */
+    char get(int index) {
+        if (data == null) {
+            return palette[0];
+        }
+        long l = data[index / blocksPerLong];
+        return palette[(int) (l >>> (index % blocksPerLong) * bitsPerEntry & mask)];
+    }
+
+    /**
+     * Write all ordinals of this section into an array.
+     *
+     * @param blocks the array to write to
+     * @return the given array
+     */
+    char[] unpack(char[] blocks) {
+        if (data == null) {
+            Arrays.fill(blocks, palette[0]);
+            return blocks;
+        }
+        new BitArrayUnstretched(bitsPerEntry, 4096, data).toRaw(blocks);
+        for (int i = 0; i < 4096; i++) {
+            blocks[i] = palette[blocks[i]];
+        }
+        return blocks;
+    }
+
+    /**
+     * Get the approximate number of bytes used by the arrays of this section.
+     */
+    int getArrayBytes() {
+        return palette.length * Character.BYTES + (data == null ? 0 : data.length * Long.BYTES);
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.fastasyncworldedit.core.queue.implementation.blocks;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressed map from a block index within a section ({@code y << 8 | z << 4 | x}) to an ordinal, used by
+ * {@link CharSetBlocks} for sections with only a few changed blocks instead of a full {@code char[4096]}.
+ * <p>
+ * Not thread safe.
+ */
+final class SparseCharSection {
+
+    /**
+     * Maximum number of entries before the section should be converted to a dense array. At this size the map uses
+     * {@code 4 * 1024} bytes of arrays, half of a dense section.
+     */
+    static final int MAX_SIZE = 512;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Block indices plus one, so 0 marks an empty slot.
+     */
+    private short[] keys;
+    private char[] values;
+    private int size;
+
+    SparseCharSection() {
+        this.keys = new short[INITIAL_CAPACITY];
+        this.values = new char[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Get the ordinal at an index.
+     *
+     * @param index        block index within the section
+     * @param defaultValue value to return if the index is not set
+     */
+    char get(int index, char defaultValue) {
+        short key = (short) (index + 1);
+        int mask = keys.length - 1;
+        for (int slot = mix(index) & mask; ; slot = (slot + 1) & mask) {
+            short existing = keys[slot];
+            if (existing == key) {
+                return values[slot];
+            }
+            if (existing == 0) {
+                return defaultValue;
+            }
+        }
+    }
+
+    /**
+     * Set the ordinal at an index.
+     *
+     * @return false if the map is full and the section should be converted to a dense array instead, in which case nothing
+     *         was set
+     */
+    boolean set(int index, char value) {
+        short key = (short) (index + 1);
+        int mask = keys.length - 1;
+        int slot = mix(index) & mask;
+        for (short existing; (existing = keys[slot]) != 0; slot = (slot + 1) & mask) {
+            if (existing == key) {
+                values[slot] = value;
+                return true;
+            }
+        }
+        if (size >= MAX_SIZE) {
+            return false;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        // Keep the load factor at or below 1/2
+        if (++size << 1 > keys.length) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of indices set.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the approximate number of bytes used by the arrays of this map.
+     */
+    int getArrayBytes() {
+        return keys.length * (Short.BYTES + Character.BYTES);
+    }
+
+    /**
+     * Write all entries into a dense section array.
+     */
+    void copyTo(char[] dense) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                dense[keys[slot] - 1] = values[slot];
+            }
+        }
+    }
+
+    /**
+     * Create a dense section array of this map.
+     *
+     * @param defaultValue value of indices that are not set
+     */
+    char[] toDense(char defaultValue) {
+        char[] dense = new char[4096];
+        if (defaultValue != 0) {
+            Arrays.fill(dense, defaultValue);
+        }
+        copyTo(dense);
+        return dense;
+    }
+
+    private void rehash(int capacity) {
+        short[] oldKeys = keys;
+        char[] oldValues = values;
+        keys = new short[capacity];
+        values = new char[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            short key = oldKeys[i];
+            if (key == 0) {
+                continue;
+            }
+            int slot = mix(key - 1) & mask;
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private static int mix(int index) {
+        int h = index * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
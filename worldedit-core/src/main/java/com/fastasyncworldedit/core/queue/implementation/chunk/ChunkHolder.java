@@ -1,5 +1,6 @@
 package com.fastasyncworldedit.core.queue.implementation.chunk;
 
+import com.fastasyncworldedit.core.configuration.Settings;
 import com.fastasyncworldedit.core.extent.filter.block.ChunkFilterBlock;
 import com.fastasyncworldedit.core.extent.processor.EmptyBatchProcessor;
 import com.fastasyncworldedit.core.extent.processor.heightmap.HeightMapType;
@@ -10,6 +11,7 @@
 import com.fastasyncworldedit.core.queue.IQueueChunk;
 import com.fastasyncworldedit.core.queue.IQueueExtent;
 import com.fastasyncworldedit.core.queue.implementation.ParallelQueueExtent;
+import com.fastasyncworldedit.core.queue.implementation.blocks.CharGetBlocks;
 import com.fastasyncworldedit.core.util.MemUtil;
 import com.sk89q.jnbt.CompoundTag;
 import com.sk89q.worldedit.internal.util.LogManagerCompat;
@@ -903,6 +905,10 @@ public synchronized void filterBlocks(Filter filter, ChunkFilterBlock block, @Nu
             block.filter(this, get, set, filter, region, full);
         } finally {
             filter.finishChunk(this);
+            // The chunk may wait in the queue for a while before it is submitted
+            if (Settings.settings().QUEUE.PACK_GET_SECTIONS && get instanceof CharGetBlocks charGet) {
+                charGet.pack();
+            }
         }
     }
 
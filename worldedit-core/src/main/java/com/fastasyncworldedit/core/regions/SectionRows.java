@@ -0,0 +1,145 @@
+package com.fastasyncworldedit.core.regions;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.Region;
+
+import java.util.Arrays;
+
+/**
+ * Helpers for rasterizing a {@link Region} into a single 16x16x16 chunk section.
+ * <p>
+ * A rasterized section is a {@code char[256]} with one 16 bit row per {@code y << 4 | z}, where bit {@code x} is set if
+ * the block at {@code (x, y, z)} relative to the section's minimum corner lies inside the region.
+ *
+ * @see Region#getSectionRows(int, int, int, char[])
+ */
+public final class SectionRows {
+
+    /**
+     * No block of the section is inside the region. Row contents are undefined.
+     */
+    public static final int EMPTY = 0;
+    /**
+     * Some blocks of the section are inside the region, as described by the rows.
+     */
+    public static final int PARTIAL = 1;
+    /**
+     * Every block of the section is inside the region. Row contents are undefined.
+     */
+    public static final int FULL = 2;
+
+    /**
+     * Number of rows in a section.
+     */
+    public static final int ROWS = 256;
+
+    private static final char FULL_ROW = 0xFFFF;
+
+    private SectionRows() {
+    }
+
+    /**
+     * Get a row with the bits {@code from} to {@code to} (inclusive) set, clamped to the section.
+     */
+    public static char run(int from, int to) {
+        from = Math.max(from, 0);
+        to = Math.min(to, 15);
+        if (from > to) {
+            return 0;
+        }
+        return (char) ((FULL_ROW >>> (15 - to)) & (FULL_ROW << from));
+    }
+
+    /**
+     * Get whether the section is empty, full or partially covered by the given rows.
+     */
+    public static int summarize(char[] rows) {
+        boolean any = false;
+        boolean all = true;
+        for (char row : rows) {
+            any |= row != 0;
+            all &= row == FULL_ROW;
+        }
+        return all ? FULL : any ? PARTIAL : EMPTY;
+    }
+
+    /**
+     * Check the section against the bounding box of a region.
+     *
+     * @param min minimum point of the region
+     * @param max maximum point of the region
+     * @param bx  minimum x of the section
+     * @param by  minimum y of the section
+     * @param bz  minimum z of the section
+     * @return false if the section and the box don't intersect
+     */
+    public static boolean intersects(BlockVector3 min, BlockVector3 max, int bx, int by, int bz) {
+        return bx + 15 >= min.x() && bx <= max.x()
+                && by + 15 >= min.y() && by <= max.y()
+                && bz + 15 >= min.z() && bz <= max.z();
+    }
+
+    /**
+     * Rasterize a section by testing every block inside the region's bounding box with {@link Region#contains(int, int, int)}.
+     * Used by regions without an analytic implementation.
+     *
+     * @param region region to rasterize
+     * @param bx     minimum x of the section
+     * @param by     minimum y of the section
+     * @param bz     minimum z of the section
+     * @param rows   rows to write to
+     * @return {@link #EMPTY}, {@link #PARTIAL} or {@link #FULL}
+     */
+    public static int rasterize(Region region, int bx, int by, int bz, char[] rows) {
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        if (!intersects(min, max, bx, by, bz)) {
+            return EMPTY;
+        }
+        Arrays.fill(rows, (char) 0);
+        int minX = Math.max(min.x() - bx, 0);
+        int maxX = Math.min(max.x() - bx, 15);
+        int minY = Math.max(min.y() - by, 0);
+        int maxY = Math.min(max.y() - by, 15);
+        int minZ = Math.max(min.z() - bz, 0);
+        int maxZ = Math.min(max.z() - bz, 15);
+        for (int y = minY; y <= maxY; y++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                int row = 0;
+                for (int x = minX; x <= maxX; x++) {
+                    if (region.contains(bx + x, by + y, bz + z)) {
+                        row |= 1 << x;
+                    }
+                }
+                rows[y << 4 | z] = (char) row;
+            }
+        }
+        return summarize(rows);
+    }
+
+    /**
+     * Compute a row of a convex region from an approximate analytic x-interval. The interval is widened by a block on each
+     * side to absorb rounding and then tightened with {@link Region#contains(int, int, int)}, so the result is exact as long
+     * as the real interval lies within the widened one.
+     *
+     * @param region convex region
+     * @param bx     minimum x of the section
+     * @param y      absolute y of the row
+     * @param z      absolute z of the row
+     * @param minX   approximate absolute minimum x inside the region
+     * @param maxX   approximate absolute maximum x inside the region
+     * @return the row bits
+     */
+    public static char convexRow(Region region, int bx, int y, int z, double minX, double maxX) {
+        int from = (int) Math.max(Math.floor(minX) - 1 - bx, 0);
+        int to = (int) Math.min(Math.ceil(maxX) + 1 - bx, 15);
+        while (from <= to && !region.contains(bx + from, y, z)) {
+            from++;
+        }
+        while (to > from && !region.contains(bx + to, y, z)) {
+            to--;
+        }
+        return run(from, to);
+    }
+
+}
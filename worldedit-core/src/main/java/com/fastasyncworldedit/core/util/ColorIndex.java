@@ -0,0 +1,137 @@
+package com.fastasyncworldedit.core.util;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+
+/**
+ * A k-d tree over RGB colors, finding the color nearest to another by {@link TextureUtil#colorDistance(int, int)}.
+ * <p>
+ * That distance isn't euclidean, but is never less than {@code 2 * dr^2 + 4 * dg^2 + 2 * db^2}, which is used to skip
+ * subtrees that can't contain a nearer color. Results match a linear scan of the colors, including which of several equally
+ * near colors is returned. Immutable, so it may be queried from multiple threads.
+ */
+final class ColorIndex {
+
+    private static final int[] SHIFTS = {16, 8, 0};
+    private static final int[] WEIGHTS = {2, 4, 2};
+
+    private final boolean matchAlpha;
+    // Colors and their original indices in tree order, grouped by alpha if matching alpha
+    private final int[] colors;
+    private final int[] indices;
+    private final int[] groupStart = new int[256];
+    private final int[] groupEnd = new int[256];
+
+    /**
+     * Create a new index.
+     *
+     * @param colors     ARGB colors to index
+     * @param matchAlpha if only colors with the same alpha as the color searched for should be matched
+     */
+    ColorIndex(int[] colors, boolean matchAlpha) {
+        this.matchAlpha = matchAlpha;
+        this.colors = new int[colors.length];
+        this.indices = new int[colors.length];
+        int[] order = new int[colors.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        if (matchAlpha) {
+            IntArrays.stableSort(order, (a, b) -> Integer.compare(colors[a] >>> 24, colors[b] >>> 24));
+        }
+        for (int start = 0; start < order.length; ) {
+            int alpha = matchAlpha ? colors[order[start]] >>> 24 : 0;
+            int end = start + 1;
+            while (end < order.length && (!matchAlpha || colors[order[end]] >>> 24 == alpha)) {
+                end++;
+            }
+            groupStart[alpha] = start;
+            groupEnd[alpha] = end;
+            build(colors, order, start, end, 0);
+            start = end;
+        }
+        for (int i = 0; i < order.length; i++) {
+            this.colors[i] = colors[order[i]];
+            this.indices[i] = order[i];
+        }
+    }
+
+    private static void build(int[] colors, int[] order, int lo, int hi, int axis) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int shift = SHIFTS[axis];
+        IntArrays.quickSort(order, lo, hi, (a, b) -> Integer.compare((colors[a] >> shift) & 0xFF, (colors[b] >> shift) & 0xFF));
+        int mid = (lo + hi) >>> 1;
+        int next = axis == 2 ? 0 : axis + 1;
+        build(colors, order, lo, mid, next);
+        build(colors, order, mid + 1, hi, next);
+    }
+
+    /**
+     * Find the nearest color.
+     *
+     * @param color       color to match
+     * @param excludeSelf if colors equal to the color to match should be skipped
+     * @return index of the nearest color in the indexed array, or -1 if no color matches
+     */
+    int getNearest(int color, boolean excludeSelf) {
+        int group = matchAlpha ? color >>> 24 : 0;
+        Search search = new Search(color, excludeSelf);
+        search(search, groupStart[group], groupEnd[group], 0);
+        return search.index;
+    }
+
+    private void search(Search search, int lo, int hi, int axis) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int other = colors[mid];
+            if (!search.excludeSelf || other != search.color) {
+                long distance = TextureUtil.colorDistance(search.red, search.green, search.blue, other);
+                int index = indices[mid];
+                if (distance < search.min || (distance == search.min && index < search.index)) {
+                    search.min = distance;
+                    search.index = index;
+                }
+            }
+            int shift = SHIFTS[axis];
+            int diff = ((search.color >> shift) & 0xFF) - ((other >> shift) & 0xFF);
+            long bound = (long) WEIGHTS[axis] * diff * diff;
+            int next = axis == 2 ? 0 : axis + 1;
+            if (diff < 0) {
+                search(search, lo, mid, next);
+                if (bound > search.min) {
+                    return;
+                }
+                lo = mid + 1;
+            } else {
+                search(search, mid + 1, hi, next);
+                if (bound > search.min) {
+                    return;
+                }
+                hi = mid;
+            }
+            axis = next;
+        }
+    }
+
+    private static final class Search {
+
+        private final int color;
+        private final int red;
+        private final int green;
+        private final int blue;
+        private final boolean excludeSelf;
+        private long min = Long.MAX_VALUE;
+        private int index = -1;
+
+        private Search(int color, boolean excludeSelf) {
+            this.color = color;
+            this.red = (color >> 16) & 0xFF;
+            this.green = (color >> 8) & 0xFF;
+            this.blue = color & 0xFF;
+            this.excludeSelf = excludeSelf;
+        }
+
+    }
+
+}
@@ -343,6 +343,11 @@ public class TextureUtil implements TextureHolder {
     protected int[][] validLayerBlocks;
     protected int[] validMixBiomeColors;
     protected long[] validMixBiomeIds;
+    // Indexes of the valid colors, rebuilt by calculateLayerArrays
+    private ColorIndex blockIndex;
+    private ColorIndex layerIndex;
+    private ColorIndex mixBiomeIndex;
+    private ColorIndex biomeIndex;
     /**
      * https://github.com/erich666/Mineways/blob/master/Win/biomes.cpp
      */
@@ -474,7 +479,7 @@ protected static long colorDistance(int c1, int c2) {
         return colorDistance(red1, green1, blue1, c2);
     }
 
-    private static long colorDistance(int red1, int green1, int blue1, int c2) {
+    static long colorDistance(int red1, int green1, int blue1, int c2) {
         int red2 = (c2 >> 16) & 0xFF;
         int green2 = (c2 >> 8) & 0xFF;
         int blue2 = (c2) & 0xFF;
@@ -665,26 +670,11 @@ public TextureUtil getTextureUtil() {
      * @return matching block
      */
     public BlockType getNearestBlock(int color) {
-        long min = Long.MAX_VALUE;
-        int closest = 0;
-        int red1 = (color >> 16) & 0xFF;
-        int green1 = (color >> 8) & 0xFF;
-        int blue1 = (color) & 0xFF;
-        int alpha = (color >> 24) & 0xFF;
-        for (int i = 0; i < validColors.length; i++) {
-            int other = validColors[i];
-            if (((other >> 24) & 0xFF) == alpha) {
-                long distance = colorDistance(red1, green1, blue1, other);
-                if (distance < min) {
-                    min = distance;
-                    closest = validBlockIds[i];
-                }
-            }
-        }
-        if (min == Long.MAX_VALUE) {
+        int index = blockIndex.getNearest(color, false);
+        if (index == -1) {
             return null;
         }
-        return BlockTypesCache.values[closest];
+        return BlockTypesCache.values[validBlockIds[index]];
     }
 
     /**
@@ -694,48 +684,22 @@ public BlockType getNearestBlock(int color) {
      * @return matching block
      */
     public BlockType getNextNearestBlock(int color) {
-        long min = Long.MAX_VALUE;
-        int closest = 0;
-        int red1 = (color >> 16) & 0xFF;
-        int green1 = (color >> 8) & 0xFF;
-        int blue1 = (color) & 0xFF;
-        int alpha = (color >> 24) & 0xFF;
-        for (int i = 0; i < validColors.length; i++) {
-            int other = validColors[i];
-            if (other != color && ((other >> 24) & 0xFF) == alpha) {
-                long distance = colorDistance(red1, green1, blue1, other);
-                if (distance < min) {
-                    min = distance;
-                    closest = validBlockIds[i];
-                }
-            }
-        }
-        if (min == Long.MAX_VALUE) {
+        int index = blockIndex.getNearest(color, true);
+        if (index == -1) {
             return null;
         }
-        return BlockTypesCache.values[closest];
+        return BlockTypesCache.values[validBlockIds[index]];
     }
 
     /**
      * Returns the block combined ids as an array.
      */
     public BlockType[] getNearestLayer(int color) {
-        int[] closest = null;
-        long min = Long.MAX_VALUE;
-        int red1 = (color >> 16) & 0xFF;
-        int green1 = (color >> 8) & 0xFF;
-        int blue1 = (color) & 0xFF;
-        int alpha = (color >> 24) & 0xFF;
-        for (int i = 0; i < validLayerColors.length; i++) {
-            int other = validLayerColors[i];
-            if (((other >> 24) & 0xFF) == alpha) {
-                long distance = colorDistance(red1, green1, blue1, other);
-                if (distance < min) {
-                    min = distance;
-                    closest = validLayerBlocks[i];
-                }
-            }
+        int index = layerIndex.getNearest(color, false);
+        if (index == -1) {
+            return null;
         }
+        int[] closest = validLayerBlocks[index];
         layerBuffer[0] = BlockTypesCache.values[closest[0]];
         layerBuffer[1] = BlockTypesCache.values[closest[1]];
         return layerBuffer;
@@ -826,21 +790,10 @@ protected boolean getIsBlockCloserThanBiome(char[] blockAndBiomeIdOutput, int co
     protected int getBiomeMix(int[] biomeIdsOutput, int color) {
         long closest = Long.MAX_VALUE;
         int closestAverage = Integer.MAX_VALUE;
-        long min = Long.MAX_VALUE;
-        int red1 = (color >> 16) & 0xFF;
-        int green1 = (color >> 8) & 0xFF;
-        int blue1 = (color) & 0xFF;
-        int alpha = (color >> 24) & 0xFF;
-        for (int i = 0; i < validMixBiomeColors.length; i++) {
-            int other = validMixBiomeColors[i];
-            if (((other >> 24) & 0xFF) == alpha) {
-                long distance = colorDistance(red1, green1, blue1, other);
-                if (distance < min) {
-                    min = distance;
-                    closest = validMixBiomeIds[i];
-                    closestAverage = other;
-                }
-            }
+        int index = mixBiomeIndex.getNearest(color, false);
+        if (index != -1) {
+            closest = validMixBiomeIds[index];
+            closestAverage = validMixBiomeColors[index];
         }
         biomeIdsOutput[0] = (int) ((closest) & 0xFF);
         biomeIdsOutput[1] = (int) ((closest >> 8) & 0xFF);
@@ -859,19 +812,8 @@ public BiomeColor getNearestBiome(int color) {
         if (grass == 0) {
             return null;
         }
-        BiomeColor closest = null;
-        long min = Long.MAX_VALUE;
-        int red = (color >> 16) & 0xFF;
-        int green = (color >> 8) & 0xFF;
-        int blue = (color) & 0xFF;
-        for (BiomeColor biome : validBiomes) {
-            long distance = colorDistance(red, green, blue, biome.grassCombined);
-            if (distance < min) {
-                min = distance;
-                closest = biome;
-            }
-        }
-        return closest;
+        int index = biomeIndex.getNearest(color, false);
+        return index == -1 ? null : validBiomes[index];
     }
 
     protected File getFolder() {
@@ -1133,6 +1075,22 @@ protected void calculateLayerArrays() {
             validLayerColors[index] = entry.getIntKey();
             validLayerBlocks[index++] = entry.getValue();
         }
+        calculateColorIndexes();
+    }
+
+    private void calculateColorIndexes() {
+        blockIndex = new ColorIndex(validColors, true);
+        layerIndex = new ColorIndex(validLayerColors, true);
+        mixBiomeIndex = new ColorIndex(validMixBiomeColors != null ? validMixBiomeColors : new int[0], true);
+        if (validBiomes != null) {
+            int[] biomeColors = new int[validBiomes.length];
+            for (int i = 0; i < validBiomes.length; i++) {
+                biomeColors[i] = validBiomes[i].grassCombined;
+            }
+            biomeIndex = new ColorIndex(biomeColors, false);
+        } else {
+            biomeIndex = new ColorIndex(new int[0], false);
+        }
     }
 
     protected BlockType getNearestBlock(BlockType block, boolean darker) {
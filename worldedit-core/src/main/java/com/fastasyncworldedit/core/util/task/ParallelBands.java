@@ -0,0 +1,66 @@
+package com.fastasyncworldedit.core.util.task;
+
+import com.fastasyncworldedit.core.Fawe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Splits a range of rows, slabs or any other independent units of work into bands that are processed in parallel on the
+ * primary fork join pool of the queue handler.
+ */
+public final class ParallelBands {
+
+    private ParallelBands() {
+    }
+
+    /**
+     * Run a task over bands of {@code [0, size)}, waiting for all of them. Runs the task once over the whole range on the
+     * calling thread if there is only one band or FAWE isn't running, as in tests.
+     *
+     * @param size  the number of units
+     * @param bands the number of bands to split the units into, bands are at most one unit apart in size
+     * @param task  task given the first unit and the unit after the last unit of a band
+     */
+    public static void forEach(int size, int bands, Band task) {
+        bands = Math.min(bands, size);
+        if (bands <= 1 || Fawe.instance() == null) {
+            task.apply(0, size);
+            return;
+        }
+        List<Callable<Object>> tasks = new ArrayList<>(bands);
+        for (int i = 0; i < bands; i++) {
+            int min = (int) ((long) size * i / bands);
+            int max = (int) ((long) size * (i + 1) / bands);
+            tasks.add(() -> {
+                task.apply(min, max);
+                return null;
+            });
+        }
+        try {
+            for (Future<Object> future : Fawe.instance().getQueueHandler().getForkJoinPoolPrimary().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Work on a band of units. Bands run on several threads at once, so must not modify shared state other than their own
+     * units.
+     */
+    @FunctionalInterface
+    public interface Band {
+
+        void apply(int min, int max);
+
+    }
+
+}
@@ -0,0 +1,213 @@
+package com.fastasyncworldedit.core.world.snapshot;
+
+import com.fastasyncworldedit.core.Fawe;
+import com.fastasyncworldedit.core.math.MutableBlockVector3;
+import com.fastasyncworldedit.core.regions.SectionRows;
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.world.DataException;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.chunk.Chunk;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Streams snapshot chunks into an {@link EditSession} for a snapshot restore.
+ * <p>
+ * Only the chunk positions are computed up front. Chunks are loaded and decoded a few at a time ahead of the writer on the
+ * secondary fork join pool, and the blocks of each chunk inside the region are written as soon as it is available, so at
+ * most {@link #getLookahead()} decoded chunks are held in memory at once.
+ */
+public final class SnapshotChunkStream {
+
+    /**
+     * Loads and decodes a snapshot chunk. Called from multiple threads at once, so implementations must synchronize access
+     * to state that isn't thread safe, such as region file readers.
+     */
+    @FunctionalInterface
+    public interface ChunkLoader {
+
+        Chunk load(BlockVector2 position) throws DataException, IOException;
+
+    }
+
+    /**
+     * Receives loaded chunks, in the order of the chunk list, on the thread calling {@link #stream}.
+     */
+    @FunctionalInterface
+    public interface ChunkConsumer {
+
+        void accept(BlockVector2 position, Chunk chunk) throws MaxChangedBlocksException;
+
+    }
+
+    /**
+     * Receives chunks that failed to load, in the order of the chunk list, on the thread calling {@link #stream}.
+     */
+    @FunctionalInterface
+    public interface ErrorConsumer {
+
+        void accept(BlockVector2 position, Exception exception);
+
+    }
+
+    private final int lookahead;
+    private long peakMemory;
+
+    /**
+     * Create a new stream loading as many chunks ahead as there are processors.
+     */
+    public SnapshotChunkStream() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a new stream.
+     *
+     * @param lookahead maximum number of chunks being loaded or waiting to be written at once
+     */
+    public SnapshotChunkStream(int lookahead) {
+        this.lookahead = Math.max(1, lookahead);
+    }
+
+    /**
+     * Get the chunks intersecting a region, ordered by x then z so neighbouring chunks are read from the same region file.
+     *
+     * @param region the region
+     * @return chunk positions
+     */
+    public static List<BlockVector2> getChunks(Region region) {
+        List<BlockVector2> chunks = new ArrayList<>(region.getChunks());
+        chunks.sort(Comparator.comparingInt(BlockVector2::x).thenComparingInt(BlockVector2::z));
+        return chunks;
+    }
+
+    /**
+     * Load the given chunks in parallel and pass them to the consumers in order.
+     *
+     * @param chunks   chunk positions
+     * @param loader   loads a chunk, called from worker threads
+     * @param consumer receives loaded chunks
+     * @param errors   receives chunks that failed to load
+     * @throws MaxChangedBlocksException if thrown by the consumer
+     */
+    public void stream(List<BlockVector2> chunks, ChunkLoader loader, ChunkConsumer consumer, ErrorConsumer errors)
+            throws MaxChangedBlocksException {
+        ExecutorService executor = Fawe.instance().getQueueHandler().getForkJoinPoolSecondary();
+        ArrayDeque<Map.Entry<BlockVector2, Future<Chunk>>> pending = new ArrayDeque<>(lookahead);
+        Iterator<BlockVector2> iterator = chunks.iterator();
+        try {
+            while (!pending.isEmpty() || iterator.hasNext()) {
+                while (pending.size() < lookahead && iterator.hasNext()) {
+                    BlockVector2 position = iterator.next();
+                    pending.add(Map.entry(position, executor.submit(() -> loader.load(position))));
+                }
+                Map.Entry<BlockVector2, Future<Chunk>> entry = pending.poll();
+                Chunk chunk;
+                try {
+                    chunk = entry.getValue().get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception exception) {
+                        errors.accept(entry.getKey(), exception);
+                        continue;
+                    }
+                    throw new RuntimeException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+                consumer.accept(entry.getKey(), chunk);
+                Runtime runtime = Runtime.getRuntime();
+                peakMemory = Math.max(peakMemory, runtime.totalMemory() - runtime.freeMemory());
+            }
+        } finally {
+            for (Map.Entry<BlockVector2, Future<Chunk>> entry : pending) {
+                entry.getValue().cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Copy the blocks of a snapshot chunk inside the region to the edit session, respecting the edit session's mask.
+     * Blocks that cannot be read from the chunk are skipped.
+     *
+     * @param chunk         the snapshot chunk
+     * @param position      the chunk's position
+     * @param region        the region to restore
+     * @param editSession   the edit session to write to
+     * @param restoreBiomes if biomes should be restored
+     * @throws MaxChangedBlocksException if the max block change limit is exceeded
+     */
+    public static void copyChunk(
+            Chunk chunk,
+            BlockVector2 position,
+            Region region,
+            EditSession editSession,
+            boolean restoreBiomes
+    ) throws MaxChangedBlocksException {
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        Mask mask = editSession.getMask();
+        MutableBlockVector3 pos = new MutableBlockVector3();
+        char[] rows = new char[SectionRows.ROWS];
+        int bx = position.x() << 4;
+        int bz = position.z() << 4;
+        for (int layer = min.y() >> 4; layer <= max.y() >> 4; layer++) {
+            int result = region.getSectionRows(position.x(), layer, position.z(), rows);
+            if (result == SectionRows.EMPTY) {
+                continue;
+            }
+            int by = layer << 4;
+            for (int ly = 0; ly < 16; ly++) {
+                for (int lz = 0; lz < 16; lz++) {
+                    int row = result == SectionRows.FULL ? 0xFFFF : rows[ly << 4 | lz];
+                    while (row != 0) {
+                        int lx = Integer.numberOfTrailingZeros(row);
+                        row &= row - 1;
+                        pos.setComponents(bx + lx, by + ly, bz + lz);
+                        if (mask != null && !mask.test(pos)) {
+                            continue;
+                        }
+                        try {
+                            BaseBlock block = chunk.getBlock(pos);
+                            editSession.setBlock(pos.x(), pos.y(), pos.z(), block);
+                            if (restoreBiomes && (lx & 3) == 0 && (ly & 3) == 0 && (lz & 3) == 0) {
+                                editSession.setBiome(pos.x(), pos.y(), pos.z(), chunk.getBiome(pos));
+                            }
+                        } catch (DataException e) {
+                            // this is a workaround: just ignore for now
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the maximum number of chunks loaded ahead of the writer.
+     */
+    public int getLookahead() {
+        return lookahead;
+    }
+
+    /**
+     * Get the highest heap usage in bytes sampled after each chunk was written.
+     */
+    public long getPeakMemory() {
+        return peakMemory;
+    }
+
+}
@@ -28,8 +28,11 @@
 import com.fastasyncworldedit.core.extent.ProcessedWEExtent;
 import com.fastasyncworldedit.core.extent.ResettableExtent;
 import com.fastasyncworldedit.core.extent.SingleRegionExtent;
+import com.fastasyncworldedit.core.extent.SnapshotExtent;
 import com.fastasyncworldedit.core.extent.SourceMaskExtent;
 import com.fastasyncworldedit.core.extent.clipboard.WorldCopyClipboard;
+import com.fastasyncworldedit.core.extent.filter.DeformFilter;
+import com.fastasyncworldedit.core.extent.filter.GenerateFilter;
 import com.fastasyncworldedit.core.extent.processor.ExtentBatchProcessorHolder;
 import com.fastasyncworldedit.core.extent.processor.lighting.NullRelighter;
 import com.fastasyncworldedit.core.extent.processor.lighting.Relighter;
@@ -932,14 +935,9 @@ public boolean setBiome(int x, int y, int z, BiomeType biome) {
      * @return height of highest block found or 'minY'
      */
     public int getHighestTerrainBlock(int x, int z, int minY, int maxY) {
-        //FAWE start - check movement blocker
-        for (int y = maxY; y >= minY; --y) {
-            if (getBlock(x, y, z).getBlockType().getMaterial().isMovementBlocker()) {
-                return y;
-            }
-            //FAWE end
-        }
-        return minY;
+        //FAWE start - let the extent scan the column, queues read chunk sections directly
+        return getExtent().getHighestTerrainBlock(x, z, minY, maxY);
+        //FAWE end
     }
 
     /**
@@ -1504,6 +1502,7 @@ public int fillXZ(BlockVector3 origin, Pattern pattern, double radius, int depth
         } else {
             visitor = new DownwardVisitor(mask, replace, origin.y(), (int) (radius * 2 + 1), minY, maxY, this);
         }
+        visitor.setParallel(Settings.settings().EXPERIMENTAL.PARALLEL_RECURSION);
         //FAWE end
 
         // Start at the origin
@@ -2031,6 +2030,7 @@ public int drainArea(BlockVector3 origin, double radius, boolean waterlogged, bo
         }
         //FAWE start - provide extent for preloading, min/max y
         RecursiveVisitor visitor = new RecursiveVisitor(mask, replace, (int) (radius * 2 + 1), minY, maxY, this);
+        visitor.setParallel(Settings.settings().EXPERIMENTAL.PARALLEL_RECURSION);
         //FAWE end
 
         // Around the origin in a 3x3 block
@@ -2076,6 +2076,7 @@ public int fixLiquid(BlockVector3 origin, double radius, BlockType fluid) throws
         BlockReplace replace = new BlockReplace(this, fluid.getDefaultState());
         //FAWE start - provide extent for preloading, world min/maxY
         NonRisingVisitor visitor = new NonRisingVisitor(mask, replace, Integer.MAX_VALUE, minY, maxY, this);
+        visitor.setParallel(Settings.settings().EXPERIMENTAL.PARALLEL_RECURSION);
         //FAWE end
 
         // Around the origin in a 3x3 block
@@ -2087,7 +2088,9 @@ public int fixLiquid(BlockVector3 origin, double radius, BlockType fluid) throws
 
         Operations.completeLegacy(visitor);
 
-        return visitor.getAffected();
+        //FAWE start - parallel visits count in the visitor
+        return this.changes = visitor.getAffected();
+        //FAWE end
     }
 
     /**
@@ -3055,6 +3058,26 @@ public int makeShape(
         final Variable dataVariable = expression.getSlots().getVariable("data")
                 .orElseThrow(IllegalStateException::new);
 
+        //FAWE start - evaluate solid shapes in parallel, reading from a snapshot of the region
+        if (!hollow && SnapshotExtent.canSnapshot(this, region)) {
+            SnapshotExtent snapshot = SnapshotExtent.create(this, region);
+            expression.setEnvironment(new WorldEditExpressionEnvironment(snapshot, unit, zero));
+            GenerateFilter filter = apply(region, new GenerateFilter(expression, pattern, zero, unit, timeout), true);
+            if (filter.getError() != null) {
+                throw new RuntimeException(filter.getError());
+            }
+            int changed = filter.getChanges();
+            this.changes += changed;
+            if (filter.getTimedOut() > 0) {
+                throw new ExpressionTimeoutException(
+                        String.format("%d blocks changed. %d blocks took too long to evaluate (increase with //timeout).",
+                                changed, filter.getTimedOut()
+                        ));
+            }
+            return changed;
+        }
+        //FAWE end
+
         final WorldEditExpressionEnvironment environment = new WorldEditExpressionEnvironment(this, unit, zero);
         expression.setEnvironment(environment);
 
@@ -3169,9 +3192,20 @@ public int deformRegion(
         final Variable z = expression.getSlots().getVariable("z")
                 .orElseThrow(IllegalStateException::new);
 
+        //FAWE start - evaluate in parallel, reading from a snapshot of the region
+        if (SnapshotExtent.canSnapshot(this, region)) {
+            SnapshotExtent snapshot = SnapshotExtent.create(this, region);
+            expression.setEnvironment(new WorldEditExpressionEnvironment(snapshot, unit, zero));
+            DeformFilter filter = apply(region, new DeformFilter(snapshot, expression, zero, unit, timeout, minY, maxY), true);
+            if (filter.getError() != null) {
+                throw new RuntimeException(filter.getError());
+            }
+            changes += filter.getChanges();
+            return changes;
+        }
+
         final WorldEditExpressionEnvironment environment = new WorldEditExpressionEnvironment(this, unit, zero);
         expression.setEnvironment(environment);
-        //FAWE start
         final Vector3 zero2 = zero.add(0.5, 0.5, 0.5);
 
         RegionVisitor visitor = new RegionVisitor(region, position -> {
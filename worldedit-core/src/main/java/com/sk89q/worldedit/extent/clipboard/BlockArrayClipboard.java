@@ -225,6 +225,11 @@ public boolean hasBiomes() {
         return getParent().hasBiomes();
     }
 
+    @Override
+    public boolean supportsConcurrentReads() {
+        return getParent().supportsConcurrentReads();
+    }
+
     @Override
     public BiomeType getBiome(BlockVector3 position) {
         if (!region.contains(position)) {
@@ -239,6 +239,16 @@ default void close() {
     default void flush() {
     }
 
+    /**
+     * Returns true if blocks of the clipboard can be read from several threads at once, as long as nothing is written to it
+     * meanwhile.
+     *
+     * @return true if the clipboard can be read concurrently
+     */
+    default boolean supportsConcurrentReads() {
+        return false;
+    }
+
     /**
      * Forwards to {@link #paste(World, BlockVector3, boolean, boolean, Transform)}.
      */
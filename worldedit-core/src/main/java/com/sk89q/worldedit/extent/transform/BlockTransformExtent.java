@@ -50,13 +50,13 @@
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.sk89q.worldedit.util.Direction.ASCENDING_EAST;
@@ -106,12 +106,18 @@ public class BlockTransformExtent extends ResettableExtent {
             WEST, PropertyKey.WEST
     );
 
-    private final int[] ALL = new int[0];
+    /**
+     * Ordinal to transformed ordinal tables of axis-aligned transforms, shared by all extents and filled lazily. 0 marks an
+     * ordinal not transformed yet, as ordinal 0 is never directional.
+     */
+    private static final Map<Integer, char[]> SHARED_TRANSFORMS = new ConcurrentHashMap<>();
+    // Block type ids with a directional property, by block type id
+    private static volatile boolean[] DIRECTIONAL_TYPES;
+
     private Transform transform;
     private Transform transformInverse;
-    private int[] BLOCK_ROTATION_BITMASK;
-    private int[][] BLOCK_TRANSFORM;
-    private int[][] BLOCK_TRANSFORM_INVERSE;
+    private char[] BLOCK_TRANSFORM;
+    private char[] BLOCK_TRANSFORM_INVERSE;
 
     public BlockTransformExtent(Extent parent) {
         this(parent, new AffineTransform());
@@ -319,7 +325,7 @@ private static boolean hasIndex(long mask, int index) {
     }
 
     @Nullable
-    private static Integer getNewStateIndex(Transform transform, long[] directions, int oldIndex) {
+    static Integer getNewStateIndex(Transform transform, long[] directions, int oldIndex) {
         long oldDirMask = directions[oldIndex];
         if (oldDirMask == 0) {
             return null;
@@ -459,25 +465,65 @@ private static int transformState(BlockState state, Transform transform) {
 
 
     private void cache() {
-        BLOCK_ROTATION_BITMASK = new int[BlockTypes.size()];
-        BLOCK_TRANSFORM = new int[BlockTypes.size()][];
-        BLOCK_TRANSFORM_INVERSE = new int[BlockTypes.size()][];
-        for (int i = 0; i < BLOCK_TRANSFORM.length; i++) {
-            BLOCK_TRANSFORM[i] = ALL;
-            BLOCK_TRANSFORM_INVERSE[i] = ALL;
-            BlockType type = BlockTypes.get(i);
-            int bitMask = 0;
-            for (AbstractProperty property : (Collection<AbstractProperty>) (Collection) type.getProperties()) {
-                if (isDirectional(property)) {
-                    BLOCK_TRANSFORM[i] = null;
-                    BLOCK_TRANSFORM_INVERSE[i] = null;
-                    bitMask |= property.getBitMask();
+        BLOCK_TRANSFORM = getTransformTable(transform);
+        BLOCK_TRANSFORM_INVERSE = getTransformTable(transformInverse);
+    }
+
+    private static boolean[] getDirectionalTypes() {
+        boolean[] directionalTypes = DIRECTIONAL_TYPES;
+        if (directionalTypes == null) {
+            directionalTypes = new boolean[BlockTypes.size()];
+            for (int i = 0; i < directionalTypes.length; i++) {
+                for (AbstractProperty property : (Collection<AbstractProperty>) (Collection) BlockTypes.get(i).getProperties()) {
+                    if (isDirectional(property)) {
+                        directionalTypes[i] = true;
+                        break;
+                    }
                 }
             }
-            if (bitMask != 0) {
-                BLOCK_ROTATION_BITMASK[i] = bitMask;
+            DIRECTIONAL_TYPES = directionalTypes;
+        }
+        return directionalTypes;
+    }
+
+    /**
+     * Get the table of transformed ordinals of a transform: shared if it is one of the axis-aligned rotations or flips,
+     * otherwise a new table.
+     */
+    private static char[] getTransformTable(Transform transform) {
+        int key = getAxisAlignedKey(transform);
+        if (key == -1) {
+            return new char[BlockTypesCache.states.length];
+        }
+        return SHARED_TRANSFORMS.computeIfAbsent(key, k -> new char[BlockTypesCache.states.length]);
+    }
+
+    /**
+     * Get a key identifying an {@link AffineTransform} without translation whose coefficients are all -1, 0 or 1, which
+     * includes the 48 rotations and flips of the axes. Transforms with the same key have the same coefficients, so they
+     * transform every state the same way and can share a table.
+     *
+     * @return the key, or -1 for other transforms
+     */
+    static int getAxisAlignedKey(Transform transform) {
+        if (!(transform instanceof AffineTransform affine)) {
+            return -1;
+        }
+        double[] c = affine.coefficients();
+        int key = 0;
+        for (int i = 0; i < c.length; i++) {
+            double value = c[i];
+            if ((i + 1) % 4 == 0) {
+                if (value != 0) {
+                    return -1;
+                }
+            } else if (value == 0 || value == 1 || value == -1) {
+                key = key * 3 + (int) value + 1;
+            } else {
+                return -1;
             }
         }
+        return key;
     }
     //FAWE end
 
@@ -490,36 +536,27 @@ public Transform getTransform() {
         return transform;
     }
 
-    /**
-     * Transform a block without making a copy.
-     *
-     * @param block   the block
-     * @param reverse true to transform in the opposite direction
-     * @return the same block
-     */
-    private <T extends BlockStateHolder<T>> T transformBlock(T block, boolean reverse) {
-        return transform(block, reverse ? transform.inverse() : transform);
-    }
-
+    //FAWE start - use the cached tables
     @Override
     public BlockState getBlock(BlockVector3 position) {
-        return transformBlock(super.getBlock(position), false).toImmutableState();
+        return transform(super.getBlock(position));
     }
 
     @Override
     public BlockState getBlock(int x, int y, int z) {
-        return transformBlock(super.getBlock(x, y, z), false).toImmutableState();
+        return transform(super.getBlock(x, y, z));
     }
 
     @Override
     public BaseBlock getFullBlock(BlockVector3 position) {
-        return transformBlock(super.getFullBlock(position), false).toBaseBlock();
+        return transform(super.getFullBlock(position));
     }
 
     @Override
     public BaseBlock getFullBlock(int x, int y, int z) {
-        return transformBlock(super.getFullBlock(x, y, z), false).toBaseBlock();
+        return transform(super.getFullBlock(x, y, z));
     }
+    //FAWE end
 
     @Override
     public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B block) throws WorldEditException {
@@ -553,8 +590,12 @@ public static <B extends BlockStateHolder<B>> B transform(@Nonnull B block, @Non
         // performance critical
         BlockState state = block.toImmutableState();
 
-        int transformedId = transformState(state, transform);
-        BlockState transformed = BlockState.getFromInternalId(transformedId);
+        BlockState transformed;
+        if (getAxisAlignedKey(transform) != -1) {
+            transformed = transform(state, getTransformTable(transform), transform);
+        } else {
+            transformed = BlockState.getFromInternalId(transformState(state, transform));
+        }
         boolean baseBlock = block instanceof BaseBlock;
         if (baseBlock && block.hasNbtData()) {
             return (B) transformBaseBlockNBT(transformed, block.getNbtData(), transform);
@@ -564,29 +605,19 @@ public static <B extends BlockStateHolder<B>> B transform(@Nonnull B block, @Non
     }
 
     //FAWE start - use own logic
-    private BlockState transform(BlockState state, int[][] transformArray, Transform transform) {
-        int typeId = state.getInternalBlockTypeId();
-        int[] arr = transformArray[typeId];
-        if (arr == ALL) {
+    private static BlockState transform(BlockState state, char[] table, Transform transform) {
+        if (!getDirectionalTypes()[state.getInternalBlockTypeId()]) {
             return state;
         }
-        if (arr == null) {
-            arr = transformArray[typeId] = new int[state.getBlockType().getMaxStateId() + 1];
-            Arrays.fill(arr, -1);
+        int ordinal = state.getOrdinal();
+        char transformed = table[ordinal];
+        if (transformed != 0) {
+            return BlockTypesCache.states[transformed];
         }
-        int mask = BLOCK_ROTATION_BITMASK[typeId];
-        int internalId = state.getInternalId();
-
-        int maskedId = internalId & mask;
-        int newMaskedId = arr[maskedId >> BlockTypesCache.BIT_OFFSET];
-        if (newMaskedId != -1) {
-            return BlockState.getFromInternalId(newMaskedId | (internalId & (~mask)));
-        }
-
-        newMaskedId = transformState(state, transform);
-
-        arr[maskedId >> BlockTypesCache.BIT_OFFSET] = newMaskedId & mask;
-        return BlockState.getFromInternalId(newMaskedId);
+        BlockState result = BlockState.getFromInternalId(transformState(state, transform));
+        // Racing threads compute the same value
+        table[ordinal] = result.getOrdinalChar();
+        return result;
     }
 
     public final BaseBlock transform(BlockStateHolder<BaseBlock> block) {
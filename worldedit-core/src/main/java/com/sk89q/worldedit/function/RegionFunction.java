@@ -46,5 +46,10 @@ public interface RegionFunction extends Filter {
     default void applyBlock(FilterBlock block) {
         apply(block);
     }
+
+    @Override
+    default RegionFunction fork() { // covariant return type
+        return this;
+    }
     //FAWE end
 }
@@ -55,4 +55,11 @@ public boolean apply(BlockVector3 position) throws WorldEditException {
         //FAWE end
     }
 
+    //FAWE start
+    @Override
+    public BlockReplace fork() {
+        return new BlockReplace(extent, pattern.fork());
+    }
+    //FAWE end
+
 }
@@ -208,6 +208,35 @@ public boolean test(BlockVector3 vector) {
         return ordinals[test] || replacesAir() && test == 0;
     }
 
+    @Override
+    public boolean testSection(char[] section, long[] result) {
+        final boolean[] ordinals = this.ordinals;
+        final boolean air = replacesAir();
+        for (int word = 0, index = 0; word < 64; word++) {
+            long bits = 0;
+            for (int bit = 0; bit < 64; bit++, index++) {
+                char ordinal = section[index];
+                if (ordinals[ordinal] || air && ordinal == 0) {
+                    bits |= 1L << bit;
+                }
+            }
+            result[word] = bits;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean mayMatchSection(char[] section) {
+        final boolean[] ordinals = this.ordinals;
+        final boolean air = replacesAir();
+        for (char ordinal : section) {
+            if (ordinals[ordinal] || air && ordinal == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public boolean replacesAir() {
         return ordinals[BlockTypesCache.ReservedIDs.AIR]
@@ -107,6 +107,40 @@ default boolean replacesAir() {
         return false;
     }
 
+    /**
+     * Whether {@link #testSection(char[], long[])} and {@link #mayMatchSection(char[])} can decide for a section, so callers
+     * can skip loading sections for masks that don't.
+     *
+     * @return true if this mask supports section testing
+     */
+    default boolean supportsSectionTest() {
+        return false;
+    }
+
+    /**
+     * Test every block of a chunk section at once, given only the section's block ordinals. Only masks whose result depends
+     * on nothing but the block state support this.
+     *
+     * @param ordinals block ordinals of the section, indexed {@code y << 8 | z << 4 | x}
+     * @param result   64 words to write to, bit {@code i & 63} of word {@code i >> 6} is set if the block at index {@code i}
+     *                 matches
+     * @return false if this mask does not support section testing, in which case the contents of result are undefined
+     */
+    default boolean testSection(char[] ordinals, long[] result) {
+        return false;
+    }
+
+    /**
+     * Check whether any block of a chunk section may match this mask, given only the section's block ordinals. This should be
+     * much cheaper than {@link #testSection(char[], long[])}, e.g. by returning as soon as a matching ordinal is found.
+     *
+     * @param ordinals block ordinals of the section, indexed {@code y << 8 | z << 4 | x}
+     * @return false only if it is certain that no block of the section matches
+     */
+    default boolean mayMatchSection(char[] ordinals) {
+        return true;
+    }
+
     /**
      * Returns a copy of the mask. Usually for multi-threaded operation
      *
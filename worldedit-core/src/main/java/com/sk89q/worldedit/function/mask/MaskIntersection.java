@@ -275,6 +275,46 @@ public boolean test(BlockVector3 vector) {
 
         return defaultReturn;
     }
+
+    @Override
+    public boolean supportsSectionTest() {
+        for (Mask mask : masksArray) {
+            if (!mask.supportsSectionTest()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean testSection(char[] ordinals, long[] result) {
+        if (!masksArray[0].testSection(ordinals, result)) {
+            return false;
+        }
+        long[] other = null;
+        for (int i = 1; i < masksArray.length; i++) {
+            if (other == null) {
+                other = new long[result.length];
+            }
+            if (!masksArray[i].testSection(ordinals, other)) {
+                return false;
+            }
+            for (int word = 0; word < result.length; word++) {
+                result[word] &= other[word];
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean mayMatchSection(char[] ordinals) {
+        for (Mask mask : masksArray) {
+            if (!mask.mayMatchSection(ordinals)) {
+                return false;
+            }
+        }
+        return true;
+    }
     //FAWE end
 
     @Nullable
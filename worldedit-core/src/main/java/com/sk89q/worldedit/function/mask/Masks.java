@@ -23,6 +23,7 @@
 import com.sk89q.worldedit.math.BlockVector3;
 
 import javax.annotation.Nullable;
+import java.util.Arrays;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -150,6 +151,17 @@ public Mask tryOr(Mask other) {
             return this;
         }
 
+        @Override
+        public boolean supportsSectionTest() {
+            return true;
+        }
+
+        @Override
+        public boolean testSection(char[] ordinals, long[] result) {
+            Arrays.fill(result, -1L);
+            return true;
+        }
+
         // No need to properly clone an always true mask
         @Override
         public Mask copy() {
@@ -196,6 +208,22 @@ public Mask tryOr(Mask other) {
             return other;
         }
 
+        @Override
+        public boolean supportsSectionTest() {
+            return true;
+        }
+
+        @Override
+        public boolean testSection(char[] ordinals, long[] result) {
+            Arrays.fill(result, 0L);
+            return true;
+        }
+
+        @Override
+        public boolean mayMatchSection(char[] ordinals) {
+            return false;
+        }
+
         // No need to properly clone an always false mask
         @Override
         public Mask copy() {
@@ -229,6 +257,22 @@ public Mask2D toMask2D() {
         }
 
         //FAWE start
+        @Override
+        public boolean supportsSectionTest() {
+            return mask.supportsSectionTest();
+        }
+
+        @Override
+        public boolean testSection(char[] ordinals, long[] result) {
+            if (!mask.testSection(ordinals, result)) {
+                return false;
+            }
+            for (int word = 0; word < result.length; word++) {
+                result[word] = ~result[word];
+            }
+            return true;
+        }
+
         @Override
         public Mask copy() {
             return Masks.negate(mask.copy());
@@ -22,6 +22,7 @@
 import com.fastasyncworldedit.core.configuration.Caption;
 import com.fastasyncworldedit.core.extent.BlockTranslateExtent;
 import com.fastasyncworldedit.core.extent.PositionTransformExtent;
+import com.fastasyncworldedit.core.extent.filter.TranslateCopyFilter;
 import com.fastasyncworldedit.core.function.RegionMaskTestFunction;
 import com.fastasyncworldedit.core.function.block.BiomeCopy;
 import com.fastasyncworldedit.core.function.block.CombinedBlockCopy;
@@ -32,10 +33,12 @@
 import com.fastasyncworldedit.core.util.MaskTraverser;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.entity.Entity;
 import com.sk89q.worldedit.entity.metadata.EntityProperties;
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
 import com.sk89q.worldedit.function.CombinedRegionFunction;
 import com.sk89q.worldedit.function.RegionFunction;
 import com.sk89q.worldedit.function.RegionMaskingFilter;
@@ -50,6 +53,7 @@
 import com.sk89q.worldedit.math.transform.Transform;
 import com.sk89q.worldedit.regions.FlatRegion;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.RegionOperationException;
 import com.sk89q.worldedit.util.formatting.text.Component;
 import com.sk89q.worldedit.util.formatting.text.TextComponent;
 
@@ -343,7 +347,12 @@ public Operation resume(RunContext run) throws WorldEditException {
             }
         }
 
-        if (blockCopy == null) {
+        int bulkAffected = -1;
+        if (blockCopy == null && transExt == null) {
+            bulkAffected = copyTranslated(translation);
+        }
+
+        if (blockCopy == null && bulkAffected == -1) {
             RegionFunction maskFunc = null;
 
             if (sourceFunction != null) {
@@ -418,7 +427,9 @@ public Operation resume(RunContext run) throws WorldEditException {
         }
 
         for (int i = 0; i < repetitions; i++) {
-            Operations.completeBlindly(blockCopy);
+            if (blockCopy != null) {
+                Operations.completeBlindly(blockCopy);
+            }
 
             if (!entities.isEmpty()) {
                 ExtentEntityCopy entityCopy = new ExtentEntityCopy(
@@ -445,7 +456,7 @@ public Operation resume(RunContext run) throws WorldEditException {
             }
 
         }
-        affectedBlocks += blockCopy.getAffected();
+        affectedBlocks += blockCopy != null ? blockCopy.getAffected() : bulkAffected;
         if (copyingBiomes) {
             // We know biomes will have happened unless something else has gone wrong. Just calculate it.
             affectedBiomeCols += source.fullySupports3DBiomes() ? (getAffected() >> 2) : (region.getWidth() * region.getLength());
@@ -454,6 +465,61 @@ public Operation resume(RunContext run) throws WorldEditException {
         return null;
     }
 
+    //FAWE start
+    /**
+     * Copy the region by applying a filter to the translated region in the destination, which sets blocks of the
+     * destination chunks directly and in parallel, if the copy is only translated and nothing but a source mask is applied
+     * to it. The destination must reach its queue only through extents passing filters through to it, see
+     * {@link ParallelQueueExtent#getDirectQueue(Extent)}, so no extent recording, limiting or checking blocks is skipped.
+     * The source must either be read through the same queue as the destination without overlapping it, or be a clipboard
+     * supporting concurrent reads. Blocks copied count as changes of an edit session destination.
+     *
+     * @param translation the offset from source to destination positions
+     * @return the number of blocks copied, or -1 if the copy can't be done this way
+     */
+    private int copyTranslated(BlockVector3 translation) {
+        if (sourceFunction != null || filterFunction != null || copyingBiomes) {
+            return -1;
+        }
+        if (!(ParallelQueueExtent.getDirectQueue(destination) instanceof ParallelQueueExtent destQueue)) {
+            return -1;
+        }
+        ParallelQueueExtent sourceQueue = new ExtentTraverser<>(source).findAndGet(ParallelQueueExtent.class);
+        if (sourceQueue != null) {
+            if (sourceQueue != destQueue) {
+                // Workers read any parallel queue through the queue of their own thread, which belongs to the destination
+                return -1;
+            }
+            BlockVector3 size = region.getMaximumPoint().subtract(region.getMinimumPoint()).add(1, 1, 1);
+            BlockVector3 disAbs = translation.abs();
+            if (disAbs.x() < size.x() && disAbs.y() < size.y() && disAbs.z() < size.z()) {
+                // Blocks written could be read again
+                return -1;
+            }
+        } else if (!(source instanceof Clipboard clipboard) || !clipboard.supportsConcurrentReads()) {
+            // Other sources may not be safe to read from the workers
+            return -1;
+        }
+        Region destRegion = region.clone();
+        try {
+            destRegion.shift(translation);
+        } catch (RegionOperationException e) {
+            return -1;
+        }
+        Mask mask = sourceMask == Masks.alwaysTrue() ? null : sourceMask;
+        if (mask != null) {
+            new MaskTraverser(mask).reset(source);
+        }
+        int affected = destination.apply(destRegion, new TranslateCopyFilter(source, mask, translation), true).getAffected();
+        // Blocks aren't set through the edit session, which must still count them to be remembered for undo
+        EditSession session = new ExtentTraverser<>(destination).findAndGet(EditSession.class);
+        if (session != null) {
+            session.setSize(session.size() + affected);
+        }
+        return affected;
+    }
+    //FAWE end
+
     @Override
     public void cancel() {
     }
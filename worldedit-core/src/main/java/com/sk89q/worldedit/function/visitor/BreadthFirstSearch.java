@@ -26,6 +26,7 @@
 import com.fastasyncworldedit.core.queue.implementation.ParallelQueueExtent;
 import com.fastasyncworldedit.core.queue.implementation.SingleThreadQueueExtent;
 import com.fastasyncworldedit.core.util.ExtentTraverser;
+import com.fastasyncworldedit.core.util.MathMan;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 import com.sk89q.worldedit.WorldEdit;
@@ -39,12 +40,16 @@
 import com.sk89q.worldedit.util.Direction;
 import com.sk89q.worldedit.util.formatting.text.Component;
 import com.sk89q.worldedit.util.formatting.text.TextComponent;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -93,6 +98,8 @@ public abstract class BreadthFirstSearch implements Operation {
     private final RegionFunction function;
     //FAWE start - allow chunk preloading and BVS > Queue<BV3>, Set<BV3>, List<BV3>
     private final SingleThreadQueueExtent singleQueue;
+    private LayerExecutor executor;
+    private boolean parallel;
     private BlockVectorSet queue = new BlockVectorSet();
     private BlockVectorSet visited = new BlockVectorSet();
     private BlockVector3[] directions;
@@ -150,7 +157,13 @@ public BreadthFirstSearch(RegionFunction function, int maxDepth, int minY, int m
         this.maxY = maxY;
         if (extent != null) {
             ExtentTraverser<ParallelQueueExtent> queueTraverser = new ExtentTraverser<>(extent).find(ParallelQueueExtent.class);
-            this.singleQueue = queueTraverser != null ? (SingleThreadQueueExtent) queueTraverser.get().getExtent() : null;
+            ParallelQueueExtent parallelQueue = queueTraverser != null ? queueTraverser.get() : null;
+            this.singleQueue = parallelQueue != null ? (SingleThreadQueueExtent) parallelQueue.getExtent() : null;
+            // Workers set blocks through the extent. Only passthrough extents may be on the way to the queue, as others such
+            // as the limit extent count blocks without synchronization. Callers take the change count from the search.
+            if (parallelQueue != null && ParallelQueueExtent.getDirectQueue(extent) == parallelQueue) {
+                this.executor = parallelQueue::forEach;
+            }
         } else {
             this.singleQueue = null;
         }
@@ -266,6 +279,57 @@ public boolean isVisited(BlockVector3 pos) {
     public void setMaxBranch(int maxBranch) {
         this.maxBranch = maxBranch;
     }
+
+    /**
+     * Set whether each layer of the search should be visited in parallel. The layer is split by chunk, and the chunks are
+     * visited on the worker threads of the {@link ParallelQueueExtent} of the extent given when creating the search, with
+     * a {@link #fork()} of this search per thread. Positions found are added to the next layer in chunk order, so the result
+     * doesn't depend on the number of threads.
+     * <p>
+     * The search runs on one thread if it can't be forked, or if the extent given doesn't pass calls straight through to
+     * a parallel queue, see {@link ParallelQueueExtent#getDirectQueue(Extent)}.
+     *
+     * @param parallel if layers should be visited in parallel
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Visit each layer in parallel using the given executor instead of the queue's workers.
+     */
+    void setParallel(LayerExecutor executor) {
+        this.executor = executor;
+        this.parallel = true;
+    }
+
+    /**
+     * Check if this search can be copied for other threads with {@link #fork()}.
+     *
+     * @return if the search can be forked
+     */
+    protected boolean canFork() {
+        return false;
+    }
+
+    /**
+     * Create a copy of this search for another thread visiting in parallel. Only the function and
+     * {@link #isVisitable(BlockVector3, BlockVector3)} of the copy are used. Only called if {@link #canFork()}.
+     *
+     * @return a copy whose function and test can be used concurrently with this search
+     */
+    protected BreadthFirstSearch fork() {
+        return null;
+    }
+
+    /**
+     * Get the function applied to visited blocks.
+     *
+     * @return the function
+     */
+    protected RegionFunction getFunction() {
+        return function;
+    }
     //FAWE end
 
     /**
@@ -294,6 +358,7 @@ public Operation resume(RunContext run) throws WorldEditException {
         BlockVector3[] dirs = directions;
         BlockVectorSet tempQueue = new BlockVectorSet();
         BlockVectorSet chunkLoadSet = new BlockVectorSet();
+        boolean parallel = this.parallel && executor != null && canFork();
         for (currentDepth = 0; !queue.isEmpty() && currentDepth <= maxDepth; currentDepth++) {
             int loadCount = 0;
             if (singleQueue != null && Settings.settings().QUEUE.PRELOAD_CHUNK_COUNT > 1) {
@@ -306,7 +371,7 @@ public Operation resume(RunContext run) throws WorldEditException {
                             break outer;
                         }
                         int x = from.x() + direction.x();
-                        int z = from.z() + direction.x();
+                        int z = from.z() + direction.z();
                         if (cx != (cx = x >> 4) || cz != (cz = z >> 4)) {
                             int y = from.y() + direction.y();
                             if (y < singleQueue.getMinY() || y > singleQueue.getMaxY()) {
@@ -323,23 +388,27 @@ public Operation resume(RunContext run) throws WorldEditException {
                     singleQueue.addChunkLoad(chunk.x(), chunk.z());
                 }
             }
-            for (BlockVector3 from : queue) {
-                if (function.apply(from)) {
-                    affected++;
-                }
-                for (int i = 0, j = 0; i < dirs.length && j < maxBranch; i++) {
-                    BlockVector3 direction = dirs[i];
-                    int y = from.y() + direction.y();
-                    if (y < minY || y > maxY) {
-                        continue;
+            if (parallel) {
+                visitParallel(tempQueue);
+            } else {
+                for (BlockVector3 from : queue) {
+                    if (function.apply(from)) {
+                        affected++;
                     }
-                    int x = from.x() + direction.x();
-                    int z = from.z() + direction.z();
-                    if (!visited.contains(x, y, z)) {
-                        if (isVisitable(from, mutable.setComponents(x, y, z))) {
-                            j++;
-                            visited.add(x, y, z);
-                            tempQueue.add(x, y, z);
+                    for (int i = 0, j = 0; i < dirs.length && j < maxBranch; i++) {
+                        BlockVector3 direction = dirs[i];
+                        int y = from.y() + direction.y();
+                        if (y < minY || y > maxY) {
+                            continue;
+                        }
+                        int x = from.x() + direction.x();
+                        int z = from.z() + direction.z();
+                        if (!visited.contains(x, y, z)) {
+                            if (isVisitable(from, mutable.setComponents(x, y, z))) {
+                                j++;
+                                visited.add(x, y, z);
+                                tempQueue.add(x, y, z);
+                            }
                         }
                     }
                 }
@@ -358,6 +427,81 @@ public Operation resume(RunContext run) throws WorldEditException {
     }
 
     //FAWE start
+    private void visitParallel(BlockVectorSet next) {
+        // Group the layer by chunk, in a fixed order
+        Long2ObjectOpenHashMap<ChunkLayer> chunks = new Long2ObjectOpenHashMap<>();
+        for (BlockVector3 from : queue) {
+            int x = from.x();
+            int z = from.z();
+            long pair = MathMan.pairInt(x >> 4, z >> 4);
+            ChunkLayer chunk = chunks.get(pair);
+            if (chunk == null) {
+                chunk = new ChunkLayer(pair);
+                chunks.put(pair, chunk);
+            }
+            chunk.positions.add(BlockVector3.at(x, from.y(), z));
+        }
+        List<ChunkLayer> layer = new ArrayList<>(chunks.values());
+        layer.sort(Comparator.comparingLong(chunk -> chunk.pair));
+        BlockVector3[] dirs = directions;
+        // The visited set is only read while visiting, and updated below
+        executor.forEach(layer, () -> {
+            BreadthFirstSearch search = fork();
+            MutableBlockVector3 mutable = new MutableBlockVector3();
+            return chunk -> {
+                for (BlockVector3 from : chunk.positions) {
+                    if (search.function.apply(from)) {
+                        chunk.affected++;
+                    }
+                    for (int i = 0, j = 0; i < dirs.length && j < maxBranch; i++) {
+                        BlockVector3 direction = dirs[i];
+                        int y = from.y() + direction.y();
+                        if (y < minY || y > maxY) {
+                            continue;
+                        }
+                        int x = from.x() + direction.x();
+                        int z = from.z() + direction.z();
+                        if (!visited.contains(x, y, z) && search.isVisitable(from, mutable.setComponents(x, y, z))) {
+                            j++;
+                            chunk.found.add(BlockVector3.at(x, y, z));
+                        }
+                    }
+                }
+            };
+        });
+        for (ChunkLayer chunk : layer) {
+            affected += chunk.affected;
+            for (BlockVector3 to : chunk.found) {
+                if (!visited.contains(to)) {
+                    visited.add(to);
+                    next.add(to);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the chunks of a layer, as done by {@link ParallelQueueExtent#forEach(List, Supplier)}.
+     */
+    interface LayerExecutor {
+
+        <T> void forEach(List<T> tasks, Supplier<Consumer<T>> workers);
+
+    }
+
+    private static final class ChunkLayer {
+
+        private final long pair;
+        private final List<BlockVector3> positions = new ArrayList<>();
+        private final List<BlockVector3> found = new ArrayList<>();
+        private int affected;
+
+        private ChunkLayer(long pair) {
+            this.pair = pair;
+        }
+
+    }
+
     public int getDepth() {
         return currentDepth;
     }
@@ -106,4 +106,16 @@ protected boolean isVisitable(BlockVector3 from, BlockVector3 to) {
         return (fromY == baseY || to.subtract(from).y() < 0) && super.isVisitable(from, to);
     }
 
+    //FAWE start
+    @Override
+    protected boolean canFork() {
+        return getClass() == DownwardVisitor.class;
+    }
+
+    @Override
+    protected BreadthFirstSearch fork() {
+        return new DownwardVisitor(getMask().copy(), getFunction().fork(), baseY, Integer.MAX_VALUE, minY, maxY);
+    }
+    //FAWE end
+
 }
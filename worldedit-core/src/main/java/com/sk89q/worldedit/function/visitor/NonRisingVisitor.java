@@ -83,6 +83,16 @@ public NonRisingVisitor(Mask mask, RegionFunction function, int depth, int minY,
                 BlockVector3.UNIT_MINUS_Y
         );
     }
+
+    @Override
+    protected boolean canFork() {
+        return getClass() == NonRisingVisitor.class;
+    }
+
+    @Override
+    protected BreadthFirstSearch fork() {
+        return new NonRisingVisitor(getMask().copy(), getFunction().fork(), Integer.MAX_VALUE, minY, maxY);
+    }
     //FAWE end
 
 }
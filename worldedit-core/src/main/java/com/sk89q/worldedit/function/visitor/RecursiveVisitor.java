@@ -89,4 +89,27 @@ protected boolean isVisitable(BlockVector3 from, BlockVector3 to) {
         return mask.test(to);
     }
 
+    //FAWE start
+
+    /**
+     * Get the mask.
+     *
+     * @return the mask
+     */
+    protected Mask getMask() {
+        return mask;
+    }
+
+    @Override
+    protected boolean canFork() {
+        // Subclasses with their own test must fork themselves
+        return getClass() == RecursiveVisitor.class;
+    }
+
+    @Override
+    protected BreadthFirstSearch fork() {
+        return new RecursiveVisitor(mask.copy(), getFunction().fork(), Integer.MAX_VALUE, minY, maxY);
+    }
+    //FAWE end
+
 }
@@ -19,31 +19,80 @@
 
 package com.sk89q.worldedit.internal.expression;
 
-import java.time.Instant;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Objects.requireNonNull;
 
-public record ExecutionData(SlotTable slots, Functions functions, Instant deadline) {
+//FAWE start - mutable class reused between evaluations instead of a record with an Instant deadline
+/**
+ * The state an expression is executed with. An {@link Expression} reuses its execution data for every evaluation, so it
+ * must only be used by one thread at a time.
+ */
+public final class ExecutionData {
+
     /**
      * Special execution context for evaluating constant values. As long as no variables are used, it can be considered
      * constant.
      */
-    public static final ExecutionData CONSTANT_EVALUATOR = new ExecutionData(null, null, Instant.MAX);
+    public static final ExecutionData CONSTANT_EVALUATOR = new ExecutionData(null, null, new LocalSlot.Variable[0]);
+
+    // The clock is only read every this many checks
+    private static final int TICKS_PER_CHECK = 64;
+
+    private final SlotTable slots;
+    private final Functions functions;
+    private final LocalSlot.Variable[] providedVariables;
+    private boolean timed;
+    private long deadline;
+    private int ticks;
+
+    /**
+     * Create new execution data without a deadline.
+     *
+     * @param slots             the slots of the expression
+     * @param functions         the functions of the expression
+     * @param providedVariables the variables provided to {@link Expression#evaluate(double...)}, by index
+     */
+    public ExecutionData(SlotTable slots, Functions functions, LocalSlot.Variable[] providedVariables) {
+        this.slots = slots;
+        this.functions = functions;
+        this.providedVariables = providedVariables;
+    }
 
-    @Override
     public SlotTable slots() {
         return requireNonNull(slots, "Cannot use variables in a constant");
     }
 
-    @Override
     public Functions functions() {
         return requireNonNull(functions, "Cannot use functions in a constant");
     }
 
+    /**
+     * Get a variable provided to {@link Expression#evaluate(double...)}.
+     *
+     * @param index index of the variable in the names the expression was compiled with
+     * @return the variable
+     */
+    public LocalSlot.Variable providedVariable(int index) {
+        return providedVariables[index];
+    }
+
+    /**
+     * Start the time limit for an evaluation.
+     *
+     * @param timeout time limit in milliseconds
+     */
+    void setTimeout(int timeout) {
+        this.timed = true;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        this.ticks = 0;
+    }
+
     public void checkDeadline() {
-        if (Instant.now().isAfter(deadline)) {
+        if (timed && ++ticks % TICKS_PER_CHECK == 0 && System.nanoTime() - deadline > 0) {
             throw new ExpressionTimeoutException("Calculations exceeded time limit.");
         }
     }
 
 }
+//FAWE end
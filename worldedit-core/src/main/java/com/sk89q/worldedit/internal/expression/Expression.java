@@ -31,11 +31,8 @@
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
-import java.time.Instant;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
-import java.util.Set;
 
 /**
  * Compiles and evaluates expressions.
@@ -74,6 +71,8 @@ public class Expression implements Cloneable {
     private final CompiledExpression compiledExpression;
     //FAWE start
     private final String initialExpression;
+    private final LocalSlot.Variable[] providedVariables;
+    private final ExecutionData executionData;
     //FAWE end
 
     public static Expression compile(String expression, String... variableNames) throws ExpressionException {
@@ -114,72 +113,66 @@ private Expression(String expression, String... variableNames) throws Expression
             throw new ParserException(parser.getState(), e);
         }
         ParseTreeWalker.DEFAULT.walk(new ExpressionValidator(slots.keySet(), functions), root);
-        this.compiledExpression = new ExpressionCompiler().compileExpression(root, functions);
+        //FAWE start - fold constants and bind provided variables
+        this.compiledExpression = new ExpressionCompiler().compileExpression(root, functions, slots, providedSlots);
+        this.providedVariables = bindVariables(slots, providedSlots);
+        this.executionData = new ExecutionData(slots, functions, providedVariables);
+        //FAWE end
     }
 
-    private Expression(String expression, Set<String> variableNames) throws ExpressionException {
-        this.initialExpression = expression;
+    //FAWE start
+    /**
+     * Create a copy sharing the parsed and compiled expression, with its own slots and functions.
+     */
+    private Expression(Expression other) {
+        this.initialExpression = other.initialExpression;
+        this.root = other.root;
+        this.compiledExpression = other.compiledExpression;
+        this.providedSlots = other.providedSlots;
 
         slots.putSlot("e", new LocalSlot.Constant(Math.E));
         slots.putSlot("pi", new LocalSlot.Constant(Math.PI));
         slots.putSlot("true", new LocalSlot.Constant(1));
         slots.putSlot("false", new LocalSlot.Constant(0));
 
-        for (String variableName : variableNames) {
-            slots.initVariable(variableName)
-                    .orElseThrow(() -> new ExpressionException(
-                            -1,
-                            "Tried to overwrite identifier '" + variableName + "'"
-                    ));
-        }
-        this.providedSlots = ImmutableList.copyOf(variableNames);
+        this.providedVariables = bindVariables(slots, providedSlots);
+        this.executionData = new ExecutionData(slots, functions, providedVariables);
+    }
 
-        CharStream cs = CharStreams.fromString(expression, "<input>");
-        ExpressionLexer lexer = new ExpressionLexer(cs);
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(new LexerErrorListener());
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-        ExpressionParser parser = new ExpressionParser(tokens);
-        parser.removeErrorListeners();
-        parser.addErrorListener(new ParserErrorListener());
-        try {
-            root = parser.allStatements();
-            Objects.requireNonNull(root, "Unable to parse root, but no exceptions?");
-        } catch (ParseCancellationException e) {
-            throw new ParserException(parser.getState(), e);
+    private static LocalSlot.Variable[] bindVariables(SlotTable slots, List<String> variableNames) {
+        LocalSlot.Variable[] variables = new LocalSlot.Variable[variableNames.size()];
+        for (int i = 0; i < variables.length; i++) {
+            // Provided variables can't be constants, checked when first compiled
+            variables[i] = slots.initVariable(variableNames.get(i)).orElseThrow();
         }
-        ParseTreeWalker.DEFAULT.walk(new ExpressionValidator(slots.keySet(), functions), root);
-        this.compiledExpression = new ExpressionCompiler().compileExpression(root, functions);
+        return variables;
     }
+    //FAWE end
 
     public double evaluate(double... values) throws EvaluationException {
         return evaluate(values, WorldEdit.getInstance().getConfiguration().calculationTimeout);
     }
 
     public double evaluate(double[] values, int timeout) throws EvaluationException {
+        //FAWE start - variables are bound when compiling, reuse the execution data
         for (int i = 0; i < values.length; ++i) {
-            String slotName = providedSlots.get(i);
-            LocalSlot.Variable slot = slots.getVariable(slotName)
-                    .orElseThrow(() -> new EvaluationException(
-                            -1,
-                            "Tried to assign to non-variable " + slotName + "."
-                    ));
-
-            slot.setValue(values[i]);
+            providedVariables[i].setValue(values[i]);
         }
 
-        Instant deadline = Instant.now().plusMillis(timeout);
+        executionData.setTimeout(timeout);
         // evaluation exceptions are thrown out of this method
-        Double result = compiledExpression.execute(new ExecutionData(slots, functions, deadline));
+        Double result = compiledExpression.execute(executionData);
+        //FAWE end
         if (result == null) {
             throw new EvaluationException(-1, "Expression must result in a value");
         }
         return result;
     }
 
+    //FAWE start - constants are folded when compiling
     public void optimize() {
-        // TODO optimizing
     }
+    //FAWE end
 
     @Override
     public String toString() {
@@ -200,7 +193,7 @@ public void setEnvironment(ExpressionEnvironment environment) {
 
     //FAWE start
     public Expression clone() {
-        Expression expression = new Expression(initialExpression, new HashSet<>(providedSlots));
+        Expression expression = new Expression(this);
         expression.setEnvironment(getEnvironment().clone());
         return expression;
     }
@@ -91,24 +91,29 @@ public static MethodHandle resolveFunction(
                 function = function.asType(function.type().wrap());
             }
             MethodType type = function.type();
+            //FAWE start - skip the Functions parameter of instance functions
+            int receiver = Functions.takesFunctions(type) ? 1 : 0;
             // Validate argc if not varargs
-            if (type.parameterCount() != ctx.args.size()) {
+            if (type.parameterCount() - receiver != ctx.args.size()) {
                 // skip non-matching function
                 continue;
             }
             for (int i = 0; i < ctx.args.size(); i++) {
                 ExpressionParser.ExpressionContext arg = ctx.args.get(i);
-                getArgumentHandleName(fnName, type, i, arg);
+                getArgumentHandleName(fnName, type, i + receiver, arg);
             }
+            //FAWE end
             // good match!
             return function;
         }
         // We matched no function, fail with appropriate message.
+        //FAWE start - skip the Functions parameter of instance functions
         String possibleCounts = matchingFns.stream()
                 .map(mh -> mh.isVarargsCollector()
                         ? (mh.type().parameterCount() - 1) + "+"
-                        : String.valueOf(mh.type().parameterCount()))
+                        : String.valueOf(mh.type().parameterCount() - (Functions.takesFunctions(mh.type()) ? 1 : 0)))
                 .collect(Collectors.joining("/"));
+        //FAWE end
         throw evalException(ctx, "Incorrect number of arguments for function '" + fnName + "', "
                 + "expected " + possibleCounts + ", " + "got " + ctx.args.size());
     }
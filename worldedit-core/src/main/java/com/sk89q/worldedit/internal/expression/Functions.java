@@ -21,6 +21,7 @@
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
@@ -35,6 +36,8 @@
 
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static com.google.common.base.Preconditions.checkState;
@@ -63,6 +66,27 @@ static Functions create() {
         }
     }
 
+    //FAWE start - no handle is bound to an instance, so build them once
+    private static final SetMultimap<String, MethodHandle> MAP;
+    private static final Set<String> PURE_FUNCTIONS;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        SetMultimap<String, MethodHandle> map = HashMultimap.create();
+        try {
+            addMathHandles(map, lookup);
+            PURE_FUNCTIONS = ImmutableSet.copyOf(map.keySet());
+            addStaticFunctionHandles(map, lookup);
+            addInstanceFunctionHandles(map, lookup);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        MAP = ImmutableSetMultimap.copyOf(
+                Multimaps.transformValues(map, Functions::clean)
+        );
+    }
+    //FAWE end
+
     private static MethodHandle clean(MethodHandle handle) {
         boolean wasVarargs = handle.isVarargsCollector();
         // box it all first
@@ -167,45 +191,56 @@ private static void addStaticFunctionHandles(
         ));
     }
 
-    private void addInstanceFunctionHandles(
+    //FAWE start - instance functions take the Functions of the executing expression, so compiled expressions can be shared
+    private static void addInstanceFunctionHandles(
             SetMultimap<String, MethodHandle> map,
             MethodHandles.Lookup lookup
     ) throws NoSuchMethodException, IllegalAccessException {
         map.put("megabuf", lookup.findSpecial(Functions.class, "megabuf",
-                        methodType(double.class, double.class), Functions.class
-                )
-                .bindTo(this));
+                methodType(double.class, double.class), Functions.class
+        ));
         map.put("megabuf", lookup.findSpecial(Functions.class, "megabuf",
-                        methodType(double.class, double.class, double.class), Functions.class
-                )
-                .bindTo(this));
+                methodType(double.class, double.class, double.class), Functions.class
+        ));
         map.put("closest", lookup.findSpecial(Functions.class, "closest",
-                        methodType(double.class, double.class, double.class, double.class, double.class,
-                                double.class, double.class
-                        ), Functions.class
-                )
-                .bindTo(this));
+                methodType(double.class, double.class, double.class, double.class, double.class,
+                        double.class, double.class
+                ), Functions.class
+        ));
 
         // rely on expression field
         map.put("query", lookup.findSpecial(Functions.class, "query",
-                        methodType(double.class, double.class, double.class, double.class, LocalSlot.class,
-                                LocalSlot.class
-                        ), Functions.class
-                )
-                .bindTo(this));
+                methodType(double.class, double.class, double.class, double.class, LocalSlot.class,
+                        LocalSlot.class
+                ), Functions.class
+        ));
         map.put("queryAbs", lookup.findSpecial(Functions.class, "queryAbs",
-                        methodType(double.class, double.class, double.class, double.class, LocalSlot.class,
-                                LocalSlot.class
-                        ), Functions.class
-                )
-                .bindTo(this));
+                methodType(double.class, double.class, double.class, double.class, LocalSlot.class,
+                        LocalSlot.class
+                ), Functions.class
+        ));
         map.put("queryRel", lookup.findSpecial(Functions.class, "queryRel",
-                        methodType(double.class, double.class, double.class, double.class, LocalSlot.class,
-                                LocalSlot.class
-                        ), Functions.class
-                )
-                .bindTo(this));
+                methodType(double.class, double.class, double.class, double.class, LocalSlot.class,
+                        LocalSlot.class
+                ), Functions.class
+        ));
+    }
+
+    /**
+     * Check if a function handle takes the {@link Functions} of the executing expression as its first parameter.
+     */
+    public static boolean takesFunctions(MethodType type) {
+        return type.parameterCount() > 0 && type.parameterType(0) == Functions.class;
+    }
+
+    /**
+     * Check if a function always returns the same result for the same arguments and has no side effects, so calls with
+     * constant arguments can be evaluated when compiling.
+     */
+    public static boolean isPure(String name) {
+        return PURE_FUNCTIONS.contains(name);
     }
+    //FAWE end
 
     private static double rotate(Variable x, Variable y, double angle) {
         final double cosF = Math.cos(angle);
@@ -232,26 +267,13 @@ private static double swap(Variable x, Variable y) {
 
     private static final Int2ObjectMap<double[]> globalMegaBuffer = new Int2ObjectOpenHashMap<>();
     private final Int2ObjectMap<double[]> megaBuffer = new Int2ObjectOpenHashMap<>();
-    private final SetMultimap<String, MethodHandle> map;
     private ExpressionEnvironment environment;
 
     private Functions() {
-        MethodHandles.Lookup lookup = MethodHandles.lookup();
-        SetMultimap<String, MethodHandle> map = HashMultimap.create();
-        try {
-            addMathHandles(map, lookup);
-            addStaticFunctionHandles(map, lookup);
-            addInstanceFunctionHandles(map, lookup);
-        } catch (NoSuchMethodException | IllegalAccessException e) {
-            throw new IllegalStateException(e);
-        }
-        this.map = ImmutableSetMultimap.copyOf(
-                Multimaps.transformValues(map, Functions::clean)
-        );
     }
 
     public SetMultimap<String, MethodHandle> getMap() {
-        return map;
+        return MAP;
     }
 
     public ExpressionEnvironment getEnvironment() {
@@ -26,6 +26,7 @@
 import com.sk89q.worldedit.internal.expression.ExpressionHelper;
 import com.sk89q.worldedit.internal.expression.Functions;
 import com.sk89q.worldedit.internal.expression.LocalSlot;
+import com.sk89q.worldedit.internal.expression.SlotTable;
 import it.unimi.dsi.fastutil.doubles.Double2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.doubles.Double2ObjectMap;
 import org.antlr.v4.runtime.CommonToken;
@@ -35,10 +36,13 @@
 import org.antlr.v4.runtime.tree.RuleNode;
 import org.antlr.v4.runtime.tree.TerminalNode;
 
+import javax.annotation.Nullable;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.DoubleBinaryOperator;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -87,10 +91,37 @@ class CompilingVisitor extends ExpressionBaseVisitor<MethodHandle> {
      * value passed in. EVERY handle returned from an overridden method must be of the first type.
      */
     private final Functions functions;
-
-    CompilingVisitor(Functions functions) {
+    //FAWE start
+    @Nullable
+    private final SlotTable slots;
+    private final List<String> providedSlots;
+    // Handles known to return a constant, non-null value
+    private final Map<MethodHandle, Double> constants = new IdentityHashMap<>();
+
+    CompilingVisitor(Functions functions, @Nullable SlotTable slots, List<String> providedSlots) {
         this.functions = functions;
+        this.slots = slots;
+        this.providedSlots = providedSlots;
+    }
+
+    private MethodHandle constant(double value) {
+        MethodHandle handle = ExpressionHandles.dropData(MethodHandles.constant(Double.class, value));
+        constants.put(handle, value);
+        return handle;
+    }
+
+    @Nullable
+    private Double constantValue(MethodHandle handle) {
+        return constants.get(handle);
+    }
+
+    /**
+     * Get the index of a variable in the variables provided when evaluating, or -1 if it isn't provided.
+     */
+    private int getProvidedIndex(Token token) {
+        return providedSlots.indexOf(token.getText());
     }
+    //FAWE end
 
     private Token extractToken(ParserRuleContext ctx) {
         List<TerminalNode> children = ctx.children.stream()
@@ -128,6 +159,11 @@ private MethodHandle evaluateForNamedValue(ParserRuleContext ctx, String name) {
         );
         // now pass `result` into `guard`
         MethodHandle result = evaluate(ctx).handle();
+        //FAWE start - constants are never null
+        if (constantValue(result) != null) {
+            return result;
+        }
+        //FAWE end
         return MethodHandles.collectArguments(guard, 0, result);
     }
 
@@ -136,7 +172,12 @@ private MethodHandle evaluateForValue(ParserRuleContext ctx) {
     }
 
     private MethodHandle evaluateBoolean(ParserRuleContext boolExpression) {
-        MethodHandle value = evaluateForNamedValue(boolExpression, "a boolean");
+        //FAWE start - split conversion
+        return toBoolean(evaluateForNamedValue(boolExpression, "a boolean"));
+    }
+
+    private static MethodHandle toBoolean(MethodHandle value) {
+        //FAWE end
         // Pass `value` into converter, returns (ExecutionData)boolean;
         return MethodHandles.collectArguments(
                 DOUBLE_TO_BOOL, 0, value
@@ -148,12 +189,21 @@ private MethodHandle evaluateConditional(
             ParserRuleContext trueBranch,
             ParserRuleContext falseBranch
     ) {
+        //FAWE start - only keep the branch taken by constant conditions. Both are compiled to report errors in either.
+        MethodHandle value = evaluateForNamedValue(condition, "a boolean");
+        MethodHandle trueHandle = trueBranch == null ? NULL_DOUBLE : evaluate(trueBranch).handle();
+        MethodHandle falseHandle = falseBranch == null ? NULL_DOUBLE : evaluate(falseBranch).handle();
+        Double constant = constantValue(value);
+        if (constant != null) {
+            return constant != 0 ? trueHandle : falseHandle;
+        }
         // easiest one of the bunch
         return MethodHandles.guardWithTest(
-                evaluateBoolean(condition),
-                trueBranch == null ? NULL_DOUBLE : evaluate(trueBranch).handle(),
-                falseBranch == null ? NULL_DOUBLE : evaluate(falseBranch).handle()
+                toBoolean(value),
+                trueHandle,
+                falseHandle
         );
+        //FAWE end
     }
 
     @Override
@@ -269,8 +319,13 @@ public MethodHandle visitExpressionStatement(ExpressionParser.ExpressionStatemen
     public MethodHandle visitPostCrementExpr(ExpressionParser.PostCrementExprContext ctx) {
         Token target = ctx.target;
         int opType = ctx.op.getType();
+        //FAWE start - provided variables by index
+        int provided = getProvidedIndex(target);
         return ExpressionHandles.call(data -> {
-            LocalSlot.Variable variable = ExpressionHandles.getVariable(data, target);
+            LocalSlot.Variable variable = provided >= 0
+                    ? data.providedVariable(provided)
+                    : ExpressionHandles.getVariable(data, target);
+            //FAWE end
             double value = variable.value();
             double result = value;
             if (opType == INCREMENT) {
@@ -287,8 +342,13 @@ public MethodHandle visitPostCrementExpr(ExpressionParser.PostCrementExprContext
     public MethodHandle visitPreCrementExpr(ExpressionParser.PreCrementExprContext ctx) {
         Token target = ctx.target;
         int opType = ctx.op.getType();
+        //FAWE start - provided variables by index
+        int provided = getProvidedIndex(target);
         return ExpressionHandles.call(data -> {
-            LocalSlot.Variable variable = ExpressionHandles.getVariable(data, target);
+            LocalSlot.Variable variable = provided >= 0
+                    ? data.providedVariable(provided)
+                    : ExpressionHandles.getVariable(data, target);
+            //FAWE end
             double value = variable.value();
             if (opType == INCREMENT) {
                 value++;
@@ -307,6 +367,12 @@ public MethodHandle visitPlusMinusExpr(ExpressionParser.PlusMinusExprContext ctx
             case PLUS:
                 return value;
             case MINUS:
+                //FAWE start - fold constants
+                Double constant = constantValue(value);
+                if (constant != null) {
+                    return constant(-constant);
+                }
+                //FAWE end
                 return ExpressionHandles.call(data ->
                         -(double) ExpressionHandles.standardInvoke(value, data)
                 );
@@ -316,7 +382,14 @@ public MethodHandle visitPlusMinusExpr(ExpressionParser.PlusMinusExprContext ctx
 
     @Override
     public MethodHandle visitNotExpr(ExpressionParser.NotExprContext ctx) {
-        MethodHandle expr = evaluateBoolean(ctx.expr);
+        //FAWE start - fold constants
+        MethodHandle value = evaluateForNamedValue(ctx.expr, "a boolean");
+        Double constant = constantValue(value);
+        if (constant != null) {
+            return constant(ExpressionHandles.boolToDouble(constant == 0));
+        }
+        MethodHandle expr = toBoolean(value);
+        //FAWE end
         return ExpressionHandles.call(data ->
                 ExpressionHandles.boolToDouble(!(boolean) ExpressionHandles.standardInvoke(expr, data))
         );
@@ -325,6 +398,12 @@ public MethodHandle visitNotExpr(ExpressionParser.NotExprContext ctx) {
     @Override
     public MethodHandle visitComplementExpr(ExpressionParser.ComplementExprContext ctx) {
         MethodHandle expr = evaluateForValue(ctx.expr);
+        //FAWE start - fold constants
+        Double constant = constantValue(expr);
+        if (constant != null) {
+            return constant((double) ~(long) (double) constant);
+        }
+        //FAWE end
         // Looks weird. In order:
         // - Convert back to double from following long
         // - Convert to long from double value
@@ -336,8 +415,15 @@ public MethodHandle visitComplementExpr(ExpressionParser.ComplementExprContext c
 
     @Override
     public MethodHandle visitConditionalAndExpr(ExpressionParser.ConditionalAndExprContext ctx) {
-        MethodHandle left = evaluateBoolean(ctx.left);
+        //FAWE start - fold constants
+        MethodHandle leftValue = evaluateForNamedValue(ctx.left, "a boolean");
         MethodHandle right = evaluateForValue(ctx.right);
+        Double constant = constantValue(leftValue);
+        if (constant != null) {
+            return constant != 0 ? right : constant(ExpressionHandles.boolToDouble(false));
+        }
+        MethodHandle left = toBoolean(leftValue);
+        //FAWE end
         return MethodHandles.guardWithTest(
                 left,
                 right,
@@ -351,6 +437,12 @@ public MethodHandle visitConditionalAndExpr(ExpressionParser.ConditionalAndExprC
     public MethodHandle visitConditionalOrExpr(ExpressionParser.ConditionalOrExprContext ctx) {
         MethodHandle left = evaluateForValue(ctx.left);
         MethodHandle right = evaluateForValue(ctx.right);
+        //FAWE start - fold constants
+        Double constant = constantValue(left);
+        if (constant != null) {
+            return constant != 0 ? left : right;
+        }
+        //FAWE end
         // Inject left as primary condition, on failure take right with data parameter
         // logic = (Double,ExecutionData)Double
         MethodHandle logic = MethodHandles.guardWithTest(
@@ -380,6 +472,13 @@ private MethodHandle evaluateBinary(
     ) {
         MethodHandle mhLeft = evaluateForValue(left);
         MethodHandle mhRight = evaluateForValue(right);
+        //FAWE start - fold constants
+        Double constantLeft = constantValue(mhLeft);
+        Double constantRight = constantValue(mhRight);
+        if (constantLeft != null && constantRight != null) {
+            return constant(op.applyAsDouble(constantLeft, constantRight));
+        }
+        //FAWE end
         // Map two data args to two double args, then evaluate op
         MethodHandle doubleData = MethodHandles.filterArguments(
                 CALL_BINARY_OP.bindTo(op), 0,
@@ -500,6 +599,12 @@ private static boolean almostEqual2sComplement(double a, double b) {
     public MethodHandle visitPostfixExpr(ExpressionParser.PostfixExprContext ctx) {
         MethodHandle value = evaluateForValue(ctx.expr);
         if (ctx.op.getType() == EXCLAMATION_MARK) {
+            //FAWE start - fold constants
+            Double constant = constantValue(value);
+            if (constant != null) {
+                return constant(factorial(constant));
+            }
+            //FAWE end
             return ExpressionHandles.call(data ->
                     factorial((double) ExpressionHandles.standardInvoke(value, data))
             );
@@ -538,15 +643,23 @@ public MethodHandle visitAssignment(ExpressionParser.AssignmentContext ctx) {
         int type = extractToken(ctx.assignmentOperator()).getType();
         Token target = ctx.target;
         MethodHandle getArg = evaluateForValue(ctx.expression());
+        //FAWE start - provided variables by index
+        int provided = getProvidedIndex(target);
         return ExpressionHandles.call(data -> {
             double value;
             double arg = (double) ExpressionHandles.standardInvoke(getArg, data);
             LocalSlot.Variable variable;
-            if (type == ASSIGN) {
+            if (provided >= 0) {
+                variable = data.providedVariable(provided);
+            } else if (type == ASSIGN) {
                 variable = ExpressionHandles.initVariable(data, target);
-                value = arg;
             } else {
                 variable = ExpressionHandles.getVariable(data, target);
+            }
+            //FAWE end
+            if (type == ASSIGN) {
+                value = arg;
+            } else {
                 value = variable.value();
                 switch (type) {
                     case POWER_ASSIGN:
@@ -581,10 +694,18 @@ public MethodHandle visitAssignment(ExpressionParser.AssignmentContext ctx) {
     public MethodHandle visitFunctionCall(ExpressionParser.FunctionCallContext ctx) {
         MethodHandle handle = ExpressionHelper.resolveFunction(functions, ctx);
         String fnName = ctx.name.getText();
-        MethodHandle[] arguments = new MethodHandle[ctx.args.size()];
-        for (int i = 0; i < arguments.length; i++) {
-            ExpressionParser.ExpressionContext arg = ctx.args.get(i);
+        //FAWE start - pass instance functions the Functions of the executing expression, fold pure functions
+        int receiver = Functions.takesFunctions(handle.type()) ? 1 : 0;
+        boolean constant = receiver == 0 && Functions.isPure(fnName);
+        MethodHandle[] arguments = new MethodHandle[receiver + ctx.args.size()];
+        if (receiver != 0) {
+            arguments[0] = ExpressionHandles.GET_FUNCTIONS;
+        }
+        for (int i = receiver; i < arguments.length; i++) {
+            ExpressionParser.ExpressionContext arg = ctx.args.get(i - receiver);
             MethodHandle transformed = getArgument(fnName, handle.type(), i, arg);
+            constant &= constantValue(transformed) != null;
+            //FAWE end
             Class<?> ptype = handle.type().parameterType(i);
             Class<?> rtype = transformed.type().returnType();
             if (ptype != rtype && ptype.isAssignableFrom(rtype)) {
@@ -597,9 +718,15 @@ public MethodHandle visitFunctionCall(ExpressionParser.FunctionCallContext ctx)
         MethodHandle manyData = MethodHandles.filterArguments(handle, 0, arguments);
         // Collapse every data into one argument
         int[] permutation = new int[arguments.length];
-        return MethodHandles.permuteArguments(
+        //FAWE start - fold constants
+        MethodHandle call = MethodHandles.permuteArguments(
                 manyData, ExpressionHandles.COMPILED_EXPRESSION_SIG, permutation
         );
+        if (constant) {
+            return constant((double) ExpressionHandles.constantInvoke(call));
+        }
+        return call;
+        //FAWE end
     }
 
     // MH: (ExecutionData)T; (depends on target)
@@ -625,14 +752,24 @@ private MethodHandle getArgument(String fnName, MethodType type, int i, ParserRu
 
     @Override
     public MethodHandle visitConstantExpression(ExpressionParser.ConstantExpressionContext ctx) {
-        return ExpressionHandles.dropData(
-                MethodHandles.constant(Double.class, Double.parseDouble(ctx.getText()))
-        );
+        //FAWE start - fold constants
+        return constant(Double.parseDouble(ctx.getText()));
+        //FAWE end
     }
 
     @Override
     public MethodHandle visitIdExpr(ExpressionParser.IdExprContext ctx) {
         Token source = ctx.source;
+        //FAWE start - fold constants, provided variables by index
+        LocalSlot slot = slots == null ? null : slots.getSlot(source.getText()).orElse(null);
+        if (slot instanceof LocalSlot.Constant) {
+            return constant(slot.value());
+        }
+        int provided = getProvidedIndex(source);
+        if (provided >= 0) {
+            return ExpressionHandles.call(data -> data.providedVariable(provided).value());
+        }
+        //FAWE end
         return ExpressionHandles.call(data -> ExpressionHandles.getSlotValue(data, source));
     }
 
@@ -684,6 +821,11 @@ private MethodHandle aggregateHandleResult(MethodHandle oldResult, MethodHandle
         if (result == DEFAULT_RESULT) {
             return oldResult;
         }
+        //FAWE start - constants have no side effects
+        if (constantValue(oldResult) != null) {
+            return result;
+        }
+        //FAWE end
         // Add a dummy Double parameter to the end
         // MH:dummyDouble = (ExecutionData, Double)Double
         MethodHandle dummyDouble = MethodHandles.dropArguments(
@@ -22,12 +22,15 @@
 import com.sk89q.worldedit.antlr.ExpressionParser;
 import com.sk89q.worldedit.internal.expression.CompiledExpression;
 import com.sk89q.worldedit.internal.expression.Functions;
+import com.sk89q.worldedit.internal.expression.SlotTable;
 
+import javax.annotation.Nullable;
 import java.lang.invoke.LambdaConversionException;
 import java.lang.invoke.LambdaMetafactory;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.util.List;
 
 import static java.lang.invoke.MethodType.methodType;
 
@@ -67,7 +70,28 @@ public CompiledExpression compileExpression(
             ExpressionParser.AllStatementsContext root,
             Functions functions
     ) {
-        MethodHandle invokable = root.accept(new CompilingVisitor(functions));
+        //FAWE start
+        return compileExpression(root, functions, null, List.of());
+    }
+
+    /**
+     * Compile an expression, folding constant sub-expressions.
+     *
+     * @param root          the parsed expression
+     * @param functions     the functions available to the expression
+     * @param slots         the slots the expression is compiled with, used to fold constants. May be null
+     * @param providedSlots the names of the variables provided when evaluating, which are accessed by index in
+     *                      {@link com.sk89q.worldedit.internal.expression.ExecutionData#providedVariable(int)}
+     * @return the compiled expression
+     */
+    public CompiledExpression compileExpression(
+            ExpressionParser.AllStatementsContext root,
+            Functions functions,
+            @Nullable SlotTable slots,
+            List<String> providedSlots
+    ) {
+        MethodHandle invokable = root.accept(new CompilingVisitor(functions, slots, providedSlots));
+        //FAWE end
         // catch ReturnExpression and substitute its result
         invokable = MethodHandles.catchException(
                 invokable,
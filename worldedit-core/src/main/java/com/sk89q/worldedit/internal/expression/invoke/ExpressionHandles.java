@@ -24,6 +24,7 @@
 import com.sk89q.worldedit.internal.expression.EvaluationException;
 import com.sk89q.worldedit.internal.expression.ExecutionData;
 import com.sk89q.worldedit.internal.expression.ExpressionHelper;
+import com.sk89q.worldedit.internal.expression.Functions;
 import com.sk89q.worldedit.internal.expression.LocalSlot;
 import it.unimi.dsi.fastutil.doubles.Double2ObjectMap;
 import it.unimi.dsi.fastutil.doubles.Double2ObjectMaps;
@@ -69,6 +70,10 @@ class ExpressionHandles {
     // (double, double)Double;
     static final MethodHandle CALL_BINARY_OP;
     static final MethodHandle NEW_LS_CONSTANT;
+    //FAWE start
+    // (ExecutionData)Functions;
+    static final MethodHandle GET_FUNCTIONS;
+    //FAWE end
     // (Double)ReturnException;
     static final MethodHandle NEW_RETURN_EXCEPTION;
     // (ReturnException)Double;
@@ -130,6 +135,9 @@ class ExpressionHandles {
             RETURN_EXCEPTION_GET_RESULT = lookup.findVirtual(ReturnException.class,
                     "getResult", methodType(Double.class)
             );
+            //FAWE start
+            GET_FUNCTIONS = lookup.findVirtual(ExecutionData.class, "functions", methodType(Functions.class));
+            //FAWE end
         } catch (NoSuchMethodException | IllegalAccessException e) {
             throw new IllegalStateException(e);
         }
@@ -19,6 +19,7 @@
 
 package com.sk89q.worldedit.math.convolution;
 
+import com.fastasyncworldedit.core.queue.implementation.SurfaceScanner;
 import com.fastasyncworldedit.core.registry.state.PropertyGroup;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
@@ -112,14 +113,21 @@ public HeightMap(EditSession session, Region region, @Nullable Mask mask, boolea
                 data[(z - bz) * width + (x - bx)] = layer;
             }
         } else {
-            // Store current heightmap data
-            int index = 0;
-            for (int z = 0; z < height; z++) {
-                for (int x = 0; x < width; x++, index++) {
-                    if (mask == null) {
-                        data[index] = session.getHighestTerrainBlock(x + minX, z + minZ, minY, maxY);
-                    } else {
-                        data[index] = session.getHighestTerrainBlock(x + minX, z + minZ, minY, maxY, mask);
+            int[] highest = mask == null
+                    ? SurfaceScanner.getHighestTerrainBlocks(session, minX, minZ, width, height, minY, maxY)
+                    : null;
+            if (highest != null) {
+                System.arraycopy(highest, 0, data, 0, data.length);
+            } else {
+                // Store current heightmap data
+                int index = 0;
+                for (int z = 0; z < height; z++) {
+                    for (int x = 0; x < width; x++, index++) {
+                        if (mask == null) {
+                            data[index] = session.getHighestTerrainBlock(x + minX, z + minZ, minY, maxY);
+                        } else {
+                            data[index] = session.getHighestTerrainBlock(x + minX, z + minZ, minY, maxY, mask);
+                        }
                     }
                 }
             }
@@ -154,14 +162,9 @@ public HeightMap(EditSession session, Region region, int[] data, boolean layers)
     public int applyFilter(HeightMapFilter filter, int iterations) throws MaxChangedBlocksException {
         checkNotNull(filter);
 
-        int[] newData = new int[data.length];
-        System.arraycopy(data, 0, newData, 0, data.length);
-
-        for (int i = 0; i < iterations; ++i) {
-            newData = filter.filter(newData, width, height, 0.5F);
-        }
+        //FAWE start - reuse buffers across iterations, check layers
+        int[] newData = filter.filter(data, width, height, 0.5F, iterations);
 
-        //FAWE start - check layers
         return layers ? applyLayers(newData) : apply(newData);
     }
 
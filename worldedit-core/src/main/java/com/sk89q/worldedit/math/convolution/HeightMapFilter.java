@@ -19,6 +19,8 @@
 
 package com.sk89q.worldedit.math.convolution;
 
+import com.fastasyncworldedit.core.util.task.ParallelBands;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -28,7 +30,18 @@
  */
 public class HeightMapFilter {
 
+    //FAWE start
+    // Number of cells times kernel size above which rows are filtered in parallel
+    private static final long PARALLEL_THRESHOLD = 1 << 22;
+    // Maximum number of rows filtered by each parallel task
+    private static final int ROWS_PER_TASK = 16;
+    //FAWE end
+
     private Kernel kernel;
+    //FAWE start - factors of separable kernels, null if not separable
+    private float[] rowFactors;
+    private float[] columnFactors;
+    //FAWE end
 
     /**
      * Construct the HeightMapFilter object.
@@ -38,6 +51,9 @@ public class HeightMapFilter {
     public HeightMapFilter(Kernel kernel) {
         checkNotNull(kernel);
         this.kernel = kernel;
+        //FAWE start
+        factorize();
+        //FAWE end
     }
 
     /**
@@ -50,6 +66,9 @@ public HeightMapFilter(Kernel kernel) {
     public HeightMapFilter(int kernelWidth, int kernelHeight, float[] kernelData) {
         checkNotNull(kernelData);
         this.kernel = new Kernel(kernelWidth, kernelHeight, kernelData);
+        //FAWE start
+        factorize();
+        //FAWE end
     }
 
     /**
@@ -68,8 +87,56 @@ public void setKernel(Kernel kernel) {
         checkNotNull(kernel);
 
         this.kernel = kernel;
+        //FAWE start
+        factorize();
+        //FAWE end
     }
 
+    //FAWE start
+    /**
+     * Split the kernel into a column and a row vector whose product is the kernel, if possible, such as for
+     * {@link GaussianKernel} and {@link LinearKernel}, so it can be applied as two 1D passes. The passes add the heights
+     * in another order than the full kernel and the factors may be off by a relative 1e-5, so a filtered height can
+     * differ in its last float bits. Rounded down, it only changes when it lands right next to a whole number, which is
+     * rare for a Gaussian kernel and can't happen for a linear kernel of integer heights.
+     */
+    private void factorize() {
+        rowFactors = null;
+        columnFactors = null;
+        int kw = kernel.getWidth();
+        int kh = kernel.getHeight();
+        float[] matrix = kernel.getKernelData(null);
+        int pivot = 0;
+        for (int i = 1; i < kw * kh; i++) {
+            if (Math.abs(matrix[i]) > Math.abs(matrix[pivot])) {
+                pivot = i;
+            }
+        }
+        float max = Math.abs(matrix[pivot]);
+        if (max == 0) {
+            return;
+        }
+        int pivotX = pivot % kw;
+        int pivotY = pivot / kw;
+        float[] row = new float[kw];
+        float[] column = new float[kh];
+        System.arraycopy(matrix, pivotY * kw, row, 0, kw);
+        for (int ky = 0; ky < kh; ky++) {
+            column[ky] = matrix[ky * kw + pivotX] / matrix[pivot];
+        }
+        float tolerance = max * 1e-5F;
+        for (int ky = 0; ky < kh; ky++) {
+            for (int kx = 0; kx < kw; kx++) {
+                if (Math.abs(matrix[ky * kw + kx] - column[ky] * row[kx]) > tolerance) {
+                    return;
+                }
+            }
+        }
+        rowFactors = row;
+        columnFactors = column;
+    }
+    //FAWE end
+
     /**
      * Filter with a 2D kernel.
      *
@@ -92,23 +159,44 @@ public int[] filter(int[] inData, int width, int height) {
      * @return the modified height map
      */
     public int[] filter(int[] inData, int width, int height, float offset) {
+        //FAWE start - reuse buffers
+        return filter(inData, width, height, offset, 1);
+    }
+
+    /**
+     * Filter with a 2D kernel several times, rounding the heights down after each iteration.
+     *
+     * @param inData     the data
+     * @param width      the width
+     * @param height     the height
+     * @param offset     the offset added to the height
+     * @param iterations the number of times to filter
+     * @return the modified height map
+     */
+    public int[] filter(int[] inData, int width, int height, float offset, int iterations) {
         checkNotNull(inData);
 
         float[] inDataFloat = new float[inData.length];
         for (int i = 0; i < inData.length; i++) {
             inDataFloat[i] = inData[i];
         }
-
-        int index = 0;
-        float[] matrix = kernel.getKernelData(null);
+        float[] buffer = rowFactors != null ? new float[inData.length] : null;
+        float[] outDataFloat = new float[inData.length];
         int[] outData = new int[inData.length];
+        if (iterations <= 0) {
+            System.arraycopy(inData, 0, outData, 0, inData.length);
+        }
 
-        for (int y = 0; y < height; ++y) {
-            for (int x = 0; x < width; ++x) {
-                outData[index++] = (int) Math.floor(calculateHeight(inDataFloat, width, height, offset, matrix, x, y));
+        for (int i = 0; i < iterations; i++) {
+            convolve(inDataFloat, width, height, offset, buffer, outDataFloat);
+            for (int j = 0; j < outData.length; j++) {
+                int value = (int) Math.floor(outDataFloat[j]);
+                outData[j] = value;
+                inDataFloat[j] = value;
             }
         }
         return outData;
+        //FAWE end
     }
 
     /**
@@ -120,19 +208,128 @@ public int[] filter(int[] inData, int width, int height, float offset) {
      * @return the modified height map
      */
     public float[] filter(float[] inData, int width, int height, float offset) {
+        //FAWE start - reuse buffers
+        return filter(inData, width, height, offset, 1);
+    }
+
+    /**
+     * Filter with a 2D kernel for float values several times.
+     *
+     * @param inData     the data
+     * @param width      the width
+     * @param height     the height
+     * @param offset     the offset added to the height in each iteration
+     * @param iterations the number of times to filter
+     * @return the modified height map
+     */
+    public float[] filter(float[] inData, int width, int height, float offset, int iterations) {
         checkNotNull(inData);
 
-        int index = 0;
-        float[] matrix = kernel.getKernelData(null);
+        float[] buffer = rowFactors != null ? new float[inData.length] : null;
         float[] outData = new float[inData.length];
-
-        for (int y = 0; y < height; ++y) {
-            for (int x = 0; x < width; ++x) {
-                outData[index++] = calculateHeight(inData, width, height, offset, matrix, x, y);
+        if (iterations <= 0) {
+            System.arraycopy(inData, 0, outData, 0, inData.length);
+            return outData;
+        }
+        float[] in = iterations > 1 ? inData.clone() : inData;
+        for (int i = 0; i < iterations; i++) {
+            if (i > 0) {
+                float[] tmp = in;
+                in = outData;
+                outData = tmp;
             }
+            convolve(in, width, height, offset, buffer, outData);
         }
         return outData;
+        //FAWE end
+    }
+
+    //FAWE start
+    /**
+     * Apply the kernel to all heights, as two 1D passes if the kernel is separable, splitting rows across threads for
+     * large height maps.
+     *
+     * @param in     the heights
+     * @param width  the width
+     * @param height the height
+     * @param offset the offset added to the height
+     * @param buffer buffer of the same size as the heights for the first pass, may be null if the kernel isn't separable
+     * @param out    array to write the filtered heights to
+     */
+    private void convolve(float[] in, int width, int height, float offset, float[] buffer, float[] out) {
+        float[] row = rowFactors;
+        float[] column = columnFactors;
+        if (row == null) {
+            float[] matrix = kernel.getKernelData(null);
+            forEachRows(width, height, kernel.getWidth() * kernel.getHeight(), (minY, maxY) -> {
+                int index = minY * width;
+                for (int y = minY; y < maxY; y++) {
+                    for (int x = 0; x < width; x++) {
+                        out[index++] = calculateHeight(in, width, height, offset, matrix, x, y);
+                    }
+                }
+            });
+            return;
+        }
+        int kox = kernel.getXOrigin();
+        int koy = kernel.getYOrigin();
+        // Coordinates out of the data are clamped to the current cell, as in calculateHeight
+        forEachRows(width, height, row.length, (minY, maxY) -> {
+            for (int y = minY; y < maxY; y++) {
+                int rowOffset = y * width;
+                for (int x = 0; x < width; x++) {
+                    float z = 0;
+                    for (int kx = 0; kx < row.length; kx++) {
+                        int offsetX = x + kx - kox;
+                        if (offsetX < 0 || offsetX >= width) {
+                            offsetX = x;
+                        }
+                        z += row[kx] * in[rowOffset + offsetX];
+                    }
+                    buffer[rowOffset + x] = z;
+                }
+            }
+        });
+        forEachRows(width, height, column.length, (minY, maxY) -> {
+            for (int y = minY; y < maxY; y++) {
+                int rowOffset = y * width;
+                for (int x = 0; x < width; x++) {
+                    out[rowOffset + x] = 0;
+                }
+                for (int ky = 0; ky < column.length; ky++) {
+                    int offsetY = y + ky - koy;
+                    if (offsetY < 0 || offsetY >= height) {
+                        offsetY = y;
+                    }
+                    float f = column[ky];
+                    int sourceOffset = offsetY * width;
+                    for (int x = 0; x < width; x++) {
+                        out[rowOffset + x] += f * buffer[sourceOffset + x];
+                    }
+                }
+                for (int x = 0; x < width; x++) {
+                    out[rowOffset + x] += offset;
+                }
+            }
+        });
+    }
+
+    /**
+     * Run a task over bands of rows, in parallel if there is enough work.
+     *
+     * @param width      the width
+     * @param height     the number of rows
+     * @param kernelSize the number of kernel values applied to each cell
+     * @param task       task given the first row and the row after the last row of a band
+     */
+    private static void forEachRows(int width, int height, int kernelSize, ParallelBands.Band task) {
+        if ((long) width * height * kernelSize < PARALLEL_THRESHOLD) {
+            task.apply(0, height);
+            return;
+        }
+        ParallelBands.forEach(height, (height + ROWS_PER_TASK - 1) / ROWS_PER_TASK, task);
     }
+    //FAWE end
 
     /**
      * Calculate the height based on the existing data and the kernel data.
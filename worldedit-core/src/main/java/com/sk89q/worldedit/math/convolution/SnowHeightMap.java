@@ -110,16 +110,10 @@ public SnowHeightMap(EditSession session, Region region, @Nullable Mask mask) {
     public float[] applyFilter(HeightMapFilter filter, int iterations) {
         checkNotNull(filter);
 
-        //FAWE start - don't use Array#clone
-        float[] newData = new float[data.length];
-        System.arraycopy(data, 0, newData, 0, data.length);
+        //FAWE start - reuse buffers across iterations
+        // add an offset from 0.0625F to the values (snowlayer half)
+        return filter.filter(data, width, height, 0.0625F, iterations);
         //FAWE end
-
-        for (int i = 0; i < iterations; ++i) {
-            // add an offset from 0.0625F to the values (snowlayer half)
-            newData = filter.filter(newData, width, height, 0.0625F);
-        }
-        return newData;
     }
 
     /**
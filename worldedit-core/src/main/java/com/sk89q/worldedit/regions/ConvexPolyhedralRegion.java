@@ -19,6 +19,7 @@
 
 package com.sk89q.worldedit.regions;
 
+import com.fastasyncworldedit.core.regions.SectionRows;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.math.Vector3;
 import com.sk89q.worldedit.regions.polyhedron.Edge;
@@ -330,6 +331,48 @@ public AbstractRegion clone() {
     }
 
     //FAWE start
+    @Override
+    public int getSectionRows(int chunkX, int layer, int chunkZ, char[] rows) {
+        if (!isDefined()) {
+            return SectionRows.EMPTY;
+        }
+        int bx = chunkX << 4;
+        int by = layer << 4;
+        int bz = chunkZ << 4;
+        final BlockVector3 min = getMinimumPoint();
+        final BlockVector3 max = getMaximumPoint();
+        if (!SectionRows.intersects(min, max, bx, by, bz)) {
+            return SectionRows.EMPTY;
+        }
+        for (int y = 0; y < 16; y++) {
+            int absY = by + y;
+            for (int z = 0; z < 16; z++) {
+                int absZ = bz + z;
+                if (absY < min.y() || absY > max.y() || absZ < min.z() || absZ > max.z()) {
+                    rows[y << 4 | z] = 0;
+                    continue;
+                }
+                // Clip the row against every face's half-space
+                double minX = min.x();
+                double maxX = max.x();
+                for (Triangle triangle : triangles) {
+                    Vector3 normal = triangle.getNormal();
+                    double remainder = triangle.getMaxDotProduct() - normal.y() * absY - normal.z() * absZ;
+                    if (normal.x() > 0) {
+                        maxX = Math.min(maxX, remainder / normal.x());
+                    } else if (normal.x() < 0) {
+                        minX = Math.max(minX, remainder / normal.x());
+                    } else if (remainder < -1e-9) {
+                        minX = Double.POSITIVE_INFINITY;
+                        break;
+                    }
+                }
+                rows[y << 4 | z] = minX > maxX + 2 ? 0 : SectionRows.convexRow(this, bx, absY, absZ, minX, maxX);
+            }
+        }
+        return SectionRows.summarize(rows);
+    }
+
     @Override
     public boolean containsEntireCuboid(int bx, int tx, int by, int ty, int bz, int tz) {
         return false;
@@ -27,6 +27,7 @@
 import com.fastasyncworldedit.core.queue.IChunk;
 import com.fastasyncworldedit.core.queue.IChunkGet;
 import com.fastasyncworldedit.core.queue.IChunkSet;
+import com.fastasyncworldedit.core.regions.SectionRows;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.world.World;
@@ -517,6 +518,33 @@ public boolean contains(int x, int y, int z) {
     public boolean contains(int x, int z) {
         return x >= this.minX && x <= this.maxX && z >= this.minZ && z <= this.maxZ;
     }
+
+    @Override
+    public int getSectionRows(int chunkX, int layer, int chunkZ, char[] rows) {
+        int bx = chunkX << 4;
+        int by = layer << 4;
+        int bz = chunkZ << 4;
+        int fromX = Math.max(minX - bx, 0);
+        int toX = Math.min(maxX - bx, 15);
+        int fromY = Math.max(minY - by, 0);
+        int toY = Math.min(maxY - by, 15);
+        int fromZ = Math.max(minZ - bz, 0);
+        int toZ = Math.min(maxZ - bz, 15);
+        if (fromX > toX || fromY > toY || fromZ > toZ) {
+            return SectionRows.EMPTY;
+        }
+        if (fromX == 0 && toX == 15 && fromY == 0 && toY == 15 && fromZ == 0 && toZ == 15) {
+            return SectionRows.FULL;
+        }
+        char run = SectionRows.run(fromX, toX);
+        for (int y = 0; y < 16; y++) {
+            boolean inY = y >= fromY && y <= toY;
+            for (int z = 0; z < 16; z++) {
+                rows[y << 4 | z] = inY && z >= fromZ && z <= toZ ? run : 0;
+            }
+        }
+        return SectionRows.PARTIAL;
+    }
     //FAWE end
 
     @Override
@@ -25,6 +25,7 @@
 import com.fastasyncworldedit.core.queue.IChunk;
 import com.fastasyncworldedit.core.queue.IChunkGet;
 import com.fastasyncworldedit.core.queue.IChunkSet;
+import com.fastasyncworldedit.core.regions.SectionRows;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
@@ -37,6 +38,7 @@
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -408,6 +410,35 @@ public static CylinderRegion createRadius(Extent extent, BlockVector3 center, do
     }
 
     //FAWE start
+    @Override
+    public int getSectionRows(int chunkX, int layer, int chunkZ, char[] rows) {
+        int bx = chunkX << 4;
+        int by = layer << 4;
+        int bz = chunkZ << 4;
+        int fromY = Math.max(minY - by, 0);
+        int toY = Math.min(maxY - by, 15);
+        if (fromY > toY) {
+            return SectionRows.EMPTY;
+        }
+        // The cylinder has the same cross-section on every layer, so only compute the first one
+        int base = fromY << 4;
+        for (int z = 0; z < 16; z++) {
+            double dz = Math.abs(bz + z - center.z()) * radiusInverse.z();
+            if (dz * dz > 1) {
+                rows[base | z] = 0;
+                continue;
+            }
+            double dx = Math.sqrt(1 - dz * dz) / radiusInverse.x();
+            rows[base | z] = SectionRows.convexRow(this, bx, by + fromY, bz + z, center.x() - dx, center.x() + dx);
+        }
+        Arrays.fill(rows, 0, base, (char) 0);
+        for (int y = fromY + 1; y <= toY; y++) {
+            System.arraycopy(rows, base, rows, y << 4, 16);
+        }
+        Arrays.fill(rows, (toY + 1) << 4, SectionRows.ROWS, (char) 0);
+        return SectionRows.summarize(rows);
+    }
+
     @Override
     public void filter(
             final IChunk chunk, final Filter filter, final ChunkFilterBlock block,
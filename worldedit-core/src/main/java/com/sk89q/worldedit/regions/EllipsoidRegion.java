@@ -26,6 +26,7 @@
 import com.fastasyncworldedit.core.queue.IChunk;
 import com.fastasyncworldedit.core.queue.IChunkGet;
 import com.fastasyncworldedit.core.queue.IChunkSet;
+import com.fastasyncworldedit.core.regions.SectionRows;
 import com.fastasyncworldedit.core.util.MathMan;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
@@ -307,6 +308,44 @@ public EllipsoidRegion clone() {
     }
 
     //FAWE start
+    @Override
+    public int getSectionRows(int chunkX, int layer, int chunkZ, char[] rows) {
+        int bx = chunkX << 4;
+        int by = layer << 4;
+        int bz = chunkZ << 4;
+        if (!SectionRows.intersects(getMinimumPoint(), getMaximumPoint(), bx, by, bz)) {
+            return SectionRows.EMPTY;
+        }
+        int cx = center.x();
+        int cy = center.y();
+        int cz = center.z();
+        for (int y = 0; y < 16; y++) {
+            int dy = by + y - cy;
+            for (int z = 0; z < 16; z++) {
+                int dz = bz + z - cz;
+                double dx;
+                if (sphere) {
+                    long remainder = radiusLengthSqr - (long) dy * dy - (long) dz * dz;
+                    if (remainder < 0) {
+                        rows[y << 4 | z] = 0;
+                        continue;
+                    }
+                    dx = Math.sqrt(remainder);
+                } else {
+                    double cyd = dy * dy * inverseRadiusSqr.y();
+                    double czd = dz * dz * inverseRadiusSqr.z();
+                    if (cyd + czd > 1) {
+                        rows[y << 4 | z] = 0;
+                        continue;
+                    }
+                    dx = Math.sqrt((1 - cyd - czd) / inverseRadiusSqr.x());
+                }
+                rows[y << 4 | z] = SectionRows.convexRow(this, bx, by + y, bz + z, cx - dx, cx + dx);
+            }
+        }
+        return SectionRows.summarize(rows);
+    }
+
     private void filterSpherePartial(
             int y1, int y2, int bx, int bz, Filter filter,
             ChunkFilterBlock block, IChunkGet get, IChunkSet set
@@ -29,6 +29,7 @@
 import com.fastasyncworldedit.core.queue.IChunk;
 import com.fastasyncworldedit.core.queue.IChunkGet;
 import com.fastasyncworldedit.core.queue.IChunkSet;
+import com.fastasyncworldedit.core.regions.SectionRows;
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.extension.platform.Capability;
 import com.sk89q.worldedit.extent.Extent;
@@ -258,6 +259,22 @@ default int getMaximumY() {
         return getMaximumPoint().y();
     }
 
+    /**
+     * Rasterize the part of this region inside a chunk section into one 16 bit x-row per {@code y << 4 | z}. Bit {@code x}
+     * of a row is set if the block at {@code (x, y, z)} relative to the section's minimum corner is inside this region.
+     * Implementations should compute the rows analytically where possible rather than testing every block.
+     *
+     * @param chunkX chunk x coordinate
+     * @param layer  section y coordinate
+     * @param chunkZ chunk z coordinate
+     * @param rows   array of at least {@link SectionRows#ROWS} rows to write to, only valid if {@link SectionRows#PARTIAL}
+     *               is returned
+     * @return {@link SectionRows#EMPTY}, {@link SectionRows#PARTIAL} or {@link SectionRows#FULL}
+     */
+    default int getSectionRows(int chunkX, int layer, int chunkZ, char[] rows) {
+        return SectionRows.rasterize(this, chunkX << 4, layer << 4, chunkZ << 4, rows);
+    }
+
     default void filter(
             final IChunk chunk,
             final Filter filter,
@@ -270,7 +287,7 @@ default void filter(
         int maxSection = Math.min(get.getMaxSectionPosition(), getMaximumY() >> 4);
         for (int layer = minSection; layer <= maxSection; layer++) {
             if ((!full && !get.hasSection(layer)) || !filter.appliesLayer(chunk, layer)) {
-                return;
+                continue;
             }
             block = block.initLayer(get, set, layer);
             block.filter(filter, this);
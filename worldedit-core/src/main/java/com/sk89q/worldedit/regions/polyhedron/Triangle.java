@@ -93,6 +93,26 @@ public boolean above(Vector3 pt) {
         return normal.dot(pt) > maxDotProduct;
     }
 
+    //FAWE start
+    /**
+     * Returns the unit normal of the plane the triangle is in.
+     *
+     * @return the normal
+     */
+    public Vector3 getNormal() {
+        return normal;
+    }
+
+    /**
+     * Returns the largest dot product of the normal with any vertex. Points with a greater dot product are above the plane.
+     *
+     * @return the max dot product
+     */
+    public double getMaxDotProduct() {
+        return maxDotProduct;
+    }
+    //FAWE end
+
     /**
      * Set the triangle's tag.
      *
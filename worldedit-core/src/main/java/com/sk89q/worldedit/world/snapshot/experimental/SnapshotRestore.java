@@ -19,45 +19,53 @@
 
 package com.sk89q.worldedit.world.snapshot.experimental;
 
+import com.fastasyncworldedit.core.world.snapshot.SnapshotChunkStream;
+import com.sk89q.jnbt.CompoundTag;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.internal.util.LogManagerCompat;
 import com.sk89q.worldedit.math.BlockVector2;
-import com.sk89q.worldedit.math.BlockVector3;
-import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.world.DataException;
 import com.sk89q.worldedit.world.chunk.Chunk;
-import com.sk89q.worldedit.world.storage.ChunkStore;
+import com.sk89q.worldedit.world.storage.ChunkStoreHelper;
 import com.sk89q.worldedit.world.storage.MissingChunkException;
 import org.enginehub.linbus.tree.LinCompoundTag;
 import org.enginehub.linbus.tree.LinDoubleTag;
 import org.enginehub.linbus.tree.LinFloatTag;
 import org.enginehub.linbus.tree.LinListTag;
+import org.apache.logging.log4j.Logger;
 import org.enginehub.linbus.tree.LinTagType;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * A snapshot restore operation.
  */
 public class SnapshotRestore {
 
-    private final Map<BlockVector2, ArrayList<BlockVector3>> neededChunks = new LinkedHashMap<>();
+    //FAWE start - only store chunk positions, stream blocks from the snapshot chunks
+    private static final Logger LOGGER = LogManagerCompat.getLogger();
+
+    private final List<BlockVector2> neededChunks;
+    //FAWE end
     private final Snapshot snapshot;
     private final EditSession editSession;
     //FAWE start - biome and entity restore
     private final boolean restoreBiomes;
     private final boolean restoreEntities;
+    private final Region region;
     //FAWE end
     private ArrayList<BlockVector2> missingChunks;
     private ArrayList<BlockVector2> errorChunks;
     private String lastErrorMessage;
+    //FAWE start
+    private long peakMemory;
+    //FAWE end
 
     /**
      * Construct the snapshot restore operation.
@@ -91,64 +99,11 @@ public SnapshotRestore(
         this.editSession = editSession;
         this.restoreBiomes = restoreBiomes;
         this.restoreEntities = restoreEntities;
-
-        if (region instanceof CuboidRegion) {
-            findNeededCuboidChunks(region);
-        } else {
-            findNeededChunks(region);
-        }
+        this.region = region;
+        this.neededChunks = SnapshotChunkStream.getChunks(region);
     }
     //FAWE end
 
-    /**
-     * Find needed chunks in the axis-aligned bounding box of the region.
-     *
-     * @param region The {@link Region} to iterate
-     */
-    private void findNeededCuboidChunks(Region region) {
-        BlockVector3 min = region.getMinimumPoint();
-        BlockVector3 max = region.getMaximumPoint();
-
-        // First, we need to group points by chunk so that we only need
-        // to keep one chunk in memory at any given moment
-        for (int x = min.x(); x <= max.x(); ++x) {
-            for (int y = min.y(); y <= max.y(); ++y) {
-                for (int z = min.z(); z <= max.z(); ++z) {
-                    BlockVector3 pos = BlockVector3.at(x, y, z);
-                    checkAndAddBlock(pos);
-                }
-            }
-        }
-    }
-
-    /**
-     * Find needed chunks in the region.
-     *
-     * @param region The {@link Region} to iterate
-     */
-    private void findNeededChunks(Region region) {
-        // First, we need to group points by chunk so that we only need
-        // to keep one chunk in memory at any given moment
-        for (BlockVector3 pos : region) {
-            checkAndAddBlock(pos);
-        }
-    }
-
-    private void checkAndAddBlock(BlockVector3 pos) {
-        if (editSession.getMask() != null && !editSession.getMask().test(pos)) {
-            return;
-        }
-
-        BlockVector2 chunkPos = ChunkStore.toChunk(pos);
-
-        // Unidentified chunk
-        if (!neededChunks.containsKey(chunkPos)) {
-            neededChunks.put(chunkPos, new ArrayList<>());
-        }
-
-        neededChunks.get(chunkPos).add(pos);
-    }
-
     /**
      * Get the number of chunks that are needed.
      *
@@ -168,57 +123,61 @@ public void restore() throws MaxChangedBlocksException {
         missingChunks = new ArrayList<>();
         errorChunks = new ArrayList<>();
 
-        // Now let's start restoring!
-        for (Map.Entry<BlockVector2, ArrayList<BlockVector3>> entry : neededChunks.entrySet()) {
-            BlockVector2 chunkPos = entry.getKey();
-            Chunk chunk;
-
-            try {
-                // This will need to be changed if we start officially supporting 3d snapshots.
-                chunk = snapshot.getChunk(chunkPos.toBlockVector3());
-                // Good, the chunk could be at least loaded
-
-                // Now just copy blocks!
-                for (BlockVector3 pos : entry.getValue()) {
-                    try {
-                        editSession.setBlock(pos, chunk.getBlock(pos));
-                        //FAWE start - biome and entity restore
-                        if (restoreBiomes && (pos.x() & 3) == 0 && (pos.y() & 3) == 0 && (pos.z() & 3) == 0) {
-                            editSession.setBiome(pos, chunk.getBiome(pos));
-                        }
-                        //FAWE end
-                    } catch (DataException e) {
-                        // this is a workaround: just ignore for now
+        //FAWE start - load chunks in parallel and stream their blocks
+        SnapshotChunkStream stream = new SnapshotChunkStream();
+        stream.stream(
+                neededChunks,
+                chunkPos -> {
+                    CompoundTag rootTag;
+                    // Snapshot readers aren't thread safe
+                    synchronized (snapshot) {
+                        // This will need to be changed if we start officially supporting 3d snapshots.
+                        rootTag = snapshot.getChunkTag(chunkPos.toBlockVector3());
                     }
-                }
-                //FAWE start - biome and entity restore
-                if (restoreEntities) {
-                    try {
-                        for (BaseEntity entity : chunk.getEntities()) {
-                            LinCompoundTag tag = entity.getNbtReference().getValue();
-                            LinListTag<LinDoubleTag> pos = tag.getListTag("Pos", LinTagType.doubleTag());
-                            LinListTag<LinFloatTag> rotation = tag.getListTag("Rotation", LinTagType.floatTag());
-                            double x = pos.get(0).value();
-                            double y = pos.get(1).value();
-                            double z = pos.get(2).value();
-                            float yRot = rotation.get(0).value();
-                            float xRot = rotation.get(1).value();
-                            Location location = new Location(editSession.getWorld(), x, y, z, yRot, xRot);
-                            editSession.createEntity(location, entity);
-                        }
-                    } catch (DataException e) {
-                        // this is a workaround: just ignore for now
+                    return ChunkStoreHelper.getChunk(rootTag);
+                },
+                (chunkPos, chunk) -> {
+                    SnapshotChunkStream.copyChunk(chunk, chunkPos, region, editSession, restoreBiomes);
+                    if (restoreEntities) {
+                        restoreEntities(chunk);
+                    }
+                },
+                (chunkPos, e) -> {
+                    if (e instanceof MissingChunkException) {
+                        missingChunks.add(chunkPos);
+                    } else if (e instanceof IOException || e instanceof DataException) {
+                        errorChunks.add(chunkPos);
+                        lastErrorMessage = e.getMessage();
+                    } else {
+                        throw e instanceof RuntimeException re ? re : new RuntimeException(e);
                     }
                 }
-                //FAWE end
-            } catch (MissingChunkException me) {
-                missingChunks.add(chunkPos);
-            } catch (IOException | DataException me) {
-                errorChunks.add(chunkPos);
-                lastErrorMessage = me.getMessage();
+        );
+        peakMemory = stream.getPeakMemory();
+        LOGGER.debug("Restored {} chunks from snapshot, peak heap usage {} MiB", neededChunks.size(), peakMemory >> 20);
+        //FAWE end
+    }
+
+    //FAWE start - biome and entity restore
+    private void restoreEntities(Chunk chunk) {
+        try {
+            for (BaseEntity entity : chunk.getEntities()) {
+                LinCompoundTag tag = entity.getNbtReference().getValue();
+                LinListTag<LinDoubleTag> pos = tag.getListTag("Pos", LinTagType.doubleTag());
+                LinListTag<LinFloatTag> rotation = tag.getListTag("Rotation", LinTagType.floatTag());
+                double x = pos.get(0).value();
+                double y = pos.get(1).value();
+                double z = pos.get(2).value();
+                float yRot = rotation.get(0).value();
+                float xRot = rotation.get(1).value();
+                Location location = new Location(editSession.getWorld(), x, y, z, yRot, xRot);
+                editSession.createEntity(location, entity);
             }
+        } catch (DataException e) {
+            // this is a workaround: just ignore for now
         }
     }
+    //FAWE end
 
     /**
      * Get a list of the missing chunks. restore() must have been called
@@ -259,4 +218,16 @@ public String getLastErrorMessage() {
         return lastErrorMessage;
     }
 
+    //FAWE start
+
+    /**
+     * Get the highest heap usage in bytes sampled during the last {@link #restore()}.
+     *
+     * @return peak heap usage in bytes
+     */
+    public long getPeakMemory() {
+        return peakMemory;
+    }
+    //FAWE end
+
 }
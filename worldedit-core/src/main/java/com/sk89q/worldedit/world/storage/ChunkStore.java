@@ -112,13 +112,31 @@ public CompoundTag getEntitiesTag(BlockVector2 position, World world) {
      */
     public Chunk getChunk(BlockVector2 position, World world) throws DataException, IOException {
         CompoundTag rootTag = getChunkTag(position, world);
-        //FAWE start - biome and entity restore
+        //FAWE start - biome and entity restore, parallel snapshot restore
+        return getChunk(rootTag, position, world);
+    }
+
+    /**
+     * Decode a chunk from its tag as returned by {@link #getChunkTag(BlockVector2, World)}. Doesn't read from the store
+     * other than for a 1.17+ entities tag, which is read while holding this store's monitor, so chunks may be decoded on
+     * multiple threads as long as other reads also synchronize on this store.
+     *
+     * @param rootTag  the chunk tag
+     * @param position the position of the chunk
+     * @return a chunk
+     * @throws DataException thrown on data error
+     */
+    public Chunk getChunk(CompoundTag rootTag, BlockVector2 position, World world) throws DataException {
         int dataVersion = rootTag.getInt("DataVersion");
         if (dataVersion == 0) {
             dataVersion = -1;
         }
         if (dataVersion >= Constants.DATA_VERSION_MC_1_17) {
-            return ChunkStoreHelper.getChunk(rootTag, () -> getEntitiesTag(position, world));
+            return ChunkStoreHelper.getChunk(rootTag, () -> {
+                synchronized (this) {
+                    return getEntitiesTag(position, world);
+                }
+            });
         } else {
             return ChunkStoreHelper.getChunk(rootTag);
         }
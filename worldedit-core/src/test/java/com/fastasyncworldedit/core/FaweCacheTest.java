@@ -0,0 +1,94 @@
+package com.fastasyncworldedit.core;
+
+import com.fastasyncworldedit.core.configuration.Settings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FaweCacheTest {
+
+    private boolean protocolSupportFix;
+
+    @BeforeEach
+    void setUp() {
+        protocolSupportFix = Settings.settings().PROTOCOL_SUPPORT_FIX;
+        // The default lookup is sized by the block states of the platform, which tests don't have
+        int[] blockToPalette = new int[Character.MAX_VALUE + 1];
+        Arrays.fill(blockToPalette, Integer.MAX_VALUE);
+        FaweCache.INSTANCE.BLOCK_TO_PALETTE.set(blockToPalette);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Settings.settings().PROTOCOL_SUPPORT_FIX = protocolSupportFix;
+    }
+
+    private static char[] section(int states) {
+        Random random = new Random(states);
+        char[] blocks = new char[4096];
+        for (int i = 0; i < 4096; i++) {
+            // Every state at least once, the rest random
+            blocks[i] = (char) (10 + 3 * (i < states ? i : random.nextInt(states)));
+        }
+        return blocks;
+    }
+
+    private static int[] toInts(char[] blocks) {
+        int[] ints = new int[blocks.length];
+        for (int i = 0; i < blocks.length; i++) {
+            ints[i] = blocks[i];
+        }
+        return ints;
+    }
+
+    /**
+     * Copy of the used part of a palette, as palettes and their arrays are reused.
+     */
+    private record Copy(int bitsPerEntry, int[] paletteToBlock, long[] blockStates) {
+
+        Copy(FaweCache.Palette palette) {
+            this(
+                    palette.bitsPerEntry,
+                    Arrays.copyOf(palette.paletteToBlock, palette.paletteToBlockLength),
+                    Arrays.copyOf(palette.blockStates, palette.blockStatesLength)
+            );
+        }
+
+    }
+
+    private static void assertSamePalette(Copy expected, Copy actual, String message) {
+        assertEquals(expected.bitsPerEntry(), actual.bitsPerEntry(), message);
+        assertArrayEquals(expected.paletteToBlock(), actual.paletteToBlock(), message);
+        assertArrayEquals(expected.blockStates(), actual.blockStates(), message);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    @DisplayName("Small sections give the same palette as the general path")
+    void testSmallPaletteMatchesGeneral(boolean protocolSupportFix) {
+        Settings.settings().PROTOCOL_SUPPORT_FIX = protocolSupportFix;
+        // Only char arrays of up to 16 states take the small path, int arrays always take the general one
+        for (int states : new int[]{1, 16, 17}) {
+            char[] blocks = section(states);
+            String message = states + " states, protocol support fix " + protocolSupportFix;
+
+            Copy small = new Copy(FaweCache.INSTANCE.toPalette(0, blocks));
+            Copy general = new Copy(FaweCache.INSTANCE.toPalette(0, toInts(blocks)));
+            assertSamePalette(general, small, message);
+            assertEquals(states, small.paletteToBlock().length, message);
+
+            Copy smallUnstretched = new Copy(FaweCache.INSTANCE.toPaletteUnstretched(0, blocks));
+            Copy generalUnstretched = new Copy(FaweCache.INSTANCE.toPaletteUnstretched(0, toInts(blocks)));
+            assertSamePalette(generalUnstretched, smallUnstretched, message);
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.fastasyncworldedit.core.command.tool.brush;
+
+import com.fastasyncworldedit.core.math.stencil.OrdinalGrid;
+import com.sk89q.worldedit.math.BlockVector3;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+import static com.fastasyncworldedit.core.command.tool.brush.SyntheticMaterials.AIR;
+import static com.fastasyncworldedit.core.command.tool.brush.SyntheticMaterials.INSTANCE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class BlendBallTest {
+
+    private static final int MIN_Y = -64;
+    private static final int MAX_Y = 319;
+
+    /**
+     * Blending as done before the brush used a stencil, a cell at a time over the ball. Blocks are read from the
+     * original grid, as the edit session didn't read back the blocks it set.
+     */
+    private static char[] blendBefore(
+            OrdinalGrid grid,
+            double size,
+            int minFreqDiff,
+            boolean onlyAir,
+            @Nullable boolean[] failed
+    ) {
+        char[] original = grid.getOrdinals();
+        char[] result = original.clone();
+        int outsetSize = (int) (size + 1);
+        int center = outsetSize + 1;
+        double brushSizeSquared = size * size;
+        int minGridY = grid.getMinimumPoint().y();
+        int[] frequency = new int[SyntheticMaterials.TYPES];
+        for (int x = -outsetSize; x <= outsetSize; x++) {
+            int xx = x * x;
+            for (int y = -outsetSize; y <= outsetSize; y++) {
+                int y0 = minGridY + center + y;
+                // Blocks can't be set outside the world
+                if (y0 < MIN_Y || y0 > MAX_Y) {
+                    continue;
+                }
+                int yy = y * y;
+                int xxyy = xx + yy;
+                if (xxyy >= brushSizeSquared) {
+                    continue;
+                }
+                for (int z = -outsetSize; z <= outsetSize; z++) {
+                    int index = grid.getIndex(center + x, center + y, center + z);
+                    if (xxyy + z * z >= brushSizeSquared || failed != null && failed[index]) {
+                        continue;
+                    }
+                    int highest = 1, currentBlockFrequency = 1;
+                    char currentState = original[index];
+                    char highestState = currentState;
+                    int currentStateID = INSTANCE.getTypeId(currentState);
+                    Arrays.fill(frequency, 0);
+                    int air = 0;
+                    int total = 26;
+                    boolean tie = false;
+                    for (int ox = -1; ox <= 1; ox++) {
+                        for (int oz = -1; oz <= 1; oz++) {
+                            for (int oy = -1; oy <= 1; oy++) {
+                                if (ox == 0 && oy == 0 && oz == 0) {
+                                    continue;
+                                } else if (oy + y0 < MIN_Y || oy + y0 > MAX_Y) {
+                                    total--;
+                                    continue;
+                                }
+                                int neighbor = grid.getIndex(center + x + ox, center + y + oy, center + z + oz);
+                                char state = failed != null && failed[neighbor] ? AIR : original[neighbor];
+                                if (INSTANCE.isAir(state)) {
+                                    air++;
+                                }
+                                int internalID = INSTANCE.getTypeId(state);
+                                int count = frequency[internalID];
+                                if (internalID == currentStateID) {
+                                    currentBlockFrequency++;
+                                }
+                                count++;
+                                if (count - highest >= minFreqDiff) {
+                                    highest = count;
+                                    highestState = state;
+                                    tie = false;
+                                } else if (count == highest) {
+                                    tie = true;
+                                }
+                                frequency[internalID] = count;
+                            }
+                        }
+                    }
+                    if (onlyAir) {
+                        if (air * 2 - total >= minFreqDiff) {
+                            if (!INSTANCE.isAir(currentState)) {
+                                result[index] = AIR;
+                            }
+                        } else if (INSTANCE.isAir(currentState) && total - 2 * air >= minFreqDiff) {
+                            result[index] = highestState;
+                        }
+                        continue;
+                    }
+                    if (highest - currentBlockFrequency >= minFreqDiff && !tie && currentState != highestState) {
+                        result[index] = highestState;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "3.0, 1, false, false, 70",
+            "4.5, 1, false, false, 70",
+            "4.0, 2, false, true, 70",
+            "3.5, 1, true, false, 70",
+            "5.0, 3, true, true, 70",
+            // Balls crossing the bottom and the top of the world
+            "4.0, 1, false, false, -65",
+            "4.0, 1, true, true, 321"
+    })
+    @DisplayName("Blending grids matches blending a cell at a time")
+    void testSameAsBefore(double size, int minFreqDiff, boolean onlyAir, boolean masked, int centerY) {
+        int center = (int) (size + 1) + 1;
+        BlockVector3 position = BlockVector3.at(17, centerY, -40);
+        BlockVector3 min = position.subtract(center, center, center);
+        OrdinalGrid original = SyntheticMaterials.terrain(min, position.add(center, center, center), minFreqDiff);
+        boolean[] failed = null;
+        if (masked) {
+            // A mask failing on stone, which blending then treats as air
+            failed = new boolean[original.getOrdinals().length];
+            for (int i = 0; i < failed.length; i++) {
+                failed[i] = INSTANCE.getTypeId(original.getOrdinals()[i]) == SyntheticMaterials.STONE;
+            }
+        }
+        char[] before = original.getOrdinals().clone();
+        char[] expected = blendBefore(original, size, minFreqDiff, onlyAir, failed);
+        OrdinalGrid result = new OrdinalGrid(min, position.add(center, center, center));
+        new BlendBall(minFreqDiff, onlyAir, null).blend(
+                original,
+                result,
+                center,
+                size * size,
+                MIN_Y,
+                MAX_Y,
+                failed,
+                INSTANCE
+        );
+        assertArrayEquals(expected, result.getOrdinals());
+        assertArrayEquals(before, original.getOrdinals());
+        assertFalse(Arrays.equals(before, expected));
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.fastasyncworldedit.core.command.tool.brush;
+
+import com.fastasyncworldedit.core.math.stencil.OrdinalGrid;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.util.Direction;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+
+import static com.fastasyncworldedit.core.command.tool.brush.SyntheticMaterials.INSTANCE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ErodeBrushTest {
+
+    private static final BlockVector3[] FACES = Direction
+            .valuesOf(Direction.Flag.CARDINAL)
+            .stream()
+            .map(Direction::toBlockVector)
+            .toArray(BlockVector3[]::new);
+
+    /**
+     * Erosion as done before the brush used a stencil, a cell at a time over the sphere.
+     */
+    private static char[] erodeBefore(
+            OrdinalGrid grid,
+            int brushSize,
+            int erodeFaces,
+            int erodeRecursion,
+            int fillFaces,
+            int fillRecursion
+    ) {
+        char[] current = grid.getOrdinals().clone();
+        for (int i = 0; i < erodeRecursion; i++) {
+            current = iterationBefore(grid, current, brushSize, erodeFaces, true);
+        }
+        for (int i = 0; i < fillRecursion; i++) {
+            current = iterationBefore(grid, current, brushSize, fillFaces, false);
+        }
+        return current;
+    }
+
+    private static char[] iterationBefore(OrdinalGrid grid, char[] current, int brushSize, int faces, boolean erode) {
+        char[] target = current.clone();
+        int[] frequency = new int[SyntheticMaterials.TYPES];
+        int center = brushSize + 1;
+        for (int x = -brushSize; x <= brushSize; x++) {
+            for (int z = -brushSize; z <= brushSize; z++) {
+                for (int y = -brushSize; y <= brushSize; y++) {
+                    if (x * x + y * y + z * z >= brushSize * brushSize) {
+                        continue;
+                    }
+                    int index = grid.getIndex(center + x, center + y, center + z);
+                    char state = current[index];
+                    if (isBlocker(state, erode) != erode) {
+                        continue;
+                    }
+                    char highestState = state;
+                    Arrays.fill(frequency, 0);
+                    int highest = 1;
+                    int total = 0;
+                    for (BlockVector3 offs : FACES) {
+                        char next = current[grid.getIndex(
+                                center + x + offs.x(),
+                                center + y + offs.y(),
+                                center + z + offs.z()
+                        )];
+                        if (isBlocker(next, erode) == erode) {
+                            continue;
+                        }
+                        total++;
+                        int count = ++frequency[INSTANCE.getTypeId(next)];
+                        if (erode ? count > highest : count >= highest) {
+                            highest = count;
+                            highestState = next;
+                        }
+                    }
+                    if (total >= faces) {
+                        target[index] = highestState;
+                    }
+                }
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Erosion looks at the material of states, filling at the material of their types.
+     */
+    private static boolean isBlocker(char ordinal, boolean erode) {
+        return erode ? INSTANCE.isMovementBlocker(ordinal) : INSTANCE.isTypeMovementBlocker(ordinal);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "3, 2, 1, 5, 1",
+            "5, 2, 1, 5, 1",
+            "4, 1, 3, 3, 2",
+            "6, 3, 2, 1, 0",
+            "4, 0, 0, 2, 3"
+    })
+    @DisplayName("Eroding grids matches eroding a cell at a time")
+    void testSameAsBefore(int brushSize, int erodeFaces, int erodeRecursion, int fillFaces, int fillRecursion) {
+        int center = brushSize + 1;
+        BlockVector3 target = BlockVector3.at(-3, 70, 12);
+        OrdinalGrid original = SyntheticMaterials.terrain(
+                target.subtract(center, center, center),
+                target.add(center, center, center),
+                brushSize
+        );
+        char[] before = original.getOrdinals().clone();
+        char[] expected = erodeBefore(original, brushSize, erodeFaces, erodeRecursion, fillFaces, fillRecursion);
+        OrdinalGrid result = ErodeBrush.erode(
+                original,
+                center,
+                brushSize * brushSize,
+                erodeFaces,
+                erodeRecursion,
+                fillFaces,
+                fillRecursion,
+                INSTANCE
+        );
+        assertArrayEquals(expected, result.getOrdinals());
+        assertArrayEquals(before, original.getOrdinals());
+        if (erodeRecursion + fillRecursion > 0) {
+            assertFalse(Arrays.equals(before, expected));
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.fastasyncworldedit.core.command.tool.brush;
+
+import com.fastasyncworldedit.core.math.stencil.OrdinalGrid;
+import com.fastasyncworldedit.core.math.stencil.OrdinalMaterials;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockTypesCache;
+
+import java.util.Random;
+
+/**
+ * Block types of several states each over made up ordinals, as block states need a platform. Ordinals from
+ * {@link #FIRST_STATE} belong to type {@code ordinal >> 2}, the reserved ordinals below are a type each.
+ */
+final class SyntheticMaterials implements OrdinalMaterials {
+
+    static final SyntheticMaterials INSTANCE = new SyntheticMaterials();
+
+    static final char AIR = BlockTypesCache.ReservedIDs.AIR;
+    static final char CAVE_AIR = BlockTypesCache.ReservedIDs.CAVE_AIR;
+    static final char FIRST_STATE = 16;
+    // Types of four states each
+    static final int STONE = 4;
+    static final int DIRT = 5;
+    // Blocks movement as a type, though its open states don't
+    static final int DOOR = 6;
+    static final int WATER = 7;
+    static final int TYPES = 8;
+
+    private SyntheticMaterials() {
+    }
+
+    static char state(int type, int state) {
+        return (char) (type << 2 | state);
+    }
+
+    @Override
+    public boolean isMovementBlocker(char ordinal) {
+        int type = getTypeId(ordinal);
+        return type == STONE || type == DIRT || type == DOOR && (ordinal & 3) < 2;
+    }
+
+    @Override
+    public boolean isTypeMovementBlocker(char ordinal) {
+        int type = getTypeId(ordinal);
+        return type == STONE || type == DIRT || type == DOOR;
+    }
+
+    @Override
+    public boolean isAir(char ordinal) {
+        return ordinal == AIR || ordinal == CAVE_AIR;
+    }
+
+    @Override
+    public int getTypeId(char ordinal) {
+        return ordinal < FIRST_STATE ? ordinal : ordinal >> 2;
+    }
+
+    /**
+     * Create a grid of solid ground below noisy terrain, with air above and random blocks throughout.
+     */
+    static OrdinalGrid terrain(BlockVector3 min, BlockVector3 max, long seed) {
+        OrdinalGrid grid = new OrdinalGrid(min, max);
+        char[] ordinals = grid.getOrdinals();
+        Random random = new Random(seed);
+        char[] palette = {
+                AIR, CAVE_AIR,
+                state(STONE, 0), state(STONE, 1), state(STONE, 3),
+                state(DIRT, 0), state(DIRT, 2),
+                state(DOOR, 0), state(DOOR, 3),
+                state(WATER, 0), state(WATER, 1)
+        };
+        int index = 0;
+        for (int y = 0; y < grid.getHeight(); y++) {
+            for (int z = 0; z < grid.getLength(); z++) {
+                for (int x = 0; x < grid.getWidth(); x++, index++) {
+                    int surface = grid.getHeight() / 2 + (x + z) % 3 - 1;
+                    if (random.nextInt(4) == 0) {
+                        ordinals[index] = palette[random.nextInt(palette.length)];
+                    } else if (y <= surface) {
+                        ordinals[index] = random.nextBoolean() ? state(STONE, 0) : state(DIRT, 1);
+                    } else {
+                        ordinals[index] = AIR;
+                    }
+                }
+            }
+        }
+        return grid;
+    }
+
+}
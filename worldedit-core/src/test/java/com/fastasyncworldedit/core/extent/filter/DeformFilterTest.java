@@ -0,0 +1,61 @@
+package com.fastasyncworldedit.core.extent.filter;
+
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.internal.expression.EvaluationException;
+import com.sk89q.worldedit.internal.expression.Expression;
+import com.sk89q.worldedit.internal.expression.LocalSlot.Variable;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.regions.shape.WorldEditExpressionEnvironment;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DeformFilterTest {
+
+    private static final Vector3 ZERO = Vector3.at(10.5, 64, -3.25);
+    private static final Vector3 UNIT = Vector3.at(2.5, 1, 0.75);
+
+    private static Expression compile(String expression) {
+        Expression compiled = Expression.compile(expression, "x", "y", "z");
+        compiled.optimize();
+        compiled.setEnvironment(new WorldEditExpressionEnvironment((Extent) null, UNIT, ZERO));
+        return compiled;
+    }
+
+    // The sequential path of EditSession#deformRegion
+    private static BlockVector3 sequentialSource(Expression expression, int x, int y, int z) throws EvaluationException {
+        Variable xv = expression.getSlots().getVariable("x").orElseThrow(IllegalStateException::new);
+        Variable yv = expression.getSlots().getVariable("y").orElseThrow(IllegalStateException::new);
+        Variable zv = expression.getSlots().getVariable("z").orElseThrow(IllegalStateException::new);
+        Vector3 zero2 = ZERO.add(0.5, 0.5, 0.5);
+        Vector3 scaled = BlockVector3.at(x, y, z).toVector3().subtract(ZERO).divide(UNIT);
+        expression.evaluate(new double[]{scaled.x(), scaled.y(), scaled.z()}, -1);
+        return BlockVector3.at(
+                (int) Math.floor(xv.value() * UNIT.x() + zero2.x()),
+                (int) Math.floor(yv.value() * UNIT.y() + zero2.y()),
+                (int) Math.floor(zv.value() * UNIT.z() + zero2.z())
+        );
+    }
+
+    @Test
+    @DisplayName("Forked filters read the same positions as the sequential deform")
+    void testSameSourceAsSequential() throws EvaluationException {
+        String source = "x = x * 1.3 + 0.1; y = y - sin(x) * 2.7; z = -z / 3";
+        Expression sequential = compile(source);
+        DeformFilter root = new DeformFilter(null, compile(source), ZERO, UNIT, -1, -64, 319);
+        DeformFilter[] forks = {root.init(), root.init(), root.init()};
+        int i = 0;
+        for (int y = 40; y < 90; y++) {
+            for (int z = -20; z < 20; z++) {
+                for (int x = -5; x < 30; x++) {
+                    BlockVector3 expected = sequentialSource(sequential, x, y, z);
+                    BlockVector3 actual = forks[i++ % forks.length].getSource(x, y, z);
+                    assertEquals(expected, actual.toImmutable(), "source of " + x + " " + y + " " + z);
+                }
+            }
+        }
+    }
+
+}
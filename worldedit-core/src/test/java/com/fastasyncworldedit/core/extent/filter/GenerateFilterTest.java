@@ -0,0 +1,52 @@
+package com.fastasyncworldedit.core.extent.filter;
+
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.internal.expression.EvaluationException;
+import com.sk89q.worldedit.internal.expression.Expression;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.regions.shape.WorldEditExpressionEnvironment;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GenerateFilterTest {
+
+    private static final Vector3 ZERO = Vector3.at(0.5, 70, 4.5);
+    private static final Vector3 UNIT = Vector3.at(12, 9.5, 7);
+
+    private static Expression compile(String expression) {
+        Expression compiled = Expression.compile(expression, "x", "y", "z", "type", "data");
+        compiled.optimize();
+        compiled.setEnvironment(new WorldEditExpressionEnvironment((Extent) null, UNIT, ZERO));
+        return compiled;
+    }
+
+    @Test
+    @DisplayName("Forked filters generate the same solid shape as the sequential path")
+    void testSameShapeAsSequential() throws EvaluationException {
+        String source = "x * x + y * y + z * z < 1 + sin(x * 7) / 4";
+        Expression sequential = compile(source);
+        GenerateFilter root = new GenerateFilter(compile(source), position -> null, ZERO, UNIT, -1);
+        GenerateFilter[] forks = {root.init(), root.init(), root.init()};
+        int i = 0;
+        int inside = 0;
+        for (int y = 58; y < 82; y++) {
+            for (int z = -5; z < 15; z++) {
+                for (int x = -14; x < 16; x++) {
+                    // The sequential path of EditSession#makeShape
+                    Vector3 scaled = Vector3.at(x, y, z).subtract(ZERO).divide(UNIT);
+                    boolean expected = sequential.evaluate(new double[]{scaled.x(), scaled.y(), scaled.z(), 1, 0}, -1) > 0;
+                    GenerateFilter filter = forks[i++ % forks.length];
+                    assertEquals(expected, filter.isInside(x, y, z, 1, 0), "inside at " + x + " " + y + " " + z);
+                    if (expected) {
+                        inside++;
+                    }
+                }
+            }
+        }
+        assertTrue(inside > 0, "the shape is empty");
+    }
+
+}
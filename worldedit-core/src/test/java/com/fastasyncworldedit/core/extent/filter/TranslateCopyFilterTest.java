@@ -0,0 +1,197 @@
+package com.fastasyncworldedit.core.extent.filter;
+
+import com.fastasyncworldedit.core.extent.BlockTranslateExtent;
+import com.fastasyncworldedit.core.extent.filter.block.ExtentFilterBlock;
+import com.fastasyncworldedit.core.function.block.SimpleBlockCopy;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.RegionMaskingFilter;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.function.visitor.RegionVisitor;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.RegionOperationException;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+class TranslateCopyFilterTest {
+
+    private static final Region REGION = new CuboidRegion(BlockVector3.at(-20, 60, -7), BlockVector3.at(21, 75, 30));
+    // As for a paste a few blocks away from the copy, so the destination overlaps the positions of the source
+    private static final BlockVector3 TRANSLATION = BlockVector3.at(3, 1, -2);
+
+    private static ExecutorService pool;
+
+    // Distinct blocks without block states, which need a platform
+    private final BaseBlock air = mock(BaseBlock.class);
+    private final BaseBlock[] blocks = {mock(BaseBlock.class), mock(BaseBlock.class), mock(BaseBlock.class)};
+    private final Extent source = new SourceExtent();
+
+    @BeforeAll
+    static void setup() {
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Source like a clipboard, with air in some positions and outside the region.
+     */
+    private final class SourceExtent extends NullExtent {
+
+        @Override
+        public BaseBlock getFullBlock(BlockVector3 position) {
+            if (!REGION.contains(position)) {
+                return air;
+            }
+            int hash = position.x() * 31 + position.y() * 17 + position.z() * 7;
+            int index = Math.floorMod(hash, blocks.length + 1);
+            return index == blocks.length ? air : blocks[index];
+        }
+
+    }
+
+    /**
+     * Destination recording the blocks set, from any thread.
+     */
+    private static final class RecordingExtent extends NullExtent {
+
+        private final Map<BlockVector3, BaseBlock> blocks = new ConcurrentHashMap<>();
+
+        @Override
+        public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block) {
+            BaseBlock previous = blocks.put(position.toImmutable(), (BaseBlock) block);
+            assertNull(previous, "set twice: " + position);
+            return true;
+        }
+
+        @Override
+        public <T extends BlockStateHolder<T>> boolean setBlock(int x, int y, int z, T block) {
+            return setBlock(BlockVector3.at(x, y, z), block);
+        }
+
+    }
+
+    /**
+     * Mask of the source blocks that aren't air, like the mask of a paste skipping air.
+     */
+    private final class ExistingMask implements Mask {
+
+        @Override
+        public boolean test(BlockVector3 vector) {
+            return source.getFullBlock(vector) != air;
+        }
+
+        @Override
+        public Mask copy() {
+            return new ExistingMask();
+        }
+
+    }
+
+    private record Result(Map<BlockVector3, BaseBlock> blocks, int affected) {
+
+    }
+
+    /**
+     * Copy as done by ForwardExtentCopy before, visiting the source region.
+     */
+    private Result copyVisitor(@Nullable Mask mask) {
+        RecordingExtent destination = new RecordingExtent();
+        Extent translated = new BlockTranslateExtent(destination, TRANSLATION.x(), TRANSLATION.y(), TRANSLATION.z());
+        RegionFunction copy = new SimpleBlockCopy(source, translated);
+        if (mask != null) {
+            copy = new RegionMaskingFilter(source, mask, copy);
+        }
+        RegionVisitor visitor = new RegionVisitor(REGION, copy, null);
+        Operations.completeBlindly(visitor);
+        return new Result(destination.blocks, visitor.getAffected());
+    }
+
+    /**
+     * Copy by applying the filter to the destination region, a chunk at a time on the pool's threads like the workers of a
+     * parallel queue.
+     */
+    private Result copyFilter(@Nullable Mask mask) throws RegionOperationException {
+        RecordingExtent destination = new RecordingExtent();
+        Region destRegion = REGION.clone();
+        destRegion.shift(TRANSLATION);
+        Map<BlockVector2, List<BlockVector3>> chunks = new LinkedHashMap<>();
+        for (BlockVector3 position : destRegion) {
+            BlockVector2 chunk = BlockVector2.at(position.x() >> 4, position.z() >> 4);
+            chunks.computeIfAbsent(chunk, c -> new ArrayList<>()).add(position.toImmutable());
+        }
+        List<List<BlockVector3>> tasks = new ArrayList<>(chunks.values());
+        TranslateCopyFilter filter = new TranslateCopyFilter(source, mask, TRANSLATION);
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(pool.submit(() -> {
+                TranslateCopyFilter fork = (TranslateCopyFilter) filter.fork();
+                ExtentFilterBlock block = new ExtentFilterBlock(destination);
+                int index;
+                while ((index = next.getAndIncrement()) < tasks.size()) {
+                    for (BlockVector3 position : tasks.get(index)) {
+                        fork.applyBlock(block.init(position));
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        filter.join();
+        return new Result(destination.blocks, filter.getAffected());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    @DisplayName("A translated copy through the filter matches visiting the source region")
+    void testSameAsVisitor(boolean masked) throws RegionOperationException {
+        Result expected = copyVisitor(masked ? new ExistingMask() : null);
+        Result actual = copyFilter(masked ? new ExistingMask() : null);
+        assertFalse(expected.blocks().isEmpty());
+        assertEquals(expected.blocks().size(), actual.blocks().size());
+        assertEquals(expected.blocks(), actual.blocks());
+        assertEquals(expected.affected(), actual.affected());
+        if (masked) {
+            assertFalse(actual.blocks().containsValue(air));
+        } else {
+            assertEquals(REGION.getVolume(), actual.affected());
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.fastasyncworldedit.core.extent.processor;
+
+import com.fastasyncworldedit.core.queue.Filter;
+import com.fastasyncworldedit.core.queue.IBatchProcessor;
+import com.fastasyncworldedit.core.queue.IChunk;
+import com.fastasyncworldedit.core.queue.IChunkGet;
+import com.fastasyncworldedit.core.queue.IChunkSet;
+import com.sk89q.worldedit.extent.Extent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.Mockito.mock;
+
+class MultiBatchProcessorTest {
+
+    private static final ProcessorScope[] SCOPES = {
+            ProcessorScope.READING_SET_BLOCKS, ProcessorScope.CUSTOM, ProcessorScope.ADDING_BLOCKS,
+            ProcessorScope.REMOVING_BLOCKS, ProcessorScope.CHANGING_BLOCKS, ProcessorScope.ADDING_BLOCKS,
+            ProcessorScope.CUSTOM, ProcessorScope.CHANGING_BLOCKS, ProcessorScope.READING_SET_BLOCKS,
+            ProcessorScope.ADDING_BLOCKS, ProcessorScope.REMOVING_BLOCKS, ProcessorScope.CUSTOM
+    };
+
+    // The order processors were applied in before the pipeline: adding blocks as added, then grouped by scope in a hash map
+    private static List<IBatchProcessor> scopeGroupedOrder(IBatchProcessor[] processors) {
+        List<IBatchProcessor> order = new ArrayList<>();
+        Map<Integer, List<IBatchProcessor>> ordered = new HashMap<>();
+        for (IBatchProcessor processor : processors) {
+            if (processor.getScope() != ProcessorScope.ADDING_BLOCKS) {
+                ordered.computeIfAbsent(processor.getScope().intValue(), k -> new ArrayList<>()).add(processor);
+                continue;
+            }
+            order.add(processor);
+        }
+        for (List<IBatchProcessor> group : ordered.values()) {
+            order.addAll(group);
+        }
+        return order;
+    }
+
+    @Test
+    @DisplayName("Sets are processed in the order of the scope grouping")
+    void testScopeGroupedOrder() {
+        List<IBatchProcessor> applied = new ArrayList<>();
+        IBatchProcessor[] processors = new IBatchProcessor[SCOPES.length];
+        for (int i = 0; i < SCOPES.length; i++) {
+            processors[i] = new RecordingProcessor(SCOPES[i], applied);
+        }
+        MultiBatchProcessor multi = new MultiBatchProcessor(processors);
+        IChunkSet set = mock(IChunkSet.class);
+        assertEquals(set, multi.processSet(null, null, set));
+        assertEquals(scopeGroupedOrder(processors), applied);
+
+        // Adding a processor rebuilds the pipeline
+        applied.clear();
+        IBatchProcessor added = new RecordingProcessor(ProcessorScope.CHANGING_BLOCKS, applied);
+        multi.addBatchProcessor(added);
+        multi.processSet(null, null, set);
+        assertEquals(scopeGroupedOrder(multi.getBatchProcessors().toArray(new IBatchProcessor[0])), applied);
+    }
+
+    @Test
+    @DisplayName("Filter processors are forked, and forks are dropped on flush")
+    void testFilterForks() {
+        List<IBatchProcessor> applied = new ArrayList<>();
+        RecordingFilter filter = new RecordingFilter(applied);
+        MultiBatchProcessor multi = new MultiBatchProcessor(filter, new RecordingProcessor(ProcessorScope.CUSTOM, applied));
+        IChunkSet set = mock(IChunkSet.class);
+        multi.processSet(null, null, set);
+        multi.processSet(null, null, set);
+        IBatchProcessor fork = applied.get(0);
+        assertNotSame(filter, fork);
+        assertEquals(fork, applied.get(2), "a thread keeps its fork");
+        multi.flush();
+        multi.processSet(null, null, set);
+        assertNotSame(fork, applied.get(4), "flush drops forks");
+    }
+
+    private static class RecordingProcessor implements IBatchProcessor {
+
+        private final ProcessorScope scope;
+        private final List<IBatchProcessor> applied;
+
+        private RecordingProcessor(ProcessorScope scope, List<IBatchProcessor> applied) {
+            this.scope = scope;
+            this.applied = applied;
+        }
+
+        @Override
+        public IChunkSet processSet(IChunk chunk, IChunkGet get, IChunkSet set) {
+            applied.add(this);
+            return set;
+        }
+
+        @Override
+        public Extent construct(Extent child) {
+            return child;
+        }
+
+        @Override
+        public ProcessorScope getScope() {
+            return scope;
+        }
+
+    }
+
+    private static final class RecordingFilter extends RecordingProcessor implements Filter {
+
+        private final List<IBatchProcessor> applied;
+
+        private RecordingFilter(List<IBatchProcessor> applied) {
+            super(ProcessorScope.CHANGING_BLOCKS, applied);
+            this.applied = applied;
+        }
+
+        @Override
+        public Filter fork() {
+            return new RecordingFilter(applied);
+        }
+
+    }
+
+}
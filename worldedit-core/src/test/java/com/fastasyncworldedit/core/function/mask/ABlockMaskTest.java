@@ -0,0 +1,117 @@
+package com.fastasyncworldedit.core.function.mask;
+
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.MaskIntersection;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockTypesCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ABlockMaskTest {
+
+    private static final char STONE = 100;
+
+    @Test
+    @DisplayName("Absent sections are tested as air")
+    void testAbsentSectionIsAir() {
+        // Sections missing from a chunk are substituted with an array of zeroes
+        char[] absent = new char[4096];
+        ABlockMask air = new OrdinalMask(BlockTypesCache.ReservedIDs.AIR);
+        assertTrue(air.mayMatchSection(absent));
+        long[] result = new long[64];
+        assertTrue(air.testSection(absent, result));
+        for (long word : result) {
+            assertEquals(-1L, word);
+        }
+
+        ABlockMask stone = new OrdinalMask(STONE);
+        assertFalse(stone.mayMatchSection(absent));
+        stone.testSection(absent, result);
+        for (long word : result) {
+            assertEquals(0L, word);
+        }
+    }
+
+    @Test
+    @DisplayName("Section results match testing each block")
+    void testSectionMatchesBlocks() {
+        char[] ordinals = new char[4096];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = switch (i % 7) {
+                case 0 -> 0;
+                case 1, 2 -> STONE;
+                default -> (char) BlockTypesCache.ReservedIDs.AIR;
+            };
+        }
+        OrdinalMask mask = new OrdinalMask(STONE);
+        long[] result = new long[64];
+        assertTrue(mask.mayMatchSection(ordinals));
+        mask.testSection(ordinals, result);
+        for (int i = 0; i < ordinals.length; i++) {
+            boolean expected = ordinals[i] == STONE;
+            assertEquals(expected, (result[i >> 6] & 1L << i) != 0, "Index " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Composite masks support section testing only if all of their masks do")
+    void testSupportsSectionTest() {
+        Mask stone = new OrdinalMask(STONE);
+        Mask air = new OrdinalMask(BlockTypesCache.ReservedIDs.AIR);
+        Mask positional = new Mask() {
+            @Override
+            public boolean test(BlockVector3 vector) {
+                return vector.y() > 0;
+            }
+
+            @Override
+            public Mask copy() {
+                return this;
+            }
+        };
+        assertTrue(stone.supportsSectionTest());
+        assertFalse(positional.supportsSectionTest());
+        assertTrue(new InverseMask(stone).supportsSectionTest());
+        assertTrue(new MaskIntersection(stone, air).supportsSectionTest());
+        assertTrue(new MaskUnion(stone, air).supportsSectionTest());
+        assertFalse(new InverseMask(positional).supportsSectionTest());
+        assertFalse(new MaskIntersection(stone, positional).supportsSectionTest());
+        assertFalse(new MaskUnion(positional, air).supportsSectionTest());
+    }
+
+    /**
+     * Matches a single ordinal without reading block states, which need a platform.
+     */
+    private static final class OrdinalMask extends ABlockMask {
+
+        private final int ordinal;
+
+        private OrdinalMask(int ordinal) {
+            super(NullExtent.INSTANCE);
+            this.ordinal = ordinal;
+        }
+
+        @Override
+        protected boolean testOrdinal(char ordinal) {
+            return ordinal == this.ordinal;
+        }
+
+        @Override
+        public boolean test(BlockState state) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public OrdinalMask copy() {
+            return this;
+        }
+
+    }
+
+}
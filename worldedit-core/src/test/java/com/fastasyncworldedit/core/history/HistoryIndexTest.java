@@ -0,0 +1,66 @@
+package com.fastasyncworldedit.core.history;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class HistoryIndexTest {
+
+    private static Region[] chunk(int chunkX, int chunkZ) {
+        BlockVector3 pos = BlockVector3.at((chunkX << 4) + 8, 64, (chunkZ << 4) + 8);
+        return new Region[]{new CuboidRegion(pos, pos)};
+    }
+
+    private static HistoryIndex createIndex() {
+        HistoryIndex index = new HistoryIndex();
+        index.add(0, 0, 100);
+        index.add(-1, 5, 20);
+        index.add(0, 0, 5);
+        index.add(3, -2, 50);
+        return index;
+    }
+
+    @Test
+    @DisplayName("Entry limits end after the last change of intersecting chunks")
+    void testEntryLimit() {
+        HistoryIndex index = createIndex();
+        assertEquals(175, index.getEntries());
+        assertEquals(105, index.getCount(0, 0));
+        assertEquals(125, index.getEntryLimit(chunk(0, 0)));
+        assertEquals(120, index.getEntryLimit(chunk(-1, 5)));
+        assertEquals(175, index.getEntryLimit(chunk(3, -2)));
+        assertEquals(0, index.getEntryLimit(chunk(1, 1)));
+        assertEquals(0, index.getEntryLimit(chunk(100, 100)));
+        // Large region, checked by iterating the indexed chunks
+        Region all = new CuboidRegion(BlockVector3.at(-10000, 0, -10000), BlockVector3.at(10000, 255, 10000));
+        assertEquals(175, index.getEntryLimit(new Region[]{all}));
+        Region west = new CuboidRegion(BlockVector3.at(-10000, 0, -10000), BlockVector3.at(15, 255, 10000));
+        assertEquals(125, index.getEntryLimit(new Region[]{west}));
+    }
+
+    @Test
+    @DisplayName("Round trips through a file")
+    void testReadWrite(@TempDir Path directory) throws IOException {
+        HistoryIndex index = createIndex();
+        File file = directory.resolve("0.bdi").toFile();
+        index.write(file);
+        HistoryIndex read = HistoryIndex.read(file);
+        assertNotNull(read);
+        assertEquals(index.getEntries(), read.getEntries());
+        for (int[] chunk : new int[][]{{0, 0}, {-1, 5}, {3, -2}, {1, 1}}) {
+            assertEquals(index.getCount(chunk[0], chunk[1]), read.getCount(chunk[0], chunk[1]));
+            assertEquals(index.getEntryLimit(chunk(chunk[0], chunk[1])), read.getEntryLimit(chunk(chunk[0], chunk[1])));
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+package com.fastasyncworldedit.core.history.change;
+
+import com.fastasyncworldedit.core.util.MathMan;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkBatchedBlockChangeTest {
+
+    private static final int MIN_LAYER = -1;
+    private static final int MAX_LAYER = 1;
+
+    /**
+     * Changes in two chunks, several to the same sections and blocks, some of them reserved ordinals.
+     */
+    private static List<MutableBlockChange> createChanges(long seed, boolean reserved) {
+        Random random = new Random(seed);
+        List<MutableBlockChange> changes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int x = random.nextInt(32) - 16;
+            int y = (MIN_LAYER << 4) + random.nextInt(48);
+            int z = random.nextInt(4);
+            int ordinal = reserved && random.nextInt(5) == 0 ? 0 : 1 + random.nextInt(8);
+            changes.add(new MutableBlockChange(x, y, z, ordinal));
+        }
+        // Two changes to the same section, the second one reserved, with every other chunk in between
+        changes.add(new MutableBlockChange(3, 5, 3, 7));
+        changes.add(new MutableBlockChange(-5, 5, 3, 2));
+        changes.add(new MutableBlockChange(3, 5, 3, reserved ? 0 : 4));
+        return changes;
+    }
+
+    /**
+     * Applies changes one by one the way MutableBlockChange sets them through a queue.
+     */
+    private static void applyPerBlock(List<MutableBlockChange> changes, ModelQueue queue) {
+        for (MutableBlockChange change : changes) {
+            ModelChunk chunk = queue.getChunk(change.x >> 4, change.z >> 4);
+            int index = (change.y & 15) << 8 | (change.z & 15) << 4 | change.x & 15;
+            queue.setBlock(chunk, change.y >> 4, index, (char) change.ordinal);
+        }
+    }
+
+    @Test
+    @DisplayName("Batched changes set the same blocks as setting each block")
+    void testMatchesPerBlock() {
+        for (int limit : new int[]{0, 1, 100}) {
+            List<MutableBlockChange> changes = createChanges(limit, true);
+            ModelQueue perBlock = new ModelQueue(0);
+            applyPerBlock(changes, perBlock);
+            perBlock.submit();
+
+            ModelQueue batched = new ModelQueue(0);
+            ChunkBatchedBlockChange.create(changes.iterator(), batched, MIN_LAYER, MAX_LAYER, limit);
+            batched.submit();
+
+            assertEquals(perBlock.world, batched.world, "Limit " + limit);
+            if (limit == 0) {
+                assertTrue(batched.merged > 0, "Sections given twice should be merged");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Batched changes survive chunks being submitted in between")
+    void testSubmittedChunks() {
+        // Reserved ordinals leave a block unchanged, so depend on when chunks are submitted and are left out here
+        List<MutableBlockChange> changes = createChanges(7, false);
+        ModelQueue perBlock = new ModelQueue(0);
+        applyPerBlock(changes, perBlock);
+        perBlock.submit();
+
+        ModelQueue batched = new ModelQueue(3);
+        ChunkBatchedBlockChange.create(changes.iterator(), batched, MIN_LAYER, MAX_LAYER, 1);
+        batched.submit();
+
+        assertTrue(batched.submitted > 1);
+        assertEquals(perBlock.world, batched.world);
+    }
+
+    private static final class ModelChunk {
+
+        private final Map<Integer, char[]> sections = new HashMap<>();
+
+    }
+
+    /**
+     * Queue of chunks holding set sections, where zero means unchanged like in the chunks of a real queue.
+     */
+    private static final class ModelQueue implements ChunkBatchedBlockChange.SectionWriter<ModelChunk> {
+
+        private final Map<Long, ModelChunk> chunks = new HashMap<>();
+        private final Map<List<Integer>, Character> world = new HashMap<>();
+        // Submit every chunk after this many chunk lookups, never if zero
+        private final int submitEvery;
+        private int lookups;
+        private int submitted;
+        private int merged;
+
+        private ModelQueue(int submitEvery) {
+            this.submitEvery = submitEvery;
+        }
+
+        @Override
+        public ModelChunk getChunk(int chunkX, int chunkZ) {
+            if (submitEvery > 0 && ++lookups % submitEvery == 0) {
+                submit();
+            }
+            return chunks.computeIfAbsent(MathMan.pairInt(chunkX, chunkZ), k -> new ModelChunk());
+        }
+
+        @Override
+        public void setBlocks(ModelChunk chunk, int layer, char[] blocks) {
+            chunk.sections.put(layer, blocks);
+        }
+
+        @Override
+        public void setBlock(ModelChunk chunk, int layer, int index, char ordinal) {
+            chunk.sections.computeIfAbsent(layer, k -> new char[4096])[index] = ordinal;
+            merged++;
+        }
+
+        private void submit() {
+            for (Map.Entry<Long, ModelChunk> entry : chunks.entrySet()) {
+                int chunkX = MathMan.unpairIntX(entry.getKey());
+                int chunkZ = MathMan.unpairIntY(entry.getKey());
+                for (Map.Entry<Integer, char[]> section : entry.getValue().sections.entrySet()) {
+                    char[] blocks = section.getValue();
+                    for (int index = 0; index < blocks.length; index++) {
+                        if (blocks[index] != 0) {
+                            List<Integer> pos = List.of(
+                                    (chunkX << 4) + (index & 15),
+                                    (section.getKey() << 4) + (index >> 8),
+                                    (chunkZ << 4) + ((index >> 4) & 15)
+                            );
+                            world.put(pos, blocks[index]);
+                        }
+                    }
+                }
+            }
+            chunks.clear();
+            submitted++;
+        }
+
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.fastasyncworldedit.core.math.stencil;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NeighborHistogramTest {
+
+    @Test
+    @DisplayName("Counts are per type")
+    void testIncrement() {
+        NeighborHistogram histogram = new NeighborHistogram();
+        assertEquals(1, histogram.increment(3));
+        assertEquals(2, histogram.increment(3));
+        assertEquals(1, histogram.increment(7));
+        assertEquals(2, histogram.get(3));
+        assertEquals(1, histogram.get(7));
+        assertEquals(0, histogram.get(4));
+        // Beyond the types counted so far
+        assertEquals(0, histogram.get(100_000));
+    }
+
+    @Test
+    @DisplayName("Clearing resets every type counted")
+    void testClear() {
+        NeighborHistogram histogram = new NeighborHistogram();
+        // More distinct types than tracked initially, and types past the initial counts
+        int[] types = new int[100];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = i * 37 % 1000;
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < types.length; i++) {
+                for (int n = 0; n <= i % 3; n++) {
+                    histogram.increment(types[i]);
+                }
+            }
+            for (int i = 0; i < types.length; i++) {
+                assertEquals(i % 3 + 1, histogram.get(types[i]), "type " + types[i] + " in round " + round);
+            }
+            histogram.clear();
+            for (int type = 0; type < 1000; type++) {
+                assertEquals(0, histogram.get(type), "type " + type + " after round " + round);
+            }
+        }
+    }
+
+}
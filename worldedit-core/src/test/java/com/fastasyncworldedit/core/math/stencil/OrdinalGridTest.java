@@ -0,0 +1,129 @@
+package com.fastasyncworldedit.core.math.stencil;
+
+import com.fastasyncworldedit.core.queue.IQueueChunk;
+import com.fastasyncworldedit.core.queue.IQueueExtent;
+import com.sk89q.worldedit.math.BlockVector3;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrdinalGridTest {
+
+    private static final int MIN_Y = -64;
+    private static final int MAX_Y = 319;
+
+    private static final BlockVector3 MIN = BlockVector3.at(-21, 5, 13);
+    private static final BlockVector3 MAX = BlockVector3.at(9, 37, 50);
+
+    /**
+     * Ordinal of a position, never {@code 0} so cells that weren't read show.
+     */
+    private static char ordinal(int x, int y, int z) {
+        return (char) (1 + Math.floorMod(x * 31 + y * 1013 + z * 7, Character.MAX_VALUE - 1));
+    }
+
+    @Test
+    @DisplayName("Indices step through x, then z, then y")
+    void testIndexOrder() {
+        OrdinalGrid grid = new OrdinalGrid(MIN, MAX);
+        assertEquals(31, grid.getWidth());
+        assertEquals(33, grid.getHeight());
+        assertEquals(38, grid.getLength());
+        int expected = 0;
+        for (int y = 0; y < grid.getHeight(); y++) {
+            for (int z = 0; z < grid.getLength(); z++) {
+                for (int x = 0; x < grid.getWidth(); x++) {
+                    assertEquals(expected++, grid.getIndex(x, y, z), x + " " + y + " " + z);
+                }
+            }
+        }
+        assertEquals(grid.getOrdinals().length, expected);
+    }
+
+    @Test
+    @DisplayName("Offsets lead to the index of the neighbour in each direction")
+    void testOffsets() {
+        OrdinalGrid grid = new OrdinalGrid(MIN, MAX);
+        BlockVector3[] directions = {
+                BlockVector3.at(1, 0, 0),
+                BlockVector3.at(-1, 0, 0),
+                BlockVector3.at(0, 1, 0),
+                BlockVector3.at(0, -1, 0),
+                BlockVector3.at(0, 0, 1),
+                BlockVector3.at(0, 0, -1),
+                BlockVector3.at(1, -1, 1),
+                BlockVector3.at(-1, 1, -1)
+        };
+        int[] offsets = grid.getOffsets(directions);
+        int[][] cells = {{1, 1, 1}, {5, 20, 7}, {29, 31, 36}};
+        for (int[] cell : cells) {
+            int index = grid.getIndex(cell[0], cell[1], cell[2]);
+            for (int i = 0; i < directions.length; i++) {
+                BlockVector3 direction = directions[i];
+                assertEquals(
+                        grid.getIndex(cell[0] + direction.x(), cell[1] + direction.y(), cell[2] + direction.z()),
+                        index + offsets[i],
+                        direction.toString()
+                );
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Rows are copied from the chunk sections of a queue")
+    @SuppressWarnings("unchecked")
+    void testLoadFromQueue() {
+        Map<String, char[]> sections = new HashMap<>();
+        Set<Long> chunks = new HashSet<>();
+        IQueueExtent<IQueueChunk> queue = mock(IQueueExtent.class);
+        when(queue.getMinY()).thenReturn(MIN_Y);
+        when(queue.getMaxY()).thenReturn(MAX_Y);
+        when(queue.getOrCreateChunk(anyInt(), anyInt())).thenAnswer(invocation -> {
+            int chunkX = invocation.getArgument(0);
+            int chunkZ = invocation.getArgument(1);
+            chunks.add((long) chunkX << 32 | chunkZ & 0xFFFFFFFFL);
+            IQueueChunk chunk = mock(IQueueChunk.class);
+            when(chunk.load(anyInt())).thenAnswer(load -> {
+                int layer = load.getArgument(0);
+                return sections.computeIfAbsent(
+                        chunkX + " " + chunkZ + " " + layer,
+                        key -> {
+                            char[] section = new char[4096];
+                            for (int index = 0; index < 4096; index++) {
+                                section[index] = ordinal(
+                                        chunkX << 4 | index & 15,
+                                        layer << 4 | index >> 8,
+                                        chunkZ << 4 | index >> 4 & 15
+                                );
+                            }
+                            return section;
+                        }
+                );
+            });
+            return chunk;
+        });
+
+        OrdinalGrid grid = OrdinalGrid.load(queue, MIN, MAX);
+        // Three chunks along x and four along z
+        assertEquals(12, chunks.size());
+        char[] ordinals = grid.getOrdinals();
+        int index = 0;
+        for (int y = MIN.y(); y <= MAX.y(); y++) {
+            for (int z = MIN.z(); z <= MAX.z(); z++) {
+                for (int x = MIN.x(); x <= MAX.x(); x++) {
+                    assertEquals(ordinal(x, y, z), ordinals[index++], x + " " + y + " " + z);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.fastasyncworldedit.core.queue.implementation;
+
+import com.fastasyncworldedit.core.util.MathMan;
+import com.sk89q.worldedit.math.BlockVector2;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkSchedulerTest {
+
+    private static Set<BlockVector2> square(int minX, int minZ, int size) {
+        Set<BlockVector2> chunks = new HashSet<>();
+        for (int x = minX; x < minX + size; x++) {
+            for (int z = minZ; z < minZ + size; z++) {
+                chunks.add(BlockVector2.at(x, z));
+            }
+        }
+        return chunks;
+    }
+
+    @Test
+    @DisplayName("every chunk is handed out exactly once")
+    void handsOutEveryChunkOnce() {
+        Set<BlockVector2> chunks = square(-37, 11, 50);
+        ChunkScheduler scheduler = new ChunkScheduler(chunks, 4);
+        Set<BlockVector2> seen = new HashSet<>();
+        long[] tile;
+        while ((tile = scheduler.poll(0)) != null) {
+            for (long pos : tile) {
+                assertTrue(seen.add(BlockVector2.at(MathMan.unpairIntX(pos), MathMan.unpairIntY(pos))));
+            }
+        }
+        assertEquals(chunks, seen);
+        assertNull(scheduler.poll(1));
+    }
+
+    @Test
+    @DisplayName("tiles only contain chunks from the same 4x4 area")
+    void tilesAreSpatiallyCoherent() {
+        ChunkScheduler scheduler = new ChunkScheduler(square(-5, -5, 20), 2);
+        long[] tile;
+        while ((tile = scheduler.poll(1)) != null) {
+            assertTrue(tile.length <= 16);
+            int tileX = MathMan.unpairIntX(tile[0]) >> 2;
+            int tileZ = MathMan.unpairIntY(tile[0]) >> 2;
+            for (long pos : tile) {
+                assertEquals(tileX, MathMan.unpairIntX(pos) >> 2);
+                assertEquals(tileZ, MathMan.unpairIntY(pos) >> 2);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("idle workers steal from others and statistics add up")
+    void idleWorkersSteal() {
+        ChunkScheduler scheduler = new ChunkScheduler(square(0, 0, 32), 4);
+        while (scheduler.poll(3) != null) {
+            // worker 3 drains everything
+        }
+        int[] counts = scheduler.getChunkCounts();
+        assertEquals(32 * 32, counts[3]);
+        assertEquals(scheduler.getTileCount() - scheduler.getTileCount() / 4, scheduler.getStealCounts()[3]);
+        assertEquals(scheduler.getStealCounts()[3], scheduler.getTotalSteals());
+    }
+
+}
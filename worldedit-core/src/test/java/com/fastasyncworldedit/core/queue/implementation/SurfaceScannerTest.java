@@ -0,0 +1,261 @@
+package com.fastasyncworldedit.core.queue.implementation;
+
+import com.fastasyncworldedit.core.math.stencil.OrdinalMaterials;
+import com.fastasyncworldedit.core.queue.implementation.blocks.CharGetBlocks;
+import com.sk89q.worldedit.world.block.BlockTypesCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+class SurfaceScannerTest {
+
+    private static final int MIN_SECTION = -4;
+    private static final int MAX_SECTION = 19;
+    private static final int MIN_Y = MIN_SECTION << 4;
+    private static final int MAX_Y = (MAX_SECTION << 4) + 15;
+
+    private static final char RESERVED = BlockTypesCache.ReservedIDs.__RESERVED__;
+    private static final char AIR = BlockTypesCache.ReservedIDs.AIR;
+    private static final char CAVE_AIR = BlockTypesCache.ReservedIDs.CAVE_AIR;
+    private static final char STONE = 100;
+    private static final char WATER = 101;
+    // A type blocking movement with a state that doesn't, so the type and state materials differ
+    private static final char OPEN_DOOR = 102;
+
+    /**
+     * Materials of the ordinals above, as block states need a platform.
+     */
+    private static final OrdinalMaterials MATERIALS = new OrdinalMaterials() {
+        @Override
+        public boolean isMovementBlocker(char ordinal) {
+            return ordinal == STONE;
+        }
+
+        @Override
+        public boolean isTypeMovementBlocker(char ordinal) {
+            return ordinal == STONE || ordinal == OPEN_DOOR;
+        }
+
+        @Override
+        public boolean isAir(char ordinal) {
+            return ordinal == AIR || ordinal == CAVE_AIR;
+        }
+
+        @Override
+        public int getTypeId(char ordinal) {
+            return ordinal;
+        }
+    };
+
+    private CharGetBlocks chunk;
+
+    @BeforeEach
+    void setUp() {
+        // Sections load as air, as for a chunk of a world
+        chunk = mock(
+                CharGetBlocks.class,
+                withSettings().useConstructor(MIN_SECTION, MAX_SECTION).defaultAnswer(CALLS_REAL_METHODS)
+        );
+        doReturn(MIN_Y).when(chunk).getMinY();
+        doReturn(MAX_Y).when(chunk).getMaxY();
+        Random random = new Random(1);
+        char[] blocks = {RESERVED, AIR, CAVE_AIR, STONE, WATER, OPEN_DOOR};
+        for (int index = 0; index < 256; index++) {
+            // Terrain up to a height, caves and water below it, and the top sections left empty
+            int surface = 40 + random.nextInt(120);
+            for (int y = MIN_Y; y <= surface; y++) {
+                char ordinal = random.nextInt(8) == 0 ? blocks[random.nextInt(blocks.length)] : STONE;
+                chunk.load(y >> 4)[(y & 15) << 8 | index] = ordinal;
+            }
+            if (index % 17 == 0) {
+                // Column without terrain
+                for (int y = MIN_Y; y <= surface; y++) {
+                    chunk.load(y >> 4)[(y & 15) << 8 | index] = index % 2 == 0 ? WATER : AIR;
+                }
+            }
+        }
+    }
+
+    private char get(int x, int y, int z) {
+        if (y >> 4 < MIN_SECTION || y >> 4 > MAX_SECTION) {
+            return AIR;
+        }
+        return chunk.load(y >> 4)[(y & 15) << 8 | z << 4 | x];
+    }
+
+    /**
+     * {@link com.fastasyncworldedit.core.extent.processor.heightmap.HeightMapType#WORLD_SURFACE} heights of the chunk, as
+     * in the native height maps.
+     */
+    private int[] getWorldSurfaceHeights() {
+        int[] heights = new int[256];
+        for (int index = 0; index < 256; index++) {
+            for (int y = MAX_Y; y >= MIN_Y; y--) {
+                char ordinal = get(index & 15, y, index >> 4);
+                if (!MATERIALS.isAir(ordinal) && ordinal != RESERVED) {
+                    heights[index] = y + 1 - MIN_Y;
+                    break;
+                }
+            }
+        }
+        return heights;
+    }
+
+    private static boolean isSurface(char ordinal, boolean movementBlocker) {
+        return MATERIALS.isMovementBlocker(ordinal) == movementBlocker && MATERIALS.getTypeId(ordinal) != RESERVED;
+    }
+
+    /**
+     * {@link com.sk89q.worldedit.extent.Extent#getHighestTerrainBlock(int, int, int, int)} over ordinals.
+     */
+    private int getHighestTerrainBlockDefault(int x, int z, int minY, int maxY) {
+        for (int y = maxY; y >= minY; --y) {
+            if (MATERIALS.isTypeMovementBlocker(get(x, y, z))) {
+                return y;
+            }
+        }
+        return minY;
+    }
+
+    /**
+     * {@link com.sk89q.worldedit.extent.Extent#getNearestSurfaceTerrainBlock(int, int, int, int, int, int, int, boolean)}
+     * over ordinals.
+     */
+    private int getNearestSurfaceTerrainBlockDefault(
+            int x, int z, int y, int minY, int maxY, int failedMin, int failedMax, boolean ignoreAir
+    ) {
+        y = Math.max(minY, Math.min(maxY, y));
+        int clearanceAbove = maxY - y;
+        int clearanceBelow = y - minY;
+        int clearance = Math.min(clearanceAbove, clearanceBelow);
+        boolean state = !MATERIALS.isTypeMovementBlocker(get(x, y, z));
+        int offset = state ? 0 : 1;
+        for (int d = 0; d <= clearance; d++) {
+            int y1 = y + d;
+            if (isSurface(get(x, y1, z), state)) {
+                return y1 - offset;
+            }
+            int y2 = y - d;
+            if (isSurface(get(x, y2, z), state)) {
+                return y2 + offset;
+            }
+        }
+        if (clearanceAbove != clearanceBelow) {
+            if (clearanceAbove < clearanceBelow) {
+                for (int layer = y - clearance - 1; layer >= minY; layer--) {
+                    if (isSurface(get(x, layer, z), state)) {
+                        return layer + offset;
+                    }
+                }
+            } else {
+                for (int layer = y + clearance + 1; layer <= maxY; layer++) {
+                    if (isSurface(get(x, layer, z), state)) {
+                        return layer - offset;
+                    }
+                }
+            }
+        }
+        int result = state ? failedMin : failedMax;
+        if (result > minY && !ignoreAir) {
+            return MATERIALS.isAir(get(x, result, z)) ? -1 : result;
+        }
+        return result;
+    }
+
+    @Test
+    @DisplayName("Highest terrain blocks match the default of an extent")
+    void testHighestTerrainBlock() {
+        int[][] ranges = {{MIN_Y, MAX_Y}, {0, 100}, {60, 70}, {MIN_Y, MIN_Y + 3}, {200, MAX_Y}};
+        int[] heights = new int[256];
+        for (int[] range : ranges) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    int expected = getHighestTerrainBlockDefault(x, z, range[0], range[1]);
+                    String message = x + " " + z + " " + range[0] + ".." + range[1];
+                    assertEquals(
+                            expected,
+                            SurfaceScanner.getHighestTerrainBlock(chunk, x, z, range[0], range[1], MATERIALS),
+                            message
+                    );
+                }
+            }
+            int[] expected = new int[256];
+            for (int index = 0; index < 256; index++) {
+                expected[index] = getHighestTerrainBlockDefault(index & 15, index >> 4, range[0], range[1]);
+            }
+            for (int[] surface : new int[][]{null, getWorldSurfaceHeights()}) {
+                SurfaceScanner.getHighestTerrainBlocks(chunk, 0, 0, 15, 15, range[0], range[1], heights, surface, MATERIALS);
+                assertArrayEquals(expected, heights);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Only the columns of an area are written")
+    void testHighestTerrainBlocksArea() {
+        int[] heights = new int[256];
+        Arrays.fill(heights, Integer.MIN_VALUE);
+        SurfaceScanner.getHighestTerrainBlocks(chunk, 3, 5, 9, 6, MIN_Y, MAX_Y, heights, getWorldSurfaceHeights(), MATERIALS);
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                boolean inside = x >= 3 && x <= 9 && z >= 5 && z <= 6;
+                int expected = inside ? getHighestTerrainBlockDefault(x, z, MIN_Y, MAX_Y) : Integer.MIN_VALUE;
+                assertEquals(expected, heights[z << 4 | x], x + " " + z);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Sections above the world surface aren't loaded")
+    void testHighestTerrainBlocksSkipsEmptySections() {
+        int[] surface = getWorldSurfaceHeights();
+        int highest = Arrays.stream(surface).max().orElseThrow() - 1 + MIN_Y;
+        clearInvocations(chunk);
+        SurfaceScanner.getHighestTerrainBlocks(chunk, 0, 0, 15, 15, MIN_Y, MAX_Y, new int[256], surface, MATERIALS);
+        verify(chunk, atLeastOnce()).load(highest >> 4);
+        for (int layer = (highest >> 4) + 1; layer <= MAX_SECTION; layer++) {
+            verify(chunk, never()).load(layer);
+        }
+    }
+
+    @Test
+    @DisplayName("Nearest surface terrain blocks match the default of an extent")
+    void testNearestSurfaceTerrainBlock() {
+        int[][] ranges = {{MIN_Y, MAX_Y}, {0, 100}, {60, 70}};
+        int[] starts = {MIN_Y, -1, 30, 64, 100, 170, MAX_Y, MAX_Y + 10};
+        for (int[] range : ranges) {
+            for (int start : starts) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        for (boolean ignoreAir : new boolean[]{false, true}) {
+                            int failedMin = range[0] + 1;
+                            int failedMax = Math.min(MAX_Y, range[1] + 5);
+                            int expected = getNearestSurfaceTerrainBlockDefault(
+                                    x, z, start, range[0], range[1], failedMin, failedMax, ignoreAir
+                            );
+                            int actual = SurfaceScanner.getNearestSurfaceTerrainBlock(
+                                    chunk, x, z, start, range[0], range[1], failedMin, failedMax, ignoreAir, MATERIALS
+                            );
+                            assertEquals(expected, actual, x + " " + z + " from " + start + " in " + range[0] + ".." + range[1]);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+}
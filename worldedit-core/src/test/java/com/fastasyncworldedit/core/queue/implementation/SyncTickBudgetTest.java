@@ -0,0 +1,82 @@
+package com.fastasyncworldedit.core.queue.implementation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyncTickBudgetTest {
+
+    private long now;
+
+    /**
+     * Simulate a tick in which the server works for {@code serverMillis} and tasks use the whole budget.
+     */
+    private void tick(SyncTickBudget budget, long serverMillis) {
+        budget.startTick();
+        long remaining = budget.remaining();
+        now += Math.max(0, remaining);
+        budget.endTick(1, true);
+        // The server sleeps for the rest of the tick if there is time left
+        now += Math.max(serverMillis, SyncTickBudget.TICK_MILLIS - Math.max(0, remaining));
+    }
+
+    @Test
+    @DisplayName("budget grows to the maximum while the server keeps up")
+    void growsWhileServerKeepsUp() {
+        SyncTickBudget budget = new SyncTickBudget(() -> now, () -> 0);
+        for (int i = 0; i < 100; i++) {
+            tick(budget, 0);
+        }
+        assertEquals(SyncTickBudget.MAX_BUDGET, budget.getBudget());
+        assertEquals(SyncTickBudget.TICK_MILLIS, budget.getLastTickMillis());
+    }
+
+    @Test
+    @DisplayName("budget settles at the time the server leaves free in a tick")
+    void settlesAtFreeTime() {
+        SyncTickBudget budget = new SyncTickBudget(() -> now, () -> 0);
+        for (int i = 0; i < 200; i++) {
+            tick(budget, 35);
+        }
+        long settled = budget.getBudget();
+        assertTrue(settled >= 15 && settled <= 15 + SyncTickBudget.GROWTH, "budget " + settled);
+        assertTrue(budget.getLastTickMillis() <= SyncTickBudget.TICK_MILLIS + SyncTickBudget.GROWTH);
+    }
+
+    @Test
+    @DisplayName("budget backs off to the minimum when the server is overloaded")
+    void backsOffWhenOverloaded() {
+        SyncTickBudget budget = new SyncTickBudget(() -> now, () -> 0);
+        for (int i = 0; i < 20; i++) {
+            tick(budget, 80);
+        }
+        assertEquals(SyncTickBudget.MIN_BUDGET, budget.getBudget());
+        assertEquals(20, budget.getDeferredTicks());
+        assertEquals(20, budget.getTasksRun());
+    }
+
+    @Test
+    @DisplayName("extra time is added to the remaining time of a tick")
+    void appliesExtraTime() {
+        SyncTickBudget budget = new SyncTickBudget(() -> now, () -> -10);
+        budget.startTick();
+        assertEquals(SyncTickBudget.MAX_BUDGET / 2 - 10, budget.remaining());
+        budget.endTick(0, false);
+    }
+
+    @Test
+    @DisplayName("budget doesn't grow without tasks left over")
+    void idleDoesNotGrow() {
+        SyncTickBudget budget = new SyncTickBudget(() -> now, () -> 0);
+        for (int i = 0; i < 10; i++) {
+            budget.startTick();
+            budget.endTick(0, false);
+            now += SyncTickBudget.TICK_MILLIS;
+        }
+        assertEquals(SyncTickBudget.MAX_BUDGET / 2, budget.getBudget());
+        assertEquals(0, budget.getDeferredTicks());
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.fastasyncworldedit.core.queue.implementation.blocks;
+
+import com.fastasyncworldedit.core.FaweCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PackedCharSectionTest {
+
+    @BeforeEach
+    void setUp() {
+        // The default lookup is sized by the block states of the platform, which tests don't have
+        int[] blockToPalette = new int[Character.MAX_VALUE + 1];
+        Arrays.fill(blockToPalette, Integer.MAX_VALUE);
+        FaweCache.INSTANCE.BLOCK_TO_PALETTE.set(blockToPalette);
+    }
+
+    private static char[] section(int states, long seed) {
+        Random random = new Random(seed);
+        char[] palette = new char[states];
+        for (int i = 0; i < states; i++) {
+            // Spread the ordinals so the palette isn't the identity
+            palette[i] = (char) (1 + i * 97 % 30000);
+        }
+        char[] blocks = new char[4096];
+        for (int i = 0; i < 4096; i++) {
+            // Every state at least once, the rest random
+            blocks[i] = palette[i < states ? i : random.nextInt(states)];
+        }
+        return blocks;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 16, 17, 256})
+    @DisplayName("Reading and unpacking a packed section gives the same ordinals")
+    void testRoundTrip(int states) {
+        char[] blocks = section(states, states);
+        char[] copy = blocks.clone();
+        PackedCharSection packed = PackedCharSection.pack(blocks);
+        assertNotNull(packed);
+        assertArrayEquals(copy, blocks, "Packing must not change the input");
+        for (int i = 0; i < 4096; i++) {
+            assertEquals(blocks[i], packed.get(i), "index " + i);
+        }
+        assertArrayEquals(blocks, packed.unpack(new char[4096]));
+        assertTrue(packed.getArrayBytes() < 4096 * Character.BYTES);
+    }
+
+    @Test
+    @DisplayName("Sections with more states than the maximum palette size are not packed")
+    void testTooManyStates() {
+        assertNull(PackedCharSection.pack(section(PackedCharSection.MAX_PALETTE_SIZE + 1, 0)));
+    }
+
+    @Test
+    @DisplayName("Packing the same array twice gives the same ordinals")
+    void testRepack() {
+        char[] blocks = section(17, 3);
+        char[] unpacked = PackedCharSection.pack(blocks).unpack(new char[4096]);
+        assertArrayEquals(blocks, PackedCharSection.pack(unpacked).unpack(new char[4096]));
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.fastasyncworldedit.core.queue.implementation.blocks;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SparseCharSectionTest {
+
+    private static final int DENSE_BYTES = 4096 * Character.BYTES;
+
+    @Test
+    @DisplayName("Matches a dense array for random sets")
+    void testMatchesDense() {
+        Random random = new Random(42);
+        SparseCharSection sparse = new SparseCharSection();
+        char[] dense = new char[4096];
+        for (int i = 0; i < SparseCharSection.MAX_SIZE * 2; i++) {
+            int index = random.nextInt(4096);
+            char value = (char) (1 + random.nextInt(20000));
+            if (sparse.set(index, value)) {
+                dense[index] = value;
+            } else {
+                assertEquals(SparseCharSection.MAX_SIZE, sparse.size());
+            }
+        }
+        for (int i = 0; i < 4096; i++) {
+            assertEquals(dense[i], sparse.get(i, (char) 0));
+        }
+        assertArrayEquals(dense, sparse.toDense((char) 0));
+    }
+
+    @Test
+    @DisplayName("Overwriting an index does not grow the map")
+    void testOverwrite() {
+        SparseCharSection sparse = new SparseCharSection();
+        for (int i = 0; i < SparseCharSection.MAX_SIZE; i++) {
+            assertTrue(sparse.set(i, (char) 1));
+        }
+        assertTrue(sparse.set(0, (char) 2));
+        assertFalse(sparse.set(4095, (char) 2));
+        assertEquals(SparseCharSection.MAX_SIZE, sparse.size());
+        assertEquals(2, sparse.get(0, (char) 0));
+        assertEquals(7, sparse.get(4095, (char) 7));
+    }
+
+    @Test
+    @DisplayName("Sparse workloads use a fraction of a dense section")
+    void testBytesPerChangedBlock() {
+        Random random = new Random(7);
+        // Scatter brush: a few random blocks per section
+        SparseCharSection scatter = new SparseCharSection();
+        for (int i = 0; i < 24; i++) {
+            scatter.set(random.nextInt(4096), (char) 1);
+        }
+        // Catenary / line: a single diagonal run through the section
+        SparseCharSection line = new SparseCharSection();
+        for (int i = 0; i < 16; i++) {
+            line.set(i << 8 | i << 4 | i, (char) 1);
+        }
+        for (SparseCharSection section : new SparseCharSection[]{scatter, line}) {
+            double sparseBytesPerBlock = (double) section.getArrayBytes() / section.size();
+            double denseBytesPerBlock = (double) DENSE_BYTES / section.size();
+            assertTrue(sparseBytesPerBlock * 16 <= denseBytesPerBlock,
+                    "Sparse " + sparseBytesPerBlock + " vs dense " + denseBytesPerBlock + " bytes per block");
+        }
+        SparseCharSection full = new SparseCharSection();
+        for (int i = 0; i < SparseCharSection.MAX_SIZE; i++) {
+            full.set(i * 8, (char) 1);
+        }
+        assertTrue(full.getArrayBytes() <= DENSE_BYTES / 2);
+    }
+
+    @Test
+    @DisplayName("Sections of a chunk first set from several threads at once keep their blocks")
+    void testConcurrentSections() throws Exception {
+        int sections = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(sections);
+        try {
+            for (int round = 0; round < 50; round++) {
+                CharSetBlocks set = CharSetBlocks.newInstance();
+                CyclicBarrier start = new CyclicBarrier(sections);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int layer = 0; layer < sections; layer++) {
+                    int section = layer;
+                    futures.add(pool.submit(() -> {
+                        start.await();
+                        for (int i = 0; i < 8; i++) {
+                            set.set(section, i * 511, (char) (section * 8 + i + 1));
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                for (int layer = 0; layer < sections; layer++) {
+                    char[] blocks = set.load(layer);
+                    for (int i = 0; i < 8; i++) {
+                        assertEquals(layer * 8 + i + 1, set.get(layer, i * 511), "layer " + layer + " in round " + round);
+                        assertEquals(layer * 8 + i + 1, blocks[i * 511], "layer " + layer + " in round " + round);
+                    }
+                }
+                set.recycle();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.fastasyncworldedit.core.regions;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector2;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.regions.ConvexPolyhedralRegion;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.CylinderRegion;
+import com.sk89q.worldedit.regions.EllipsoidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.world.World;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SectionRowsTest {
+
+    /**
+     * Check the rasterized sections around a region against {@link Region#contains(int, int, int)}.
+     */
+    private static void assertMatchesContains(Region region) {
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        char[] rows = new char[SectionRows.ROWS];
+        for (int cx = (min.x() >> 4) - 1; cx <= (max.x() >> 4) + 1; cx++) {
+            for (int cy = (min.y() >> 4) - 1; cy <= (max.y() >> 4) + 1; cy++) {
+                for (int cz = (min.z() >> 4) - 1; cz <= (max.z() >> 4) + 1; cz++) {
+                    int result = region.getSectionRows(cx, cy, cz, rows);
+                    for (int y = 0; y < 16; y++) {
+                        for (int z = 0; z < 16; z++) {
+                            for (int x = 0; x < 16; x++) {
+                                boolean expected = region.contains((cx << 4) + x, (cy << 4) + y, (cz << 4) + z);
+                                boolean actual = switch (result) {
+                                    case SectionRows.EMPTY -> false;
+                                    case SectionRows.FULL -> true;
+                                    default -> (rows[y << 4 | z] & (1 << x)) != 0;
+                                };
+                                assertEquals(expected, actual, "Mismatch at " + ((cx << 4) + x) + "," + ((cy << 4) + y)
+                                        + "," + ((cz << 4) + z) + " in " + region);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("cuboid rows match contains")
+    void cuboid() {
+        assertMatchesContains(new CuboidRegion(BlockVector3.at(-7, 3, 5), BlockVector3.at(20, 40, 33)));
+    }
+
+    @Test
+    @DisplayName("cylinder rows match contains")
+    void cylinder() {
+        assertMatchesContains(new CylinderRegion(BlockVector3.at(3, 0, -9), Vector2.at(13.5, 21), -5, 37));
+    }
+
+    @Test
+    @DisplayName("sphere rows match contains")
+    void sphere() {
+        assertMatchesContains(new EllipsoidRegion(BlockVector3.at(-4, 10, 6), Vector3.at(17, 17, 17)));
+    }
+
+    @Test
+    @DisplayName("ellipsoid rows match contains")
+    void ellipsoid() {
+        assertMatchesContains(new EllipsoidRegion(BlockVector3.at(8, 20, -3), Vector3.at(9, 23, 14.5)));
+    }
+
+    @Test
+    @DisplayName("convex polyhedron rows match contains")
+    void convexPolyhedron() {
+        ConvexPolyhedralRegion region = new ConvexPolyhedralRegion((World) null);
+        region.addVertex(BlockVector3.at(0, 0, 0));
+        region.addVertex(BlockVector3.at(30, 2, 5));
+        region.addVertex(BlockVector3.at(7, 25, -3));
+        region.addVertex(BlockVector3.at(12, 4, 28));
+        assertMatchesContains(region);
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.fastasyncworldedit.core.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ColorIndexTest {
+
+    private static int linearNearest(int[] colors, int color, boolean matchAlpha, boolean excludeSelf) {
+        long min = Long.MAX_VALUE;
+        int closest = -1;
+        for (int i = 0; i < colors.length; i++) {
+            int other = colors[i];
+            if (excludeSelf && other == color || matchAlpha && other >>> 24 != color >>> 24) {
+                continue;
+            }
+            long distance = TextureUtil.colorDistance(color, other);
+            if (distance < min) {
+                min = distance;
+                closest = i;
+            }
+        }
+        return closest;
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    @DisplayName("Matches a linear scan, including ties and alpha")
+    void testMatchesLinearScan(boolean matchAlpha) {
+        Random random = new Random(1);
+        for (int trial = 0; trial < 10; trial++) {
+            int[] colors = new int[1 + random.nextInt(1000)];
+            for (int i = 0; i < colors.length; i++) {
+                int alpha = random.nextInt(4) == 0 ? 0x80 : 0xFF;
+                // Coarse red values to produce equal coordinates and equally near colors
+                colors[i] = alpha << 24 | random.nextInt(8) << 21 | random.nextInt(1 << 16);
+            }
+            ColorIndex index = new ColorIndex(colors, matchAlpha);
+            for (int query = 0; query < 1000; query++) {
+                int color = random.nextBoolean()
+                        ? colors[random.nextInt(colors.length)]
+                        : (random.nextBoolean() ? 0xFF : 0x40) << 24 | random.nextInt(1 << 24);
+                assertEquals(linearNearest(colors, color, matchAlpha, false), index.getNearest(color, false));
+                assertEquals(linearNearest(colors, color, matchAlpha, true), index.getNearest(color, true));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.transform;
+
+import com.sk89q.worldedit.math.transform.AffineTransform;
+import com.sk89q.worldedit.math.transform.Identity;
+import com.sk89q.worldedit.math.transform.Transform;
+import com.sk89q.worldedit.util.Direction;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the keys of the shared transform tables against the direction logic the tables cache, without block states, which
+ * need a platform.
+ */
+@DisplayName("Axis-aligned transform keys of BlockTransformExtent")
+class BlockTransformExtentKeyTest {
+
+    private static final Direction[] FACING = {
+            Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST, Direction.UP, Direction.DOWN
+    };
+
+    private static long[] directions(Direction... directions) {
+        long[] masks = new long[directions.length];
+        for (int i = 0; i < directions.length; i++) {
+            masks[i] = 1L << directions[i].ordinal();
+        }
+        return masks;
+    }
+
+    private static long[] rotationDirections() {
+        Direction[] rotations = new Direction[16];
+        for (int i = 0; i < rotations.length; i++) {
+            rotations[i] = Direction.fromRotationIndex(i).orElseThrow();
+        }
+        return directions(rotations);
+    }
+
+    /**
+     * Property values as direction masks, the way the extent sees the facing, rotation, axis and half properties.
+     */
+    private static final long[][] PROPERTIES = {
+            directions(FACING),
+            rotationDirections(),
+            {
+                    1L << Direction.EAST.ordinal() | 1L << Direction.WEST.ordinal(),
+                    1L << Direction.UP.ordinal() | 1L << Direction.DOWN.ordinal(),
+                    1L << Direction.SOUTH.ordinal() | 1L << Direction.NORTH.ordinal()
+            },
+            directions(Direction.UP, Direction.DOWN)
+    };
+
+    /**
+     * All 48 signed permutations of the axes, the rotations and flips that keep blocks on the grid.
+     */
+    private static List<AffineTransform> axisTransforms() {
+        int[][] permutations = {{0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}};
+        List<AffineTransform> transforms = new ArrayList<>();
+        for (int[] permutation : permutations) {
+            for (int signs = 0; signs < 8; signs++) {
+                double[] coefficients = new double[9];
+                for (int row = 0; row < 3; row++) {
+                    coefficients[row * 3 + permutation[row]] = (signs >> row & 1) == 0 ? 1 : -1;
+                }
+                transforms.add(new AffineTransform(coefficients));
+            }
+        }
+        return transforms;
+    }
+
+    /**
+     * Axis-aligned transforms built the way commands build them.
+     */
+    private static List<Transform> builtTransforms() {
+        List<Transform> transforms = new ArrayList<>();
+        for (int angle = -360; angle <= 360; angle += 90) {
+            transforms.add(new AffineTransform().rotateY(angle));
+            transforms.add(new AffineTransform().rotateX(angle).rotateY(90));
+            transforms.add(new AffineTransform().rotateZ(angle).scale(-1, 1, 1));
+            transforms.add(new AffineTransform().rotateY(angle).scale(1, 1, -1).inverse());
+        }
+        return transforms;
+    }
+
+    /**
+     * New value index of every value of every property, the values stored in the table of a transform.
+     */
+    private static int[][] transformValues(Transform transform) {
+        int[][] result = new int[PROPERTIES.length][];
+        for (int i = 0; i < PROPERTIES.length; i++) {
+            long[] property = PROPERTIES[i];
+            result[i] = new int[property.length];
+            for (int j = 0; j < property.length; j++) {
+                Integer newIndex = BlockTransformExtent.getNewStateIndex(transform, property, j);
+                result[i][j] = newIndex == null ? j : newIndex;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    @DisplayName("The 48 axis transforms have distinct keys")
+    void testDistinctKeys() {
+        Set<Integer> keys = new HashSet<>();
+        for (AffineTransform transform : axisTransforms()) {
+            int key = BlockTransformExtent.getAxisAlignedKey(transform);
+            assertTrue(key >= 0, transform.toString());
+            assertTrue(keys.add(key), transform.toString());
+        }
+        for (AffineTransform transform : axisTransforms()) {
+            assertTrue(keys.contains(BlockTransformExtent.getAxisAlignedKey(transform.inverse())), transform.toString());
+        }
+        for (Transform transform : builtTransforms()) {
+            assertTrue(keys.contains(BlockTransformExtent.getAxisAlignedKey(transform)), transform.toString());
+        }
+        assertEquals(
+                BlockTransformExtent.getAxisAlignedKey(new AffineTransform().rotateY(90)),
+                BlockTransformExtent.getAxisAlignedKey(new AffineTransform().rotateY(-270))
+        );
+        assertNotEquals(
+                BlockTransformExtent.getAxisAlignedKey(new AffineTransform().rotateY(90)),
+                BlockTransformExtent.getAxisAlignedKey(new AffineTransform().rotateY(-90))
+        );
+    }
+
+    @Test
+    @DisplayName("Other transforms are not shared and take the uncached path")
+    void testOtherTransforms() {
+        assertEquals(-1, BlockTransformExtent.getAxisAlignedKey(new AffineTransform().rotateY(45)));
+        assertEquals(-1, BlockTransformExtent.getAxisAlignedKey(new AffineTransform().rotateY(90).translate(1, 0, 0)));
+        assertEquals(-1, BlockTransformExtent.getAxisAlignedKey(new AffineTransform().scale(2)));
+        assertEquals(-1, BlockTransformExtent.getAxisAlignedKey(new Identity()));
+    }
+
+    @Test
+    @DisplayName("Facing states point where the transform points their direction")
+    void testFacing() {
+        for (AffineTransform transform : axisTransforms()) {
+            int[] facing = transformValues(transform)[0];
+            for (int i = 0; i < FACING.length; i++) {
+                Direction expected = Direction.findClosest(
+                        transform.apply(FACING[i].toVector()),
+                        Direction.Flag.CARDINAL | Direction.Flag.UPRIGHT
+                );
+                assertEquals(expected, FACING[facing[i]], transform + " " + FACING[i]);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Transforms with the same key transform directional states the same way")
+    void testSameKeySameStates() {
+        Map<Integer, int[][]> byKey = new HashMap<>();
+        for (AffineTransform transform : axisTransforms()) {
+            byKey.put(BlockTransformExtent.getAxisAlignedKey(transform), transformValues(transform));
+        }
+        for (Transform transform : builtTransforms()) {
+            int[][] expected = byKey.get(BlockTransformExtent.getAxisAlignedKey(transform));
+            int[][] actual = transformValues(transform);
+            for (int i = 0; i < PROPERTIES.length; i++) {
+                assertArrayEquals(expected[i], actual[i], transform + " " + Arrays.toString(PROPERTIES[i]));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import com.fastasyncworldedit.core.extent.filter.block.ExtentFilterBlock;
+import com.fastasyncworldedit.core.queue.Filter;
+import com.fastasyncworldedit.core.queue.implementation.ParallelQueueExtent;
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+class ForwardExtentCopyTest {
+
+    private static final Region REGION = new CuboidRegion(BlockVector3.at(-20, 60, -7), BlockVector3.at(21, 75, 30));
+    // As for a paste far enough away not to overlap the copy
+    private static final BlockVector3 TO = BlockVector3.at(90, 64, 55);
+
+    // Distinct blocks without block states, which need a platform
+    private final BaseBlock air = mock(BaseBlock.class);
+    private final BaseBlock[] blocks = {mock(BaseBlock.class), mock(BaseBlock.class), mock(BaseBlock.class)};
+    private final RecordingExtent written = new RecordingExtent();
+    private Clipboard source;
+    private ParallelQueueExtent queue;
+
+    @BeforeEach
+    void setUp() {
+        source = mock(Clipboard.class);
+        when(source.supportsConcurrentReads()).thenReturn(true);
+        when(source.getFullBlock(anyInt(), anyInt(), anyInt())).thenAnswer(invocation -> sourceBlock(BlockVector3.at(
+                invocation.<Integer>getArgument(0),
+                invocation.<Integer>getArgument(1),
+                invocation.<Integer>getArgument(2)
+        )));
+        when(source.getFullBlock(any(BlockVector3.class))).thenAnswer(invocation -> sourceBlock(invocation.getArgument(0)));
+        queue = mock(ParallelQueueExtent.class);
+        // Filters are applied to each block of the region, like a single worker of the queue writing the blocks
+        when(queue.apply(any(Region.class), any(Filter.class), anyBoolean())).thenAnswer(invocation -> {
+            Region region = invocation.getArgument(0);
+            Filter filter = invocation.getArgument(1);
+            Filter fork = filter.fork();
+            ExtentFilterBlock block = new ExtentFilterBlock(written);
+            for (BlockVector3 position : region) {
+                fork.applyBlock(block.init(position));
+            }
+            filter.join();
+            return filter;
+        });
+    }
+
+    /**
+     * Source like a clipboard, with air in some positions and outside the region.
+     */
+    private BaseBlock sourceBlock(BlockVector3 position) {
+        if (!REGION.contains(position)) {
+            return air;
+        }
+        int hash = position.x() * 31 + position.y() * 17 + position.z() * 7;
+        int index = Math.floorMod(hash, blocks.length + 1);
+        return index == blocks.length ? air : blocks[index];
+    }
+
+    /**
+     * Edit session over the queue, without any extent between them as when its stages are combined.
+     */
+    private EditSession editSession(Extent extent) {
+        EditSession session = mock(EditSession.class, withSettings().defaultAnswer(CALLS_REAL_METHODS));
+        doReturn(extent).when(session).getExtent();
+        return session;
+    }
+
+    private Map<BlockVector3, BaseBlock> expected(boolean masked) {
+        Map<BlockVector3, BaseBlock> expected = new HashMap<>();
+        BlockVector3 translation = TO.subtract(REGION.getMinimumPoint());
+        for (BlockVector3 position : REGION) {
+            BaseBlock block = sourceBlock(position);
+            if (!masked || block != air) {
+                expected.put(position.add(translation).toImmutable(), block);
+            }
+        }
+        return expected;
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    @DisplayName("Translated copies into an edit session are applied to its queue and counted as its changes")
+    void testEditSession(boolean masked) throws WorldEditException {
+        EditSession session = editSession(queue);
+        ForwardExtentCopy copy = new ForwardExtentCopy(source, REGION, session, TO);
+        copy.setCopyingEntities(false);
+        if (masked) {
+            copy.setSourceMask(new ExistingMask());
+        }
+        assertNull(copy.resume(new RunContext()));
+
+        verify(queue, times(1)).apply(any(Region.class), any(Filter.class), anyBoolean());
+        Map<BlockVector3, BaseBlock> expected = expected(masked);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, written.blocks);
+        assertEquals(expected.size(), copy.getAffected());
+        // Remembered for undo only if the edit session has changes
+        assertEquals(expected.size(), session.size());
+    }
+
+    @Test
+    @DisplayName("Translated copies through extents not passing filters to the queue set each block through them")
+    void testExtentAboveQueue() throws WorldEditException {
+        // Like the history extent of an edit session without combined stages, which must see every block set
+        Extent history = new AbstractDelegateExtent(queue) {
+            @Override
+            public <T extends BlockStateHolder<T>> boolean setBlock(int x, int y, int z, T block) {
+                return written.setBlock(x, y, z, block);
+            }
+
+            @Override
+            public <T extends BlockStateHolder<T>> boolean setBlock(BlockVector3 position, T block) {
+                return written.setBlock(position, block);
+            }
+        };
+        ForwardExtentCopy copy = new ForwardExtentCopy(source, REGION, history, TO);
+        copy.setCopyingEntities(false);
+        assertNull(copy.resume(new RunContext()));
+
+        verify(queue, never()).apply(any(Region.class), any(Filter.class), anyBoolean());
+        Map<BlockVector3, BaseBlock> expected = expected(false);
+        assertEquals(expected, written.blocks);
+        assertEquals(expected.size(), copy.getAffected());
+    }
+
+    /**
+     * Destination recording the blocks set, from any thread.
+     */
+    private static final class RecordingExtent extends NullExtent {
+
+        private final Map<BlockVector3, BaseBlock> blocks = new ConcurrentHashMap<>();
+
+        @Override
+        public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block) {
+            BaseBlock previous = blocks.put(position.toImmutable(), (BaseBlock) block);
+            assertNull(previous, "set twice: " + position);
+            return true;
+        }
+
+        @Override
+        public <T extends BlockStateHolder<T>> boolean setBlock(int x, int y, int z, T block) {
+            return setBlock(BlockVector3.at(x, y, z), block);
+        }
+
+    }
+
+    /**
+     * Mask of the source blocks that aren't air, like the mask of a paste skipping air.
+     */
+    private final class ExistingMask implements Mask {
+
+        @Override
+        public boolean test(BlockVector3 vector) {
+            return source.getFullBlock(vector) != air;
+        }
+
+        @Override
+        public Mask copy() {
+            return new ExistingMask();
+        }
+
+    }
+
+}
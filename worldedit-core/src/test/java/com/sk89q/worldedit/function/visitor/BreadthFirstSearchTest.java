@@ -0,0 +1,153 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.visitor;
+
+import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.math.BlockVector3;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BreadthFirstSearchTest {
+
+    private static final BlockVector3 ORIGIN = BlockVector3.at(3, 70, -5);
+    private static final int RADIUS = 20;
+    private static ExecutorService pool;
+
+    @BeforeAll
+    static void setup() {
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.shutdown();
+    }
+
+    // Runs the tasks on the pool like the queue's workers, a worker per thread taking tasks in order
+    private static <T> void forEach(List<T> tasks, Supplier<Consumer<T>> workers) {
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(pool.submit(() -> {
+                Consumer<T> worker = workers.get();
+                int index;
+                while ((index = next.getAndIncrement()) < tasks.size()) {
+                    worker.accept(tasks.get(index));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private interface VisitorFactory {
+
+        BreadthFirstSearch create(Mask mask, RegionFunction function);
+
+    }
+
+    private static Set<BlockVector3> visit(VisitorFactory factory, boolean parallel) {
+        Set<BlockVector3> visited = ConcurrentHashMap.newKeySet();
+        AtomicInteger applied = new AtomicInteger();
+        BreadthFirstSearch search = factory.create(new CaveMask(), position -> {
+            assertTrue(visited.add(position.toImmutable()), "visited twice: " + position);
+            applied.incrementAndGet();
+            return true;
+        });
+        if (parallel) {
+            search.setParallel(BreadthFirstSearchTest::forEach);
+        }
+        search.visit(ORIGIN);
+        Operations.completeBlindly(search);
+        assertEquals(applied.get(), search.getAffected());
+        return visited;
+    }
+
+    private static void assertSameBlocks(VisitorFactory factory) {
+        Set<BlockVector3> sequential = visit(factory, false);
+        Set<BlockVector3> parallel = visit(factory, true);
+        assertTrue(sequential.size() > 1000, "too few blocks visited: " + sequential.size());
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    @DisplayName("Recursive fills visit the same blocks in parallel")
+    void testRecursive() {
+        assertSameBlocks((mask, function) -> new RecursiveVisitor(mask, function, RADIUS * 2 + 1, -64, 319));
+    }
+
+    @Test
+    @DisplayName("Downward fills visit the same blocks in parallel")
+    void testDownward() {
+        assertSameBlocks((mask, function) -> new DownwardVisitor(mask, function, ORIGIN.y(), RADIUS * 2 + 1, -64, 319));
+    }
+
+    @Test
+    @DisplayName("Non-rising fills visit the same blocks in parallel")
+    void testNonRising() {
+        assertSameBlocks((mask, function) -> new NonRisingVisitor(mask, function, Integer.MAX_VALUE, -64, 319));
+    }
+
+    // Air in a ball around the origin, with scattered solid blocks to make the search branch
+    private static final class CaveMask implements Mask {
+
+        @Override
+        public boolean test(BlockVector3 vector) {
+            int x = vector.x() - ORIGIN.x();
+            int y = vector.y() - ORIGIN.y();
+            int z = vector.z() - ORIGIN.z();
+            if (x * x + y * y + z * z > RADIUS * RADIUS) {
+                return false;
+            }
+            return Math.floorMod(x * 73 + y * 31 + z * 17 + x * z, 7) != 0;
+        }
+
+        @Override
+        public Mask copy() {
+            return this;
+        }
+
+    }
+
+}
@@ -287,6 +287,22 @@ public void testAssign() throws ExpressionException {
         assertEquals(5, foo.getSlots().getSlotValue("c").orElse(-1), 0);
     }
 
+    @Test
+    public void testConstantFolding() throws ExpressionException {
+        assertEquals(2 * Math.PI, simpleEval("2*pi"), 0);
+        assertEquals(-3, simpleEval("-(1+2)"), 0);
+        assertEquals(~5, simpleEval("~(2+3)"), 0);
+        assertEquals(6, simpleEval("3!"), 0);
+        assertEquals(1, simpleEval("sin(pi/2)"), 0);
+        assertEquals(4, simpleEval("if (false) 3; else 4;"), 0);
+
+        // constants mixed with provided variables and side effects
+        Expression expression = compile("1 && (y = x); 0 || x * (2 + 3)", "x", "y");
+        assertEquals(10, expression.evaluate(2D, 0D), 0);
+        assertEquals(2, expression.getSlots().getSlotValue("y").orElse(-1), 0);
+        assertEquals(0, compile("0 && (x = 1); x", "x").evaluate(0D), 0);
+    }
+
     @Test
     public void testIf() throws ExpressionException {
         checkTestCase("y=0; if (1) x=4; else y=5; x*10+y;", 40);
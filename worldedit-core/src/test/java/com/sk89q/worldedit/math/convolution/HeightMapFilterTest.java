@@ -0,0 +1,152 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.math.convolution;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A height map filter")
+class HeightMapFilterTest {
+
+    private static final int WIDTH = 67;
+    private static final int HEIGHT = 45;
+
+    /**
+     * Rolling terrain with some noise, so heights aren't flat.
+     */
+    private static int[] terrain(long seed) {
+        Random random = new Random(seed);
+        int[] data = new int[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                double hills = 20 * Math.sin(x / 7.0) * Math.cos(y / 5.0) + 10 * Math.sin((x + y) / 11.0);
+                data[y * WIDTH + x] = 64 + (int) hills + random.nextInt(9) - 4;
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Filter applying the whole kernel to every cell, as before separable kernels were applied as two passes.
+     */
+    private static int[] filterFull(Kernel kernel, int[] inData, float offset, int iterations) {
+        float[] matrix = kernel.getKernelData(null);
+        int kw = kernel.getWidth();
+        int kh = kernel.getHeight();
+        int kox = kernel.getXOrigin();
+        int koy = kernel.getYOrigin();
+        float[] in = new float[inData.length];
+        for (int i = 0; i < inData.length; i++) {
+            in[i] = inData[i];
+        }
+        int[] out = inData.clone();
+        for (int i = 0; i < iterations; i++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    float z = 0;
+                    for (int ky = 0; ky < kh; ++ky) {
+                        int offsetY = y + ky - koy;
+                        if (offsetY < 0 || offsetY >= HEIGHT) {
+                            offsetY = y;
+                        }
+                        offsetY *= WIDTH;
+                        for (int kx = 0; kx < kw; ++kx) {
+                            float f = matrix[ky * kw + kx];
+                            if (f == 0) {
+                                continue;
+                            }
+                            int offsetX = x + kx - kox;
+                            if (offsetX < 0 || offsetX >= WIDTH) {
+                                offsetX = x;
+                            }
+                            z += f * in[offsetY + offsetX];
+                        }
+                    }
+                    out[y * WIDTH + x] = (int) Math.floor(z + offset);
+                }
+            }
+            for (int j = 0; j < out.length; j++) {
+                in[j] = out[j];
+            }
+        }
+        return out;
+    }
+
+    private static void assertSameAsFull(Kernel kernel) {
+        for (long seed = 0; seed < 8; seed++) {
+            int[] data = terrain(seed);
+            for (int iterations = 1; iterations <= 3; iterations++) {
+                int[] expected = filterFull(kernel, data, 0.5F, iterations);
+                int[] actual = new HeightMapFilter(kernel).filter(data, WIDTH, HEIGHT, 0.5F, iterations);
+                assertArrayEquals(expected, actual, "seed " + seed + ", " + iterations + " iterations");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("applies a linear kernel in two passes with the same result as the full kernel")
+    void testLinearKernel() {
+        // Each height is an integer sum over 121 plus 0.5, at least 1/242 away from a whole number, so the order of the
+        // float additions never changes the rounded height
+        assertSameAsFull(new LinearKernel(5));
+    }
+
+    @Test
+    @DisplayName("applies a Gaussian kernel in two passes within rounding of the full kernel")
+    void testGaussianKernel() {
+        GaussianKernel kernel = new GaussianKernel(5, 1.0);
+        int cells = 0;
+        int different = 0;
+        for (long seed = 0; seed < 32; seed++) {
+            Random random = new Random(seed);
+            int[] data = new int[WIDTH * HEIGHT];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = 40 + random.nextInt(100);
+            }
+            int[] expected = filterFull(kernel, data, 0.5F, 1);
+            int[] actual = new HeightMapFilter(kernel).filter(data, WIDTH, HEIGHT, 0.5F, 1);
+            for (int i = 0; i < data.length; i++) {
+                // The passes add in another order, so a height landing next to a whole number may round the other way
+                assertTrue(Math.abs(expected[i] - actual[i]) <= 1, "seed " + seed + ", index " + i);
+                if (expected[i] != actual[i]) {
+                    different++;
+                }
+                cells++;
+            }
+        }
+        assertTrue(different * 10000L < cells, different + " of " + cells + " heights differ");
+        // None of them on rolling terrain, also after several iterations
+        assertSameAsFull(kernel);
+    }
+
+    @Test
+    @DisplayName("applies a kernel that can't be split with the same result as before")
+    void testNonSeparableKernel() {
+        float[] data = new float[9];
+        data[1] = data[3] = data[5] = data[7] = 0.25F;
+        assertSameAsFull(new Kernel(3, 3, data));
+    }
+
+}